@@ -0,0 +1,171 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.Card;
+import com.bhfantasy.web.model.custom.MatchSnapshot;
+import com.bhfantasy.web.model.players.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Generates matches with event volumes of a top flight season: full lineups, up to three substitutions per
+ * team, about 2.7 goals, 3.5 yellow cards and a missed penalty every 25 matches on average.
+ */
+final class MatchSnapshots {
+
+    private static final int TEAMS = 20;
+
+    private static final int SQUAD_SIZE = 25;
+
+    private MatchSnapshots() {
+    }
+
+    static List<MatchSnapshot> generate(int count, long seed) {
+        Random random = new Random(seed);
+
+        List<List<MatchSnapshot.PlayerSnapshot>> squads = new ArrayList<>();
+
+        long nextPlayerId = 1000;
+
+        for (int team = 0; team < TEAMS; team++) {
+            List<MatchSnapshot.PlayerSnapshot> squad = new ArrayList<>();
+
+            for (int i = 0; i < SQUAD_SIZE; i++) {
+                squad.add(new MatchSnapshot.PlayerSnapshot(nextPlayerId++, getType(i)));
+            }
+
+            squads.add(squad);
+        }
+
+        List<MatchSnapshot> matches = new ArrayList<>(count);
+
+        for (long matchId = 1; matchId <= count; matchId++) {
+            int team1 = random.nextInt(TEAMS);
+            int team2 = (team1 + 1 + random.nextInt(TEAMS - 1)) % TEAMS;
+
+            List<MatchSnapshot.PlayerSnapshot> onPitch1 = new ArrayList<>();
+            List<MatchSnapshot.PlayerSnapshot> onPitch2 = new ArrayList<>();
+
+            MatchSnapshot.LineupSnapshot lineup1 = getLineup(squads.get(team1), random, onPitch1);
+            MatchSnapshot.LineupSnapshot lineup2 = getLineup(squads.get(team2), random, onPitch2);
+
+            List<MatchSnapshot.GoalSnapshot> goals = new ArrayList<>();
+
+            int score1 = addGoals(goals, 1, onPitch1, onPitch2, random);
+            int score2 = addGoals(goals, 2, onPitch2, onPitch1, random);
+
+            List<MatchSnapshot.CardSnapshot> cards = new ArrayList<>();
+
+            for (int i = poisson(random, 3.5); i > 0; i--) {
+                List<MatchSnapshot.PlayerSnapshot> onPitch = random.nextBoolean() ? onPitch1 : onPitch2;
+
+                cards.add(new MatchSnapshot.CardSnapshot(onPitch.get(random.nextInt(onPitch.size())),
+                        random.nextInt(20) == 0 ? Card.CardType.RED : Card.CardType.YELLOW));
+            }
+
+            List<MatchSnapshot.MissedPenaltySnapshot> missedPenalties = new ArrayList<>();
+
+            if (random.nextInt(25) == 0) {
+                missedPenalties.add(new MatchSnapshot.MissedPenaltySnapshot(
+                        onPitch1.get(1 + random.nextInt(onPitch1.size() - 1)), onPitch2.get(0)));
+            }
+
+            matches.add(new MatchSnapshot(matchId, score1, score2, lineup1, lineup2, goals, cards, missedPenalties));
+        }
+
+        return matches;
+    }
+
+    // Squad of 2 goalkeepers, 8 defenders, 8 midfielders, 5 strikers and 2 players without position
+    private static Class<? extends Player> getType(int index) {
+        if (index < 2) {
+            return Goalkeaper.class;
+        } else if (index < 10) {
+            return Defender.class;
+        } else if (index < 18) {
+            return Middle.class;
+        } else if (index < 23) {
+            return Striker.class;
+        }
+
+        return Unknown.class;
+    }
+
+    private static MatchSnapshot.LineupSnapshot getLineup(
+            List<MatchSnapshot.PlayerSnapshot> squad, Random random, List<MatchSnapshot.PlayerSnapshot> onPitch) {
+        List<MatchSnapshot.PlayerSnapshot> outfield = new ArrayList<>(squad.subList(2, squad.size()));
+
+        Collections.shuffle(outfield, random);
+
+        List<MatchSnapshot.PlayerSnapshot> startingPlayers = new ArrayList<>(outfield.subList(0, 10));
+
+        startingPlayers.add(0, squad.get(random.nextInt(10) == 0 ? 1 : 0));
+
+        onPitch.addAll(startingPlayers);
+
+        List<MatchSnapshot.SubstitutionSnapshot> substitutions = new ArrayList<>();
+
+        List<MatchSnapshot.PlayerSnapshot> substituted = new ArrayList<>();
+
+        for (int i = 0; i < 3; i++) {
+            if (random.nextInt(10) == 0) {
+                continue;
+            }
+
+            MatchSnapshot.PlayerSnapshot player = outfield.get(10 + i);
+            MatchSnapshot.PlayerSnapshot substitutePlayer = startingPlayers.get(1 + random.nextInt(10));
+
+            if (substituted.contains(substitutePlayer)) {
+                continue;
+            }
+
+            substituted.add(substitutePlayer);
+
+            substitutions.add(new MatchSnapshot.SubstitutionSnapshot(player, substitutePlayer, 46 + random.nextInt(44)));
+
+            onPitch.add(player);
+        }
+
+        return new MatchSnapshot.LineupSnapshot(startingPlayers, substitutions);
+    }
+
+    private static int addGoals(List<MatchSnapshot.GoalSnapshot> goals, int team,
+                                List<MatchSnapshot.PlayerSnapshot> scorers, List<MatchSnapshot.PlayerSnapshot> opponents,
+                                Random random) {
+        int count = poisson(random, 1.35);
+
+        for (int i = 0; i < count; i++) {
+            int minute = 1 + random.nextInt(90);
+
+            if (random.nextInt(30) == 0) {
+                goals.add(new MatchSnapshot.GoalSnapshot(
+                        opponents.get(1 + random.nextInt(opponents.size() - 1)), null, minute, true, team));
+                continue;
+            }
+
+            MatchSnapshot.PlayerSnapshot scorer = scorers.get(1 + random.nextInt(scorers.size() - 1));
+            MatchSnapshot.PlayerSnapshot assist = random.nextInt(10) < 7
+                    ? scorers.get(1 + random.nextInt(scorers.size() - 1)) : null;
+
+            goals.add(new MatchSnapshot.GoalSnapshot(scorer, assist != scorer ? assist : null, minute, false, team));
+        }
+
+        return count;
+    }
+
+    private static int poisson(Random random, double mean) {
+        double limit = Math.exp(-mean);
+        double product = random.nextDouble();
+
+        int count = 0;
+
+        while (product > limit) {
+            product *= random.nextDouble();
+            count++;
+        }
+
+        return count;
+    }
+}
@@ -0,0 +1,180 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.Card;
+import com.bhfantasy.web.model.custom.MatchSnapshot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Scoring cost per match, {@link PointsCalculator} against a map based calculation that checks every goal
+ * against every player's time on the pitch. Run with the gc profiler to compare allocation per match.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PointsCalculatorBenchmark {
+
+    private List<MatchSnapshot> matches;
+
+    private final PointsAccumulator accumulator = new PointsAccumulator();
+
+    private int next;
+
+    @Setup
+    public void generateMatches() {
+        matches = MatchSnapshots.generate(380, 2018);
+
+        for (MatchSnapshot match : matches) {
+            PointsCalculator.Result result = PointsCalculator.calculate(match, accumulator);
+
+            Map<Long, PointsValue> expected = calculateWithMaps(match);
+
+            boolean same = result.size() == expected.size();
+
+            for (int i = 0; same && i < result.size(); i++) {
+                PointsValue points = expected.get(result.getPlayerId(i));
+
+                same = points != null && points.getTotalPoints() == result.getPoints(i);
+            }
+
+            if (!same) {
+                throw new IllegalStateException("Points of match " + match.getMatchId() + " differ.");
+            }
+        }
+    }
+
+    @Benchmark
+    public PointsCalculator.Result accumulator() {
+        return PointsCalculator.calculate(nextMatch(), accumulator);
+    }
+
+    @Benchmark
+    public Map<Long, PointsValue> maps() {
+        return calculateWithMaps(nextMatch());
+    }
+
+    private MatchSnapshot nextMatch() {
+        int index = next;
+
+        next = index + 1 == matches.size() ? 0 : index + 1;
+
+        return matches.get(index);
+    }
+
+    private static Map<Long, PointsValue> calculateWithMaps(MatchSnapshot match) {
+        Map<Long, PointsValue> pointsMap = new HashMap<>();
+
+        for(MatchSnapshot.GoalSnapshot goal : match.getGoals()) {
+            if(goal.getPlayer() != null) {
+                pointsMap.putIfAbsent(goal.getPlayer().getId(), new PointsValue(goal.getPlayer().getId(),
+                        goal.getPlayer().getType()));
+
+                if (!goal.isOwnGoal()) {
+                    pointsMap.get(goal.getPlayer().getId()).addGoal();
+                } else {
+                    pointsMap.get(goal.getPlayer().getId()).addOwnGoal();
+                }
+            }
+
+            if(goal.getAssist() != null) {
+                pointsMap.putIfAbsent(goal.getAssist().getId(), new PointsValue(goal.getAssist().getId(),
+                        goal.getAssist().getType()));
+
+                pointsMap.get(goal.getAssist().getId()).addAssist();
+            }
+        }
+
+        for(MatchSnapshot.CardSnapshot card : match.getCards()) {
+            pointsMap.putIfAbsent(card.getPlayer().getId(), new PointsValue(card.getPlayer().getId(),
+                    card.getPlayer().getType()));
+
+            if(card.getCardType() == Card.CardType.RED) {
+                pointsMap.get(card.getPlayer().getId()).addRedCard();
+            } else if(card.getCardType() == Card.CardType.YELLOW) {
+                pointsMap.get(card.getPlayer().getId()).addYellowCard();
+            }
+        }
+
+        for(MatchSnapshot.MissedPenaltySnapshot missedPenalty : match.getMissedPenalties()) {
+            if(missedPenalty.getSavedBy() != null) {
+                pointsMap.putIfAbsent(missedPenalty.getSavedBy().getId(), new PointsValue(
+                        missedPenalty.getSavedBy().getId(), missedPenalty.getSavedBy().getType()));
+
+                pointsMap.get(missedPenalty.getSavedBy().getId()).addSavedPenalty();
+            }
+
+            if(missedPenalty.getPlayer() != null) {
+                pointsMap.putIfAbsent(missedPenalty.getPlayer().getId(), new PointsValue(
+                        missedPenalty.getPlayer().getId(), missedPenalty.getPlayer().getType()));
+
+                pointsMap.get(missedPenalty.getPlayer().getId()).addMissedPenalty();
+            }
+        }
+
+        addPlayerMinutes(match, match.getLineup1(), 1, pointsMap);
+        addPlayerMinutes(match, match.getLineup2(), 2, pointsMap);
+
+        return pointsMap;
+    }
+
+    // Checks every conceded goal against the on-pitch interval of every player, a goal in the minute of a
+    // substitution counts for the player going off
+    private static void addPlayerMinutes(MatchSnapshot match, MatchSnapshot.LineupSnapshot lineup, int lineupNumber,
+                                         Map<Long, PointsValue> pointsMap) {
+        if(lineup == null) {
+            return;
+        }
+
+        Map<Long, int[]> intervals = new HashMap<>();
+
+        for(MatchSnapshot.PlayerSnapshot player : lineup.getStartingPlayers()) {
+            pointsMap.putIfAbsent(player.getId(), new PointsValue(player.getId(), player.getType()));
+
+            intervals.put(player.getId(), new int[]{-1, Integer.MAX_VALUE});
+        }
+
+        List<MatchSnapshot.SubstitutionSnapshot> substitutions = new ArrayList<>(lineup.getSubstitutions());
+
+        substitutions.sort(Comparator.comparing(MatchSnapshot.SubstitutionSnapshot::getMinute));
+
+        for(MatchSnapshot.SubstitutionSnapshot substitution : substitutions) {
+            int[] interval = intervals.get(substitution.getSubstitutePlayer().getId());
+
+            // Player can only go off once
+            if(interval != null && interval[1] == Integer.MAX_VALUE) {
+                interval[1] = substitution.getMinute();
+            }
+
+            if(substitution.getPlayer() != null) {
+                pointsMap.putIfAbsent(substitution.getPlayer().getId(), new PointsValue(
+                        substitution.getPlayer().getId(), substitution.getPlayer().getType()));
+
+                intervals.put(substitution.getPlayer().getId(), new int[]{substitution.getMinute(), Integer.MAX_VALUE});
+            }
+        }
+
+        intervals.forEach((playerId, interval) -> {
+            int minutes = Math.min(interval[1], 90) - Math.max(Math.min(interval[0], 90), 0);
+
+            boolean conceded = false;
+
+            for(MatchSnapshot.GoalSnapshot goal : match.getGoals()) {
+                if(goal.getTeam() != lineupNumber && goal.getMinute() > interval[0]
+                        && goal.getMinute() <= interval[1]) {
+                    conceded = true;
+                }
+            }
+
+            pointsMap.get(playerId).addMinutesPlayed(minutes);
+
+            if(minutes >= 60 && !conceded) {
+                pointsMap.get(playerId).addCleanSheet();
+            }
+        });
+    }
+}
@@ -1,10 +1,15 @@
-package com.bhfantasy.web.model.custom;
+package com.bhfantasy.web.service;
 
 import com.bhfantasy.web.model.players.*;
 
-public class PointsValue {
+/**
+ * Points of a player in the map based scoring that {@link PointsAccumulator} replaced, kept as benchmark baseline.
+ */
+class PointsValue {
 
-    private Player player;
+    private final Long playerId;
+
+    private final Class<? extends Player> playerType;
 
     private Integer goalsScored = 0;
 
@@ -24,8 +29,9 @@ public class PointsValue {
 
     private boolean cleanSheet = false;
 
-    public PointsValue(Player player) {
-        this.player = player;
+    PointsValue(Long playerId, Class<? extends Player> playerType) {
+        this.playerId = playerId;
+        this.playerType = playerType;
     }
 
     public void addGoal() {
@@ -76,11 +82,11 @@ public class PointsValue {
         }
 
         if(cleanSheet){
-            if(player instanceof Goalkeaper){
+            if(playerType == Goalkeaper.class){
              result += 4;
-            }else if(player instanceof Defender){
+            }else if(playerType == Defender.class){
                 result += 4;
-            }else if(player instanceof Middle){
+            }else if(playerType == Middle.class){
                 result += 1;
             }
         }
@@ -88,14 +94,18 @@ public class PointsValue {
         return result;
     }
 
-    public Player getPlayer() {
-        return player;
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public Class<? extends Player> getPlayerType() {
+        return playerType;
     }
 
     private Integer getGoalScoredCoefficient() {
-        if(player instanceof Striker) {
+        if(playerType == Striker.class) {
             return 4;
-        } else if(player instanceof Middle) {
+        } else if(playerType == Middle.class) {
             return 5;
         } else {
             return 6;
@@ -104,6 +114,6 @@ public class PointsValue {
 
     @Override
     public String toString() {
-        return String.format("Player %s has %d points.", player.getFullName(), getTotalPoints());
+        return String.format("Player %d has %d points.", playerId, getTotalPoints());
     }
 }
@@ -0,0 +1,132 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.custom.MatchSnapshot;
+import com.bhfantasy.web.model.league.ScoringRules;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static com.bhfantasy.web.service.PointsAccumulator.*;
+
+/**
+ * Cost of turning a season of player match events into points, compiled rules against the hard-coded
+ * calculation they replaced. CompiledScoringRulesTest checks that the compiled default rules give the hard-coded
+ * points.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ScoringRulesBenchmark {
+
+    private int[] types;
+
+    private long[] counters;
+
+    private int[] minutes;
+
+    private CompiledScoringRules customRules;
+
+    @Setup
+    public void scoreSeason() {
+        List<MatchSnapshot> matches = MatchSnapshots.generate(380, 2018);
+
+        PointsAccumulator accumulator = new PointsAccumulator();
+
+        int size = 0;
+
+        types = new int[matches.size() * 40];
+        counters = new long[types.length];
+        minutes = new int[types.length];
+
+        for (MatchSnapshot match : matches) {
+            PointsCalculator.calculate(match, accumulator);
+
+            for (int entry = 0; entry < accumulator.size(); entry++, size++) {
+                types[size] = accumulator.getType(entry);
+                counters[size] = accumulator.getCounters(entry);
+                minutes[size] = accumulator.getMinutes(entry);
+            }
+        }
+
+        types = Arrays.copyOf(types, size);
+        counters = Arrays.copyOf(counters, size);
+        minutes = Arrays.copyOf(minutes, size);
+
+        ScoringRules rules = new ScoringRules();
+        rules.setGoalStriker(5);
+        rules.setAssist(2);
+        rules.setCleanSheetMiddle(2);
+        rules.setYellowCard(-2);
+
+        customRules = CompiledScoringRules.compile(rules);
+    }
+
+    @Benchmark
+    public int hardCoded() {
+        int total = 0;
+
+        for (int i = 0; i < types.length; i++) {
+            total += getHardCodedPoints(types[i], counters[i], minutes[i]);
+        }
+
+        return total;
+    }
+
+    @Benchmark
+    public int compiledDefault() {
+        return evaluate(CompiledScoringRules.DEFAULT);
+    }
+
+    @Benchmark
+    public int compiledCustom() {
+        return evaluate(customRules);
+    }
+
+    private int evaluate(CompiledScoringRules rules) {
+        int total = 0;
+
+        for (int i = 0; i < types.length; i++) {
+            total += rules.evaluate(types[i], counters[i], minutes[i]);
+        }
+
+        return total;
+    }
+
+    // Points as PointsValue.getTotalPoints calculated them
+    private static int getHardCodedPoints(int type, long counters, int minutesPlayed) {
+        int result = 0;
+
+        result += count(counters, GOAL) * (type == STRIKER ? 4 : type == MIDDLE ? 5 : 6);
+        result += count(counters, ASSIST) * 3;
+        result += count(counters, OWN_GOAL) * -2;
+        result += count(counters, SAVED_PENALTY) * 5;
+        result += count(counters, MISSED_PENALTY) * -2;
+
+        if ((counters & RED_CARD) != 0) {
+            result += -3;
+        } else if ((counters & YELLOW_CARD) != 0) {
+            result += -1;
+        }
+
+        if (minutesPlayed >= 60) {
+            result += 2;
+        } else if (minutesPlayed > 0) {
+            result += 1;
+        }
+
+        if ((counters & CLEAN_SHEET) != 0) {
+            if (type == GOALKEEPER || type == DEFENDER) {
+                result += 4;
+            } else if (type == MIDDLE) {
+                result += 1;
+            }
+        }
+
+        return result;
+    }
+}
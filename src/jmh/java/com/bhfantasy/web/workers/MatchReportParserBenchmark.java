@@ -0,0 +1,85 @@
+package com.bhfantasy.web.workers;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Parse cost per match report over saved report pages. Pages are read from the directory in the
+ * bhfantasy.benchmark.pages system property, the page cache content directory works as is since
+ * pages other than match reports are skipped.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MatchReportParserBenchmark {
+
+    private final MatchReportParser parser = new MatchReportParser();
+
+    private List<String> pages;
+
+    private List<Document> documents;
+
+    private int next;
+
+    @Setup
+    public void loadPages() throws IOException {
+        Path directory = Paths.get(System.getProperty("bhfantasy.benchmark.pages", "pages"));
+
+        List<Path> files;
+
+        try (Stream<Path> stream = Files.walk(directory)) {
+            files = stream.filter(path -> path.toString().endsWith(".html")).collect(Collectors.toList());
+        }
+
+        pages = new ArrayList<>();
+        documents = new ArrayList<>();
+
+        for (Path file : files) {
+            String html = new String(Files.readAllBytes(file), StandardCharsets.UTF_8);
+
+            Document document = Jsoup.parse(html, "https://www.transfermarkt.com");
+
+            if (document.getElementById("sb-tore") != null || document.getElementById("sb-wechsel") != null) {
+                pages.add(html);
+                documents.add(document);
+            }
+        }
+
+        if (documents.isEmpty()) {
+            throw new IllegalStateException("No match report pages found in " + directory.toAbsolutePath());
+        }
+    }
+
+    @Benchmark
+    public MatchReport parseDocument() {
+        return parser.parse(documents.get(nextIndex()));
+    }
+
+    @Benchmark
+    public MatchReport parseHtml() {
+        return parser.parse(Jsoup.parse(pages.get(nextIndex()), "https://www.transfermarkt.com"));
+    }
+
+    private int nextIndex() {
+        int index = next;
+
+        next = index + 1 == documents.size() ? 0 : index + 1;
+
+        return index;
+    }
+}
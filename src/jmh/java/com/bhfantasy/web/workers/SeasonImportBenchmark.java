@@ -0,0 +1,66 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.BHFantasyApplication;
+import com.bhfantasy.web.model.league.RegularLeague;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.SpringApplication;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full season import on the postgres profile, with the COPY writer and with the JPA repositories.
+ *
+ * Pages are replayed from the directory in the bhfantasy.benchmark.replay system property, laid out as
+ * expected by {@link FileSystemPageSource}, and the season in bhfantasy.benchmark.season-url is imported.
+ * Every iteration starts on a freshly created schema of the database configured in application-postgres.yaml,
+ * so the database must be a disposable one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 1)
+@Measurement(iterations = 3)
+@Fork(1)
+public class SeasonImportBenchmark {
+
+    @Param({"true", "false"})
+    public boolean bulkWrites;
+
+    private ConfigurableApplicationContext context;
+
+    private TransferMarktWorker worker;
+
+    private String seasonUrl;
+
+    @Setup(Level.Iteration)
+    public void startApplication() {
+        seasonUrl = System.getProperty("bhfantasy.benchmark.season-url",
+                "/premier-league/gesamtspielplan/wettbewerb/GB1/saison_id/2018");
+
+        context = SpringApplication.run(BHFantasyApplication.class,
+                "--spring.profiles.active=postgres",
+                "--spring.main.web-application-type=none",
+                "--spring.jpa.hibernate.ddl-auto=create",
+                "--bhfantasy.postgres.bulk-writes=" + bulkWrites,
+                "--bhfantasy.workers.replay.directory=" + System.getProperty("bhfantasy.benchmark.replay", "pages"));
+
+        worker = context.getBean(TransferMarktWorker.class);
+    }
+
+    @TearDown(Level.Iteration)
+    public void stopApplication() {
+        context.close();
+    }
+
+    @Benchmark
+    public RegularLeague importSeason() {
+        RegularLeague league = worker.process(seasonUrl);
+
+        if (league == null) {
+            throw new IllegalStateException("Season " + seasonUrl + " could not be imported.");
+        }
+
+        return league;
+    }
+}
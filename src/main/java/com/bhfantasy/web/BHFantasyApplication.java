@@ -5,6 +5,7 @@ import com.bhfantasy.web.model.league.RegularLeague;
 import com.bhfantasy.web.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.web.servlet.ServletContextInitializer;
@@ -27,9 +28,12 @@ public class BHFantasyApplication {
 
     private final LeagueSetupRepository leagueSetupRepository;
 
+    private final String seasonId;
+
     public BHFantasyApplication(
-            LeagueSetupRepository leagueSetupRepository) {
+            LeagueSetupRepository leagueSetupRepository, @Value("${bhfantasy.season:2018}") String seasonId) {
         this.leagueSetupRepository = leagueSetupRepository;
+        this.seasonId = seasonId;
     }
 
     public static void main(String[] args) {
@@ -61,8 +65,6 @@ public class BHFantasyApplication {
     @PostConstruct
     @Transactional
     public void seedLeagueSetups() {
-        String seasonId = "2018";
-
         if(leagueSetupRepository.count() == 0) {
             saveLeagueSetup("Premijer Liga","/premijer-liga/gesamtspielplan/wettbewerb/BOS1", seasonId);
 
@@ -0,0 +1,79 @@
+package com.bhfantasy.web.config;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Moves id sequences past the ids already stored in their tables.
+ *
+ * Tables of batch inserted entities used identity columns before, so a fresh sequence would hand out ids
+ * that are taken. Hibernate uses the pooled-lo optimizer, the sequence value is the first id of the next
+ * block. Blocks already handed out may hold ids that are not stored yet, by another instance or a restart
+ * before they were flushed, so a sequence is only moved forward: its next value becomes the greater of
+ * max(id) + 1 and the value it would have returned.
+ */
+@Component
+public class IdSequenceInitializer {
+
+    private static Logger logger = LoggerFactory.getLogger(IdSequenceInitializer.class);
+
+    private static final Map<String, String> SEQUENCES = new LinkedHashMap<>();
+
+    static {
+        SEQUENCES.put("lineup", "lineup_sequence");
+        SEQUENCES.put("goal", "goal_sequence");
+        SEQUENCES.put("card", "card_sequence");
+        SEQUENCES.put("substitution", "substitution_sequence");
+        SEQUENCES.put("missed_penalty", "missed_penalty_sequence");
+        SEQUENCES.put("player_points", "player_points_sequence");
+    }
+
+    private final JdbcTemplate jdbcTemplate;
+
+    // Entity manager factory is injected so that schema update is done before sequences are touched
+    public IdSequenceInitializer(JdbcTemplate jdbcTemplate, EntityManagerFactory entityManagerFactory) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequences() {
+        boolean postgres = isPostgres();
+
+        SEQUENCES.forEach((table, sequence) -> {
+            try {
+                if (postgres) {
+                    // One statement, so values taken meanwhile by other instances are not handed out again
+                    jdbcTemplate.queryForObject(String.format(
+                            "select setval('%s', greatest((select coalesce(max(id), 0) + 1 from %s), " +
+                                    "nextval('%s')), false)", sequence, table, sequence), Long.class);
+                } else {
+                    Long maxId = jdbcTemplate.queryForObject(
+                            String.format("select coalesce(max(id), 0) from %s", table), Long.class);
+
+                    Long nextValue = jdbcTemplate.queryForObject(
+                            String.format("select next value for %s", sequence), Long.class);
+
+                    jdbcTemplate.execute(String.format("alter sequence %s restart with %d",
+                            sequence, Math.max(maxId + 1, nextValue)));
+                }
+            } catch (Exception e) {
+                logger.error("Error while aligning sequence {} with table {}.", sequence, table, e);
+            }
+        });
+    }
+
+    private boolean isPostgres() {
+        String databaseName = jdbcTemplate.execute(
+                (ConnectionCallback<String>) connection -> connection.getMetaData().getDatabaseProductName());
+
+        return "PostgreSQL".equals(databaseName);
+    }
+}
@@ -0,0 +1,29 @@
+package com.bhfantasy.web.config;
+
+import com.bhfantasy.web.workers.FileSystemPageSource;
+import com.bhfantasy.web.workers.PageSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+
+import java.nio.file.Paths;
+
+@Configuration
+public class WorkerConfiguration {
+
+    private static Logger logger = LoggerFactory.getLogger(WorkerConfiguration.class);
+
+    // Offline replay, workers read saved Transfermarkt pages from disk instead of the live site
+    @Bean
+    @Primary
+    @ConditionalOnProperty("bhfantasy.workers.replay.directory")
+    public PageSource replayPageSource(@Value("${bhfantasy.workers.replay.directory}") String directory) {
+        logger.info("Workers are replaying pages from {}.", directory);
+
+        return new FileSystemPageSource(Paths.get(directory));
+    }
+}
@@ -1,13 +1,25 @@
 package com.bhfantasy.web.controller;
 
+import com.bhfantasy.web.model.BackfillPage;
 import com.bhfantasy.web.model.LeagueSetup;
+import com.bhfantasy.web.model.custom.FetcherStatsValue;
+import com.bhfantasy.web.model.custom.JobValue;
+import com.bhfantasy.web.model.custom.LeaderboardEntryValue;
+import com.bhfantasy.web.model.custom.PageCacheStatsValue;
+import com.bhfantasy.web.model.custom.ScheduledMatchPollValue;
 import com.bhfantasy.web.model.league.FantasyLeague;
-import com.bhfantasy.web.model.league.RegularLeague;
+import com.bhfantasy.web.model.league.ScoringRules;
 import com.bhfantasy.web.repository.*;
+import com.bhfantasy.web.service.BackfillService;
+import com.bhfantasy.web.service.BacktestService;
 import com.bhfantasy.web.service.FantasyService;
+import com.bhfantasy.web.service.JobService;
+import com.bhfantasy.web.service.LeaderboardService;
 import com.bhfantasy.web.service.LeagueSetupService;
-import com.bhfantasy.web.service.MultiLeagueService;
-import com.bhfantasy.web.workers.TransferMarktWorker;
+import com.bhfantasy.web.service.ScoringRulesService;
+import com.bhfantasy.web.workers.IngestionScheduler;
+import com.bhfantasy.web.workers.PageCache;
+import com.bhfantasy.web.workers.RateLimitedFetcher;
 import com.fasterxml.jackson.annotation.JsonView;
 import org.springframework.http.HttpStatus;
 import org.springframework.security.access.annotation.Secured;
@@ -15,8 +27,9 @@ import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
 import javax.transaction.Transactional;
+import java.io.IOException;
+import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.Executors;
 import java.util.stream.Collectors;
 
 @RestController
@@ -28,23 +41,37 @@ public class AdminController {
 
     private final LeagueSetupService leagueSetupService;
 
-    private final TransferMarktWorker transferMarktWorker;
+    private final FantasyService fantasyService;
 
-    private final MultiLeagueService multiLeagueService;
+    private final JobService jobService;
 
-    private final FantasyService fantasyService;
+    private final PageCache pageCache;
+
+    private final IngestionScheduler ingestionScheduler;
+
+    private final RateLimitedFetcher rateLimitedFetcher;
 
-    private final RegularLeagueRepository regularLeagueRepository;
+    private final BackfillService backfillService;
+
+    private final ScoringRulesService scoringRulesService;
+
+    private final LeaderboardService leaderboardService;
 
     public AdminController(LeagueSetupRepository leagueSetupRepository,
-                           LeagueSetupService leagueSetupService, TransferMarktWorker transferMarktWorker,
-                           MultiLeagueService multiLeagueService, FantasyService fantasyService, RegularLeagueRepository regularLeagueRepository) {
+                           LeagueSetupService leagueSetupService, FantasyService fantasyService, JobService jobService,
+                           PageCache pageCache, IngestionScheduler ingestionScheduler,
+                           RateLimitedFetcher rateLimitedFetcher, BackfillService backfillService,
+                           ScoringRulesService scoringRulesService, LeaderboardService leaderboardService) {
         this.leagueSetupRepository = leagueSetupRepository;
         this.leagueSetupService = leagueSetupService;
-        this.transferMarktWorker = transferMarktWorker;
-        this.multiLeagueService = multiLeagueService;
         this.fantasyService = fantasyService;
-        this.regularLeagueRepository = regularLeagueRepository;
+        this.jobService = jobService;
+        this.pageCache = pageCache;
+        this.ingestionScheduler = ingestionScheduler;
+        this.rateLimitedFetcher = rateLimitedFetcher;
+        this.backfillService = backfillService;
+        this.scoringRulesService = scoringRulesService;
+        this.leaderboardService = leaderboardService;
     }
 
     @GetMapping("/setups")
@@ -84,31 +111,16 @@ public class AdminController {
 
     @PostMapping("/setups/{setupId}/process")
     @Transactional
-    @JsonView(LeagueSetup.DetailedView.class)
-    public LeagueSetup processLeagueSetup(@PathVariable("setupId") Long setupId) {
+    public JobValue processLeagueSetup(@PathVariable("setupId") Long setupId) {
         Optional<LeagueSetup> optionalLeagueSetup = leagueSetupRepository.findById(setupId);
 
         if (optionalLeagueSetup.isPresent()) {
             LeagueSetup leagueSetup = optionalLeagueSetup.get();
 
             if (leagueSetup.getTransfermarktUrl() != null) {
-                Executors.newSingleThreadExecutor().execute(
-                        () -> {
-                            RegularLeague league = transferMarktWorker.process(leagueSetup.getTransfermarktUrl());
-
-                            if(league.getLevel() != leagueSetup.getLevel()) {
-                                league.setLevel(leagueSetup.getLevel());
-
-                                league = regularLeagueRepository.save(league);
-                            }
-
-                            fantasyService.process(league.getId());
-
-                            leagueSetupService.updateLeagueSetup(leagueSetup, league, null);
-                        }
-                );
+                return jobService.processLeagueSetup(leagueSetup);
             } else if(leagueSetup.getLeagueSetups().size() > 0) {
-                RegularLeague regularLeague = multiLeagueService.seedMultiLeague(
+                return jobService.seedMultiLeague(leagueSetup,
                         leagueSetup.getLeagueSetups().stream().map(setup -> {
                             if(setup.getLeague() == null) {
                                 throw new ResponseStatusException(
@@ -116,17 +128,123 @@ public class AdminController {
                             }
 
                             return setup.getLeague().getId();
-                        }).collect(Collectors.toList()),
-                        leagueSetup.getName());
+                        }).collect(Collectors.toList()));
+            } else {
+                throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "League setup has nothing to process!");
+            }
+        } else {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "League setup doesn't exist!");
+        }
+    }
 
-                leagueSetup.setLeague(regularLeague);
+    @PostMapping("/setups/{setupId}/score")
+    @Transactional
+    public JobValue scoreLeagueSetup(@PathVariable("setupId") Long setupId) {
+        Optional<LeagueSetup> optionalLeagueSetup = leagueSetupRepository.findById(setupId);
 
-                leagueSetupRepository.save(leagueSetup);
-            }
+        if (!optionalLeagueSetup.isPresent()) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "League setup doesn't exist!");
+        }
 
-            return leagueSetup;
-        } else {
+        if (optionalLeagueSetup.get().getLeague() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "League setup is not processed!");
+        }
+
+        return jobService.scoreLeagueSetup(optionalLeagueSetup.get());
+    }
+
+    @PostMapping("/setups/{setupId}/backfill")
+    public List<BackfillPage> backfillLeagueSetup(@PathVariable("setupId") Long setupId,
+                                                  @RequestParam("fromSeason") Integer fromSeason,
+                                                  @RequestParam("toSeason") Integer toSeason) {
+        Optional<LeagueSetup> optionalLeagueSetup = leagueSetupRepository.findById(setupId);
+
+        if (!optionalLeagueSetup.isPresent()) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "League setup doesn't exist!");
         }
+
+        if (optionalLeagueSetup.get().getTransfermarktUrl() == null) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "League setup can't be backfilled!");
+        }
+
+        if (fromSeason > toSeason) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "Season range is invalid!");
+        }
+
+        return backfillService.backfill(optionalLeagueSetup.get(), fromSeason, toSeason);
+    }
+
+    @GetMapping("/setups/{setupId}/backfill")
+    public List<BackfillPage> getBackfill(@PathVariable("setupId") Long setupId) {
+        return backfillService.getPages(setupId);
+    }
+
+    @GetMapping("/fantasy-leagues/{leagueId}/scoring-rules")
+    public ScoringRules getScoringRules(@PathVariable("leagueId") Long leagueId) {
+        return scoringRulesService.getRules(leagueId);
+    }
+
+    @PutMapping("/fantasy-leagues/{leagueId}/scoring-rules")
+    public ScoringRules updateScoringRules(@PathVariable("leagueId") Long leagueId,
+                                           @RequestBody ScoringRules rules) {
+        return scoringRulesService.updateRules(leagueId, rules);
+    }
+
+    @PostMapping("/fantasy-leagues/{leagueId}/scoring-rules/backtest")
+    public JobValue backtestScoringRules(@PathVariable("leagueId") Long leagueId,
+                                         @RequestBody List<ScoringRules> candidates) {
+        if (candidates.isEmpty() || candidates.size() > BacktestService.MAX_CANDIDATES) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    "Between 1 and " + BacktestService.MAX_CANDIDATES + " scoring rules can be backtested!");
+        }
+
+        return jobService.backtest(leagueId, candidates);
+    }
+
+    @PostMapping("/fantasy-leagues/{leagueId}/leaderboard/rebuild")
+    public List<LeaderboardEntryValue> rebuildLeaderboard(@PathVariable("leagueId") Long leagueId,
+                                                          @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return leaderboardService.rebuild(leagueId).getTop(limit);
+    }
+
+    @GetMapping("/jobs")
+    public List<JobValue> getJobs() {
+        return jobService.getJobs();
+    }
+
+    @GetMapping("/jobs/{jobId}")
+    public JobValue getJob(@PathVariable("jobId") String jobId) {
+        return jobService.getJob(jobId);
+    }
+
+    @DeleteMapping("/jobs/{jobId}")
+    public JobValue cancelJob(@PathVariable("jobId") String jobId) {
+        return jobService.cancel(jobId);
+    }
+
+    @GetMapping("/page-cache")
+    public PageCacheStatsValue getPageCacheStats() {
+        return pageCache.getStats();
+    }
+
+    @DeleteMapping("/page-cache")
+    public PageCacheStatsValue clearPageCache() {
+        try {
+            pageCache.clear();
+        } catch (IOException e) {
+            throw new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, "Page cache couldn't be cleared!", e);
+        }
+
+        return pageCache.getStats();
+    }
+
+    @GetMapping("/fetcher")
+    public FetcherStatsValue getFetcherStats() {
+        return rateLimitedFetcher.getStats();
+    }
+
+    @GetMapping("/ingestion-schedule")
+    public List<ScheduledMatchPollValue> getIngestionSchedule() {
+        return ingestionScheduler.getScheduledPolls();
     }
 }
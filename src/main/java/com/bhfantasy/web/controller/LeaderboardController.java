@@ -0,0 +1,96 @@
+package com.bhfantasy.web.controller;
+
+import com.bhfantasy.web.exception.InvalidLeagueIdException;
+import com.bhfantasy.web.exception.TeamNotFoundException;
+import com.bhfantasy.web.model.Team;
+import com.bhfantasy.web.model.custom.LeaderboardEntryValue;
+import com.bhfantasy.web.repository.FantasyLeagueRepository;
+import com.bhfantasy.web.repository.TeamRepository;
+import com.bhfantasy.web.service.Leaderboard;
+import com.bhfantasy.web.service.LeaderboardService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+@RestController
+@RequestMapping("/api/leagues/{leagueId}/leaderboard")
+public class LeaderboardController {
+
+    private static final int MAX_LIMIT = 100;
+
+    private static final int MAX_RADIUS = 50;
+
+    private final FantasyLeagueRepository fantasyLeagueRepository;
+    private final TeamRepository teamRepository;
+    private final LeaderboardService leaderboardService;
+
+    public LeaderboardController(FantasyLeagueRepository fantasyLeagueRepository, TeamRepository teamRepository,
+                                 LeaderboardService leaderboardService) {
+        this.fantasyLeagueRepository = fantasyLeagueRepository;
+        this.teamRepository = teamRepository;
+        this.leaderboardService = leaderboardService;
+    }
+
+    @GetMapping
+    public List<LeaderboardEntryValue> getTop(@PathVariable("leagueId") Long leagueId,
+                                              @RequestParam(value = "limit", defaultValue = "20") int limit) {
+        return withTeams(getLeaderboard(leagueId).getTop(Math.max(0, Math.min(limit, MAX_LIMIT))));
+    }
+
+    @GetMapping("/teams/{teamId}")
+    public LeaderboardEntryValue getTeam(@PathVariable("leagueId") Long leagueId,
+                                         @PathVariable("teamId") Long teamId) {
+        LeaderboardEntryValue entry = getLeaderboard(leagueId).getEntry(teamId);
+
+        if (entry == null) {
+            throw new TeamNotFoundException();
+        }
+
+        return withTeams(Collections.singletonList(entry)).get(0);
+    }
+
+    @GetMapping("/teams/{teamId}/around")
+    public List<LeaderboardEntryValue> getAround(@PathVariable("leagueId") Long leagueId,
+                                                 @PathVariable("teamId") Long teamId,
+                                                 @RequestParam(value = "radius", defaultValue = "5") int radius) {
+        List<LeaderboardEntryValue> entries = getLeaderboard(leagueId)
+                .getAround(teamId, Math.max(0, Math.min(radius, MAX_RADIUS)));
+
+        if (entries.isEmpty()) {
+            throw new TeamNotFoundException();
+        }
+
+        return withTeams(entries);
+    }
+
+    private Leaderboard getLeaderboard(Long leagueId) {
+        if (!fantasyLeagueRepository.existsById(leagueId)) {
+            throw new InvalidLeagueIdException();
+        }
+
+        return leaderboardService.getLeaderboard(leagueId);
+    }
+
+    // Names and pictures are read with the page, the leaderboard itself only holds ids and points
+    private List<LeaderboardEntryValue> withTeams(List<LeaderboardEntryValue> entries) {
+        Map<Long, Team> teams = new HashMap<>();
+
+        teamRepository.findAllById(entries.stream().map(LeaderboardEntryValue::getTeamId).collect(Collectors.toList()))
+                .forEach(team -> teams.put(team.getId(), team));
+
+        for (LeaderboardEntryValue entry : entries) {
+            Team team = teams.get(entry.getTeamId());
+
+            if (team != null) {
+                entry.setTeamName(team.getName());
+                entry.setProfilePicture(team.getProfilePicture());
+            }
+        }
+
+        return entries;
+    }
+}
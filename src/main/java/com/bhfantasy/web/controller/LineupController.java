@@ -5,6 +5,7 @@ import com.bhfantasy.web.exception.InvalidRoundIdException;
 import com.bhfantasy.web.exception.InvalidTeamIdException;
 import com.bhfantasy.web.exception.LineupNotFoundException;
 import com.bhfantasy.web.model.FantasyLineup;
+import com.bhfantasy.web.model.FantasyLineupScore;
 import com.bhfantasy.web.model.Lineup;
 import com.bhfantasy.web.model.Round;
 import com.bhfantasy.web.model.Team;
@@ -12,6 +13,7 @@ import com.bhfantasy.web.model.league.FantasyLeague;
 import com.bhfantasy.web.model.league.League;
 import com.bhfantasy.web.model.players.*;
 import com.bhfantasy.web.repository.*;
+import com.bhfantasy.web.service.FantasyScoreService;
 import com.fasterxml.jackson.annotation.JsonView;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -30,15 +32,25 @@ public class LineupController {
     private final RoundRepository roundRepository;
     private final TeamRepository teamRepository;
     private final FantasyLineupRepository fantasyLineupRepository;
+    private final FantasyScoreService fantasyScoreService;
 
     public LineupController(LeagueRepository leagueRepository, LineupRepository lineupRepository,
                             RoundRepository roundRepository, TeamRepository teamRepository,
-                            FantasyLineupRepository fantasyLineupRepository) {
+                            FantasyLineupRepository fantasyLineupRepository,
+                            FantasyScoreService fantasyScoreService) {
         this.leagueRepository = leagueRepository;
         this.lineupRepository = lineupRepository;
         this.roundRepository = roundRepository;
         this.teamRepository = teamRepository;
         this.fantasyLineupRepository = fantasyLineupRepository;
+        this.fantasyScoreService = fantasyScoreService;
+    }
+
+    @GetMapping("/teams/{teamId}/score")
+    public FantasyLineupScore getScore(@PathVariable("leagueId") Long leagueId,
+                                       @PathVariable("roundId") Long roundId,
+                                       @PathVariable("teamId") Long teamId) {
+        return fantasyScoreService.getScore(leagueId, roundId, teamId).orElseThrow(LineupNotFoundException::new);
     }
 
 
@@ -138,6 +150,8 @@ public class LineupController {
 
                 fantasyLineupRepository.save(fantasyLineup);
 
+                fantasyScoreService.updateScores(Collections.singletonList(fantasyLineup.getId()));
+
                 return ResponseEntity.created(
                         builder.path("/leagues/{leagueId}/rounds/{roundId}/teams/{teamId}/{id}").
                                 buildAndExpand(leagueId, roundId, teamId, fantasyLineup.getId()).toUri()
@@ -290,7 +304,11 @@ public class LineupController {
         validateLineup(existingLineup);
 
         try {
-            return lineupRepository.save(existingLineup);
+            Lineup savedLineup = lineupRepository.save(existingLineup);
+
+            fantasyScoreService.updateScores(Collections.singletonList(fantasyLineupId));
+
+            return savedLineup;
         } catch (ConstraintViolationException e) {
             throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getConstraintViolations().toString());
         }
@@ -0,0 +1,44 @@
+package com.bhfantasy.web.controller;
+
+import com.bhfantasy.web.exception.InvalidLeagueIdException;
+import com.bhfantasy.web.exception.InvalidRoundIdException;
+import com.bhfantasy.web.repository.FantasyLeagueRepository;
+import com.bhfantasy.web.repository.RoundRepository;
+import com.bhfantasy.web.service.LivePointsService;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+@RequestMapping("/api/leagues/{leagueId}/rounds/{roundId}/live")
+public class LivePointsController {
+
+    private final FantasyLeagueRepository fantasyLeagueRepository;
+    private final RoundRepository roundRepository;
+    private final LivePointsService livePointsService;
+
+    public LivePointsController(FantasyLeagueRepository fantasyLeagueRepository, RoundRepository roundRepository,
+                                LivePointsService livePointsService) {
+        this.fantasyLeagueRepository = fantasyLeagueRepository;
+        this.roundRepository = roundRepository;
+        this.livePointsService = livePointsService;
+    }
+
+    // Stream of "points" events, each holding round points of all teams in the league
+    @GetMapping(produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter subscribe(@PathVariable("leagueId") Long leagueId,
+                                @PathVariable("roundId") Long roundId) {
+        if (!fantasyLeagueRepository.existsById(leagueId)) {
+            throw new InvalidLeagueIdException();
+        }
+
+        if (!roundRepository.existsById(roundId)) {
+            throw new InvalidRoundIdException();
+        }
+
+        return livePointsService.subscribe(leagueId, roundId);
+    }
+}
@@ -0,0 +1,12 @@
+package com.bhfantasy.web.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.BAD_REQUEST, reason = "invalid scoring rules")
+public class InvalidScoringRulesException extends RuntimeException {
+
+    public InvalidScoringRulesException(String message) {
+        super(message);
+    }
+}
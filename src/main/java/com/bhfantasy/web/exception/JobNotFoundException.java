@@ -0,0 +1,9 @@
+package com.bhfantasy.web.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.NOT_FOUND, reason = "invalid jobID")
+public class JobNotFoundException extends RuntimeException {
+
+}
@@ -0,0 +1,9 @@
+package com.bhfantasy.web.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+@ResponseStatus(code = HttpStatus.SERVICE_UNAVAILABLE, reason = "too many jobs are queued")
+public class TooManyJobsException extends RuntimeException {
+
+}
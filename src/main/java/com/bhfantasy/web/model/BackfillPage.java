@@ -0,0 +1,111 @@
+package com.bhfantasy.web.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Crawl frontier entry of a season backfill, one per season fixtures page.
+ */
+@Entity
+public class BackfillPage {
+
+    public enum Status {
+        PENDING,
+        RUNNING,
+        DONE,
+        FAILED
+    }
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private Long leagueSetupId;
+
+    private String season;
+
+    @Column(unique = true)
+    private String url;
+
+    @Enumerated(EnumType.STRING)
+    private Status status = Status.PENDING;
+
+    private Integer attempts = 0;
+
+    private String error;
+
+    private LocalDateTime updatedAt;
+
+    public BackfillPage(){}
+
+    public BackfillPage(Long leagueSetupId, String season, String url) {
+        this.leagueSetupId = leagueSetupId;
+        this.season = season;
+        this.url = url;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getLeagueSetupId() {
+        return leagueSetupId;
+    }
+
+    public void setLeagueSetupId(Long leagueSetupId) {
+        this.leagueSetupId = leagueSetupId;
+    }
+
+    public String getSeason() {
+        return season;
+    }
+
+    public void setSeason(String season) {
+        this.season = season;
+    }
+
+    public String getUrl() {
+        return url;
+    }
+
+    public void setUrl(String url) {
+        this.url = url;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public void setStatus(Status status) {
+        this.status = status;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -9,7 +9,8 @@ import javax.persistence.*;
 public class Card {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "card_sequence")
+    @SequenceGenerator(name = "card_sequence", sequenceName = "card_sequence", allocationSize = 50)
     private Long id;
 
     @Enumerated(EnumType.STRING)
@@ -0,0 +1,149 @@
+package com.bhfantasy.web.model;
+
+import com.bhfantasy.web.model.league.FantasyLeague;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Points a fantasy lineup scored in its round, kept up to date as player points of the round change.
+ */
+@Entity
+@Table(
+        uniqueConstraints = @UniqueConstraint(columnNames = {"fantasy_lineup_id"}),
+        indexes = @Index(columnList = "league_id,round_id,team_id")
+)
+public class FantasyLineupScore {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @OneToOne(fetch = FetchType.LAZY)
+    @JsonIgnore
+    private FantasyLineup fantasyLineup;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JsonIgnore
+    private FantasyLeague league;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JsonIgnore
+    private Round round;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JsonIgnore
+    private Team team;
+
+    private Integer points = 0;
+
+    // Extra points of the captain, or of the vice-captain when the captain didn't play
+    private Integer captainPoints = 0;
+
+    private Long captainId;
+
+    private Integer autoSubstitutions = 0;
+
+    // Round still has matches that are not scored, substitutions and vice-captain are not applied yet
+    private Boolean provisional = true;
+
+    private LocalDateTime updatedAt;
+
+    public FantasyLineupScore() {}
+
+    public FantasyLineupScore(FantasyLineup fantasyLineup) {
+        this.fantasyLineup = fantasyLineup;
+        this.league = fantasyLineup.getLeague();
+        this.round = fantasyLineup.getRound();
+        this.team = fantasyLineup.getTeam();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public FantasyLineup getFantasyLineup() {
+        return fantasyLineup;
+    }
+
+    public void setFantasyLineup(FantasyLineup fantasyLineup) {
+        this.fantasyLineup = fantasyLineup;
+    }
+
+    public FantasyLeague getLeague() {
+        return league;
+    }
+
+    public void setLeague(FantasyLeague league) {
+        this.league = league;
+    }
+
+    public Round getRound() {
+        return round;
+    }
+
+    public void setRound(Round round) {
+        this.round = round;
+    }
+
+    public Team getTeam() {
+        return team;
+    }
+
+    public void setTeam(Team team) {
+        this.team = team;
+    }
+
+    public Integer getPoints() {
+        return points;
+    }
+
+    public void setPoints(Integer points) {
+        this.points = points;
+    }
+
+    public Integer getCaptainPoints() {
+        return captainPoints;
+    }
+
+    public void setCaptainPoints(Integer captainPoints) {
+        this.captainPoints = captainPoints;
+    }
+
+    public Long getCaptainId() {
+        return captainId;
+    }
+
+    public void setCaptainId(Long captainId) {
+        this.captainId = captainId;
+    }
+
+    public Integer getAutoSubstitutions() {
+        return autoSubstitutions;
+    }
+
+    public void setAutoSubstitutions(Integer autoSubstitutions) {
+        this.autoSubstitutions = autoSubstitutions;
+    }
+
+    public Boolean getProvisional() {
+        return provisional;
+    }
+
+    public void setProvisional(Boolean provisional) {
+        this.provisional = provisional;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
@@ -9,7 +9,8 @@ import javax.persistence.*;
 public class Goal {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "goal_sequence")
+    @SequenceGenerator(name = "goal_sequence", sequenceName = "goal_sequence", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,72 @@
+package com.bhfantasy.web.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Persisted copy of a fantasy league leaderboard, loaded on startup instead of summing all team scores.
+ */
+@Entity
+public class LeaderboardCheckpoint {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true)
+    private Long leagueId;
+
+    private Long version;
+
+    private LocalDateTime createdAt;
+
+    // Team id and points of every team in rank order, 12 bytes per team
+    @Column(length = 100000000)
+    private byte[] totals;
+
+    public LeaderboardCheckpoint(){}
+
+    public LeaderboardCheckpoint(Long leagueId) {
+        this.leagueId = leagueId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getLeagueId() {
+        return leagueId;
+    }
+
+    public void setLeagueId(Long leagueId) {
+        this.leagueId = leagueId;
+    }
+
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public byte[] getTotals() {
+        return totals;
+    }
+
+    public void setTotals(byte[] totals) {
+        this.totals = totals;
+    }
+}
@@ -12,7 +12,8 @@ import java.util.stream.Collectors;
 public class Lineup {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "lineup_sequence")
+    @SequenceGenerator(name = "lineup_sequence", sequenceName = "lineup_sequence", allocationSize = 50)
     private Long id;
 
     @ManyToMany
@@ -98,7 +98,18 @@ public class Match {
     private Boolean reviewRequired = false;
 
     private LocalDateTime dateTime;
-    
+
+    // Date, time, score and report link of the fixture row, used to skip unchanged matches on ingestion
+    @JsonIgnore
+    private String fixtureFingerprint;
+
+    // Scoring rules version and hash of the scoring inputs the stored player points were calculated from
+    @JsonIgnore
+    private Integer scoringVersion;
+
+    @JsonIgnore
+    private String scoringFingerprint;
+
     public Match(){}
 
     public Long getId() {
@@ -229,6 +240,30 @@ public class Match {
         this.reviewRequired = reviewRequired;
     }
 
+    public String getFixtureFingerprint() {
+        return fixtureFingerprint;
+    }
+
+    public void setFixtureFingerprint(String fixtureFingerprint) {
+        this.fixtureFingerprint = fixtureFingerprint;
+    }
+
+    public Integer getScoringVersion() {
+        return scoringVersion;
+    }
+
+    public void setScoringVersion(Integer scoringVersion) {
+        this.scoringVersion = scoringVersion;
+    }
+
+    public String getScoringFingerprint() {
+        return scoringFingerprint;
+    }
+
+    public void setScoringFingerprint(String scoringFingerprint) {
+        this.scoringFingerprint = scoringFingerprint;
+    }
+
     public interface MatchGoalsView {}
 
     public interface MatchMissedPenaltiesView {}
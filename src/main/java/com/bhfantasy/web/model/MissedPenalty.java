@@ -9,7 +9,8 @@ import javax.persistence.*;
 public class MissedPenalty {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "missed_penalty_sequence")
+    @SequenceGenerator(name = "missed_penalty_sequence", sequenceName = "missed_penalty_sequence", allocationSize = 50)
     private Long id;
 
     @JsonIgnore
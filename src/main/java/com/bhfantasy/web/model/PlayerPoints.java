@@ -8,11 +8,18 @@ import javax.persistence.*;
 public class PlayerPoints {
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "player_points_sequence")
+    @SequenceGenerator(name = "player_points_sequence", sequenceName = "player_points_sequence", allocationSize = 50)
     private Long id;
 
+    // Points by the default rules
     private Integer points;
 
+    // Match events of the player packed like in PointsAccumulator, fantasy leagues score them by their own rules
+    private Long counters;
+
+    private Integer minutesPlayed;
+
     @ManyToOne(fetch = FetchType.LAZY)
     private Match match;
 
@@ -38,6 +45,22 @@ public class PlayerPoints {
         this.points = points;
     }
 
+    public Long getCounters() {
+        return counters;
+    }
+
+    public void setCounters(Long counters) {
+        this.counters = counters;
+    }
+
+    public Integer getMinutesPlayed() {
+        return minutesPlayed;
+    }
+
+    public void setMinutesPlayed(Integer minutesPlayed) {
+        this.minutesPlayed = minutesPlayed;
+    }
+
     public Match getMatch() {
         return match;
     }
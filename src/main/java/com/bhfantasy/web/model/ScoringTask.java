@@ -0,0 +1,75 @@
+package com.bhfantasy.web.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Entry of the scoring queue, a finished match whose player points have to be calculated.
+ */
+@Entity
+public class ScoringTask {
+
+    // Schema update doesn't widen existing columns, so the default length is kept
+    public static final int ERROR_LENGTH = 255;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(unique = true)
+    private Long matchId;
+
+    private Integer attempts = 0;
+
+    @Column(length = ERROR_LENGTH)
+    private String error;
+
+    private LocalDateTime updatedAt;
+
+    public ScoringTask(){}
+
+    public ScoringTask(Long matchId) {
+        this.matchId = matchId;
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Long getMatchId() {
+        return matchId;
+    }
+
+    public void setMatchId(Long matchId) {
+        this.matchId = matchId;
+    }
+
+    public Integer getAttempts() {
+        return attempts;
+    }
+
+    public void setAttempts(Integer attempts) {
+        this.attempts = attempts;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(LocalDateTime updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
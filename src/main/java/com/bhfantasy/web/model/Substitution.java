@@ -8,7 +8,8 @@ import javax.persistence.*;
 @Entity
 public class Substitution {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "substitution_sequence")
+    @SequenceGenerator(name = "substitution_sequence", sequenceName = "substitution_sequence", allocationSize = 50)
     private Long id;
 
     @ManyToOne(fetch = FetchType.LAZY)
@@ -0,0 +1,60 @@
+package com.bhfantasy.web.model.custom;
+
+import com.bhfantasy.web.model.league.ScoringRules;
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BacktestRulesValue {
+
+    private ScoringRules rules;
+
+    private DistributionValue playerPoints;
+
+    private DistributionValue teamPoints;
+
+    private RankChangeValue playerRanks;
+
+    private RankChangeValue teamRanks;
+
+    public BacktestRulesValue() {}
+
+    public ScoringRules getRules() {
+        return rules;
+    }
+
+    public void setRules(ScoringRules rules) {
+        this.rules = rules;
+    }
+
+    public DistributionValue getPlayerPoints() {
+        return playerPoints;
+    }
+
+    public void setPlayerPoints(DistributionValue playerPoints) {
+        this.playerPoints = playerPoints;
+    }
+
+    public DistributionValue getTeamPoints() {
+        return teamPoints;
+    }
+
+    public void setTeamPoints(DistributionValue teamPoints) {
+        this.teamPoints = teamPoints;
+    }
+
+    public RankChangeValue getPlayerRanks() {
+        return playerRanks;
+    }
+
+    public void setPlayerRanks(RankChangeValue playerRanks) {
+        this.playerRanks = playerRanks;
+    }
+
+    public RankChangeValue getTeamRanks() {
+        return teamRanks;
+    }
+
+    public void setTeamRanks(RankChangeValue teamRanks) {
+        this.teamRanks = teamRanks;
+    }
+}
@@ -0,0 +1,109 @@
+package com.bhfantasy.web.model.custom;
+
+import java.util.List;
+
+public class BacktestValue {
+
+    private Long leagueId;
+
+    private Integer rounds;
+
+    private Integer players;
+
+    private Integer teams;
+
+    private Integer lineups;
+
+    // Player points scored before match events were stored, they keep their stored points under every rule set
+    private Integer storedPlayerPoints;
+
+    private Long loadMillis;
+
+    private Long evaluateMillis;
+
+    private BacktestRulesValue baseline;
+
+    private List<BacktestRulesValue> candidates;
+
+    public BacktestValue() {}
+
+    public Long getLeagueId() {
+        return leagueId;
+    }
+
+    public void setLeagueId(Long leagueId) {
+        this.leagueId = leagueId;
+    }
+
+    public Integer getRounds() {
+        return rounds;
+    }
+
+    public void setRounds(Integer rounds) {
+        this.rounds = rounds;
+    }
+
+    public Integer getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(Integer players) {
+        this.players = players;
+    }
+
+    public Integer getTeams() {
+        return teams;
+    }
+
+    public void setTeams(Integer teams) {
+        this.teams = teams;
+    }
+
+    public Integer getLineups() {
+        return lineups;
+    }
+
+    public void setLineups(Integer lineups) {
+        this.lineups = lineups;
+    }
+
+    public Integer getStoredPlayerPoints() {
+        return storedPlayerPoints;
+    }
+
+    public void setStoredPlayerPoints(Integer storedPlayerPoints) {
+        this.storedPlayerPoints = storedPlayerPoints;
+    }
+
+    public Long getLoadMillis() {
+        return loadMillis;
+    }
+
+    public void setLoadMillis(Long loadMillis) {
+        this.loadMillis = loadMillis;
+    }
+
+    public Long getEvaluateMillis() {
+        return evaluateMillis;
+    }
+
+    public void setEvaluateMillis(Long evaluateMillis) {
+        this.evaluateMillis = evaluateMillis;
+    }
+
+    public BacktestRulesValue getBaseline() {
+        return baseline;
+    }
+
+    public void setBaseline(BacktestRulesValue baseline) {
+        this.baseline = baseline;
+    }
+
+    public List<BacktestRulesValue> getCandidates() {
+        return candidates;
+    }
+
+    public void setCandidates(List<BacktestRulesValue> candidates) {
+        this.candidates = candidates;
+    }
+}
@@ -0,0 +1,86 @@
+package com.bhfantasy.web.model.custom;
+
+public class DistributionValue {
+
+    private Integer count;
+
+    private Integer min;
+
+    private Integer max;
+
+    private Double mean;
+
+    private Double standardDeviation;
+
+    private Integer p10;
+
+    private Integer median;
+
+    private Integer p90;
+
+    public DistributionValue() {}
+
+    public Integer getCount() {
+        return count;
+    }
+
+    public void setCount(Integer count) {
+        this.count = count;
+    }
+
+    public Integer getMin() {
+        return min;
+    }
+
+    public void setMin(Integer min) {
+        this.min = min;
+    }
+
+    public Integer getMax() {
+        return max;
+    }
+
+    public void setMax(Integer max) {
+        this.max = max;
+    }
+
+    public Double getMean() {
+        return mean;
+    }
+
+    public void setMean(Double mean) {
+        this.mean = mean;
+    }
+
+    public Double getStandardDeviation() {
+        return standardDeviation;
+    }
+
+    public void setStandardDeviation(Double standardDeviation) {
+        this.standardDeviation = standardDeviation;
+    }
+
+    public Integer getP10() {
+        return p10;
+    }
+
+    public void setP10(Integer p10) {
+        this.p10 = p10;
+    }
+
+    public Integer getMedian() {
+        return median;
+    }
+
+    public void setMedian(Integer median) {
+        this.median = median;
+    }
+
+    public Integer getP90() {
+        return p90;
+    }
+
+    public void setP90(Integer p90) {
+        this.p90 = p90;
+    }
+}
@@ -0,0 +1,133 @@
+package com.bhfantasy.web.model.custom;
+
+import java.util.List;
+
+public class FetcherStatsValue {
+
+    private Long requests;
+
+    private Long retries;
+
+    private Long throttled;
+
+    private Long serverErrors;
+
+    private Long failures;
+
+    private Long averageLatencyMillis;
+
+    private Long maxLatencyMillis;
+
+    private Long rateLimitWaitMillis;
+
+    private List<Host> hosts;
+
+    public FetcherStatsValue() {}
+
+    public Long getRequests() {
+        return requests;
+    }
+
+    public void setRequests(Long requests) {
+        this.requests = requests;
+    }
+
+    public Long getRetries() {
+        return retries;
+    }
+
+    public void setRetries(Long retries) {
+        this.retries = retries;
+    }
+
+    public Long getThrottled() {
+        return throttled;
+    }
+
+    public void setThrottled(Long throttled) {
+        this.throttled = throttled;
+    }
+
+    public Long getServerErrors() {
+        return serverErrors;
+    }
+
+    public void setServerErrors(Long serverErrors) {
+        this.serverErrors = serverErrors;
+    }
+
+    public Long getFailures() {
+        return failures;
+    }
+
+    public void setFailures(Long failures) {
+        this.failures = failures;
+    }
+
+    public Long getAverageLatencyMillis() {
+        return averageLatencyMillis;
+    }
+
+    public void setAverageLatencyMillis(Long averageLatencyMillis) {
+        this.averageLatencyMillis = averageLatencyMillis;
+    }
+
+    public Long getMaxLatencyMillis() {
+        return maxLatencyMillis;
+    }
+
+    public void setMaxLatencyMillis(Long maxLatencyMillis) {
+        this.maxLatencyMillis = maxLatencyMillis;
+    }
+
+    public Long getRateLimitWaitMillis() {
+        return rateLimitWaitMillis;
+    }
+
+    public void setRateLimitWaitMillis(Long rateLimitWaitMillis) {
+        this.rateLimitWaitMillis = rateLimitWaitMillis;
+    }
+
+    public List<Host> getHosts() {
+        return hosts;
+    }
+
+    public void setHosts(List<Host> hosts) {
+        this.hosts = hosts;
+    }
+
+    public static class Host {
+
+        private String host;
+
+        private Integer concurrencyLimit;
+
+        private Integer inFlight;
+
+        public Host() {}
+
+        public String getHost() {
+            return host;
+        }
+
+        public void setHost(String host) {
+            this.host = host;
+        }
+
+        public Integer getConcurrencyLimit() {
+            return concurrencyLimit;
+        }
+
+        public void setConcurrencyLimit(Integer concurrencyLimit) {
+            this.concurrencyLimit = concurrencyLimit;
+        }
+
+        public Integer getInFlight() {
+            return inFlight;
+        }
+
+        public void setInFlight(Integer inFlight) {
+            this.inFlight = inFlight;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.bhfantasy.web.model.custom;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.time.LocalDateTime;
+
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class JobValue {
+
+    public enum State {
+        QUEUED,
+        RUNNING,
+        COMPLETED,
+        FAILED,
+        CANCELLED
+    }
+
+    public enum Stage {
+        SCRAPING,
+        SCORING,
+        SEEDING,
+        BACKTESTING
+    }
+
+    private String id;
+
+    private Long leagueSetupId;
+
+    private Long fantasyLeagueId;
+
+    private State state;
+
+    private Stage stage;
+
+    private LocalDateTime createdAt;
+
+    private LocalDateTime startedAt;
+
+    private LocalDateTime finishedAt;
+
+    private String error;
+
+    private Long rounds;
+
+    private Long matches;
+
+    private Long matchReports;
+
+    private Long players;
+
+    private Long scoredMatches;
+
+    private Long writtenPlayerPoints;
+
+    private Double playerPointsPerSecond;
+
+    private BacktestValue backtest;
+
+    public JobValue() {}
+
+    public String getId() {
+        return id;
+    }
+
+    public void setId(String id) {
+        this.id = id;
+    }
+
+    public Long getLeagueSetupId() {
+        return leagueSetupId;
+    }
+
+    public void setLeagueSetupId(Long leagueSetupId) {
+        this.leagueSetupId = leagueSetupId;
+    }
+
+    public Long getFantasyLeagueId() {
+        return fantasyLeagueId;
+    }
+
+    public void setFantasyLeagueId(Long fantasyLeagueId) {
+        this.fantasyLeagueId = fantasyLeagueId;
+    }
+
+    public State getState() {
+        return state;
+    }
+
+    public void setState(State state) {
+        this.state = state;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    public void setStage(Stage stage) {
+        this.stage = stage;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public void setStartedAt(LocalDateTime startedAt) {
+        this.startedAt = startedAt;
+    }
+
+    public LocalDateTime getFinishedAt() {
+        return finishedAt;
+    }
+
+    public void setFinishedAt(LocalDateTime finishedAt) {
+        this.finishedAt = finishedAt;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    public Long getRounds() {
+        return rounds;
+    }
+
+    public void setRounds(Long rounds) {
+        this.rounds = rounds;
+    }
+
+    public Long getMatches() {
+        return matches;
+    }
+
+    public void setMatches(Long matches) {
+        this.matches = matches;
+    }
+
+    public Long getMatchReports() {
+        return matchReports;
+    }
+
+    public void setMatchReports(Long matchReports) {
+        this.matchReports = matchReports;
+    }
+
+    public Long getPlayers() {
+        return players;
+    }
+
+    public void setPlayers(Long players) {
+        this.players = players;
+    }
+
+    public Long getScoredMatches() {
+        return scoredMatches;
+    }
+
+    public void setScoredMatches(Long scoredMatches) {
+        this.scoredMatches = scoredMatches;
+    }
+
+    public Long getWrittenPlayerPoints() {
+        return writtenPlayerPoints;
+    }
+
+    public void setWrittenPlayerPoints(Long writtenPlayerPoints) {
+        this.writtenPlayerPoints = writtenPlayerPoints;
+    }
+
+    public Double getPlayerPointsPerSecond() {
+        return playerPointsPerSecond;
+    }
+
+    public void setPlayerPointsPerSecond(Double playerPointsPerSecond) {
+        this.playerPointsPerSecond = playerPointsPerSecond;
+    }
+
+    public BacktestValue getBacktest() {
+        return backtest;
+    }
+
+    public void setBacktest(BacktestValue backtest) {
+        this.backtest = backtest;
+    }
+}
@@ -0,0 +1,62 @@
+package com.bhfantasy.web.model.custom;
+
+public class LeaderboardEntryValue {
+
+    private Integer rank;
+
+    private Long teamId;
+
+    private String teamName;
+
+    private String profilePicture;
+
+    private Integer points;
+
+    public LeaderboardEntryValue(){}
+
+    public LeaderboardEntryValue(Integer rank, Long teamId, Integer points) {
+        this.rank = rank;
+        this.teamId = teamId;
+        this.points = points;
+    }
+
+    public Integer getRank() {
+        return rank;
+    }
+
+    public void setRank(Integer rank) {
+        this.rank = rank;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public String getTeamName() {
+        return teamName;
+    }
+
+    public void setTeamName(String teamName) {
+        this.teamName = teamName;
+    }
+
+    public String getProfilePicture() {
+        return profilePicture;
+    }
+
+    public void setProfilePicture(String profilePicture) {
+        this.profilePicture = profilePicture;
+    }
+
+    public Integer getPoints() {
+        return points;
+    }
+
+    public void setPoints(Integer points) {
+        this.points = points;
+    }
+}
@@ -0,0 +1,53 @@
+package com.bhfantasy.web.model.custom;
+
+public class LiveTeamPointsValue {
+
+    private Long teamId;
+
+    private Integer points;
+
+    private Integer captainPoints;
+
+    private Long captainId;
+
+    public LiveTeamPointsValue(){}
+
+    public LiveTeamPointsValue(Long teamId, Integer points, Integer captainPoints, Long captainId) {
+        this.teamId = teamId;
+        this.points = points;
+        this.captainPoints = captainPoints;
+        this.captainId = captainId;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Integer getPoints() {
+        return points;
+    }
+
+    public void setPoints(Integer points) {
+        this.points = points;
+    }
+
+    public Integer getCaptainPoints() {
+        return captainPoints;
+    }
+
+    public void setCaptainPoints(Integer captainPoints) {
+        this.captainPoints = captainPoints;
+    }
+
+    public Long getCaptainId() {
+        return captainId;
+    }
+
+    public void setCaptainId(Long captainId) {
+        this.captainId = captainId;
+    }
+}
@@ -0,0 +1,297 @@
+package com.bhfantasy.web.model.custom;
+
+import com.bhfantasy.web.model.Card;
+import com.bhfantasy.web.model.players.Player;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Immutable copy of everything scoring reads from a match. Snapshots are detached from the persistence
+ * context, so they can be scored on any thread.
+ */
+public final class MatchSnapshot {
+
+    private final Long matchId;
+
+    private final Integer score1;
+
+    private final Integer score2;
+
+    private final LineupSnapshot lineup1;
+
+    private final LineupSnapshot lineup2;
+
+    private final List<GoalSnapshot> goals;
+
+    private final List<CardSnapshot> cards;
+
+    private final List<MissedPenaltySnapshot> missedPenalties;
+
+    public MatchSnapshot(Long matchId, Integer score1, Integer score2, LineupSnapshot lineup1, LineupSnapshot lineup2,
+                         List<GoalSnapshot> goals, List<CardSnapshot> cards,
+                         List<MissedPenaltySnapshot> missedPenalties) {
+        this.matchId = matchId;
+        this.score1 = score1;
+        this.score2 = score2;
+        this.lineup1 = lineup1;
+        this.lineup2 = lineup2;
+        this.goals = Collections.unmodifiableList(new ArrayList<>(goals));
+        this.cards = Collections.unmodifiableList(new ArrayList<>(cards));
+        this.missedPenalties = Collections.unmodifiableList(new ArrayList<>(missedPenalties));
+    }
+
+    public Long getMatchId() {
+        return matchId;
+    }
+
+    public Integer getScore1() {
+        return score1;
+    }
+
+    public Integer getScore2() {
+        return score2;
+    }
+
+    public LineupSnapshot getLineup1() {
+        return lineup1;
+    }
+
+    public LineupSnapshot getLineup2() {
+        return lineup2;
+    }
+
+    public List<GoalSnapshot> getGoals() {
+        return goals;
+    }
+
+    public List<CardSnapshot> getCards() {
+        return cards;
+    }
+
+    public List<MissedPenaltySnapshot> getMissedPenalties() {
+        return missedPenalties;
+    }
+
+    /**
+     * Hash of all scoring inputs, equal snapshots always score the same under the same rules.
+     */
+    public String getFingerprint() {
+        StringBuilder builder = new StringBuilder();
+
+        builder.append(score1).append(':').append(score2);
+
+        for (GoalSnapshot goal : goals) {
+            builder.append("|g").append(getId(goal.getPlayer())).append(',').append(getId(goal.getAssist()))
+                    .append(',').append(goal.isOwnGoal()).append(',').append(goal.getMinute())
+                    .append(',').append(goal.getTeam());
+        }
+
+        for (CardSnapshot card : cards) {
+            builder.append("|c").append(getId(card.getPlayer())).append(',').append(card.getCardType());
+        }
+
+        for (MissedPenaltySnapshot missedPenalty : missedPenalties) {
+            builder.append("|m").append(getId(missedPenalty.getPlayer()))
+                    .append(',').append(getId(missedPenalty.getSavedBy()));
+        }
+
+        for (LineupSnapshot lineup : new LineupSnapshot[]{lineup1, lineup2}) {
+            builder.append("|l");
+
+            if (lineup != null) {
+                lineup.getStartingPlayers().stream()
+                        .sorted(Comparator.comparing(PlayerSnapshot::getId))
+                        .forEach(player -> builder.append(player.getId())
+                                .append(player.getType().getSimpleName()).append(','));
+            }
+        }
+
+        appendSubstitutions(builder, "|s1", lineup1);
+        appendSubstitutions(builder, "|s2", lineup2);
+
+        return DigestUtils.md5DigestAsHex(builder.toString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void appendSubstitutions(StringBuilder builder, String prefix, LineupSnapshot lineup) {
+        if (lineup == null) {
+            return;
+        }
+
+        for (SubstitutionSnapshot substitution : lineup.getSubstitutions()) {
+            builder.append(prefix).append(getId(substitution.getPlayer()));
+
+            if (substitution.getPlayer() != null) {
+                builder.append(substitution.getPlayer().getType().getSimpleName());
+            }
+
+            builder.append(',').append(getId(substitution.getSubstitutePlayer()))
+                    .append(',').append(substitution.getMinute());
+        }
+    }
+
+    private static Long getId(PlayerSnapshot player) {
+        return player != null ? player.getId() : null;
+    }
+
+    public static final class PlayerSnapshot {
+
+        private final Long id;
+
+        private final Class<? extends Player> type;
+
+        public PlayerSnapshot(Long id, Class<? extends Player> type) {
+            this.id = id;
+            this.type = type;
+        }
+
+        public Long getId() {
+            return id;
+        }
+
+        public Class<? extends Player> getType() {
+            return type;
+        }
+    }
+
+    public static final class LineupSnapshot {
+
+        private final List<PlayerSnapshot> startingPlayers;
+
+        private final List<SubstitutionSnapshot> substitutions;
+
+        public LineupSnapshot(List<PlayerSnapshot> startingPlayers, List<SubstitutionSnapshot> substitutions) {
+            this.startingPlayers = Collections.unmodifiableList(new ArrayList<>(startingPlayers));
+            this.substitutions = Collections.unmodifiableList(new ArrayList<>(substitutions));
+        }
+
+        public List<PlayerSnapshot> getStartingPlayers() {
+            return startingPlayers;
+        }
+
+        public List<SubstitutionSnapshot> getSubstitutions() {
+            return substitutions;
+        }
+    }
+
+    public static final class GoalSnapshot {
+
+        private final PlayerSnapshot player;
+
+        private final PlayerSnapshot assist;
+
+        private final Integer minute;
+
+        private final boolean ownGoal;
+
+        private final int team;
+
+        public GoalSnapshot(PlayerSnapshot player, PlayerSnapshot assist, Integer minute, boolean ownGoal, int team) {
+            this.player = player;
+            this.assist = assist;
+            this.minute = minute;
+            this.ownGoal = ownGoal;
+            this.team = team;
+        }
+
+        public PlayerSnapshot getPlayer() {
+            return player;
+        }
+
+        public PlayerSnapshot getAssist() {
+            return assist;
+        }
+
+        public Integer getMinute() {
+            return minute;
+        }
+
+        public boolean isOwnGoal() {
+            return ownGoal;
+        }
+
+        /**
+         * Lineup number of the team the goal counts for, also for own goals, 0 if not known.
+         */
+        public int getTeam() {
+            return team;
+        }
+    }
+
+    public static final class CardSnapshot {
+
+        private final PlayerSnapshot player;
+
+        private final Card.CardType cardType;
+
+        public CardSnapshot(PlayerSnapshot player, Card.CardType cardType) {
+            this.player = player;
+            this.cardType = cardType;
+        }
+
+        public PlayerSnapshot getPlayer() {
+            return player;
+        }
+
+        public Card.CardType getCardType() {
+            return cardType;
+        }
+    }
+
+    public static final class MissedPenaltySnapshot {
+
+        private final PlayerSnapshot player;
+
+        private final PlayerSnapshot savedBy;
+
+        public MissedPenaltySnapshot(PlayerSnapshot player, PlayerSnapshot savedBy) {
+            this.player = player;
+            this.savedBy = savedBy;
+        }
+
+        public PlayerSnapshot getPlayer() {
+            return player;
+        }
+
+        public PlayerSnapshot getSavedBy() {
+            return savedBy;
+        }
+    }
+
+    public static final class SubstitutionSnapshot {
+
+        private final PlayerSnapshot player;
+
+        private final PlayerSnapshot substitutePlayer;
+
+        private final Integer minute;
+
+        public SubstitutionSnapshot(PlayerSnapshot player, PlayerSnapshot substitutePlayer, Integer minute) {
+            this.player = player;
+            this.substitutePlayer = substitutePlayer;
+            this.minute = minute;
+        }
+
+        /**
+         * Player coming on, null if not known.
+         */
+        public PlayerSnapshot getPlayer() {
+            return player;
+        }
+
+        /**
+         * Player going off.
+         */
+        public PlayerSnapshot getSubstitutePlayer() {
+            return substitutePlayer;
+        }
+
+        public Integer getMinute() {
+            return minute;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.bhfantasy.web.model.custom;
+
+public class PageCacheStatsValue {
+
+    private Boolean enabled;
+
+    private Long hits;
+
+    private Long misses;
+
+    private Long revalidations;
+
+    private Long bytesSaved;
+
+    private Long bytesDownloaded;
+
+    private Long averageDownloadMillis;
+
+    private Long estimatedMillisSaved;
+
+    private Long sizeBytes;
+
+    private Long evictions;
+
+    public PageCacheStatsValue() {}
+
+    public Boolean getEnabled() {
+        return enabled;
+    }
+
+    public void setEnabled(Boolean enabled) {
+        this.enabled = enabled;
+    }
+
+    public Long getHits() {
+        return hits;
+    }
+
+    public void setHits(Long hits) {
+        this.hits = hits;
+    }
+
+    public Long getMisses() {
+        return misses;
+    }
+
+    public void setMisses(Long misses) {
+        this.misses = misses;
+    }
+
+    public Long getRevalidations() {
+        return revalidations;
+    }
+
+    public void setRevalidations(Long revalidations) {
+        this.revalidations = revalidations;
+    }
+
+    public Long getBytesSaved() {
+        return bytesSaved;
+    }
+
+    public void setBytesSaved(Long bytesSaved) {
+        this.bytesSaved = bytesSaved;
+    }
+
+    public Long getBytesDownloaded() {
+        return bytesDownloaded;
+    }
+
+    public void setBytesDownloaded(Long bytesDownloaded) {
+        this.bytesDownloaded = bytesDownloaded;
+    }
+
+    public Long getAverageDownloadMillis() {
+        return averageDownloadMillis;
+    }
+
+    public void setAverageDownloadMillis(Long averageDownloadMillis) {
+        this.averageDownloadMillis = averageDownloadMillis;
+    }
+
+    public Long getEstimatedMillisSaved() {
+        return estimatedMillisSaved;
+    }
+
+    public void setEstimatedMillisSaved(Long estimatedMillisSaved) {
+        this.estimatedMillisSaved = estimatedMillisSaved;
+    }
+
+    public Long getSizeBytes() {
+        return sizeBytes;
+    }
+
+    public void setSizeBytes(Long sizeBytes) {
+        this.sizeBytes = sizeBytes;
+    }
+
+    public Long getEvictions() {
+        return evictions;
+    }
+
+    public void setEvictions(Long evictions) {
+        this.evictions = evictions;
+    }
+}
@@ -0,0 +1,44 @@
+package com.bhfantasy.web.model.custom;
+
+public class PlayerNameValue {
+
+    private Long playerId;
+
+    private Long transferMarktId;
+
+    private String firstName;
+
+    private String lastName;
+
+    private Long teamId;
+
+    public PlayerNameValue(){}
+
+    public PlayerNameValue(Long playerId, Long transferMarktId, String firstName, String lastName, Long teamId) {
+        this.playerId = playerId;
+        this.transferMarktId = transferMarktId;
+        this.firstName = firstName;
+        this.lastName = lastName;
+        this.teamId = teamId;
+    }
+
+    public Long getPlayerId() {
+        return playerId;
+    }
+
+    public Long getTransferMarktId() {
+        return transferMarktId;
+    }
+
+    public String getFirstName() {
+        return firstName;
+    }
+
+    public String getLastName() {
+        return lastName;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+}
@@ -0,0 +1,68 @@
+package com.bhfantasy.web.model.custom;
+
+import java.util.List;
+
+public class RankChangeValue {
+
+    private Integer changed;
+
+    private Double meanAbsoluteChange;
+
+    private Integer maxRise;
+
+    private Integer maxFall;
+
+    private Double rankCorrelation;
+
+    private List<RankMoveValue> topMovers;
+
+    public RankChangeValue() {}
+
+    public Integer getChanged() {
+        return changed;
+    }
+
+    public void setChanged(Integer changed) {
+        this.changed = changed;
+    }
+
+    public Double getMeanAbsoluteChange() {
+        return meanAbsoluteChange;
+    }
+
+    public void setMeanAbsoluteChange(Double meanAbsoluteChange) {
+        this.meanAbsoluteChange = meanAbsoluteChange;
+    }
+
+    public Integer getMaxRise() {
+        return maxRise;
+    }
+
+    public void setMaxRise(Integer maxRise) {
+        this.maxRise = maxRise;
+    }
+
+    public Integer getMaxFall() {
+        return maxFall;
+    }
+
+    public void setMaxFall(Integer maxFall) {
+        this.maxFall = maxFall;
+    }
+
+    public Double getRankCorrelation() {
+        return rankCorrelation;
+    }
+
+    public void setRankCorrelation(Double rankCorrelation) {
+        this.rankCorrelation = rankCorrelation;
+    }
+
+    public List<RankMoveValue> getTopMovers() {
+        return topMovers;
+    }
+
+    public void setTopMovers(List<RankMoveValue> topMovers) {
+        this.topMovers = topMovers;
+    }
+}
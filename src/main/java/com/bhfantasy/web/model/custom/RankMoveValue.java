@@ -0,0 +1,64 @@
+package com.bhfantasy.web.model.custom;
+
+public class RankMoveValue {
+
+    private Long id;
+
+    private Integer baselineRank;
+
+    private Integer rank;
+
+    private Integer baselinePoints;
+
+    private Integer points;
+
+    public RankMoveValue() {}
+
+    public RankMoveValue(Long id, Integer baselineRank, Integer rank, Integer baselinePoints, Integer points) {
+        this.id = id;
+        this.baselineRank = baselineRank;
+        this.rank = rank;
+        this.baselinePoints = baselinePoints;
+        this.points = points;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public Integer getBaselineRank() {
+        return baselineRank;
+    }
+
+    public void setBaselineRank(Integer baselineRank) {
+        this.baselineRank = baselineRank;
+    }
+
+    public Integer getRank() {
+        return rank;
+    }
+
+    public void setRank(Integer rank) {
+        this.rank = rank;
+    }
+
+    public Integer getBaselinePoints() {
+        return baselinePoints;
+    }
+
+    public void setBaselinePoints(Integer baselinePoints) {
+        this.baselinePoints = baselinePoints;
+    }
+
+    public Integer getPoints() {
+        return points;
+    }
+
+    public void setPoints(Integer points) {
+        this.points = points;
+    }
+}
@@ -0,0 +1,56 @@
+package com.bhfantasy.web.model.custom;
+
+import java.time.LocalDateTime;
+
+public class ScheduledMatchPollValue {
+
+    private Long matchId;
+
+    private Long leagueSetupId;
+
+    private LocalDateTime kickoff;
+
+    private LocalDateTime dueAt;
+
+    private Integer attempt = 0;
+
+    public ScheduledMatchPollValue(){}
+
+    public ScheduledMatchPollValue(Long matchId, LocalDateTime kickoff, Long leagueSetupId) {
+        this.matchId = matchId;
+        this.kickoff = kickoff;
+        this.leagueSetupId = leagueSetupId;
+    }
+
+    public Long getMatchId() {
+        return matchId;
+    }
+
+    public Long getLeagueSetupId() {
+        return leagueSetupId;
+    }
+
+    public LocalDateTime getKickoff() {
+        return kickoff;
+    }
+
+    public void setKickoff(LocalDateTime kickoff) {
+        this.kickoff = kickoff;
+    }
+
+    public LocalDateTime getDueAt() {
+        return dueAt;
+    }
+
+    public void setDueAt(LocalDateTime dueAt) {
+        this.dueAt = dueAt;
+    }
+
+    public Integer getAttempt() {
+        return attempt;
+    }
+
+    public void setAttempt(Integer attempt) {
+        this.attempt = attempt;
+    }
+}
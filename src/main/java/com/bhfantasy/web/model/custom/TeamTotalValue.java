@@ -0,0 +1,31 @@
+package com.bhfantasy.web.model.custom;
+
+public class TeamTotalValue {
+
+    private Long teamId;
+
+    private Long points;
+
+    public TeamTotalValue(){}
+
+    public TeamTotalValue(Long teamId, Long points) {
+        this.teamId = teamId;
+        this.points = points;
+    }
+
+    public Long getTeamId() {
+        return teamId;
+    }
+
+    public void setTeamId(Long teamId) {
+        this.teamId = teamId;
+    }
+
+    public Long getPoints() {
+        return points;
+    }
+
+    public void setPoints(Long points) {
+        this.points = points;
+    }
+}
@@ -1,9 +1,11 @@
 package com.bhfantasy.web.model.league;
 
 import com.bhfantasy.web.model.FantasyLineup;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonView;
 
 import javax.persistence.*;
+import javax.validation.Valid;
 import java.util.*;
 
 @Entity
@@ -18,6 +20,12 @@ public class FantasyLeague extends League {
     @OrderBy("id")
     private Set<FantasyLineup> lineups = new HashSet<>();
 
+    // Null when the league uses default rules
+    @Embedded
+    @Valid
+    @JsonIgnore
+    private ScoringRules scoringRules;
+
     public FantasyLeague(){}
 
     public RegularLeague getRegularLeague() {
@@ -36,5 +44,12 @@ public class FantasyLeague extends League {
         this.lineups = lineups;
     }
 
+    public ScoringRules getScoringRules() {
+        return scoringRules;
+    }
+
+    public void setScoringRules(ScoringRules scoringRules) {
+        this.scoringRules = scoringRules;
+    }
 
 }
@@ -0,0 +1,213 @@
+package com.bhfantasy.web.model.league;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.validation.constraints.Max;
+import javax.validation.constraints.Min;
+
+/**
+ * Points a fantasy league gives for match events. Values that are not set use the default rules.
+ */
+@Embeddable
+public class ScoringRules {
+
+    public static final int MIN_POINTS = -20;
+
+    public static final int MAX_POINTS = 20;
+
+    @Column(name = "rule_goal_goalkeeper")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer goalGoalkeeper;
+
+    @Column(name = "rule_goal_defender")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer goalDefender;
+
+    @Column(name = "rule_goal_middle")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer goalMiddle;
+
+    @Column(name = "rule_goal_striker")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer goalStriker;
+
+    @Column(name = "rule_assist")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer assist;
+
+    @Column(name = "rule_own_goal")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer ownGoal;
+
+    @Column(name = "rule_saved_penalty")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer savedPenalty;
+
+    @Column(name = "rule_missed_penalty")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer missedPenalty;
+
+    @Column(name = "rule_yellow_card")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer yellowCard;
+
+    @Column(name = "rule_red_card")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer redCard;
+
+    // Played less than 60 minutes
+    @Column(name = "rule_appearance")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer appearance;
+
+    // Played 60 minutes or more
+    @Column(name = "rule_full_appearance")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer fullAppearance;
+
+    @Column(name = "rule_clean_sheet_goalkeeper")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer cleanSheetGoalkeeper;
+
+    @Column(name = "rule_clean_sheet_defender")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer cleanSheetDefender;
+
+    @Column(name = "rule_clean_sheet_middle")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer cleanSheetMiddle;
+
+    @Column(name = "rule_clean_sheet_striker")
+    @Min(MIN_POINTS) @Max(MAX_POINTS)
+    private Integer cleanSheetStriker;
+
+    public ScoringRules() {}
+
+    public Integer getGoalGoalkeeper() {
+        return goalGoalkeeper;
+    }
+
+    public void setGoalGoalkeeper(Integer goalGoalkeeper) {
+        this.goalGoalkeeper = goalGoalkeeper;
+    }
+
+    public Integer getGoalDefender() {
+        return goalDefender;
+    }
+
+    public void setGoalDefender(Integer goalDefender) {
+        this.goalDefender = goalDefender;
+    }
+
+    public Integer getGoalMiddle() {
+        return goalMiddle;
+    }
+
+    public void setGoalMiddle(Integer goalMiddle) {
+        this.goalMiddle = goalMiddle;
+    }
+
+    public Integer getGoalStriker() {
+        return goalStriker;
+    }
+
+    public void setGoalStriker(Integer goalStriker) {
+        this.goalStriker = goalStriker;
+    }
+
+    public Integer getAssist() {
+        return assist;
+    }
+
+    public void setAssist(Integer assist) {
+        this.assist = assist;
+    }
+
+    public Integer getOwnGoal() {
+        return ownGoal;
+    }
+
+    public void setOwnGoal(Integer ownGoal) {
+        this.ownGoal = ownGoal;
+    }
+
+    public Integer getSavedPenalty() {
+        return savedPenalty;
+    }
+
+    public void setSavedPenalty(Integer savedPenalty) {
+        this.savedPenalty = savedPenalty;
+    }
+
+    public Integer getMissedPenalty() {
+        return missedPenalty;
+    }
+
+    public void setMissedPenalty(Integer missedPenalty) {
+        this.missedPenalty = missedPenalty;
+    }
+
+    public Integer getYellowCard() {
+        return yellowCard;
+    }
+
+    public void setYellowCard(Integer yellowCard) {
+        this.yellowCard = yellowCard;
+    }
+
+    public Integer getRedCard() {
+        return redCard;
+    }
+
+    public void setRedCard(Integer redCard) {
+        this.redCard = redCard;
+    }
+
+    public Integer getAppearance() {
+        return appearance;
+    }
+
+    public void setAppearance(Integer appearance) {
+        this.appearance = appearance;
+    }
+
+    public Integer getFullAppearance() {
+        return fullAppearance;
+    }
+
+    public void setFullAppearance(Integer fullAppearance) {
+        this.fullAppearance = fullAppearance;
+    }
+
+    public Integer getCleanSheetGoalkeeper() {
+        return cleanSheetGoalkeeper;
+    }
+
+    public void setCleanSheetGoalkeeper(Integer cleanSheetGoalkeeper) {
+        this.cleanSheetGoalkeeper = cleanSheetGoalkeeper;
+    }
+
+    public Integer getCleanSheetDefender() {
+        return cleanSheetDefender;
+    }
+
+    public void setCleanSheetDefender(Integer cleanSheetDefender) {
+        this.cleanSheetDefender = cleanSheetDefender;
+    }
+
+    public Integer getCleanSheetMiddle() {
+        return cleanSheetMiddle;
+    }
+
+    public void setCleanSheetMiddle(Integer cleanSheetMiddle) {
+        this.cleanSheetMiddle = cleanSheetMiddle;
+    }
+
+    public Integer getCleanSheetStriker() {
+        return cleanSheetStriker;
+    }
+
+    public void setCleanSheetStriker(Integer cleanSheetStriker) {
+        this.cleanSheetStriker = cleanSheetStriker;
+    }
+}
@@ -0,0 +1,17 @@
+package com.bhfantasy.web.repository;
+
+import com.bhfantasy.web.model.BackfillPage;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface BackfillPageRepository extends CrudRepository<BackfillPage, Long> {
+
+    Optional<BackfillPage> findByUrl(String url);
+
+    List<BackfillPage> findByStatusInOrderById(Collection<BackfillPage.Status> statuses);
+
+    List<BackfillPage> findByLeagueSetupIdOrderBySeason(Long leagueSetupId);
+}
@@ -1,7 +1,22 @@
 package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.Card;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface CardRepository extends CrudRepository<Card, Long> {
+
+    @Query("select card from Card card " +
+            "left join fetch card.player " +
+            "where card.match.id in :matchIds order by card.id")
+    List<Card> findByMatchIds(@Param("matchIds") Collection<Long> matchIds);
+
+    @Modifying
+    @Query("delete from Card card where card.match.id = :matchId")
+    void deleteByMatchId(@Param("matchId") Long matchId);
 }
@@ -1,11 +1,48 @@
 package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.FantasyLineup;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface FantasyLineupRepository extends CrudRepository<FantasyLineup, Long> {
     Optional<FantasyLineup> findByIdAndLeague_IdAndTeam_IdAndRound_Id(
             Long fantasyLineupId, Long leagueId, Long teamId, Long roundId);
+
+    @Query("select fantasyLineup from FantasyLineup fantasyLineup " +
+            "join fetch fantasyLineup.lineup " +
+            "join fetch fantasyLineup.league " +
+            "join fetch fantasyLineup.round " +
+            "join fetch fantasyLineup.team " +
+            "where fantasyLineup.id in :fantasyLineupIds")
+    List<FantasyLineup> findForScoring(@Param("fantasyLineupIds") Collection<Long> fantasyLineupIds);
+
+    @Query("select distinct fantasyLineup.id from FantasyLineup fantasyLineup " +
+            "join fantasyLineup.round round " +
+            "join round.matches match " +
+            "join fantasyLineup.lineup lineup " +
+            "left join lineup.startingPlayers startingPlayer " +
+            "left join lineup.availableSubstitutions substitution " +
+            "where match.id = :matchId " +
+            "and (startingPlayer.id in :playerIds or substitution.id in :playerIds)")
+    List<Long> findIdsByMatchIdAndPlayerIds(
+            @Param("matchId") Long matchId, @Param("playerIds") Collection<Long> playerIds);
+
+    @Query("select fantasyLineup.id from FantasyLineup fantasyLineup where fantasyLineup.round.id in :roundIds")
+    List<Long> findIdsByRoundIds(@Param("roundIds") Collection<Long> roundIds);
+
+    @Query("select fantasyLineup.id from FantasyLineup fantasyLineup " +
+            "where fantasyLineup.league.id = :leagueId and fantasyLineup.id > :afterId " +
+            "order by fantasyLineup.id")
+    List<Long> findIdsByLeagueId(@Param("leagueId") Long leagueId, @Param("afterId") Long afterId,
+                                 Pageable pageable);
+
+    @Query("select fantasyLineup.id from FantasyLineup fantasyLineup " +
+            "where fantasyLineup.league.id = :leagueId and fantasyLineup.round.id = :roundId")
+    List<Long> findIdsByLeagueIdAndRoundId(@Param("leagueId") Long leagueId, @Param("roundId") Long roundId);
 }
@@ -0,0 +1,42 @@
+package com.bhfantasy.web.repository;
+
+import com.bhfantasy.web.model.FantasyLineupScore;
+import com.bhfantasy.web.model.custom.TeamTotalValue;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface FantasyLineupScoreRepository extends CrudRepository<FantasyLineupScore, Long> {
+
+    @Query("select score from FantasyLineupScore score where score.fantasyLineup.id in :fantasyLineupIds")
+    List<FantasyLineupScore> findByFantasyLineupIds(@Param("fantasyLineupIds") Collection<Long> fantasyLineupIds);
+
+    Optional<FantasyLineupScore> findFirstByLeague_IdAndRound_IdAndTeam_IdOrderByIdDesc(
+            Long leagueId, Long roundId, Long teamId);
+
+    @Query("select new com.bhfantasy.web.model.custom.TeamTotalValue(score.team.id, sum(score.points)) " +
+            "from FantasyLineupScore score " +
+            "where score.league.id = :leagueId " +
+            "group by score.team.id")
+    List<TeamTotalValue> findTeamTotals(@Param("leagueId") Long leagueId);
+
+    @Query("select new com.bhfantasy.web.model.custom.TeamTotalValue(score.team.id, sum(score.points)) " +
+            "from FantasyLineupScore score " +
+            "where score.league.id = :leagueId and score.team.id in :teamIds " +
+            "group by score.team.id")
+    List<TeamTotalValue> findTeamTotals(@Param("leagueId") Long leagueId, @Param("teamIds") Collection<Long> teamIds);
+
+    @Query("select new com.bhfantasy.web.model.custom.TeamTotalValue(score.team.id, sum(score.points)) " +
+            "from FantasyLineupScore score " +
+            "where score.league.id = :leagueId and score.team.id in (" +
+            "select updated.team.id from FantasyLineupScore updated " +
+            "where updated.league.id = :leagueId and updated.updatedAt > :since) " +
+            "group by score.team.id")
+    List<TeamTotalValue> findTeamTotalsUpdatedSince(
+            @Param("leagueId") Long leagueId, @Param("since") LocalDateTime since);
+}
@@ -2,8 +2,12 @@ package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.Goal;
 import com.bhfantasy.web.model.players.Player;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 
 public interface GoalRepository extends CrudRepository<Goal, Long> {
@@ -11,4 +15,14 @@ public interface GoalRepository extends CrudRepository<Goal, Long> {
     List<Goal> findByPlayer(Player player);
 
     Long countGoalsByPlayer(Player player);
+
+    @Query("select goal from Goal goal " +
+            "left join fetch goal.player " +
+            "left join fetch goal.assist " +
+            "where goal.match.id in :matchIds order by goal.id")
+    List<Goal> findByMatchIds(@Param("matchIds") Collection<Long> matchIds);
+
+    @Modifying
+    @Query("delete from Goal goal where goal.match.id = :matchId")
+    void deleteByMatchId(@Param("matchId") Long matchId);
 }
@@ -0,0 +1,11 @@
+package com.bhfantasy.web.repository;
+
+import com.bhfantasy.web.model.LeaderboardCheckpoint;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.Optional;
+
+public interface LeaderboardCheckpointRepository extends CrudRepository<LeaderboardCheckpoint, Long> {
+
+    Optional<LeaderboardCheckpoint> findByLeagueId(Long leagueId);
+}
@@ -1,19 +1,35 @@
 package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.LeagueSetup;
+import com.bhfantasy.web.model.custom.ScheduledMatchPollValue;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
 import java.time.LocalDateTime;
+import java.util.List;
 
 public interface LeagueSetupRepository extends CrudRepository<LeagueSetup, Long> {
 
-    @Query("select distinct leagueSetup from LeagueSetup leagueSetup " +
+    @Query("select distinct new com.bhfantasy.web.model.custom.ScheduledMatchPollValue(" +
+            "match.id, match.dateTime, leagueSetup.id) " +
+            "from LeagueSetup leagueSetup " +
             "join leagueSetup.league league " +
             "join league.rounds round " +
             "join round.matches match " +
-            "where leagueSetup.transfermarktUrl is not null and match.dateTime > :today and match.dateTime < :tomorrow " +
-            "order by leagueSetup.id")
-    Iterable<LeagueSetup> findLeaguesBetween(@Param("today") LocalDateTime today, @Param("tomorrow") LocalDateTime tomorrow);
+            "where leagueSetup.transfermarktUrl is not null and match.dateTime > :from and match.dateTime < :to " +
+            "and (match.score1 is null or match.lineup1 is null)")
+    List<ScheduledMatchPollValue> findUnfinishedMatchesBetween(
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
+
+    @Query("select distinct new com.bhfantasy.web.model.custom.ScheduledMatchPollValue(" +
+            "match.id, match.dateTime, leagueSetup.id) " +
+            "from LeagueSetup leagueSetup " +
+            "join leagueSetup.league league " +
+            "join league.rounds round " +
+            "join round.matches match " +
+            "where leagueSetup.transfermarktUrl is not null and match.dateTime > :from and match.dateTime < :to " +
+            "and match.score1 is not null and match.lineup1 is not null")
+    List<ScheduledMatchPollValue> findFinishedMatchesBetween(
+            @Param("from") LocalDateTime from, @Param("to") LocalDateTime to);
 }
@@ -1,8 +1,22 @@
 package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.Lineup;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 
 public interface LineupRepository extends CrudRepository<Lineup, Long> {
+
+    @Query("select distinct lineup from Lineup lineup " +
+            "left join fetch lineup.startingPlayers " +
+            "where lineup.id in :lineupIds")
+    List<Lineup> findWithStartingPlayers(@Param("lineupIds") Collection<Long> lineupIds);
+
+    @Query("select distinct lineup from Lineup lineup " +
+            "left join fetch lineup.availableSubstitutions " +
+            "where lineup.id in :lineupIds")
+    List<Lineup> findWithAvailableSubstitutions(@Param("lineupIds") Collection<Long> lineupIds);
 }
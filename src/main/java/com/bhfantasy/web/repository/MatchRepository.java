@@ -2,11 +2,13 @@ package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.Match;
 import com.bhfantasy.web.model.Team;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -20,6 +22,16 @@ public interface MatchRepository extends CrudRepository<Match, Long> {
 
     Optional<Match> findByTransfermarktId(Long id);
 
+    @Query("select distinct match from Match match " +
+            "join match.rounds round " +
+            "where round.league.id = :leagueId")
+    List<Match> findLeagueMatches(@Param("leagueId") Long leagueId);
+
+    @Query("select distinct match from Match match " +
+            "left join fetch match.rounds " +
+            "where match.id in :matchIds")
+    List<Match> findWithRounds(@Param("matchIds") Collection<Long> matchIds);
+
     @Query("select match " +
             "from RegularLeague regularLeague " +
             "join regularLeague.groups leagueGroup " +
@@ -28,4 +40,37 @@ public interface MatchRepository extends CrudRepository<Match, Long> {
             "where regularLeague.id = :leagueId and regularLeague.dtype = 'RegularLeague' " +
             "order by match.dateTime asc")
     List<Match> findMultiLeagueMatches(@Param("leagueId") Long leagueId);
+
+    @Query("select distinct match " +
+            "from RegularLeague regularLeague " +
+            "join regularLeague.groups leagueGroup " +
+            "join leagueGroup.rounds round " +
+            "join round.matches match " +
+            "where regularLeague.id = :leagueId and regularLeague.dtype = 'RegularLeague' " +
+            "and not exists (select multiLeagueRound from Round multiLeagueRound " +
+            "join multiLeagueRound.matches multiLeagueMatch " +
+            "where multiLeagueRound.league.id = :leagueId and multiLeagueMatch = match) " +
+            "order by match.dateTime asc")
+    List<Match> findUnassignedMultiLeagueMatches(@Param("leagueId") Long leagueId);
+
+    @Query("select distinct match from Round round " +
+            "join round.matches match " +
+            "where round.league.id = :leagueId " +
+            "and (match.dateTime < round.startDate or match.dateTime > round.endDate)")
+    List<Match> findMultiLeagueMatchesOutsideOfRound(@Param("leagueId") Long leagueId);
+
+    @Query("select match from Match match " +
+            "left join fetch match.lineup1 " +
+            "left join fetch match.lineup2 " +
+            "where match.id in :matchIds")
+    List<Match> findForScoring(@Param("matchIds") Collection<Long> matchIds);
+
+    @Query("select distinct match.id from Match match " +
+            "join match.rounds round " +
+            "where round.league.id = :leagueId and match.score1 is not null and match.id > :afterId " +
+            "and (match.scoringVersion is null or match.scoringVersion <> :scoringVersion) " +
+            "order by match.id")
+    List<Long> findLeagueMatchIdsToScore(@Param("leagueId") Long leagueId,
+                                         @Param("scoringVersion") Integer scoringVersion,
+                                         @Param("afterId") Long afterId, Pageable pageable);
 }
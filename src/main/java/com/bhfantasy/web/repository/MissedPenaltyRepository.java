@@ -1,7 +1,23 @@
 package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.MissedPenalty;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface MissedPenaltyRepository extends CrudRepository<MissedPenalty, Long> {
+
+    @Query("select missedPenalty from MissedPenalty missedPenalty " +
+            "left join fetch missedPenalty.player " +
+            "left join fetch missedPenalty.savedBy " +
+            "where missedPenalty.match.id in :matchIds order by missedPenalty.id")
+    List<MissedPenalty> findByMatchIds(@Param("matchIds") Collection<Long> matchIds);
+
+    @Modifying
+    @Query("delete from MissedPenalty missedPenalty where missedPenalty.match.id = :matchId")
+    void deleteByMatchId(@Param("matchId") Long matchId);
 }
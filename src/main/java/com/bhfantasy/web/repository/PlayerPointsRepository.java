@@ -1,7 +1,30 @@
 package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.PlayerPoints;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface PlayerPointsRepository extends CrudRepository<PlayerPoints, Long> {
+
+    @Query("select playerPoints from PlayerPoints playerPoints " +
+            "where playerPoints.match.id in :matchIds order by playerPoints.id")
+    List<PlayerPoints> findByMatchIds(@Param("matchIds") Collection<Long> matchIds);
+
+    @Query("select playerPoints from PlayerPoints playerPoints " +
+            "join playerPoints.match match " +
+            "join match.rounds round " +
+            "where round.id = :roundId and playerPoints.player.id in :playerIds")
+    List<PlayerPoints> findByRoundIdAndPlayerIds(
+            @Param("roundId") Long roundId, @Param("playerIds") Collection<Long> playerIds);
+
+    @Query("select playerPoints from PlayerPoints playerPoints " +
+            "join fetch playerPoints.player " +
+            "join playerPoints.match match " +
+            "join match.rounds round " +
+            "where round.id = :roundId")
+    List<PlayerPoints> findByRoundIdWithPlayers(@Param("roundId") Long roundId);
 }
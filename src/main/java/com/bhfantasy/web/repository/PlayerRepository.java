@@ -1,18 +1,17 @@
 package com.bhfantasy.web.repository;
 
+import com.bhfantasy.web.model.custom.PlayerNameValue;
 import com.bhfantasy.web.model.players.Player;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public interface PlayerRepository extends CrudRepository<Player, Long> {
-    Iterable<Player> findByFirstNameAndLastName(String firstName, String lastName);
-
-    Iterable<Player> findByLastName(String lastName);
-
     Optional<Player> findByTransferMarktId(Long transferMarktId);
 
     List<Player> findByTeams(Long teamId);
@@ -26,4 +25,18 @@ public interface PlayerRepository extends CrudRepository<Player, Long> {
             "join team.leagues league " +
             "where league.id = :leagueId and league.dtype = 'RegularLeague' order by player.id asc")
     List<Player> findPlayersWithTeams(@Param("leagueId") Long leagueId);
+
+    @Query("select distinct player from Player player " +
+            "left join fetch player.teams " +
+            "where player.id in :ids")
+    List<Player> findPlayersWithTeamsByIds(@Param("ids") Collection<Long> ids);
+
+    @Query("select player.transferMarktId from Player player where player.transferMarktId in :transferMarktIds")
+    Set<Long> findExistingTransferMarktIds(@Param("transferMarktIds") Collection<Long> transferMarktIds);
+
+    @Query("select new com.bhfantasy.web.model.custom.PlayerNameValue(" +
+            "player.id, player.transferMarktId, player.firstName, player.lastName, team.id) " +
+            "from Player player " +
+            "left join player.teams team")
+    List<PlayerNameValue> findPlayerNames();
 }
@@ -63,4 +63,9 @@ public interface RegularLeagueRepository extends CrudRepository<RegularLeague, L
             "where league.dtype = 'RegularLeague' or league.dtype = 'FantasyLeague' order by league.id")
     @EntityGraph(value = "RegularLeague.withGroups", type = EntityGraph.EntityGraphType.LOAD)
     Iterable<RegularLeague> getAllLeagues();
+
+    @Query("select distinct league from RegularLeague league " +
+            "join league.groups leagueGroup " +
+            "where leagueGroup.id = :groupId and league.dtype = 'RegularLeague'")
+    List<RegularLeague> findByGroupId(@Param("groupId") Long groupId);
 }
@@ -2,8 +2,12 @@ package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.Round;
 import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 
 public interface RoundRepository extends CrudRepository<Round, Long> {
@@ -16,4 +20,16 @@ public interface RoundRepository extends CrudRepository<Round, Long> {
     Optional<Round> findByLeagueIdAndName(Long leagueId, String name);
 
     Optional<Round> findFirstByLeagueIdAndMatches_Score1IsNotNullOrderByMatches_DateTimeDesc(Long leagueId);
+
+    @Query("select round.id from Round round " +
+            "where round.id in :roundIds and not exists (" +
+            "select match from Match match join match.rounds matchRound " +
+            "where matchRound = round and match.scoringVersion is null)")
+    List<Long> findCompletedRoundIds(@Param("roundIds") Collection<Long> roundIds);
+
+    @Query("select round.id from Round round where round.league.id = :leagueId order by round.id")
+    List<Long> findIdsByLeagueId(@Param("leagueId") Long leagueId);
+
+    @Query("select round.id from Round round join round.matches match where match.id = :matchId")
+    List<Long> findRoundIdsByMatchId(@Param("matchId") Long matchId);
 }
@@ -0,0 +1,34 @@
+package com.bhfantasy.web.repository;
+
+import com.bhfantasy.web.model.ScoringTask;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+public interface ScoringTaskRepository extends CrudRepository<ScoringTask, Long> {
+
+    Optional<ScoringTask> findByMatchId(Long matchId);
+
+    List<ScoringTask> findTop100ByAttemptsLessThanOrderById(Integer attempts);
+
+    long countByAttemptsLessThan(Integer attempts);
+
+    // Tasks queued again after they were read have a newer update time and are kept
+    @Modifying
+    @Transactional
+    @Query("delete from ScoringTask task where task.id = :id and task.updatedAt = :updatedAt")
+    int deleteByIdAndUpdatedAt(@Param("id") Long id, @Param("updatedAt") LocalDateTime updatedAt);
+
+    @Modifying
+    @Transactional
+    @Query("update ScoringTask task set task.attempts = task.attempts + 1, task.error = :error, " +
+            "task.updatedAt = :now where task.id = :id and task.updatedAt = :updatedAt")
+    int recordFailure(@Param("id") Long id, @Param("updatedAt") LocalDateTime updatedAt,
+                      @Param("error") String error, @Param("now") LocalDateTime now);
+}
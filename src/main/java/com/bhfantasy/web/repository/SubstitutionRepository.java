@@ -1,7 +1,23 @@
 package com.bhfantasy.web.repository;
 
 import com.bhfantasy.web.model.Substitution;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
 
 public interface SubstitutionRepository extends CrudRepository<Substitution, Long> {
+
+    @Query("select substitution from Substitution substitution " +
+            "left join fetch substitution.player " +
+            "left join fetch substitution.substitutePlayer " +
+            "where substitution.lineup.id in :lineupIds order by substitution.id")
+    List<Substitution> findByLineupIds(@Param("lineupIds") Collection<Long> lineupIds);
+
+    @Modifying
+    @Query("delete from Substitution substitution where substitution.lineup.id in :lineupIds")
+    void deleteByLineupIds(@Param("lineupIds") Collection<Long> lineupIds);
 }
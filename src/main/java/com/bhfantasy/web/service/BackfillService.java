@@ -0,0 +1,176 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.BackfillPage;
+import com.bhfantasy.web.model.LeagueSetup;
+import com.bhfantasy.web.model.league.RegularLeague;
+import com.bhfantasy.web.repository.BackfillPageRepository;
+import com.bhfantasy.web.workers.*;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Backfills past seasons of a league setup.
+ *
+ * Season pages to crawl are kept in the database as the crawl frontier, so a restart picks up pending and
+ * interrupted seasons where they were left. Within a season, already stored matches are skipped by their
+ * fixture fingerprint and downloaded pages are served from the page cache. Seasons run in parallel and take
+ * their requests from the same per-host rate as live ingestion, after it and at most a share of it.
+ */
+@Service
+public class BackfillService {
+
+    private static Logger logger = LoggerFactory.getLogger(BackfillService.class);
+
+    private static final String SEASON_PATH = "/saison_id/";
+
+    private final BackfillPageRepository backfillPageRepository;
+
+    private final TransferMarktWorker transferMarktWorker;
+
+    private final FantasyService fantasyService;
+
+    private final PageSource pageSource;
+
+    private final ExecutorService executor;
+
+    private final Set<Long> scheduledPages = ConcurrentHashMap.newKeySet();
+
+    public BackfillService(BackfillPageRepository backfillPageRepository, TransferMarktWorker transferMarktWorker,
+                           FantasyService fantasyService, PageCache pageCache, RateLimitedFetcher fetcher,
+                           @Value("${bhfantasy.backfill.parallelism:3}") int parallelism,
+                           @Value("${bhfantasy.backfill.rate-share:0.5}") double rateShare) {
+        this.backfillPageRepository = backfillPageRepository;
+        this.transferMarktWorker = transferMarktWorker;
+        this.fantasyService = fantasyService;
+        this.pageSource = new HttpPageSource(pageCache, fetcher.withShare(rateShare));
+
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        this.executor = Executors.newFixedThreadPool(parallelism,
+                runnable -> new Thread(runnable, "backfill-" + threadCounter.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        List<BackfillPage> pages = backfillPageRepository.findByStatusInOrderById(
+                Arrays.asList(BackfillPage.Status.PENDING, BackfillPage.Status.RUNNING));
+
+        if (pages.isEmpty()) {
+            return;
+        }
+
+        logger.info("Resuming backfill of {} season pages.", pages.size());
+
+        pages.forEach(page -> page.setStatus(BackfillPage.Status.PENDING));
+
+        backfillPageRepository.saveAll(pages).forEach(this::schedule);
+    }
+
+    public List<BackfillPage> backfill(LeagueSetup leagueSetup, int fromSeason, int toSeason) {
+        String transfermarktUrl = leagueSetup.getTransfermarktUrl();
+
+        int position = transfermarktUrl.indexOf(SEASON_PATH);
+
+        String baseUrl = position >= 0 ? transfermarktUrl.substring(0, position) : transfermarktUrl;
+
+        for (int season = fromSeason; season <= toSeason; season++) {
+            String url = baseUrl + SEASON_PATH + season;
+
+            Optional<BackfillPage> optionalPage = backfillPageRepository.findByUrl(url);
+
+            BackfillPage page;
+
+            if (optionalPage.isPresent()) {
+                page = optionalPage.get();
+
+                if (page.getStatus() != BackfillPage.Status.FAILED) {
+                    continue;
+                }
+
+                page.setStatus(BackfillPage.Status.PENDING);
+                page.setUpdatedAt(LocalDateTime.now());
+            } else {
+                page = new BackfillPage(leagueSetup.getId(), String.valueOf(season), url);
+            }
+
+            schedule(backfillPageRepository.save(page));
+        }
+
+        return getPages(leagueSetup.getId());
+    }
+
+    public List<BackfillPage> getPages(Long leagueSetupId) {
+        return backfillPageRepository.findByLeagueSetupIdOrderBySeason(leagueSetupId);
+    }
+
+    private void schedule(BackfillPage page) {
+        if (scheduledPages.add(page.getId())) {
+            executor.execute(() -> {
+                try {
+                    run(page.getId());
+                } finally {
+                    scheduledPages.remove(page.getId());
+                }
+            });
+        }
+    }
+
+    private void run(Long pageId) {
+        Optional<BackfillPage> optionalPage = backfillPageRepository.findById(pageId);
+
+        if (!optionalPage.isPresent() || optionalPage.get().getStatus() == BackfillPage.Status.DONE) {
+            return;
+        }
+
+        BackfillPage page = optionalPage.get();
+        page.setStatus(BackfillPage.Status.RUNNING);
+        page.setAttempts(page.getAttempts() + 1);
+        page.setUpdatedAt(LocalDateTime.now());
+
+        page = backfillPageRepository.save(page);
+
+        logger.info("Backfilling season {} from {}.", page.getSeason(), page.getUrl());
+
+        try {
+            RegularLeague league = transferMarktWorker.process(page.getUrl(), pageSource, new IngestionStats());
+
+            if (league == null) {
+                throw new IllegalStateException("Season page couldn't be processed.");
+            }
+
+            fantasyService.process(league.getId());
+
+            page.setStatus(BackfillPage.Status.DONE);
+            page.setError(null);
+        } catch (Exception e) {
+            logger.error("Error while backfilling {}.", page.getUrl(), e);
+
+            page.setStatus(BackfillPage.Status.FAILED);
+            page.setError(e.getMessage());
+        }
+
+        page.setUpdatedAt(LocalDateTime.now());
+
+        backfillPageRepository.save(page);
+    }
+}
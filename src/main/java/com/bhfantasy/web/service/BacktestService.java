@@ -0,0 +1,531 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.exception.InvalidLeagueIdException;
+import com.bhfantasy.web.model.PlayerPoints;
+import com.bhfantasy.web.model.custom.*;
+import com.bhfantasy.web.model.league.FantasyLeague;
+import com.bhfantasy.web.model.league.ScoringRules;
+import com.bhfantasy.web.model.players.Player;
+import com.bhfantasy.web.repository.FantasyLeagueRepository;
+import com.bhfantasy.web.repository.PlayerPointsRepository;
+import com.bhfantasy.web.repository.RoundRepository;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+/**
+ * Replays a season of a fantasy league under candidate scoring rules and compares the outcome with the
+ * current rules of the league. Nothing is written. Backtests run as admin jobs, see {@link JobService#backtest}.
+ *
+ * Stored match events of the season are loaded once, round by round, into flat arrays of packed counters,
+ * next to the players whose points count for every fantasy lineup. Which players count depends only on who
+ * played, so evaluating a rule set is a pass over the arrays, and rule sets are evaluated in parallel.
+ */
+@Service
+public class BacktestService {
+
+    private static Logger logger = LoggerFactory.getLogger(BacktestService.class);
+
+    public static final int MAX_CANDIDATES = 50;
+
+    private static final int TOP_MOVERS = 10;
+
+    private final FantasyLeagueRepository fantasyLeagueRepository;
+
+    private final RoundRepository roundRepository;
+
+    private final PlayerPointsRepository playerPointsRepository;
+
+    private final FantasyScoreService fantasyScoreService;
+
+    private final ScoringRulesService scoringRulesService;
+
+    private final ForkJoinPool pool;
+
+    public BacktestService(FantasyLeagueRepository fantasyLeagueRepository, RoundRepository roundRepository,
+                           PlayerPointsRepository playerPointsRepository, FantasyScoreService fantasyScoreService,
+                           ScoringRulesService scoringRulesService,
+                           @Value("${bhfantasy.backtest.parallelism:0}") int parallelism) {
+        this.fantasyLeagueRepository = fantasyLeagueRepository;
+        this.roundRepository = roundRepository;
+        this.playerPointsRepository = playerPointsRepository;
+        this.fantasyScoreService = fantasyScoreService;
+        this.scoringRulesService = scoringRulesService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Checks the league and the candidates before a backtest is queued, so invalid requests fail right away.
+     */
+    public void validate(Long leagueId, List<ScoringRules> candidates) {
+        if (!fantasyLeagueRepository.existsById(leagueId)) {
+            throw new InvalidLeagueIdException();
+        }
+
+        candidates.forEach(scoringRulesService::validate);
+    }
+
+    public BacktestValue backtest(Long leagueId, List<ScoringRules> candidates) {
+        validate(leagueId, candidates);
+
+        long startedAt = System.currentTimeMillis();
+
+        Season season = load(leagueId);
+
+        long loadedAt = System.currentTimeMillis();
+
+        Totals baseline = season.evaluate(scoringRulesService.getCompiledRules(leagueId));
+
+        List<CompiledScoringRules> compiledCandidates = candidates.stream()
+                .map(CompiledScoringRules::compile)
+                .collect(Collectors.toList());
+
+        List<BacktestRulesValue> candidateValues;
+
+        try {
+            candidateValues = pool.submit(() -> IntStream.range(0, candidates.size()).parallel()
+                    .mapToObj(i -> toValue(season, candidates.get(i), season.evaluate(compiledCandidates.get(i)),
+                            baseline))
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Backtest is interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error while evaluating scoring rules.", e.getCause());
+        }
+
+        BacktestValue value = new BacktestValue();
+        value.setLeagueId(leagueId);
+        value.setRounds(season.rounds.size());
+        value.setPlayers(season.appearedPlayers);
+        value.setTeams(season.teamIds.length);
+        value.setLineups(season.lineups);
+        value.setStoredPlayerPoints(season.storedPlayerPoints);
+        value.setLoadMillis(loadedAt - startedAt);
+        value.setEvaluateMillis(System.currentTimeMillis() - loadedAt);
+        value.setBaseline(toValue(season, scoringRulesService.getRules(leagueId), baseline, null));
+        value.setCandidates(candidateValues);
+
+        logger.info("Season of fantasy league {} backtested with {} rule sets: {} rounds, {} players, {} teams " +
+                        "loaded in {} ms, evaluated in {} ms.", leagueId, candidates.size(), value.getRounds(),
+                value.getPlayers(), value.getTeams(), value.getLoadMillis(), value.getEvaluateMillis());
+
+        if (season.storedPlayerPoints > 0) {
+            logger.warn("Backtest of fantasy league {} kept stored points of {} player points without match events.",
+                    leagueId, season.storedPlayerPoints);
+        }
+
+        return value;
+    }
+
+    // Rounds are loaded one at a time, only their compact form is kept
+    private Season load(Long leagueId) {
+        FantasyLeague fantasyLeague = fantasyLeagueRepository.findById(leagueId)
+                .orElseThrow(InvalidLeagueIdException::new);
+
+        if (fantasyLeague.getRegularLeague() == null) {
+            throw new InvalidLeagueIdException();
+        }
+
+        List<Long> roundIds = roundRepository.findIdsByLeagueId(fantasyLeague.getRegularLeague().getId());
+
+        Set<Long> completedRoundIds = roundIds.isEmpty()
+                ? Collections.emptySet() : new HashSet<>(roundRepository.findCompletedRoundIds(roundIds));
+
+        SeasonBuilder builder = new SeasonBuilder();
+
+        for (Long roundId : roundIds) {
+            if (Thread.currentThread().isInterrupted()) {
+                throw new CancellationException("Backtest is cancelled.");
+            }
+
+            builder.addRound(playerPointsRepository.findByRoundIdWithPlayers(roundId),
+                    fantasyScoreService.selectLineups(leagueId, roundId, completedRoundIds.contains(roundId)));
+        }
+
+        return builder.build();
+    }
+
+    private static BacktestRulesValue toValue(Season season, ScoringRules rules, Totals totals, Totals baseline) {
+        BacktestRulesValue value = new BacktestRulesValue();
+        value.setRules(rules);
+        value.setPlayerPoints(getDistribution(totals.playerPoints, season.appeared));
+        value.setTeamPoints(getDistribution(totals.teamPoints, null));
+
+        if (baseline != null) {
+            value.setPlayerRanks(getRankChange(season.playerIds, baseline.playerPoints, totals.playerPoints,
+                    season.appeared));
+            value.setTeamRanks(getRankChange(season.teamIds, baseline.teamPoints, totals.teamPoints, null));
+        }
+
+        return value;
+    }
+
+    private static DistributionValue getDistribution(int[] points, boolean[] included) {
+        int[] sorted = IntStream.range(0, points.length)
+                .filter(i -> included == null || included[i])
+                .map(i -> points[i])
+                .sorted()
+                .toArray();
+
+        DistributionValue value = new DistributionValue();
+        value.setCount(sorted.length);
+
+        if (sorted.length == 0) {
+            return value;
+        }
+
+        double sum = 0;
+
+        for (int point : sorted) {
+            sum += point;
+        }
+
+        double mean = sum / sorted.length;
+
+        double squares = 0;
+
+        for (int point : sorted) {
+            squares += (point - mean) * (point - mean);
+        }
+
+        value.setMin(sorted[0]);
+        value.setMax(sorted[sorted.length - 1]);
+        value.setMean(mean);
+        value.setStandardDeviation(Math.sqrt(squares / sorted.length));
+        value.setP10(getPercentile(sorted, 10));
+        value.setMedian(getPercentile(sorted, 50));
+        value.setP90(getPercentile(sorted, 90));
+
+        return value;
+    }
+
+    // Nearest rank percentile
+    private static int getPercentile(int[] sorted, int percentile) {
+        int rank = (int) Math.ceil(percentile / 100.0 * sorted.length);
+
+        return sorted[Math.max(rank, 1) - 1];
+    }
+
+    private static RankChangeValue getRankChange(long[] ids, int[] baselinePoints, int[] points, boolean[] included) {
+        int[] baselineRanks = getRanks(baselinePoints, included);
+        int[] ranks = getRanks(points, included);
+
+        int count = 0;
+        int changed = 0;
+        long absoluteChanges = 0;
+        int maxRise = 0;
+        int maxFall = 0;
+
+        List<Integer> moved = new ArrayList<>();
+
+        for (int i = 0; i < ids.length; i++) {
+            if (included != null && !included[i]) {
+                continue;
+            }
+
+            count++;
+
+            int change = baselineRanks[i] - ranks[i];
+
+            if (change != 0) {
+                changed++;
+                absoluteChanges += Math.abs(change);
+                maxRise = Math.max(maxRise, change);
+                maxFall = Math.max(maxFall, -change);
+
+                moved.add(i);
+            }
+        }
+
+        moved.sort(Comparator.<Integer>comparingInt(i -> -Math.abs(baselineRanks[i] - ranks[i]))
+                .thenComparingInt(i -> ranks[i]));
+
+        RankChangeValue value = new RankChangeValue();
+        value.setChanged(changed);
+        value.setMeanAbsoluteChange(count > 0 ? (double) absoluteChanges / count : 0.0);
+        value.setMaxRise(maxRise);
+        value.setMaxFall(maxFall);
+        value.setRankCorrelation(getCorrelation(baselineRanks, ranks, included));
+        value.setTopMovers(moved.stream()
+                .limit(TOP_MOVERS)
+                .map(i -> new RankMoveValue(ids[i], baselineRanks[i], ranks[i], baselinePoints[i], points[i]))
+                .collect(Collectors.toList()));
+
+        return value;
+    }
+
+    // Equal points share a rank, the next rank skips them
+    private static int[] getRanks(int[] points, boolean[] included) {
+        int[] order = IntStream.range(0, points.length)
+                .filter(i -> included == null || included[i])
+                .boxed()
+                .sorted(Comparator.comparingInt(i -> -points[i]))
+                .mapToInt(Integer::intValue)
+                .toArray();
+
+        int[] ranks = new int[points.length];
+
+        for (int position = 0; position < order.length; position++) {
+            int i = order[position];
+
+            ranks[i] = position > 0 && points[i] == points[order[position - 1]]
+                    ? ranks[order[position - 1]] : position + 1;
+        }
+
+        return ranks;
+    }
+
+    // Spearman correlation, computed as Pearson correlation of the ranks
+    private static Double getCorrelation(int[] first, int[] second, boolean[] included) {
+        int count = 0;
+        double firstSum = 0;
+        double secondSum = 0;
+
+        for (int i = 0; i < first.length; i++) {
+            if (included == null || included[i]) {
+                count++;
+                firstSum += first[i];
+                secondSum += second[i];
+            }
+        }
+
+        if (count < 2) {
+            return null;
+        }
+
+        double firstMean = firstSum / count;
+        double secondMean = secondSum / count;
+
+        double covariance = 0;
+        double firstVariance = 0;
+        double secondVariance = 0;
+
+        for (int i = 0; i < first.length; i++) {
+            if (included == null || included[i]) {
+                covariance += (first[i] - firstMean) * (second[i] - secondMean);
+                firstVariance += (first[i] - firstMean) * (first[i] - firstMean);
+                secondVariance += (second[i] - secondMean) * (second[i] - secondMean);
+            }
+        }
+
+        if (firstVariance == 0 || secondVariance == 0) {
+            return null;
+        }
+
+        return covariance / Math.sqrt(firstVariance * secondVariance);
+    }
+
+    private static class Totals {
+
+        private final int[] playerPoints;
+
+        private final int[] teamPoints;
+
+        Totals(int[] playerPoints, int[] teamPoints) {
+            this.playerPoints = playerPoints;
+            this.teamPoints = teamPoints;
+        }
+    }
+
+    // Players and teams are referenced by their index in the season
+    private static class Round {
+
+        private final int[] players;
+
+        private final int[] types;
+
+        private final long[] counters;
+
+        private final int[] minutes;
+
+        // Points scored before match events were stored can only be taken as they are
+        private final boolean[] stored;
+
+        private final int[] storedPoints;
+
+        private final int[] lineupTeams;
+
+        // Players whose points count for the lineup, the captain twice
+        private final int[][] lineupPlayers;
+
+        Round(int appearances, int lineups) {
+            this.players = new int[appearances];
+            this.types = new int[appearances];
+            this.counters = new long[appearances];
+            this.minutes = new int[appearances];
+            this.stored = new boolean[appearances];
+            this.storedPoints = new int[appearances];
+            this.lineupTeams = new int[lineups];
+            this.lineupPlayers = new int[lineups][];
+        }
+    }
+
+    // Immutable once built, evaluated by many threads at once
+    private static class Season {
+
+        private final long[] playerIds;
+
+        private final boolean[] appeared;
+
+        private final int appearedPlayers;
+
+        private final long[] teamIds;
+
+        private final List<Round> rounds;
+
+        private final int lineups;
+
+        private final int storedPlayerPoints;
+
+        Season(long[] playerIds, boolean[] appeared, long[] teamIds, List<Round> rounds) {
+            this.playerIds = playerIds;
+            this.appeared = appeared;
+            this.teamIds = teamIds;
+            this.rounds = rounds;
+
+            int appearedCount = 0;
+
+            for (boolean playerAppeared : appeared) {
+                appearedCount += playerAppeared ? 1 : 0;
+            }
+
+            this.appearedPlayers = appearedCount;
+            this.lineups = rounds.stream().mapToInt(round -> round.lineupTeams.length).sum();
+
+            int storedCount = 0;
+
+            for (Round round : rounds) {
+                for (boolean playerStored : round.stored) {
+                    storedCount += playerStored ? 1 : 0;
+                }
+            }
+
+            this.storedPlayerPoints = storedCount;
+        }
+
+        Totals evaluate(CompiledScoringRules rules) {
+            int[] playerPoints = new int[playerIds.length];
+            int[] teamPoints = new int[teamIds.length];
+            int[] roundPoints = new int[playerIds.length];
+
+            for (Round round : rounds) {
+                for (int i = 0; i < round.players.length; i++) {
+                    int points = round.stored[i] ? round.storedPoints[i]
+                            : rules.evaluate(round.types[i], round.counters[i], round.minutes[i]);
+
+                    roundPoints[round.players[i]] += points;
+                    playerPoints[round.players[i]] += points;
+                }
+
+                for (int lineup = 0; lineup < round.lineupTeams.length; lineup++) {
+                    int points = 0;
+
+                    for (int player : round.lineupPlayers[lineup]) {
+                        points += roundPoints[player];
+                    }
+
+                    teamPoints[round.lineupTeams[lineup]] += points;
+                }
+
+                for (int player : round.players) {
+                    roundPoints[player] = 0;
+                }
+            }
+
+            return new Totals(playerPoints, teamPoints);
+        }
+    }
+
+    private static class SeasonBuilder {
+
+        private final Map<Long, Integer> players = new HashMap<>();
+
+        private final Map<Long, Integer> teams = new HashMap<>();
+
+        private final Set<Integer> appeared = new HashSet<>();
+
+        private final List<Round> rounds = new ArrayList<>();
+
+        @SuppressWarnings("unchecked")
+        void addRound(List<PlayerPoints> points, List<FantasyScoreService.LineupSelection> selections) {
+            Round round = new Round(points.size(), selections.size());
+
+            for (int i = 0; i < points.size(); i++) {
+                PlayerPoints playerPoints = points.get(i);
+
+                Player player = playerPoints.getPlayer();
+
+                round.players[i] = getPlayer(player.getId());
+                round.types[i] = PointsAccumulator.typeOf((Class<? extends Player>) Hibernate.getClass(player));
+                round.minutes[i] = playerPoints.getMinutesPlayed() != null ? playerPoints.getMinutesPlayed() : 0;
+
+                if (playerPoints.getCounters() != null) {
+                    round.counters[i] = playerPoints.getCounters();
+                } else {
+                    round.stored[i] = true;
+                    round.storedPoints[i] = playerPoints.getPoints() != null ? playerPoints.getPoints() : 0;
+                }
+
+                appeared.add(round.players[i]);
+            }
+
+            for (int i = 0; i < selections.size(); i++) {
+                FantasyScoreService.LineupSelection selection = selections.get(i);
+
+                long[] playerIds = selection.getPlayerIds();
+
+                int[] lineupPlayers = new int[playerIds.length + (selection.getCaptainId() != null ? 1 : 0)];
+
+                for (int j = 0; j < playerIds.length; j++) {
+                    lineupPlayers[j] = getPlayer(playerIds[j]);
+                }
+
+                if (selection.getCaptainId() != null) {
+                    lineupPlayers[playerIds.length] = getPlayer(selection.getCaptainId());
+                }
+
+                round.lineupTeams[i] = teams.computeIfAbsent(selection.getTeamId(), id -> teams.size());
+                round.lineupPlayers[i] = lineupPlayers;
+            }
+
+            rounds.add(round);
+        }
+
+        Season build() {
+            long[] playerIds = new long[players.size()];
+            boolean[] playerAppeared = new boolean[players.size()];
+
+            players.forEach((id, index) -> {
+                playerIds[index] = id;
+                playerAppeared[index] = appeared.contains(index);
+            });
+
+            long[] teamIds = new long[teams.size()];
+
+            teams.forEach((id, index) -> teamIds[index] = id);
+
+            return new Season(playerIds, playerAppeared, teamIds, rounds);
+        }
+
+        private int getPlayer(long playerId) {
+            return players.computeIfAbsent(playerId, id -> players.size());
+        }
+    }
+}
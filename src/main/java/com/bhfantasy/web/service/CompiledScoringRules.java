@@ -0,0 +1,119 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.league.ScoringRules;
+
+import static com.bhfantasy.web.service.PointsAccumulator.*;
+
+/**
+ * Scoring rules flattened into a table of points per player type and event, evaluated over the packed
+ * counters of {@link PointsAccumulator}. Instances are immutable and shared between threads.
+ */
+public final class CompiledScoringRules {
+
+    // Columns after the counted events of PointsAccumulator
+    private static final int YELLOW_CARD_POINTS = COUNTED_EVENTS;
+
+    private static final int RED_CARD_POINTS = COUNTED_EVENTS + 1;
+
+    private static final int APPEARANCE_POINTS = COUNTED_EVENTS + 2;
+
+    private static final int FULL_APPEARANCE_POINTS = COUNTED_EVENTS + 3;
+
+    private static final int CLEAN_SHEET_POINTS = COUNTED_EVENTS + 4;
+
+    private static final int COLUMNS = COUNTED_EVENTS + 5;
+
+    private static final int TYPES = STRIKER + 1;
+
+    public static final CompiledScoringRules DEFAULT = compile(null);
+
+    private final int[] table;
+
+    private CompiledScoringRules(int[] table) {
+        this.table = table;
+    }
+
+    /**
+     * Compiles the rules, null rules and rules without a value use the default points.
+     */
+    public static CompiledScoringRules compile(ScoringRules rules) {
+        ScoringRules source = rules != null ? rules : new ScoringRules();
+
+        int[] table = new int[TYPES * COLUMNS];
+
+        for (int type = 0; type < TYPES; type++) {
+            int row = type * COLUMNS;
+
+            table[row + GOAL] = getGoalPoints(source, type);
+            table[row + OWN_GOAL] = value(source.getOwnGoal(), -2);
+            table[row + ASSIST] = value(source.getAssist(), 3);
+            table[row + SAVED_PENALTY] = value(source.getSavedPenalty(), 5);
+            table[row + MISSED_PENALTY] = value(source.getMissedPenalty(), -2);
+            table[row + YELLOW_CARD_POINTS] = value(source.getYellowCard(), -1);
+            table[row + RED_CARD_POINTS] = value(source.getRedCard(), -3);
+            table[row + APPEARANCE_POINTS] = value(source.getAppearance(), 1);
+            table[row + FULL_APPEARANCE_POINTS] = value(source.getFullAppearance(), 2);
+            table[row + CLEAN_SHEET_POINTS] = getCleanSheetPoints(source, type);
+        }
+
+        return new CompiledScoringRules(table);
+    }
+
+    public int evaluate(PointsAccumulator points, int entry) {
+        return evaluate(points.getType(entry), points.getCounters(entry), points.getMinutes(entry));
+    }
+
+    public int evaluate(int type, long counters, int minutesPlayed) {
+        int row = type * COLUMNS;
+
+        int result = 0;
+
+        if (counters != 0) {
+            for (int event = 0; event < COUNTED_EVENTS; event++) {
+                result += count(counters, event) * table[row + event];
+            }
+
+            if ((counters & RED_CARD) != 0) {
+                result += table[row + RED_CARD_POINTS];
+            } else if ((counters & YELLOW_CARD) != 0) {
+                result += table[row + YELLOW_CARD_POINTS];
+            }
+
+            if ((counters & CLEAN_SHEET) != 0) {
+                result += table[row + CLEAN_SHEET_POINTS];
+            }
+        }
+
+        if (minutesPlayed >= 60) {
+            result += table[row + FULL_APPEARANCE_POINTS];
+        } else if (minutesPlayed > 0) {
+            result += table[row + APPEARANCE_POINTS];
+        }
+
+        return result;
+    }
+
+    // Players without a position score goals like defenders
+    private static int getGoalPoints(ScoringRules rules, int type) {
+        switch (type) {
+            case GOALKEEPER: return value(rules.getGoalGoalkeeper(), 6);
+            case MIDDLE: return value(rules.getGoalMiddle(), 5);
+            case STRIKER: return value(rules.getGoalStriker(), 4);
+            default: return value(rules.getGoalDefender(), 6);
+        }
+    }
+
+    private static int getCleanSheetPoints(ScoringRules rules, int type) {
+        switch (type) {
+            case GOALKEEPER: return value(rules.getCleanSheetGoalkeeper(), 4);
+            case DEFENDER: return value(rules.getCleanSheetDefender(), 4);
+            case MIDDLE: return value(rules.getCleanSheetMiddle(), 1);
+            case STRIKER: return value(rules.getCleanSheetStriker(), 0);
+            default: return 0;
+        }
+    }
+
+    private static int value(Integer points, int defaultPoints) {
+        return points != null ? points : defaultPoints;
+    }
+}
@@ -0,0 +1,455 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.FantasyLineup;
+import com.bhfantasy.web.model.FantasyLineupScore;
+import com.bhfantasy.web.model.Lineup;
+import com.bhfantasy.web.model.PlayerPoints;
+import com.bhfantasy.web.model.custom.LiveTeamPointsValue;
+import com.bhfantasy.web.model.custom.TeamTotalValue;
+import com.bhfantasy.web.model.players.Player;
+import com.bhfantasy.web.repository.*;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.stream.Collectors;
+
+/**
+ * Keeps round scores of fantasy lineups materialized.
+ *
+ * Scores are recalculated in the transaction that changes their inputs: player points of a match in the round
+ * or the lineup itself. Only lineups holding one of the changed players are recalculated, except when the last
+ * match of a round is scored, which makes all scores of the round final. A change of scoring rules recalculates
+ * every lineup of the league in chunks, see {@link FantasyService#onScoringRulesChanged}.
+ */
+@Service
+public class FantasyScoreService {
+
+    private static Logger logger = LoggerFactory.getLogger(FantasyScoreService.class);
+
+    private final FantasyLineupRepository fantasyLineupRepository;
+
+    private final FantasyLineupScoreRepository fantasyLineupScoreRepository;
+
+    private final LineupRepository lineupRepository;
+
+    private final PlayerPointsRepository playerPointsRepository;
+
+    private final RoundRepository roundRepository;
+
+    private final ScoringRulesService scoringRulesService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    public FantasyScoreService(FantasyLineupRepository fantasyLineupRepository,
+                               FantasyLineupScoreRepository fantasyLineupScoreRepository,
+                               LineupRepository lineupRepository,
+                               PlayerPointsRepository playerPointsRepository,
+                               RoundRepository roundRepository,
+                               ScoringRulesService scoringRulesService,
+                               ApplicationEventPublisher eventPublisher) {
+        this.fantasyLineupRepository = fantasyLineupRepository;
+        this.fantasyLineupScoreRepository = fantasyLineupScoreRepository;
+        this.lineupRepository = lineupRepository;
+        this.playerPointsRepository = playerPointsRepository;
+        this.roundRepository = roundRepository;
+        this.scoringRulesService = scoringRulesService;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public Optional<FantasyLineupScore> getScore(Long leagueId, Long roundId, Long teamId) {
+        return fantasyLineupScoreRepository.findFirstByLeague_IdAndRound_IdAndTeam_IdOrderByIdDesc(
+                leagueId, roundId, teamId);
+    }
+
+    @EventListener
+    public void onPlayerPointsChanged(PlayerPointsChangedEvent event) {
+        Set<Long> playerIds = event.getChanges().stream()
+                .map(PlayerPointsChangedEvent.Change::getPlayerId)
+                .collect(Collectors.toSet());
+
+        Set<Long> fantasyLineupIds = new HashSet<>(
+                fantasyLineupRepository.findIdsByMatchIdAndPlayerIds(event.getMatchId(), playerIds));
+
+        if (event.isFirstScoring()) {
+            List<Long> roundIds = roundRepository.findRoundIdsByMatchId(event.getMatchId());
+
+            if (!roundIds.isEmpty()) {
+                List<Long> completedRoundIds = roundRepository.findCompletedRoundIds(roundIds);
+
+                if (!completedRoundIds.isEmpty()) {
+                    fantasyLineupIds.addAll(fantasyLineupRepository.findIdsByRoundIds(completedRoundIds));
+                }
+            }
+        }
+
+        updateScores(fantasyLineupIds);
+    }
+
+    /**
+     * Updates scores in a transaction of their own, also when called while another one is completing.
+     */
+    @Transactional(Transactional.TxType.REQUIRES_NEW)
+    public void updateScoresInNewTransaction(Collection<Long> fantasyLineupIds) {
+        updateScores(fantasyLineupIds);
+    }
+
+    @Transactional
+    public void updateScores(Collection<Long> fantasyLineupIds) {
+        if (fantasyLineupIds.isEmpty()) {
+            return;
+        }
+
+        List<FantasyLineup> fantasyLineups = loadFantasyLineups(fantasyLineupIds);
+
+        if (fantasyLineups.isEmpty()) {
+            return;
+        }
+
+        Map<Long, FantasyLineupScore> scores = new HashMap<>();
+
+        for (FantasyLineupScore score : fantasyLineupScoreRepository.findByFantasyLineupIds(fantasyLineupIds)) {
+            scores.put(score.getFantasyLineup().getId(), score);
+        }
+
+        Map<Long, List<FantasyLineup>> lineupsByRound = fantasyLineups.stream()
+                .collect(Collectors.groupingBy(fantasyLineup -> fantasyLineup.getRound().getId()));
+
+        Set<Long> completedRoundIds = new HashSet<>(roundRepository.findCompletedRoundIds(lineupsByRound.keySet()));
+
+        List<FantasyLineupScore> savedScores = new ArrayList<>();
+
+        Map<Long, Set<Long>> changedTeams = new HashMap<>();
+
+        for (Map.Entry<Long, List<FantasyLineup>> round : lineupsByRound.entrySet()) {
+            Map<Long, List<PlayerPoints>> roundPoints = loadRoundPoints(round.getKey(), round.getValue());
+
+            boolean completed = completedRoundIds.contains(round.getKey());
+
+            for (FantasyLineup fantasyLineup : round.getValue()) {
+                FantasyLineupScore score = scores.computeIfAbsent(fantasyLineup.getId(),
+                        id -> new FantasyLineupScore(fantasyLineup));
+
+                Integer previousPoints = score.getPoints();
+
+                calculate(score, fantasyLineup.getLineup(), roundPoints,
+                        scoringRulesService.getCompiledRules(fantasyLineup.getLeague().getId()), completed);
+
+                if (!score.getPoints().equals(previousPoints)) {
+                    changedTeams.computeIfAbsent(fantasyLineup.getLeague().getId(), id -> new HashSet<>())
+                            .add(fantasyLineup.getTeam().getId());
+                }
+
+                savedScores.add(score);
+            }
+        }
+
+        fantasyLineupScoreRepository.saveAll(savedScores);
+
+        // Totals instead of deltas, so listeners can apply them more than once
+        changedTeams.forEach((leagueId, teamIds) -> {
+            Map<Long, Integer> totals = new HashMap<>();
+
+            for (TeamTotalValue total : fantasyLineupScoreRepository.findTeamTotals(leagueId, teamIds)) {
+                totals.put(total.getTeamId(), total.getPoints().intValue());
+            }
+
+            eventPublisher.publishEvent(new TeamScoresChangedEvent(leagueId, totals));
+        });
+
+        logger.debug("{} fantasy lineup scores updated.", savedScores.size());
+    }
+
+    /**
+     * Calculates provisional scores of all lineups in the round, with points of matches in progress added
+     * to the stored points. Nothing is written.
+     *
+     * @param livePoints points of players in matches in progress, by player id
+     */
+    @Transactional
+    public List<LiveTeamPointsValue> calculateLiveScores(Long leagueId, Long roundId,
+                                                         Map<Long, List<PlayerPoints>> livePoints) {
+        List<FantasyLineup> fantasyLineups = loadFantasyLineups(
+                fantasyLineupRepository.findIdsByLeagueIdAndRoundId(leagueId, roundId));
+
+        if (fantasyLineups.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, List<PlayerPoints>> roundPoints = loadRoundPoints(roundId, fantasyLineups);
+
+        livePoints.forEach((playerId, points) ->
+                roundPoints.computeIfAbsent(playerId, id -> new ArrayList<>()).addAll(points));
+
+        CompiledScoringRules rules = scoringRulesService.getCompiledRules(leagueId);
+
+        List<LiveTeamPointsValue> result = new ArrayList<>(fantasyLineups.size());
+
+        for (FantasyLineup fantasyLineup : fantasyLineups) {
+            FantasyLineupScore score = new FantasyLineupScore(fantasyLineup);
+
+            calculate(score, fantasyLineup.getLineup(), roundPoints, rules, false);
+
+            result.add(new LiveTeamPointsValue(fantasyLineup.getTeam().getId(), score.getPoints(),
+                    score.getCaptainPoints(), score.getCaptainId()));
+        }
+
+        return result;
+    }
+
+    /**
+     * Picks the players whose points count for every lineup in the round. Who counts depends only on who
+     * played, so the picks hold under any scoring rules. Nothing is written.
+     */
+    @Transactional
+    public List<LineupSelection> selectLineups(Long leagueId, Long roundId, boolean completed) {
+        List<FantasyLineup> fantasyLineups = loadFantasyLineups(
+                fantasyLineupRepository.findIdsByLeagueIdAndRoundId(leagueId, roundId));
+
+        if (fantasyLineups.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        Map<Long, List<PlayerPoints>> roundPoints = loadRoundPoints(roundId, fantasyLineups);
+
+        List<LineupSelection> result = new ArrayList<>(fantasyLineups.size());
+
+        for (FantasyLineup fantasyLineup : fantasyLineups) {
+            Lineup lineup = fantasyLineup.getLineup();
+
+            Selection selection = select(lineup,
+                    getRoundPoints(lineup, roundPoints, CompiledScoringRules.DEFAULT), completed);
+
+            result.add(new LineupSelection(fantasyLineup.getTeam().getId(),
+                    selection.team.stream().mapToLong(player -> player.playerId).toArray(),
+                    selection.captain != null ? selection.captain.playerId : null));
+        }
+
+        return result;
+    }
+
+    private List<FantasyLineup> loadFantasyLineups(Collection<Long> fantasyLineupIds) {
+        if (fantasyLineupIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        List<FantasyLineup> fantasyLineups = fantasyLineupRepository.findForScoring(fantasyLineupIds);
+
+        if (fantasyLineups.isEmpty()) {
+            return fantasyLineups;
+        }
+
+        Set<Long> lineupIds = fantasyLineups.stream()
+                .map(fantasyLineup -> fantasyLineup.getLineup().getId())
+                .collect(Collectors.toSet());
+
+        // Loads players into the lineups of the persistence context
+        lineupRepository.findWithStartingPlayers(lineupIds);
+        lineupRepository.findWithAvailableSubstitutions(lineupIds);
+
+        return fantasyLineups;
+    }
+
+    // Stored points of players in the lineups, by player id
+    private Map<Long, List<PlayerPoints>> loadRoundPoints(Long roundId, Collection<FantasyLineup> fantasyLineups) {
+        Set<Long> playerIds = new HashSet<>();
+
+        for (FantasyLineup fantasyLineup : fantasyLineups) {
+            getPlayers(fantasyLineup.getLineup()).forEach(player -> playerIds.add(player.getId()));
+        }
+
+        Map<Long, List<PlayerPoints>> roundPoints = new HashMap<>();
+
+        if (!playerIds.isEmpty()) {
+            for (PlayerPoints playerPoints : playerPointsRepository.findByRoundIdAndPlayerIds(roundId, playerIds)) {
+                roundPoints.computeIfAbsent(playerPoints.getPlayer().getId(), id -> new ArrayList<>())
+                        .add(playerPoints);
+            }
+        }
+
+        return roundPoints;
+    }
+
+    static void calculate(FantasyLineupScore score, Lineup lineup, Map<Long, List<PlayerPoints>> roundPoints,
+                          CompiledScoringRules rules, boolean completed) {
+        Selection selection = select(lineup, getRoundPoints(lineup, roundPoints, rules), completed);
+
+        int points = 0;
+
+        for (PlayerRoundPoints player : selection.team) {
+            points += player.points;
+        }
+
+        PlayerRoundPoints captain = selection.captain;
+
+        score.setPoints(points + (captain != null ? captain.points : 0));
+        score.setCaptainPoints(captain != null ? captain.points : 0);
+        score.setCaptainId(captain != null ? captain.playerId : null);
+        score.setAutoSubstitutions(selection.autoSubstitutions);
+        score.setProvisional(!completed);
+        score.setUpdatedAt(LocalDateTime.now());
+    }
+
+    private static Map<Long, PlayerRoundPoints> getRoundPoints(Lineup lineup, Map<Long, List<PlayerPoints>> roundPoints,
+                                                               CompiledScoringRules rules) {
+        Map<Long, PlayerRoundPoints> players = new HashMap<>();
+
+        for (Player player : getPlayers(lineup)) {
+            players.put(player.getId(), new PlayerRoundPoints(
+                    player, roundPoints.getOrDefault(player.getId(), Collections.emptyList()), rules));
+        }
+
+        return players;
+    }
+
+    private static Selection select(Lineup lineup, Map<Long, PlayerRoundPoints> players, boolean completed) {
+        List<PlayerRoundPoints> team = new ArrayList<>();
+
+        for (Player player : lineup.getStartingPlayers()) {
+            team.add(players.get(player.getId()));
+        }
+
+        int autoSubstitutions = 0;
+
+        // Once the round is over, a starting player who didn't play is replaced by the first substitute
+        // of the same position who did
+        if (completed) {
+            Set<Long> usedSubstitutions = new HashSet<>();
+
+            for (int i = 0; i < team.size(); i++) {
+                PlayerRoundPoints startingPlayer = team.get(i);
+
+                if (startingPlayer.played) {
+                    continue;
+                }
+
+                for (Player player : lineup.getAvailableSubstitutions()) {
+                    PlayerRoundPoints substitution = players.get(player.getId());
+
+                    if (substitution.played && substitution.type == startingPlayer.type
+                            && usedSubstitutions.add(player.getId())) {
+                        team.set(i, substitution);
+
+                        autoSubstitutions++;
+                        break;
+                    }
+                }
+            }
+        }
+
+        Map<Long, PlayerRoundPoints> teamById = new HashMap<>();
+
+        for (PlayerRoundPoints player : team) {
+            teamById.put(player.playerId, player);
+        }
+
+        PlayerRoundPoints captain = getPlayed(teamById, lineup.getCapiten());
+
+        // Vice-captain takes over only when it's certain the captain won't play
+        if (captain == null && completed) {
+            captain = getPlayed(teamById, lineup.getViceCapiten());
+        }
+
+        return new Selection(team, captain, autoSubstitutions);
+    }
+
+    private static PlayerRoundPoints getPlayed(Map<Long, PlayerRoundPoints> team, Player player) {
+        if (player == null) {
+            return null;
+        }
+
+        PlayerRoundPoints points = team.get(player.getId());
+
+        return points != null && points.played ? points : null;
+    }
+
+    private static List<Player> getPlayers(Lineup lineup) {
+        List<Player> players = new ArrayList<>(lineup.getStartingPlayers());
+
+        players.addAll(lineup.getAvailableSubstitutions());
+
+        return players;
+    }
+
+    /**
+     * Players whose points count for a fantasy team in a round, the captain's points count twice.
+     */
+    public static class LineupSelection {
+
+        private final Long teamId;
+
+        private final long[] playerIds;
+
+        private final Long captainId;
+
+        LineupSelection(Long teamId, long[] playerIds, Long captainId) {
+            this.teamId = teamId;
+            this.playerIds = playerIds;
+            this.captainId = captainId;
+        }
+
+        public Long getTeamId() {
+            return teamId;
+        }
+
+        public long[] getPlayerIds() {
+            return playerIds;
+        }
+
+        public Long getCaptainId() {
+            return captainId;
+        }
+    }
+
+    private static class Selection {
+
+        private final List<PlayerRoundPoints> team;
+
+        private final PlayerRoundPoints captain;
+
+        private final int autoSubstitutions;
+
+        Selection(List<PlayerRoundPoints> team, PlayerRoundPoints captain, int autoSubstitutions) {
+            this.team = team;
+            this.captain = captain;
+            this.autoSubstitutions = autoSubstitutions;
+        }
+    }
+
+    // Points of a player summed over the matches of a round, scored by the league rules
+    private static class PlayerRoundPoints {
+
+        private final Long playerId;
+
+        private final int type;
+
+        private int points = 0;
+
+        private boolean played = false;
+
+        @SuppressWarnings("unchecked")
+        PlayerRoundPoints(Player player, List<PlayerPoints> matchPoints, CompiledScoringRules rules) {
+            this.playerId = player.getId();
+            this.type = PointsAccumulator.typeOf((Class<? extends Player>) Hibernate.getClass(player));
+
+            for (PlayerPoints playerPoints : matchPoints) {
+                int minutesPlayed = playerPoints.getMinutesPlayed() != null ? playerPoints.getMinutesPlayed() : 0;
+
+                // Points scored before match events were stored can only be taken as they are
+                if (playerPoints.getCounters() != null) {
+                    points += rules.evaluate(type, playerPoints.getCounters(), minutesPlayed);
+                } else if (playerPoints.getPoints() != null) {
+                    points += playerPoints.getPoints();
+                }
+
+                played |= minutesPlayed > 0 || playerPoints.getCounters() == null;
+            }
+        }
+    }
+}
@@ -1,23 +1,18 @@
 package com.bhfantasy.web.service;
 
-import com.bhfantasy.web.model.custom.PointsValue;
-import com.bhfantasy.web.model.players.Goalkeaper;
 import com.bhfantasy.web.exception.InvalidLeagueIdException;
 import com.bhfantasy.web.model.league.FantasyLeague;
 import com.bhfantasy.web.model.league.RegularLeague;
-import com.bhfantasy.web.model.players.Defender;
-import com.bhfantasy.web.model.players.Middle;
-import com.bhfantasy.web.model.players.Player;
-import com.bhfantasy.web.model.*;
 import com.bhfantasy.web.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
 
 import javax.transaction.Transactional;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.Optional;
+import java.util.*;
 
 @Service
 public class FantasyService {
@@ -28,173 +23,97 @@ public class FantasyService {
 
     private final FantasyLeagueRepository fantasyLeagueRepository;
 
-    private final PlayerPointsRepository playerPointsRepository;
-
     private final MatchRepository matchRepository;
 
-    public FantasyService(PlayerPointsRepository playerPointsRepository,
-                          RegularLeagueRepository regularLeagueRepository,
+    private final MatchScoringService matchScoringService;
+
+    private final FantasyLineupRepository fantasyLineupRepository;
+
+    private final FantasyScoreService fantasyScoreService;
+
+    private final int chunkSize;
+
+    public FantasyService(RegularLeagueRepository regularLeagueRepository,
                           FantasyLeagueRepository fantasyLeagueRepository,
-                          MatchRepository matchRepository) {
+                          MatchRepository matchRepository,
+                          MatchScoringService matchScoringService,
+                          FantasyLineupRepository fantasyLineupRepository,
+                          FantasyScoreService fantasyScoreService,
+                          @Value("${bhfantasy.scoring.chunk-size:500}") int chunkSize) {
         this.regularLeagueRepository = regularLeagueRepository;
         this.fantasyLeagueRepository = fantasyLeagueRepository;
-        this.playerPointsRepository = playerPointsRepository;
         this.matchRepository = matchRepository;
+        this.matchScoringService = matchScoringService;
+        this.fantasyLineupRepository = fantasyLineupRepository;
+        this.fantasyScoreService = fantasyScoreService;
+        this.chunkSize = chunkSize;
     }
 
-    @Transactional
     public void process(Long leagueId) {
-        Optional<RegularLeague> leagueOptional = regularLeagueRepository.findById(leagueId);
-
-        if(!leagueOptional.isPresent()) {
-            throw new InvalidLeagueIdException();
-        }
-
-        RegularLeague league = leagueOptional.get();
-
-        for(Round round : league.getRounds()) {
-            for(Match match : round.getMatches()) {
-                processMatch(match);
-            }
-        }
+        process(leagueId, new ScoringStats());
     }
 
-    @Transactional
-    public void processMatch(Match match) {
-        if(match.getScore1() == null || match.getPlayerPoints().size() > 0) {
-            return;
-        }
-
-        Map<Long, PointsValue> pointsMap = calculatePointsForMatch(match);
-
-        for(Long playerId : pointsMap.keySet()) {
-            PointsValue pointsValue = pointsMap.get(playerId);
-
-            PlayerPoints playerPoints = new PlayerPoints();
-            playerPoints.setMatch(match);
-            playerPoints.setPlayer(pointsValue.getPlayer());
-            playerPoints.setPoints(pointsValue.getTotalPoints());
-
-            playerPointsRepository.save(playerPoints);
-        }
-    }
-
-    private Map<Long, PointsValue> calculatePointsForMatch(Match match) {
-        Map<Long, PointsValue> pointsMap = new HashMap<>();
-
-        for(Goal goal : match.getGoals()) {
-            if(goal.getPlayer() != null) {
-                pointsMap.putIfAbsent(goal.getPlayer().getId(), new PointsValue(goal.getPlayer()));
-
-                if (!goal.getOwnGoal()) {
-                    pointsMap.get(goal.getPlayer().getId()).addGoal();
-                } else {
-                    pointsMap.get(goal.getPlayer().getId()).addOwnGoal();
-                }
-            }
-
-            if(goal.getAssist() != null) {
-                pointsMap.putIfAbsent(goal.getAssist().getId(), new PointsValue(goal.getAssist()));
-
-                pointsMap.get(goal.getAssist().getId()).addAssist();
-            }
-        }
-
-        for(Card card : match.getCards()) {
-            pointsMap.putIfAbsent(card.getPlayer().getId(), new PointsValue(card.getPlayer()));
-
-            if(card.getCardType() == Card.CardType.RED) {
-                pointsMap.get(card.getPlayer().getId()).addRedCard();
-            } else if(card.getCardType() == Card.CardType.YELLOW) {
-                pointsMap.get(card.getPlayer().getId()).addYellowCard();
-            }
-        }
-
-        for(MissedPenalty missedPenalty : match.getMissedPenalties()){
-            if(missedPenalty.getSavedBy() != null) {
-                pointsMap.putIfAbsent(missedPenalty.getSavedBy().getId(), new PointsValue(missedPenalty.getSavedBy()));
-
-                pointsMap.get(missedPenalty.getSavedBy().getId()).addSavedPenalty();
-            }
-
-            if(missedPenalty.getPlayer() != null){
-                pointsMap.putIfAbsent(missedPenalty.getPlayer().getId(), new PointsValue(missedPenalty.getPlayer()));
-
-                pointsMap.get(missedPenalty.getPlayer().getId()).addMissedPenalty();
-            }
+    /**
+     * Scores finished matches of the league that were never scored or were scored by older rules.
+     *
+     * Match ids are read in id order one chunk at a time, continuing after the last id of the previous chunk,
+     * and every chunk is scored in its own transaction. Memory doesn't depend on the size of the season and an
+     * interrupted run picks up where it stopped, since scored matches no longer match the query.
+     */
+    public void process(Long leagueId, ScoringStats stats) {
+        if(!regularLeagueRepository.existsById(leagueId)) {
+            throw new InvalidLeagueIdException();
         }
 
-        Map<Long, Integer> minutesPlayedLineup1 = getPlayerMinutes(match.getLineup1(), pointsMap, match);
-        Map<Long, Integer> minutesPlayedLineup2 = getPlayerMinutes(match.getLineup2(), pointsMap, match);
+        Long afterId = 0L;
 
-        // TODO: There is a bug here, we need to check if goal is scored while player is on pitch
-        minutesPlayedLineup1.forEach((playerId, minutes) -> {
-            Player player = pointsMap.get(playerId).getPlayer();
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> matchIds = matchRepository.findLeagueMatchIdsToScore(
+                    leagueId, MatchScoringService.SCORING_VERSION, afterId, PageRequest.of(0, chunkSize));
 
-            if(minutes >= 60 && match.getScore2() == 0 && player
-                    instanceof Defender || player instanceof Goalkeaper || player instanceof Middle) {
-                pointsMap.get(playerId).addCleanSheet();
+            if (matchIds.isEmpty()) {
+                break;
             }
-        });
 
-        minutesPlayedLineup2.forEach((playerId, minutes) -> {
-            Player player = pointsMap.get(playerId).getPlayer();
+            int written = matchScoringService.scoreMatches(matchIds);
 
-            if(minutes >= 60 && match.getScore1() == 0 && player
-                    instanceof Defender || player instanceof Goalkeaper || player instanceof Middle) {
-                pointsMap.get(playerId).addCleanSheet();
-            }
-        });
+            stats.recordChunk(matchIds.size(), written);
 
-        Map<Long, Integer> minutesPlayed = new HashMap<>();
-        minutesPlayed.putAll(minutesPlayedLineup1);
-        minutesPlayed.putAll(minutesPlayedLineup2);
+            afterId = matchIds.get(matchIds.size() - 1);
 
-        for(Long playerId: minutesPlayed.keySet()) {
-            pointsMap.get(playerId).addMinutesPlayed(minutesPlayed.get(playerId));
+            logger.info("Scoring league {}: {}.", leagueId, stats);
         }
-
-        return pointsMap;
     }
 
-    private Map<Long, Integer> getPlayerMinutes(Lineup lineup, Map<Long, PointsValue> pointsMap, Match match) {
-        Map<Long, Integer> result = new HashMap<>();
-
-        if(lineup == null) {
-            return result;
-        }
+    /**
+     * Recalculates scores of every lineup in the league once the new rules are committed, in chunks of lineup
+     * ids read in id order like {@link #process}. Every chunk is saved in its own transaction, so a large league
+     * doesn't hold all of its lineups and scores in one persistence context.
+     */
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onScoringRulesChanged(ScoringRulesChangedEvent event) {
+        Long leagueId = event.getFantasyLeagueId();
 
-        for(Player player: lineup.getStartingPlayers()) {
-            pointsMap.putIfAbsent(player.getId(), new PointsValue(player));
+        Long afterId = 0L;
 
-            result.put(player.getId(), 90);
-        }
+        int lineups = 0;
 
-        for(Substitution substitution: lineup.getSubstitutionChanges()) {
-            if(substitution.getPlayer() != null) {
-                pointsMap.putIfAbsent(substitution.getPlayer().getId(), new PointsValue(substitution.getPlayer()));
+        while (!Thread.currentThread().isInterrupted()) {
+            List<Long> fantasyLineupIds = fantasyLineupRepository.findIdsByLeagueId(
+                    leagueId, afterId, PageRequest.of(0, chunkSize));
 
-                result.put(substitution.getPlayer().getId(), 90 - substitution.getMinute());
+            if (fantasyLineupIds.isEmpty()) {
+                break;
             }
-        }
 
-        for (Substitution substitution : lineup.getSubstitutionChanges()) {
-            Integer minutesPlayed = result.get(substitution.getSubstitutePlayer().getId());
+            fantasyScoreService.updateScoresInNewTransaction(fantasyLineupIds);
 
-            if(minutesPlayed == null) {
-                match.setReviewRequired(true);
-
-                matchRepository.save(match);
-
-                logger.error(
-                        "Error while processing minutes for player {}", substitution.getSubstitutePlayer().getId());
-                continue;
-            }
+            lineups += fantasyLineupIds.size();
 
-            result.put(substitution.getSubstitutePlayer().getId(), minutesPlayed - (90 - substitution.getMinute()));
+            afterId = fantasyLineupIds.get(fantasyLineupIds.size() - 1);
         }
 
-        return result;
+        logger.info("Scores of {} fantasy lineups in fantasy league {} recalculated.", lineups, leagueId);
     }
 
     @Transactional
@@ -0,0 +1,373 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.exception.JobNotFoundException;
+import com.bhfantasy.web.exception.TooManyJobsException;
+import com.bhfantasy.web.model.LeagueSetup;
+import com.bhfantasy.web.model.custom.BacktestValue;
+import com.bhfantasy.web.model.custom.JobValue;
+import com.bhfantasy.web.model.league.RegularLeague;
+import com.bhfantasy.web.model.league.ScoringRules;
+import com.bhfantasy.web.repository.RegularLeagueRepository;
+import com.bhfantasy.web.workers.IngestionStats;
+import com.bhfantasy.web.workers.TransferMarktWorker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Runs admin triggered league setup processing and scoring rules backtests on a bounded shared executor.
+ *
+ * Only one job can be active per league setup or per backtested fantasy league, submitting it again returns
+ * the active job. Finished jobs are kept for a while so their outcome can be checked.
+ */
+@Service
+public class JobService {
+
+    private static Logger logger = LoggerFactory.getLogger(JobService.class);
+
+    private final TransferMarktWorker transferMarktWorker;
+
+    private final FantasyService fantasyService;
+
+    private final MultiLeagueService multiLeagueService;
+
+    private final LeagueSetupService leagueSetupService;
+
+    private final RegularLeagueRepository regularLeagueRepository;
+
+    private final BacktestService backtestService;
+
+    private final ThreadPoolExecutor executor;
+
+    private final Map<String, Job> jobs;
+
+    // Active jobs by what they work on, see Job.key
+    private final Map<String, Job> activeJobs = new HashMap<>();
+
+    public JobService(TransferMarktWorker transferMarktWorker, FantasyService fantasyService,
+                      MultiLeagueService multiLeagueService, LeagueSetupService leagueSetupService,
+                      RegularLeagueRepository regularLeagueRepository, BacktestService backtestService,
+                      @Value("${bhfantasy.jobs.parallelism:2}") int parallelism,
+                      @Value("${bhfantasy.jobs.queue-capacity:10}") int queueCapacity,
+                      @Value("${bhfantasy.jobs.retained:100}") int retainedJobs) {
+        this.transferMarktWorker = transferMarktWorker;
+        this.fantasyService = fantasyService;
+        this.multiLeagueService = multiLeagueService;
+        this.leagueSetupService = leagueSetupService;
+        this.regularLeagueRepository = regularLeagueRepository;
+        this.backtestService = backtestService;
+
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        this.executor = new ThreadPoolExecutor(
+                parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> new Thread(runnable, "admin-job-" + threadCounter.incrementAndGet()));
+
+        this.jobs = new LinkedHashMap<String, Job>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Job> eldest) {
+                return size() > retainedJobs && eldest.getValue().isFinished();
+            }
+        };
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public JobValue processLeagueSetup(LeagueSetup leagueSetup) {
+        String transfermarktUrl = leagueSetup.getTransfermarktUrl();
+        RegularLeague.Level level = leagueSetup.getLevel();
+
+        return submit(setupKey(leagueSetup.getId()), leagueSetup.getId(), null, job -> {
+            job.setStage(JobValue.Stage.SCRAPING);
+
+            RegularLeague league = transferMarktWorker.process(transfermarktUrl, job.getStats());
+
+            if (league == null) {
+                throw new IllegalStateException("League page couldn't be processed.");
+            }
+
+            if(league.getLevel() != level) {
+                league.setLevel(level);
+
+                league = regularLeagueRepository.save(league);
+            }
+
+            multiLeagueService.updateParentRounds(league.getId());
+
+            checkCancelled();
+
+            job.setStage(JobValue.Stage.SCORING);
+
+            fantasyService.process(league.getId(), job.getScoringStats());
+
+            checkCancelled();
+
+            leagueSetupService.updateLeagueSetup(leagueSetup, league, null);
+        });
+    }
+
+    /**
+     * Scores the league of the setup again without scraping it, matches scored by the current rules are skipped.
+     */
+    public JobValue scoreLeagueSetup(LeagueSetup leagueSetup) {
+        Long leagueId = leagueSetup.getLeague().getId();
+
+        return submit(setupKey(leagueSetup.getId()), leagueSetup.getId(), null, job -> {
+            job.setStage(JobValue.Stage.SCORING);
+
+            fantasyService.process(leagueId, job.getScoringStats());
+
+            checkCancelled();
+        });
+    }
+
+    public JobValue seedMultiLeague(LeagueSetup leagueSetup, List<Long> leagueIds) {
+        Long setupId = leagueSetup.getId();
+        String name = leagueSetup.getName();
+
+        return submit(setupKey(setupId), setupId, null, job -> {
+            job.setStage(JobValue.Stage.SEEDING);
+
+            RegularLeague regularLeague = multiLeagueService.seedMultiLeague(leagueIds, name);
+
+            leagueSetupService.replaceLeague(setupId, regularLeague);
+        });
+    }
+
+    /**
+     * Backtests candidate scoring rules on the season of the fantasy league, the result is part of the finished
+     * job. The league and the candidates are checked before the job is queued.
+     */
+    public JobValue backtest(Long fantasyLeagueId, List<ScoringRules> candidates) {
+        backtestService.validate(fantasyLeagueId, candidates);
+
+        return submit("fantasy league " + fantasyLeagueId, null, fantasyLeagueId, job -> {
+            job.setStage(JobValue.Stage.BACKTESTING);
+
+            job.backtest = backtestService.backtest(fantasyLeagueId, candidates);
+        });
+    }
+
+    public synchronized List<JobValue> getJobs() {
+        return jobs.values().stream().map(Job::toValue).collect(Collectors.toList());
+    }
+
+    public synchronized JobValue getJob(String jobId) {
+        Job job = jobs.get(jobId);
+
+        if (job == null) {
+            throw new JobNotFoundException();
+        }
+
+        return job.toValue();
+    }
+
+    public synchronized boolean isActive(Long leagueSetupId) {
+        return activeJobs.containsKey(setupKey(leagueSetupId));
+    }
+
+    public synchronized JobValue cancel(String jobId) {
+        Job job = jobs.get(jobId);
+
+        if (job == null) {
+            throw new JobNotFoundException();
+        }
+
+        if (!job.isFinished()) {
+            boolean cancelled = job.future.cancel(true);
+
+            if (cancelled && job.state == JobValue.State.QUEUED) {
+                job.finish(JobValue.State.CANCELLED, null);
+
+                activeJobs.remove(job.key, job);
+            }
+
+            logger.info("Job {} for {} is cancelled.", job.id, job.key);
+        }
+
+        return job.toValue();
+    }
+
+    private synchronized JobValue submit(String key, Long leagueSetupId, Long fantasyLeagueId, Consumer<Job> task) {
+        Job activeJob = activeJobs.get(key);
+
+        if (activeJob != null) {
+            return activeJob.toValue();
+        }
+
+        Job job = new Job(UUID.randomUUID().toString(), key, leagueSetupId, fantasyLeagueId);
+
+        try {
+            job.future = executor.submit(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            throw new TooManyJobsException();
+        }
+
+        jobs.put(job.id, job);
+        activeJobs.put(key, job);
+
+        logger.info("Job {} for {} is queued.", job.id, key);
+
+        return job.toValue();
+    }
+
+    private void run(Job job, Consumer<Job> task) {
+        synchronized (this) {
+            if (job.state != JobValue.State.QUEUED) {
+                return;
+            }
+
+            job.start();
+        }
+
+        try {
+            task.accept(job);
+
+            job.finish(JobValue.State.COMPLETED, null);
+        } catch (CancellationException e) {
+            job.finish(JobValue.State.CANCELLED, null);
+        } catch (Exception e) {
+            if (Thread.currentThread().isInterrupted()) {
+                job.finish(JobValue.State.CANCELLED, null);
+            } else {
+                logger.error("Job {} for {} failed.", job.id, job.key, e);
+
+                job.finish(JobValue.State.FAILED, e.getMessage());
+            }
+        } finally {
+            synchronized (this) {
+                activeJobs.remove(job.key, job);
+            }
+
+            // Clear the interrupt of a cancelled job before the thread is reused
+            Thread.interrupted();
+        }
+
+        logger.info("Job {} for {} finished: {}.", job.id, job.key, job.state);
+    }
+
+    private static String setupKey(Long leagueSetupId) {
+        return "league setup " + leagueSetupId;
+    }
+
+    private static void checkCancelled() {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("Job is cancelled.");
+        }
+    }
+
+    private static class Job {
+
+        private final String id;
+
+        // What the job works on, one active job per key
+        private final String key;
+
+        private final Long leagueSetupId;
+
+        private final Long fantasyLeagueId;
+
+        private final LocalDateTime createdAt = LocalDateTime.now();
+
+        private volatile JobValue.State state = JobValue.State.QUEUED;
+
+        private volatile JobValue.Stage stage;
+
+        private volatile LocalDateTime startedAt;
+
+        private volatile LocalDateTime finishedAt;
+
+        private volatile String error;
+
+        private volatile IngestionStats stats;
+
+        private volatile ScoringStats scoringStats;
+
+        private volatile BacktestValue backtest;
+
+        private Future<?> future;
+
+        Job(String id, String key, Long leagueSetupId, Long fantasyLeagueId) {
+            this.id = id;
+            this.key = key;
+            this.leagueSetupId = leagueSetupId;
+            this.fantasyLeagueId = fantasyLeagueId;
+        }
+
+        IngestionStats getStats() {
+            return stats;
+        }
+
+        ScoringStats getScoringStats() {
+            return scoringStats;
+        }
+
+        void setStage(JobValue.Stage stage) {
+            this.stage = stage;
+        }
+
+        boolean isFinished() {
+            return finishedAt != null;
+        }
+
+        void start() {
+            stats = new IngestionStats();
+            scoringStats = new ScoringStats();
+            startedAt = LocalDateTime.now();
+            state = JobValue.State.RUNNING;
+        }
+
+        void finish(JobValue.State state, String error) {
+            this.error = error;
+            this.finishedAt = LocalDateTime.now();
+            this.state = state;
+        }
+
+        JobValue toValue() {
+            JobValue value = new JobValue();
+            value.setId(id);
+            value.setLeagueSetupId(leagueSetupId);
+            value.setFantasyLeagueId(fantasyLeagueId);
+            value.setState(state);
+            value.setStage(stage);
+            value.setCreatedAt(createdAt);
+            value.setStartedAt(startedAt);
+            value.setFinishedAt(finishedAt);
+            value.setError(error);
+
+            IngestionStats currentStats = stats;
+
+            if (currentStats != null) {
+                value.setRounds(currentStats.getRounds());
+                value.setMatches(currentStats.getMatches());
+                value.setMatchReports(currentStats.getMatchReports());
+                value.setPlayers(currentStats.getPlayers());
+            }
+
+            ScoringStats currentScoringStats = scoringStats;
+
+            if (currentScoringStats != null && currentScoringStats.getChunks() > 0) {
+                value.setScoredMatches(currentScoringStats.getMatches());
+                value.setWrittenPlayerPoints(currentScoringStats.getPlayerPoints());
+                value.setPlayerPointsPerSecond(currentScoringStats.getPlayerPointsPerSecond());
+            }
+
+            value.setBacktest(backtest);
+
+            return value;
+        }
+    }
+}
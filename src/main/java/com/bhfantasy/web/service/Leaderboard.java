@@ -0,0 +1,147 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.custom.LeaderboardEntryValue;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Immutable ranking of a fantasy league at one version. Points are kept by team in team id order, next to a
+ * tree counting teams per points total, so a team's rank is a binary search and a prefix sum. Team ids are
+ * shared with the following versions while the teams of the league don't change. The rank order used for
+ * pages of the ranking is sorted once, when a page is first read.
+ */
+public final class Leaderboard {
+
+    private final long version;
+
+    private final LocalDateTime createdAt;
+
+    // Ascending
+    private final long[] teamIds;
+
+    private final int[] points;
+
+    private final PointsTree pointsTree;
+
+    // Indexes of teams in rank order, teams with equal points by team id
+    private volatile int[] order;
+
+    /**
+     * Creates the leaderboard from team ids in ascending order, points of the team at the same index and a tree
+     * counting those points. None of them are modified afterwards.
+     */
+    Leaderboard(long version, LocalDateTime createdAt, long[] teamIds, int[] points, PointsTree pointsTree) {
+        this.version = version;
+        this.createdAt = createdAt;
+        this.teamIds = teamIds;
+        this.points = points;
+        this.pointsTree = pointsTree;
+    }
+
+    static Leaderboard empty() {
+        return new Leaderboard(0, LocalDateTime.now(), new long[0], new int[0], new PointsTree());
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public int size() {
+        return teamIds.length;
+    }
+
+    public LeaderboardEntryValue getEntry(long teamId) {
+        int index = Arrays.binarySearch(teamIds, teamId);
+
+        return index >= 0 ? getEntryAt(index) : null;
+    }
+
+    public List<LeaderboardEntryValue> getTop(int limit) {
+        return getRange(getOrder(), 0, Math.min(limit, teamIds.length));
+    }
+
+    /**
+     * Returns the team with up to radius teams ranked above and below it, or an empty list if the team
+     * is not ranked.
+     */
+    public List<LeaderboardEntryValue> getAround(long teamId, int radius) {
+        int index = Arrays.binarySearch(teamIds, teamId);
+
+        if (index < 0) {
+            return new ArrayList<>();
+        }
+
+        int[] order = getOrder();
+
+        int position = getPosition(order, index);
+
+        return getRange(order, Math.max(0, position - radius), Math.min(teamIds.length, position + radius + 1));
+    }
+
+    // Team id and points by index in team id order
+    long getTeamId(int index) {
+        return teamIds[index];
+    }
+
+    int getPoints(int index) {
+        return points[index];
+    }
+
+    // Teams with equal points share a rank, the next rank skips them
+    private int getRank(int index) {
+        return pointsTree.countAbove(points[index]) + 1;
+    }
+
+    // Teams with equal points follow each other by index, the team's position is a binary search among them
+    private int getPosition(int[] order, int index) {
+        int low = pointsTree.countAbove(points[index]);
+        int high = low + pointsTree.count(points[index]) - 1;
+
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+
+            if (order[middle] < index) {
+                low = middle + 1;
+            } else if (order[middle] > index) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+
+        throw new IllegalStateException("Team " + teamIds[index] + " is missing from the rank order.");
+    }
+
+    // Sorting again by a racing reader gives the same order
+    private int[] getOrder() {
+        int[] result = order;
+
+        if (result == null) {
+            result = pointsTree.rankOrder(points);
+            order = result;
+        }
+
+        return result;
+    }
+
+    private List<LeaderboardEntryValue> getRange(int[] order, int from, int to) {
+        List<LeaderboardEntryValue> result = new ArrayList<>(Math.max(0, to - from));
+
+        for (int position = from; position < to; position++) {
+            result.add(getEntryAt(order[position]));
+        }
+
+        return result;
+    }
+
+    private LeaderboardEntryValue getEntryAt(int index) {
+        return new LeaderboardEntryValue(getRank(index), teamIds[index], points[index]);
+    }
+}
@@ -0,0 +1,303 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.LeaderboardCheckpoint;
+import com.bhfantasy.web.model.custom.TeamTotalValue;
+import com.bhfantasy.web.repository.FantasyLineupScoreRepository;
+import com.bhfantasy.web.repository.LeaderboardCheckpointRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import java.nio.ByteBuffer;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Season leaderboards of fantasy leagues.
+ *
+ * Every league keeps its team totals by team id with a tree of teams per points total, updated from team score
+ * changes as they commit. Readers get an immutable {@link Leaderboard} that is published on a single background
+ * thread and swapped in atomically, so changes arriving together are published once. A publish hands the
+ * current arrays to the leaderboard and copies them on the next change, team ids are merged again only when
+ * new teams appear. Leaderboards are periodically saved as checkpoints, and after a restart only teams
+ * scored since the checkpoint are summed again.
+ */
+@Service
+public class LeaderboardService {
+
+    private static Logger logger = LoggerFactory.getLogger(LeaderboardService.class);
+
+    // Teams scored around the time the checkpoint was taken may be missing from it
+    private static final long CHECKPOINT_MARGIN_MINUTES = 5;
+
+    private final FantasyLineupScoreRepository fantasyLineupScoreRepository;
+
+    private final LeaderboardCheckpointRepository leaderboardCheckpointRepository;
+
+    private final Map<Long, LeagueTotals> leagues = new ConcurrentHashMap<>();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "leaderboard"));
+
+    public LeaderboardService(FantasyLineupScoreRepository fantasyLineupScoreRepository,
+                              LeaderboardCheckpointRepository leaderboardCheckpointRepository) {
+        this.fantasyLineupScoreRepository = fantasyLineupScoreRepository;
+        this.leaderboardCheckpointRepository = leaderboardCheckpointRepository;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    public Leaderboard getLeaderboard(Long leagueId) {
+        return getTotals(leagueId).leaderboard;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onTeamScoresChanged(TeamScoresChangedEvent event) {
+        LeagueTotals totals = getTotals(event.getLeagueId());
+
+        synchronized (totals) {
+            event.getTotals().forEach(totals::set);
+        }
+
+        schedulePublish(totals);
+    }
+
+    /**
+     * Sums the totals of all teams in the league again, replacing the current leaderboard.
+     */
+    public Leaderboard rebuild(Long leagueId) {
+        LeagueTotals totals = getTotals(leagueId);
+
+        List<TeamTotalValue> values = fantasyLineupScoreRepository.findTeamTotals(leagueId);
+
+        synchronized (totals) {
+            totals.clear();
+
+            for (TeamTotalValue value : values) {
+                totals.set(value.getTeamId(), value.getPoints().intValue());
+            }
+
+            totals.publish();
+        }
+
+        logger.info("Leaderboard of fantasy league {} rebuilt with {} teams.", leagueId, values.size());
+
+        return totals.leaderboard;
+    }
+
+    @Scheduled(fixedDelayString = "${bhfantasy.leaderboard.checkpoint-millis:600000}")
+    public void checkpoint() {
+        for (LeagueTotals totals : leagues.values()) {
+            Leaderboard leaderboard = totals.leaderboard;
+
+            if (leaderboard.getVersion() == totals.checkpointVersion) {
+                continue;
+            }
+
+            LeaderboardCheckpoint checkpoint = leaderboardCheckpointRepository.findByLeagueId(totals.leagueId)
+                    .orElseGet(() -> new LeaderboardCheckpoint(totals.leagueId));
+
+            checkpoint.setVersion(leaderboard.getVersion());
+            checkpoint.setCreatedAt(leaderboard.getCreatedAt());
+            checkpoint.setTotals(encode(leaderboard));
+
+            leaderboardCheckpointRepository.save(checkpoint);
+
+            totals.checkpointVersion = leaderboard.getVersion();
+
+            logger.debug("Leaderboard of fantasy league {} saved at version {}.",
+                    totals.leagueId, leaderboard.getVersion());
+        }
+    }
+
+    private LeagueTotals getTotals(Long leagueId) {
+        return leagues.computeIfAbsent(leagueId, this::load);
+    }
+
+    private LeagueTotals load(Long leagueId) {
+        LeagueTotals totals = new LeagueTotals(leagueId);
+
+        Optional<LeaderboardCheckpoint> checkpoint = leaderboardCheckpointRepository.findByLeagueId(leagueId);
+
+        List<TeamTotalValue> values;
+
+        if (checkpoint.isPresent() && checkpoint.get().getTotals() != null) {
+            ByteBuffer buffer = ByteBuffer.wrap(checkpoint.get().getTotals());
+
+            while (buffer.remaining() >= 12) {
+                totals.set(buffer.getLong(), buffer.getInt());
+            }
+
+            totals.version = checkpoint.get().getVersion();
+            totals.checkpointVersion = totals.version;
+
+            values = fantasyLineupScoreRepository.findTeamTotalsUpdatedSince(leagueId,
+                    checkpoint.get().getCreatedAt().minusMinutes(CHECKPOINT_MARGIN_MINUTES));
+        } else {
+            values = fantasyLineupScoreRepository.findTeamTotals(leagueId);
+        }
+
+        for (TeamTotalValue value : values) {
+            totals.set(value.getTeamId(), value.getPoints().intValue());
+        }
+
+        totals.publish();
+
+        logger.info("Leaderboard of fantasy league {} loaded with {} teams, {} summed.",
+                leagueId, totals.leaderboard.size(), values.size());
+
+        return totals;
+    }
+
+    // Changes arriving while a publish is waiting are included in it
+    private void schedulePublish(LeagueTotals totals) {
+        if (totals.publishScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                totals.publishScheduled.set(false);
+
+                synchronized (totals) {
+                    totals.publish();
+                }
+            });
+        }
+    }
+
+    private static byte[] encode(Leaderboard leaderboard) {
+        ByteBuffer buffer = ByteBuffer.allocate(leaderboard.size() * 12);
+
+        for (int index = 0; index < leaderboard.size(); index++) {
+            buffer.putLong(leaderboard.getTeamId(index));
+            buffer.putInt(leaderboard.getPoints(index));
+        }
+
+        return buffer.array();
+    }
+
+    // Writable totals of a league, guarded by its own monitor
+    private static class LeagueTotals {
+
+        private final Long leagueId;
+
+        // Ascending, points of the team are at the same index
+        private long[] teamIds = new long[0];
+
+        private int[] points = new int[0];
+
+        private PointsTree pointsTree = new PointsTree();
+
+        // Teams that are not in teamIds yet, merged into them on publish
+        private final Map<Long, Integer> added = new HashMap<>();
+
+        // Points and the tree are shared with the published leaderboard until the next change
+        private boolean shared = false;
+
+        private final AtomicBoolean publishScheduled = new AtomicBoolean(false);
+
+        private long version = 0;
+
+        private volatile long checkpointVersion = -1;
+
+        private volatile Leaderboard leaderboard = Leaderboard.empty();
+
+        LeagueTotals(Long leagueId) {
+            this.leagueId = leagueId;
+        }
+
+        void set(long teamId, int total) {
+            int index = Arrays.binarySearch(teamIds, teamId);
+
+            Integer previous = index >= 0 ? Integer.valueOf(points[index]) : added.get(teamId);
+
+            if (previous != null && previous == total) {
+                return;
+            }
+
+            if (shared) {
+                points = points.clone();
+                pointsTree = pointsTree.copy();
+                shared = false;
+            }
+
+            if (previous != null) {
+                pointsTree.remove(previous);
+            }
+
+            pointsTree.add(total);
+
+            if (index >= 0) {
+                points[index] = total;
+            } else {
+                added.put(teamId, total);
+            }
+
+            version++;
+        }
+
+        void clear() {
+            teamIds = new long[0];
+            points = new int[0];
+            pointsTree = new PointsTree();
+            added.clear();
+            shared = false;
+
+            version++;
+        }
+
+        void publish() {
+            if (leaderboard.getVersion() == version) {
+                return;
+            }
+
+            if (!added.isEmpty()) {
+                mergeAdded();
+            }
+
+            leaderboard = new Leaderboard(version, LocalDateTime.now(), teamIds, points, pointsTree);
+
+            shared = true;
+        }
+
+        private void mergeAdded() {
+            long[] addedIds = new long[added.size()];
+
+            int count = 0;
+
+            for (Long teamId : added.keySet()) {
+                addedIds[count++] = teamId;
+            }
+
+            Arrays.sort(addedIds);
+
+            long[] mergedIds = new long[teamIds.length + addedIds.length];
+            int[] mergedPoints = new int[mergedIds.length];
+
+            int existing = 0;
+            int next = 0;
+
+            for (int index = 0; index < mergedIds.length; index++) {
+                if (next == addedIds.length || existing < teamIds.length && teamIds[existing] < addedIds[next]) {
+                    mergedIds[index] = teamIds[existing];
+                    mergedPoints[index] = points[existing++];
+                } else {
+                    mergedIds[index] = addedIds[next];
+                    mergedPoints[index] = added.get(addedIds[next++]);
+                }
+            }
+
+            teamIds = mergedIds;
+            points = mergedPoints;
+
+            added.clear();
+        }
+    }
+}
@@ -4,14 +4,9 @@ import com.bhfantasy.web.model.LeagueSetup;
 import com.bhfantasy.web.model.league.FantasyLeague;
 import com.bhfantasy.web.model.league.RegularLeague;
 import com.bhfantasy.web.repository.LeagueSetupRepository;
-import com.bhfantasy.web.workers.TransferMarktWorker;
-import org.slf4j.Logger;
-import org.slf4j.LoggerFactory;
-import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
-import java.time.LocalDateTime;
 import java.util.Optional;
 
 @Service
@@ -19,19 +14,8 @@ public class LeagueSetupService {
 
     private final LeagueSetupRepository leagueSetupRepository;
 
-    private final TransferMarktWorker transferMarktWorker;
-
-    private final FantasyService fantasyService;
-
-    private static Logger logger = LoggerFactory.getLogger(LeagueSetupService.class);
-
-    private static boolean WORKERS_RUNNING = false;
-
-    public LeagueSetupService(LeagueSetupRepository leagueSetupRepository, TransferMarktWorker transferMarktWorker,
-                              FantasyService fantasyService) {
+    public LeagueSetupService(LeagueSetupRepository leagueSetupRepository) {
         this.leagueSetupRepository = leagueSetupRepository;
-        this.transferMarktWorker = transferMarktWorker;
-        this.fantasyService = fantasyService;
     }
 
     @Transactional
@@ -55,29 +39,18 @@ public class LeagueSetupService {
         return null;
     }
 
-    @Scheduled(fixedRate = 60 * 60 * 1000)
-    public void startWorkers() throws Exception {
-        if (WORKERS_RUNNING) {
-            return;
-        }
-
-        try {
-            WORKERS_RUNNING = true;
+    @Transactional
+    public LeagueSetup replaceLeague(Long setupId, RegularLeague league) {
+        Optional<LeagueSetup> optionalLeagueSetup = leagueSetupRepository.findById(setupId);
 
-            Iterable<LeagueSetup> leagueSetups = leagueSetupRepository.findLeaguesBetween(
-                    LocalDateTime.now(), LocalDateTime.now().plusDays(1));
+        if(optionalLeagueSetup.isPresent()) {
+            LeagueSetup setup = optionalLeagueSetup.get();
 
-            for(LeagueSetup setup : leagueSetups) {
-                if(setup.getTransfermarktUrl() != null) {
-                    transferMarktWorker.process(setup.getTransfermarktUrl());
-                }
+            setup.setLeague(league);
 
-                if(setup.getLeague() != null) {
-                    fantasyService.process(setup.getLeague().getId());
-                }
-            }
-        } finally {
-            WORKERS_RUNNING = false;
+            return leagueSetupRepository.save(setup);
         }
+
+        return null;
     }
 }
@@ -0,0 +1,17 @@
+package com.bhfantasy.web.service;
+
+/**
+ * Published when events recorded so far of a match in progress are stored.
+ */
+public class LiveMatchUpdatedEvent {
+
+    private final Long matchId;
+
+    public LiveMatchUpdatedEvent(Long matchId) {
+        this.matchId = matchId;
+    }
+
+    public Long getMatchId() {
+        return matchId;
+    }
+}
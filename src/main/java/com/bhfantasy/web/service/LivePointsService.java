@@ -0,0 +1,359 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.Match;
+import com.bhfantasy.web.model.PlayerPoints;
+import com.bhfantasy.web.model.custom.LiveTeamPointsValue;
+import com.bhfantasy.web.repository.MatchRepository;
+import com.bhfantasy.web.repository.RoundRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Provisional round points of fantasy teams, pushed to subscribers while matches are played.
+ *
+ * Points of matches in progress are calculated whenever ingestion stores their events and kept in memory
+ * until the match is scored, or until it leaves the live window, e.g. when it's abandoned. Round scores
+ * of a fantasy league are recalculated on a single background thread only while someone is subscribed
+ * to them, and changes arriving in the meantime are calculated once.
+ * Every connection holds at most one pending update, a slow client skips to the latest points.
+ */
+@Service
+public class LivePointsService {
+
+    private static Logger logger = LoggerFactory.getLogger(LivePointsService.class);
+
+    private final MatchScoringService matchScoringService;
+
+    private final FantasyScoreService fantasyScoreService;
+
+    private final RoundRepository roundRepository;
+
+    private final MatchRepository matchRepository;
+
+    private final long timeout;
+
+    private final Duration liveWindow;
+
+    // Points of matches in progress by match id
+    private final Map<Long, LiveMatch> liveMatches = new ConcurrentHashMap<>();
+
+    private final Map<RoundKey, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+
+    private final Set<RoundKey> scheduledRounds = ConcurrentHashMap.newKeySet();
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "live-points"));
+
+    private final ExecutorService senders;
+
+    public LivePointsService(MatchScoringService matchScoringService, FantasyScoreService fantasyScoreService,
+                             RoundRepository roundRepository, MatchRepository matchRepository,
+                             @Value("${bhfantasy.live.timeout-millis:1800000}") long timeout,
+                             @Value("${bhfantasy.live.send-parallelism:4}") int sendParallelism,
+                             @Value("${bhfantasy.workers.live.window-minutes:0}") long liveWindow) {
+        this.matchScoringService = matchScoringService;
+        this.fantasyScoreService = fantasyScoreService;
+        this.roundRepository = roundRepository;
+        this.matchRepository = matchRepository;
+        this.timeout = timeout;
+        this.liveWindow = Duration.ofMinutes(liveWindow);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        this.senders = Executors.newFixedThreadPool(sendParallelism,
+                runnable -> new Thread(runnable, "live-points-send-" + threadCounter.incrementAndGet()));
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        senders.shutdownNow();
+
+        subscribers.values().forEach(roundSubscribers -> roundSubscribers.forEach(
+                subscriber -> subscriber.emitter.complete()));
+    }
+
+    /**
+     * Opens a stream of provisional points of all teams in the round, current points are sent right away.
+     */
+    public SseEmitter subscribe(Long leagueId, Long roundId) {
+        RoundKey key = new RoundKey(leagueId, roundId);
+
+        Subscriber subscriber = new Subscriber(key, new SseEmitter(timeout));
+
+        subscriber.emitter.onCompletion(() -> unsubscribe(subscriber));
+        subscriber.emitter.onTimeout(() -> unsubscribe(subscriber));
+
+        subscribers.compute(key, (roundKey, roundSubscribers) -> {
+            Set<Subscriber> result = roundSubscribers != null ? roundSubscribers : new CopyOnWriteArraySet<>();
+
+            result.add(subscriber);
+
+            return result;
+        });
+
+        schedulePublish(key);
+
+        return subscriber.emitter;
+    }
+
+    private void unsubscribe(Subscriber subscriber) {
+        subscribers.computeIfPresent(subscriber.key, (key, roundSubscribers) -> {
+            roundSubscribers.remove(subscriber);
+
+            return roundSubscribers.isEmpty() ? null : roundSubscribers;
+        });
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onLiveMatchUpdated(LiveMatchUpdatedEvent event) {
+        executor.execute(() -> {
+            try {
+                updateLiveMatch(event.getMatchId());
+            } catch (Exception e) {
+                logger.error("Error while calculating live points of match {}.", event.getMatchId(), e);
+            }
+        });
+    }
+
+    // Stored points replace live ones, and scores of subscribed rounds change either way
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onPlayerPointsChanged(PlayerPointsChangedEvent event) {
+        executor.execute(() -> {
+            LiveMatch liveMatch = liveMatches.remove(event.getMatchId());
+
+            if (subscribers.isEmpty()) {
+                return;
+            }
+
+            try {
+                schedulePublish(liveMatch != null
+                        ? liveMatch.roundIds : roundRepository.findRoundIdsByMatchId(event.getMatchId()));
+            } catch (Exception e) {
+                logger.error("Error while updating live points of match {}.", event.getMatchId(), e);
+            }
+        });
+    }
+
+    // Points of matches that are neither scored nor polled anymore, e.g. postponed, abandoned or given up on
+    @Scheduled(fixedDelayString = "${bhfantasy.live.evict-millis:60000}")
+    public void evictExpired() {
+        executor.execute(() -> {
+            LocalDateTime now = LocalDateTime.now();
+
+            Set<Long> roundIds = new HashSet<>();
+
+            liveMatches.entrySet().removeIf(liveMatch -> {
+                if (now.isBefore(liveMatch.getValue().expiresAt)) {
+                    return false;
+                }
+
+                logger.info("Live points of match {} expired.", liveMatch.getKey());
+
+                roundIds.addAll(liveMatch.getValue().roundIds);
+
+                return true;
+            });
+
+            if (!roundIds.isEmpty()) {
+                schedulePublish(roundIds);
+            }
+        });
+    }
+
+    private void updateLiveMatch(Long matchId) {
+        Optional<PointsCalculator.Result> result = matchScoringService.calculateLive(matchId);
+
+        if (!result.isPresent()) {
+            return;
+        }
+
+        Map<Long, PlayerPoints> points = new HashMap<>();
+
+        for (int i = 0; i < result.get().size(); i++) {
+            PlayerPoints playerPoints = new PlayerPoints();
+            playerPoints.setPoints(result.get().getPoints(i));
+            playerPoints.setCounters(result.get().getCounters(i));
+            playerPoints.setMinutesPlayed(result.get().getMinutes(i));
+
+            points.put(result.get().getPlayerId(i), playerPoints);
+        }
+
+        List<Long> roundIds = roundRepository.findRoundIdsByMatchId(matchId);
+
+        LocalDateTime kickoff = matchRepository.findById(matchId).map(Match::getDateTime).orElse(null);
+
+        LocalDateTime expiresAt = (kickoff != null ? kickoff : LocalDateTime.now()).plus(liveWindow);
+
+        liveMatches.put(matchId, new LiveMatch(roundIds, points, expiresAt));
+
+        logger.debug("Live points of match {} calculated for {} players.", matchId, points.size());
+
+        schedulePublish(roundIds);
+    }
+
+    private void schedulePublish(Collection<Long> roundIds) {
+        for (RoundKey key : subscribers.keySet()) {
+            if (roundIds.contains(key.roundId)) {
+                schedulePublish(key);
+            }
+        }
+    }
+
+    // Changes arriving while a round is waiting to be calculated are included in it
+    private void schedulePublish(RoundKey key) {
+        if (scheduledRounds.add(key)) {
+            executor.execute(() -> {
+                scheduledRounds.remove(key);
+
+                try {
+                    publish(key);
+                } catch (Exception e) {
+                    logger.error("Error while calculating live points of round {}.", key.roundId, e);
+                }
+            });
+        }
+    }
+
+    private void publish(RoundKey key) {
+        Set<Subscriber> roundSubscribers = subscribers.get(key);
+
+        if (roundSubscribers == null || roundSubscribers.isEmpty()) {
+            return;
+        }
+
+        Map<Long, List<PlayerPoints>> livePoints = new HashMap<>();
+
+        for (LiveMatch liveMatch : liveMatches.values()) {
+            if (liveMatch.roundIds.contains(key.roundId)) {
+                liveMatch.points.forEach((playerId, points) ->
+                        livePoints.computeIfAbsent(playerId, id -> new ArrayList<>()).add(points));
+            }
+        }
+
+        List<LiveTeamPointsValue> points = fantasyScoreService.calculateLiveScores(
+                key.leagueId, key.roundId, livePoints);
+
+        roundSubscribers.forEach(subscriber -> subscriber.offer(points));
+    }
+
+    private static class LiveMatch {
+
+        private final List<Long> roundIds;
+
+        private final Map<Long, PlayerPoints> points;
+
+        private final LocalDateTime expiresAt;
+
+        LiveMatch(List<Long> roundIds, Map<Long, PlayerPoints> points, LocalDateTime expiresAt) {
+            this.roundIds = roundIds;
+            this.points = points;
+            this.expiresAt = expiresAt;
+        }
+    }
+
+    private static class RoundKey {
+
+        private final Long leagueId;
+
+        private final Long roundId;
+
+        RoundKey(Long leagueId, Long roundId) {
+            this.leagueId = leagueId;
+            this.roundId = roundId;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+
+            if (!(o instanceof RoundKey)) {
+                return false;
+            }
+
+            RoundKey other = (RoundKey) o;
+
+            return leagueId.equals(other.leagueId) && roundId.equals(other.roundId);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(leagueId, roundId);
+        }
+    }
+
+    private class Subscriber {
+
+        private final RoundKey key;
+
+        private final SseEmitter emitter;
+
+        private final AtomicReference<List<LiveTeamPointsValue>> pending = new AtomicReference<>();
+
+        private final AtomicBoolean sending = new AtomicBoolean(false);
+
+        Subscriber(RoundKey key, SseEmitter emitter) {
+            this.key = key;
+            this.emitter = emitter;
+        }
+
+        // Replaces an update the connection didn't get to yet
+        void offer(List<LiveTeamPointsValue> points) {
+            pending.set(points);
+
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::send);
+            }
+        }
+
+        private void send() {
+            while (true) {
+                List<LiveTeamPointsValue> points = pending.getAndSet(null);
+
+                if (points == null) {
+                    sending.set(false);
+
+                    // Update offered after the last check, but before the flag was cleared
+                    if (pending.get() == null || !sending.compareAndSet(false, true)) {
+                        return;
+                    }
+
+                    continue;
+                }
+
+                try {
+                    emitter.send(SseEmitter.event().name("points").data(points));
+                } catch (IOException | IllegalStateException e) {
+                    // Client is gone
+                    unsubscribe(this);
+
+                    emitter.complete();
+
+                    sending.set(false);
+
+                    return;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.bhfantasy.web.service;
+
+/**
+ * Published when details of a finished match are stored and the match is queued for scoring.
+ */
+public class MatchFinalizedEvent {
+
+    private final Long matchId;
+
+    public MatchFinalizedEvent(Long matchId) {
+        this.matchId = matchId;
+    }
+
+    public Long getMatchId() {
+        return matchId;
+    }
+}
@@ -0,0 +1,443 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.*;
+import com.bhfantasy.web.model.custom.MatchSnapshot;
+import com.bhfantasy.web.model.players.Player;
+import com.bhfantasy.web.repository.*;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.PreDestroy;
+import javax.transaction.Transactional;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Scores finished matches in three phases. Matches are loaded with their events and lineups in a fixed number
+ * of queries and copied into immutable snapshots, changed snapshots are scored in parallel by
+ * {@link PointsCalculator}, and the resulting player points are written back in batches.
+ */
+@Service
+public class MatchScoringService {
+
+    private static Logger logger = LoggerFactory.getLogger(MatchScoringService.class);
+
+    // Increase when points calculation changes, matches scored by older rules are scored again
+    public static final int SCORING_VERSION = 4;
+
+    private static final long HALF_TIME = 45;
+
+    private static final long HALF_TIME_BREAK = 15;
+
+    private final MatchRepository matchRepository;
+
+    private final LineupRepository lineupRepository;
+
+    private final GoalRepository goalRepository;
+
+    private final CardRepository cardRepository;
+
+    private final MissedPenaltyRepository missedPenaltyRepository;
+
+    private final SubstitutionRepository substitutionRepository;
+
+    private final PlayerPointsRepository playerPointsRepository;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final ForkJoinPool pool;
+
+    public MatchScoringService(MatchRepository matchRepository,
+                               LineupRepository lineupRepository,
+                               GoalRepository goalRepository,
+                               CardRepository cardRepository,
+                               MissedPenaltyRepository missedPenaltyRepository,
+                               SubstitutionRepository substitutionRepository,
+                               PlayerPointsRepository playerPointsRepository,
+                               ApplicationEventPublisher eventPublisher,
+                               @Value("${bhfantasy.scoring.parallelism:0}") int parallelism) {
+        this.matchRepository = matchRepository;
+        this.lineupRepository = lineupRepository;
+        this.goalRepository = goalRepository;
+        this.cardRepository = cardRepository;
+        this.missedPenaltyRepository = missedPenaltyRepository;
+        this.substitutionRepository = substitutionRepository;
+        this.playerPointsRepository = playerPointsRepository;
+        this.eventPublisher = eventPublisher;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdownNow();
+    }
+
+    /**
+     * Scores the given finished matches. A match is recalculated only if its scoring inputs or the scoring
+     * version changed since it was last scored, and only player points that differ are written.
+     *
+     * @return number of player points saved or deleted
+     */
+    @Transactional
+    public int scoreMatches(Collection<Long> matchIds) {
+        List<Match> matches = matchRepository.findForScoring(matchIds).stream()
+                .filter(match -> match.getScore1() != null)
+                .collect(Collectors.toList());
+
+        if (matches.isEmpty()) {
+            return 0;
+        }
+
+        Map<Long, Match> matchesById = matches.stream().collect(Collectors.toMap(Match::getId, match -> match));
+
+        Map<Long, Player> players = new HashMap<>();
+
+        List<MatchSnapshot> snapshots = new ArrayList<>();
+
+        for (MatchSnapshot snapshot : loadSnapshots(matches, players)) {
+            Match match = matchesById.get(snapshot.getMatchId());
+
+            String fingerprint = snapshot.getFingerprint();
+
+            if (Objects.equals(match.getScoringVersion(), SCORING_VERSION)
+                    && fingerprint.equals(match.getScoringFingerprint())) {
+                continue;
+            }
+
+            match.setScoringFingerprint(fingerprint);
+
+            snapshots.add(snapshot);
+        }
+
+        if (snapshots.isEmpty()) {
+            logger.info("0 of {} matches scored, nothing changed.", matches.size());
+            return 0;
+        }
+
+        List<PointsCalculator.Result> results = calculate(snapshots);
+
+        Map<Long, List<PlayerPoints>> storedPoints = groupByMatch(
+                playerPointsRepository.findByMatchIds(
+                        snapshots.stream().map(MatchSnapshot::getMatchId).collect(Collectors.toList())), PlayerPoints::getMatch);
+
+        List<PlayerPoints> savedPoints = new ArrayList<>();
+
+        List<PlayerPoints> deletedPoints = new ArrayList<>();
+
+        List<PlayerPointsChangedEvent> events = new ArrayList<>();
+
+        for (PointsCalculator.Result result : results) {
+            Match match = matchesById.get(result.getMatchId());
+
+            Map<Long, PlayerPoints> previousPoints = new HashMap<>();
+
+            for (PlayerPoints playerPoints : storedPoints.getOrDefault(match.getId(), Collections.emptyList())) {
+                if (previousPoints.putIfAbsent(playerPoints.getPlayer().getId(), playerPoints) != null) {
+                    deletedPoints.add(playerPoints);
+                }
+            }
+
+            List<PlayerPointsChangedEvent.Change> changes = new ArrayList<>();
+
+            for (int i = 0; i < result.size(); i++) {
+                Long playerId = result.getPlayerId(i);
+
+                Integer points = result.getPoints(i);
+
+                Long counters = result.getCounters(i);
+
+                Integer minutesPlayed = result.getMinutes(i);
+
+                PlayerPoints playerPoints = previousPoints.remove(playerId);
+
+                if (playerPoints == null) {
+                    playerPoints = new PlayerPoints();
+                    playerPoints.setMatch(match);
+                    playerPoints.setPlayer(players.get(playerId));
+                    playerPoints.setPoints(points);
+                    playerPoints.setCounters(counters);
+                    playerPoints.setMinutesPlayed(minutesPlayed);
+
+                    savedPoints.add(playerPoints);
+
+                    changes.add(new PlayerPointsChangedEvent.Change(playerId, null, points));
+                } else if (!points.equals(playerPoints.getPoints()) || !counters.equals(playerPoints.getCounters())
+                        || !minutesPlayed.equals(playerPoints.getMinutesPlayed())) {
+                    // Points of leagues with own rules can change even if default points don't
+                    changes.add(new PlayerPointsChangedEvent.Change(playerId, playerPoints.getPoints(), points));
+
+                    playerPoints.setPoints(points);
+                    playerPoints.setCounters(counters);
+                    playerPoints.setMinutesPlayed(minutesPlayed);
+
+                    savedPoints.add(playerPoints);
+                }
+            }
+
+            for (PlayerPoints playerPoints : previousPoints.values()) {
+                changes.add(new PlayerPointsChangedEvent.Change(
+                        playerPoints.getPlayer().getId(), playerPoints.getPoints(), null));
+
+                deletedPoints.add(playerPoints);
+            }
+
+            if (result.isReviewRequired()) {
+                match.setReviewRequired(true);
+            }
+
+            boolean firstScoring = match.getScoringVersion() == null;
+
+            match.setScoringVersion(SCORING_VERSION);
+
+            if (!changes.isEmpty()) {
+                events.add(new PlayerPointsChangedEvent(match.getId(), changes, firstScoring));
+            }
+        }
+
+        playerPointsRepository.saveAll(savedPoints);
+        playerPointsRepository.deleteAll(deletedPoints);
+
+        events.forEach(eventPublisher::publishEvent);
+
+        logger.info("{} of {} matches scored, {} player points saved, {} deleted.",
+                results.size(), matches.size(), savedPoints.size(), deletedPoints.size());
+
+        return savedPoints.size() + deletedPoints.size();
+    }
+
+    /**
+     * Calculates points of a match in progress from the events recorded so far, nothing is written.
+     * Players on the pitch are counted up to the minute the match has reached by the clock.
+     */
+    @Transactional
+    public Optional<PointsCalculator.Result> calculateLive(Long matchId) {
+        List<Match> matches = matchRepository.findForScoring(Collections.singletonList(matchId)).stream()
+                .filter(match -> match.getScore1() == null && match.getLineup1() != null)
+                .collect(Collectors.toList());
+
+        if (matches.isEmpty()) {
+            return Optional.empty();
+        }
+
+        return Optional.of(PointsCalculator.calculateLive(
+                loadSnapshots(matches, new HashMap<>()).get(0), getPlayedMinutes(matches.get(0))));
+    }
+
+    // Minutes since kickoff without the half time break
+    private static int getPlayedMinutes(Match match) {
+        if (match.getDateTime() == null) {
+            return 0;
+        }
+
+        long elapsed = Duration.between(match.getDateTime(), LocalDateTime.now()).toMinutes();
+
+        if (elapsed > HALF_TIME) {
+            elapsed = Math.max(HALF_TIME, elapsed - HALF_TIME_BREAK);
+        }
+
+        return (int) Math.min(Math.max(elapsed, 0), PointsAccumulator.FULL_TIME);
+    }
+
+    // Snapshots don't reference entities, so they are safe to score outside of the persistence context
+    private List<PointsCalculator.Result> calculate(List<MatchSnapshot> snapshots) {
+        if (snapshots.size() == 1) {
+            return Collections.singletonList(PointsCalculator.calculate(snapshots.get(0)));
+        }
+
+        try {
+            return pool.submit(() -> snapshots.parallelStream()
+                    .map(PointsCalculator::calculate)
+                    .collect(Collectors.toList())).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+
+            throw new IllegalStateException("Scoring is interrupted.", e);
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error while scoring matches.", e.getCause());
+        }
+    }
+
+    private List<MatchSnapshot> loadSnapshots(List<Match> matches, Map<Long, Player> players) {
+        List<Long> matchIds = matches.stream().map(Match::getId).collect(Collectors.toList());
+
+        Map<Long, List<Goal>> goals = groupByMatch(goalRepository.findByMatchIds(matchIds), Goal::getMatch);
+
+        Map<Long, List<Card>> cards = groupByMatch(cardRepository.findByMatchIds(matchIds), Card::getMatch);
+
+        Map<Long, List<MissedPenalty>> missedPenalties = groupByMatch(
+                missedPenaltyRepository.findByMatchIds(matchIds), MissedPenalty::getMatch);
+
+        Set<Long> lineupIds = new HashSet<>();
+
+        for (Match match : matches) {
+            for (Lineup lineup : Arrays.asList(match.getLineup1(), match.getLineup2())) {
+                if (lineup != null) {
+                    lineupIds.add(lineup.getId());
+                }
+            }
+        }
+
+        Map<Long, List<Substitution>> substitutions = new HashMap<>();
+
+        if (!lineupIds.isEmpty()) {
+            // Loads starting players into the lineups of the persistence context
+            lineupRepository.findWithStartingPlayers(lineupIds);
+
+            for (Substitution substitution : substitutionRepository.findByLineupIds(lineupIds)) {
+                substitutions.computeIfAbsent(substitution.getLineup().getId(), id -> new ArrayList<>())
+                        .add(substitution);
+            }
+        }
+
+        Map<Long, MatchSnapshot.PlayerSnapshot> playerSnapshots = new HashMap<>();
+
+        Function<Player, MatchSnapshot.PlayerSnapshot> snapshotOf = player -> {
+            if (player == null) {
+                return null;
+            }
+
+            players.putIfAbsent(player.getId(), player);
+
+            return playerSnapshots.computeIfAbsent(player.getId(), id -> new MatchSnapshot.PlayerSnapshot(
+                    id, getPlayerClass(player)));
+        };
+
+        List<MatchSnapshot> snapshots = new ArrayList<>(matches.size());
+
+        for (Match match : matches) {
+            List<MatchSnapshot.GoalSnapshot> goalSnapshots = new ArrayList<>();
+
+            List<Goal> matchGoals = goals.getOrDefault(match.getId(), Collections.emptyList());
+
+            Map<Goal, Integer> goalTeams = getGoalTeams(match, matchGoals);
+
+            for (Goal goal : matchGoals) {
+                goalSnapshots.add(new MatchSnapshot.GoalSnapshot(snapshotOf.apply(goal.getPlayer()),
+                        snapshotOf.apply(goal.getAssist()), goal.getMinute(), goal.getOwnGoal(), goalTeams.get(goal)));
+            }
+
+            List<MatchSnapshot.CardSnapshot> cardSnapshots = new ArrayList<>();
+
+            for (Card card : cards.getOrDefault(match.getId(), Collections.emptyList())) {
+                cardSnapshots.add(new MatchSnapshot.CardSnapshot(snapshotOf.apply(card.getPlayer()),
+                        card.getCardType()));
+            }
+
+            List<MatchSnapshot.MissedPenaltySnapshot> missedPenaltySnapshots = new ArrayList<>();
+
+            for (MissedPenalty missedPenalty : missedPenalties.getOrDefault(match.getId(), Collections.emptyList())) {
+                missedPenaltySnapshots.add(new MatchSnapshot.MissedPenaltySnapshot(
+                        snapshotOf.apply(missedPenalty.getPlayer()), snapshotOf.apply(missedPenalty.getSavedBy())));
+            }
+
+            // Match in progress has no score yet, it's the score after the last recorded goal
+            Integer score1 = match.getScore1() != null
+                    ? match.getScore1() : getRunningScore(matchGoals, Goal::getScore1);
+
+            Integer score2 = match.getScore2() != null
+                    ? match.getScore2() : getRunningScore(matchGoals, Goal::getScore2);
+
+            snapshots.add(new MatchSnapshot(match.getId(), score1, score2,
+                    getLineupSnapshot(match.getLineup1(), substitutions, snapshotOf),
+                    getLineupSnapshot(match.getLineup2(), substitutions, snapshotOf),
+                    goalSnapshots, cardSnapshots, missedPenaltySnapshots));
+        }
+
+        return snapshots;
+    }
+
+    private static MatchSnapshot.LineupSnapshot getLineupSnapshot(
+            Lineup lineup, Map<Long, List<Substitution>> substitutions,
+            Function<Player, MatchSnapshot.PlayerSnapshot> snapshotOf) {
+        if (lineup == null) {
+            return null;
+        }
+
+        List<MatchSnapshot.PlayerSnapshot> startingPlayers = lineup.getStartingPlayers().stream()
+                .map(snapshotOf)
+                .collect(Collectors.toList());
+
+        List<MatchSnapshot.SubstitutionSnapshot> substitutionSnapshots = new ArrayList<>();
+
+        for (Substitution substitution : substitutions.getOrDefault(lineup.getId(), Collections.emptyList())) {
+            substitutionSnapshots.add(new MatchSnapshot.SubstitutionSnapshot(snapshotOf.apply(substitution.getPlayer()),
+                    snapshotOf.apply(substitution.getSubstitutePlayer()), substitution.getMinute()));
+        }
+
+        return new MatchSnapshot.LineupSnapshot(startingPlayers, substitutionSnapshots);
+    }
+
+    // Lineup number of the team each goal counts for. The running score after the goal tells it also for own goals,
+    // the team the goal is listed under is used when the score doesn't
+    private static Map<Goal, Integer> getGoalTeams(Match match, List<Goal> goals) {
+        List<Goal> ordered = new ArrayList<>(goals);
+
+        ordered.sort(Comparator.comparing(goal -> goal.getScore1() != null && goal.getScore2() != null
+                ? goal.getScore1() + goal.getScore2() : Integer.MAX_VALUE));
+
+        Map<Goal, Integer> result = new HashMap<>();
+
+        int score1 = 0;
+        int score2 = 0;
+
+        for (Goal goal : ordered) {
+            int team = 0;
+
+            if (goal.getScore1() != null && goal.getScore2() != null) {
+                if (goal.getScore1() == score1 + 1 && goal.getScore2() == score2) {
+                    team = 1;
+                } else if (goal.getScore2() == score2 + 1 && goal.getScore1() == score1) {
+                    team = 2;
+                }
+
+                score1 = goal.getScore1();
+                score2 = goal.getScore2();
+            }
+
+            if (team == 0 && goal.getTeam() != null) {
+                if (match.getTeam1() != null && goal.getTeam().getId().equals(match.getTeam1().getId())) {
+                    team = 1;
+                } else if (match.getTeam2() != null && goal.getTeam().getId().equals(match.getTeam2().getId())) {
+                    team = 2;
+                }
+            }
+
+            result.put(goal, team);
+        }
+
+        return result;
+    }
+
+    private static Integer getRunningScore(List<Goal> goals, Function<Goal, Integer> scoreGetter) {
+        return goals.stream()
+                .map(scoreGetter)
+                .filter(Objects::nonNull)
+                .max(Integer::compare)
+                .orElse(0);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Class<? extends Player> getPlayerClass(Player player) {
+        // Players referenced by events can be lazy proxies
+        return (Class<? extends Player>) Hibernate.getClass(player);
+    }
+
+    private static <T> Map<Long, List<T>> groupByMatch(List<T> events, Function<T, Match> matchGetter) {
+        Map<Long, List<T>> result = new HashMap<>();
+
+        for (T event : events) {
+            result.computeIfAbsent(matchGetter.apply(event).getId(), id -> new ArrayList<>()).add(event);
+        }
+
+        return result;
+    }
+}
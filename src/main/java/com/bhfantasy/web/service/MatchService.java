@@ -1,27 +1,58 @@
 package com.bhfantasy.web.service;
 
-import com.bhfantasy.web.model.Match;
-import com.bhfantasy.web.model.Round;
-import com.bhfantasy.web.model.Stadium;
-import com.bhfantasy.web.model.Team;
-import com.bhfantasy.web.repository.MatchRepository;
+import com.bhfantasy.web.model.*;
+import com.bhfantasy.web.repository.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
-import java.util.Optional;
+import java.util.*;
+import java.util.stream.Collectors;
 
 @Service
 public class MatchService {
 
     private final MatchRepository matchRepository;
 
+    private final LineupRepository lineupRepository;
+
+    private final GoalRepository goalRepository;
+
+    private final CardRepository cardRepository;
+
+    private final SubstitutionRepository substitutionRepository;
+
+    private final MissedPenaltyRepository missedPenaltyRepository;
+
+    private final Optional<PostgresBulkWriter> bulkWriter;
+
+    private final ScoringQueue scoringQueue;
+
+    private final ApplicationEventPublisher eventPublisher;
+
     private static Logger logger = LoggerFactory.getLogger(MatchService.class);
 
-    public MatchService(MatchRepository matchRepository) {
+    public MatchService(MatchRepository matchRepository,
+                        LineupRepository lineupRepository,
+                        GoalRepository goalRepository,
+                        CardRepository cardRepository,
+                        SubstitutionRepository substitutionRepository,
+                        MissedPenaltyRepository missedPenaltyRepository,
+                        Optional<PostgresBulkWriter> bulkWriter,
+                        ScoringQueue scoringQueue,
+                        ApplicationEventPublisher eventPublisher) {
         this.matchRepository = matchRepository;
+        this.lineupRepository = lineupRepository;
+        this.goalRepository = goalRepository;
+        this.cardRepository = cardRepository;
+        this.substitutionRepository = substitutionRepository;
+        this.missedPenaltyRepository = missedPenaltyRepository;
+        this.bulkWriter = bulkWriter;
+        this.scoringQueue = scoringQueue;
+        this.eventPublisher = eventPublisher;
     }
 
     @Transactional
@@ -41,6 +72,19 @@ public class MatchService {
         }
     }
 
+    @Transactional
+    public void addRound(Collection<Long> matchIds, Round round) {
+        if(matchIds.isEmpty()) {
+            return;
+        }
+
+        for(Match match : matchRepository.findWithRounds(matchIds)) {
+            if (match.getRounds().stream().noneMatch(r -> r.getId().equals(round.getId()))) {
+                match.getRounds().add(round);
+            }
+        }
+    }
+
     @Transactional
     public Optional<Match> getMatch(Long transferMarktId) {
         return matchRepository.findByTransfermarktId(transferMarktId);
@@ -50,13 +94,13 @@ public class MatchService {
     public Match createMatch(
             Team team1, Team team2, LocalDateTime matchDate,
             Integer score1, Integer score2, Stadium stadium) {
-        return createMatch(null, team1, team2, matchDate, score1, score2, stadium);
+        return createMatch(null, team1, team2, matchDate, score1, score2, stadium, null);
     }
 
     @Transactional
     public Match createMatch(
                 Long transferMarktId, Team team1, Team team2, LocalDateTime matchDate,
-                Integer score1, Integer score2, Stadium stadium) {
+                Integer score1, Integer score2, Stadium stadium, String fixtureFingerprint) {
         Match match = new Match();
         match.setTransfermarktId(transferMarktId);
         match.setTeam1(team1);
@@ -65,13 +109,14 @@ public class MatchService {
         match.setScore1(score1);
         match.setScore2(score2);
         match.setStadium(stadium);
+        match.setFixtureFingerprint(fixtureFingerprint);
 
         return matchRepository.save(match);
     }
 
     @Transactional
     public Match updateMatch(
-            Long id, LocalDateTime matchDate, Integer score1, Integer score2) {
+            Long id, LocalDateTime matchDate, Integer score1, Integer score2, String fixtureFingerprint) {
 
         Optional<Match> matchOptional = matchRepository.findById(id);
 
@@ -81,6 +126,7 @@ public class MatchService {
             match.setDateTime(matchDate);
             match.setScore1(score1);
             match.setScore2(score2);
+            match.setFixtureFingerprint(fixtureFingerprint);
 
             return match;
         } else {
@@ -90,6 +136,101 @@ public class MatchService {
         return null;
     }
 
+    @Transactional
+    public Match saveMatchDetails(
+            Long id, Lineup lineup1, Lineup lineup2, Stadium stadium, List<Substitution> substitutions,
+            List<Card> cards, List<MissedPenalty> missedPenalties, List<Goal> goals) {
+        Optional<Match> matchOptional = matchRepository.findById(id);
+
+        if(!matchOptional.isPresent()) {
+            logger.error("Match with id {} not found.", id);
+
+            return null;
+        }
+
+        Match match = matchOptional.get();
+
+        // Report without lineups keeps the stored ones with their substitutions, only replaced lineups are deleted
+        boolean keepLineup1 = isStored(match.getLineup1(), lineup1);
+        boolean keepLineup2 = isStored(match.getLineup2(), lineup2);
+
+        List<Lineup> previousLineups = new ArrayList<>(2);
+
+        if(!keepLineup1 && match.getLineup1() != null) {
+            previousLineups.add(match.getLineup1());
+        }
+
+        if(!keepLineup2 && match.getLineup2() != null) {
+            previousLineups.add(match.getLineup2());
+        }
+
+        // Details were stored before, corrected ones replace them. Events are stored even when lineups
+        // couldn't be parsed, so they're replaced either way
+        deleteMatchDetails(match, previousLineups);
+
+        if(bulkWriter.isPresent()) {
+            bulkWriter.get().writeMatchDetails(keepLineup1 ? null : lineup1, keepLineup2 ? null : lineup2,
+                    substitutions, cards, missedPenalties, goals);
+        } else {
+            if(lineup1 != null && !keepLineup1) {
+                lineupRepository.save(lineup1);
+            }
+
+            if(lineup2 != null && !keepLineup2) {
+                lineupRepository.save(lineup2);
+            }
+
+            // Nothing is written until commit, then inserts are ordered and sent in jdbc batches
+            substitutionRepository.saveAll(substitutions);
+            cardRepository.saveAll(cards);
+            missedPenaltyRepository.saveAll(missedPenalties);
+            goalRepository.saveAll(goals);
+        }
+
+        if(!keepLineup1) {
+            match.setLineup1(lineup1);
+        }
+
+        if(!keepLineup2) {
+            match.setLineup2(lineup2);
+        }
+
+        match.setStadium(stadium);
+
+        lineupRepository.deleteAll(previousLineups);
+
+        enqueueScoring(match);
+
+        return match;
+    }
+
+    private static boolean isStored(Lineup stored, Lineup lineup) {
+        return stored != null && lineup != null && stored.getId() != null && stored.getId().equals(lineup.getId());
+    }
+
+    private void deleteMatchDetails(Match match, List<Lineup> lineups) {
+        if(!lineups.isEmpty()) {
+            substitutionRepository.deleteByLineupIds(
+                    lineups.stream().map(Lineup::getId).collect(Collectors.toList()));
+
+            logger.info("Replacing details of match {}.", match.getId());
+        }
+
+        goalRepository.deleteByMatchId(match.getId());
+        cardRepository.deleteByMatchId(match.getId());
+        missedPenaltyRepository.deleteByMatchId(match.getId());
+    }
+
+    // Match with stored details and score is finished, it's scored once the transaction commits,
+    // details of a match without score are events recorded so far
+    private void enqueueScoring(Match match) {
+        if(match.getScore1() != null) {
+            scoringQueue.enqueue(match.getId());
+        } else {
+            eventPublisher.publishEvent(new LiveMatchUpdatedEvent(match.getId()));
+        }
+    }
+
     public MatchRepository getMatchRepository() {
         return matchRepository;
     }
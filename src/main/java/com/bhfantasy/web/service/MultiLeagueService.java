@@ -4,6 +4,7 @@ import com.bhfantasy.web.utils.CommonUtils;
 import com.bhfantasy.web.model.Match;
 import com.bhfantasy.web.model.Round;
 import com.bhfantasy.web.model.league.RegularLeague;
+import com.bhfantasy.web.repository.FantasyLineupRepository;
 import com.bhfantasy.web.repository.MatchRepository;
 import com.bhfantasy.web.repository.RegularLeagueRepository;
 import com.bhfantasy.web.repository.RoundRepository;
@@ -13,16 +14,25 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
 
 @Service
 public class MultiLeagueService {
 
     private static Logger logger = LoggerFactory.getLogger(MultiLeagueService.class);
 
+    private static final String POSTPONED_ROUND_NAME = "Postponed";
+
     private final MatchRepository matchRepository;
 
     private final RoundRepository roundRepository;
@@ -31,57 +41,177 @@ public class MultiLeagueService {
 
     private final TeamRepository teamRepository;
 
+    private final FantasyLineupRepository fantasyLineupRepository;
+
     public MultiLeagueService(
             MatchRepository matchRepository, RoundRepository roundRepository,
-            RegularLeagueRepository regularLeagueRepository, TeamRepository teamRepository) {
+            RegularLeagueRepository regularLeagueRepository, TeamRepository teamRepository,
+            FantasyLineupRepository fantasyLineupRepository) {
         this.matchRepository = matchRepository;
         this.roundRepository = roundRepository;
         this.regularLeagueRepository = regularLeagueRepository;
         this.teamRepository = teamRepository;
+        this.fantasyLineupRepository = fantasyLineupRepository;
     }
 
+    /**
+     * Puts matches of the member leagues that aren't in any round of the multi league yet into rounds, one
+     * round per ISO week. Matches join the round of their week if it exists, otherwise a new round is created
+     * and rounds are renumbered by date. Matches that were rescheduled to another week since they were assigned
+     * move to the round of their new week, rounds left without matches are deleted, or emptied when fantasy
+     * lineups were already picked for them. Returns the number of assigned and moved matches.
+     */
     @Transactional
-    public void calculateRounds(RegularLeague league) {
-        List<Round> rounds = new ArrayList<>();
+    public int updateRounds(RegularLeague league) {
+        List<Match> matches = new ArrayList<>(matchRepository.findUnassignedMultiLeagueMatches(league.getId()));
 
-        List<Match> matches = matchRepository.findMultiLeagueMatches(league.getId());
+        TreeMap<LocalDate, Round> roundsByWeek = new TreeMap<>();
 
-        LocalDateTime roundStart = null;
+        for (Round round : roundRepository.findByLeagueIdOrderById(league.getId())) {
+            if (round.getStartDate() != null) {
+                roundsByWeek.putIfAbsent(CommonUtils.getWeekStart(round.getStartDate()), round);
+            }
+        }
 
-        int counter = 1;
+        Set<Round> changedRounds = new HashSet<>();
 
-        Round round = null;
+        int movedMatches = 0;
 
-        for (Match match : matches) {
-            if(!CommonUtils.checkIfSameWeek(roundStart, match.getDateTime())) {
-                if(round != null) {
-                    roundRepository.save(round);
+        // Only matches rescheduled outside of the dates of their round can be in another week now
+        for (Match match : matchRepository.findMultiLeagueMatchesOutsideOfRound(league.getId())) {
+            LocalDate week = CommonUtils.getWeekStart(match.getDateTime());
+
+            for (Iterator<Round> iterator = match.getRounds().iterator(); iterator.hasNext(); ) {
+                Round round = iterator.next();
+
+                if (round.getLeague() == null || !league.getId().equals(round.getLeague().getId())) {
+                    continue;
                 }
 
+                changedRounds.add(round);
+
+                if (!CommonUtils.getWeekStart(round.getStartDate()).equals(week)) {
+                    iterator.remove();
+                    round.getMatches().remove(match);
+
+                    matches.add(match);
+
+                    movedMatches++;
+                }
+            }
+        }
+
+        if (matches.isEmpty() && changedRounds.isEmpty()) {
+            return 0;
+        }
+
+        int createdRounds = 0;
+
+        int assignedMatches = 0;
+
+        for (Match match : matches) {
+            LocalDateTime dateTime = match.getDateTime();
+
+            if (dateTime == null) {
+                continue;
+            }
+
+            LocalDate week = CommonUtils.getWeekStart(dateTime);
+
+            Round round = roundsByWeek.get(week);
+
+            if (round == null) {
                 round = new Round();
-                round.setStartDate(match.getDateTime());
-                round.setName(counter + ".Matchday");
+                round.setStartDate(dateTime);
+                round.setEndDate(dateTime);
                 round.setLeague(league);
 
                 round = roundRepository.save(round);
 
-                rounds.add(round);
+                roundsByWeek.put(week, round);
 
-                counter += 1;
+                createdRounds++;
             } else {
-                round.setEndDate(match.getDateTime());
+                if (round.getStartDate().isAfter(dateTime)) {
+                    round.setStartDate(dateTime);
+                }
+
+                if (round.getEndDate() == null || round.getEndDate().isBefore(dateTime)) {
+                    round.setEndDate(dateTime);
+                }
             }
 
             match.getRounds().add(round);
 
-            roundStart = match.getDateTime();
+            // Matches of changed rounds are loaded already, their dates are recalculated below
+            if (changedRounds.contains(round)) {
+                round.getMatches().add(match);
+            }
+
+            assignedMatches++;
         }
 
-        if (round != null) {
+        int removedRounds = 0;
+
+        // Rounds that a match left or moved within may start later or end earlier, or have no matches left
+        for (Round round : changedRounds) {
+            if (round.getMatches().isEmpty()) {
+                roundsByWeek.values().remove(round);
+
+                removeRound(round);
+
+                removedRounds++;
+
+                continue;
+            }
+
+            round.getMatches().stream().map(Match::getDateTime).filter(Objects::nonNull)
+                    .min(LocalDateTime::compareTo).ifPresent(round::setStartDate);
+            round.getMatches().stream().map(Match::getDateTime).filter(Objects::nonNull)
+                    .max(LocalDateTime::compareTo).ifPresent(round::setEndDate);
+        }
+
+        if (createdRounds > 0 || removedRounds > 0) {
+            int counter = 1;
+
+            for (Round round : roundsByWeek.values()) {
+                round.setName(counter++ + ".Matchday");
+            }
+        }
+
+        roundRepository.saveAll(roundsByWeek.values());
+
+        logger.info("{} matches assigned to rounds of league {}, {} of them moved, {} rounds created, {} removed.",
+                assignedMatches, league.getName(), movedMatches, createdRounds, removedRounds);
+
+        return assignedMatches;
+    }
+
+    // Round that fantasy lineups were picked for is kept without dates, so it doesn't hold its week any more
+    private void removeRound(Round round) {
+        if (fantasyLineupRepository.findIdsByRoundIds(Collections.singleton(round.getId())).isEmpty()) {
+            roundRepository.delete(round);
+
+            logger.info("Round {} has no matches left, it's deleted.", round.getId());
+        } else {
+            round.setName(POSTPONED_ROUND_NAME);
+            round.setStartDate(null);
+            round.setEndDate(null);
+
             roundRepository.save(round);
+
+            logger.info("Round {} has no matches left, it's kept for its fantasy lineups.", round.getId());
         }
+    }
 
-        logger.info("{} rounds calculated for league {}!", rounds.size(), league.getName());
+    /**
+     * Updates rounds of the multi leagues the given league is part of, after new matches were stored for it.
+     */
+    @Transactional
+    public void updateParentRounds(Long leagueId) {
+        for (RegularLeague multiLeague : regularLeagueRepository.findByGroupId(leagueId)) {
+            updateRounds(multiLeague);
+        }
     }
 
     @Transactional
@@ -113,7 +243,7 @@ public class MultiLeagueService {
                     });
                 });
 
-                calculateRounds(multiLeague);
+                updateRounds(multiLeague);
 
                 return multiLeague;
             } else {
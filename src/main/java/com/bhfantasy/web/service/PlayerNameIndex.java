@@ -0,0 +1,265 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.Team;
+import com.bhfantasy.web.model.custom.PlayerNameValue;
+import com.bhfantasy.web.model.players.Player;
+import com.bhfantasy.web.repository.PlayerRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.regex.Pattern;
+
+/**
+ * In-memory index of player names, used to match players that can't be found by transferMarktId.
+ *
+ * Names are normalized (accents folded, lower-cased, punctuation dropped), so accented and plain
+ * spellings of a name share the same key. Candidates sharing a last name are ranked by first name
+ * and team affinity. The index is loaded from the database on first use and updated as players are saved.
+ */
+@Component
+public class PlayerNameIndex {
+
+    private static Logger logger = LoggerFactory.getLogger(PlayerNameIndex.class);
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private final PlayerRepository playerRepository;
+
+    private final Map<String, List<Entry>> entriesByLastName = new HashMap<>();
+
+    private final Map<Long, Entry> entriesById = new HashMap<>();
+
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private volatile boolean loaded = false;
+
+    public PlayerNameIndex(PlayerRepository playerRepository) {
+        this.playerRepository = playerRepository;
+    }
+
+    /**
+     * Returns id of the best matching player. Players with the same first and last name are matched
+     * anywhere, players with only the same last name only within the same team. Players with a different
+     * transferMarktId are never matched.
+     */
+    public Optional<Long> find(String firstName, String lastName, Long teamId, Long transferMarktId) {
+        String normalizedLastName = normalize(lastName);
+
+        if (normalizedLastName.isEmpty()) {
+            return Optional.empty();
+        }
+
+        String normalizedFirstName = normalize(firstName);
+
+        load();
+
+        lock.readLock().lock();
+
+        try {
+            List<Entry> candidates = entriesByLastName.get(normalizedLastName);
+
+            if (candidates == null) {
+                return Optional.empty();
+            }
+
+            Entry bestEntry = null;
+
+            int bestScore = 0;
+
+            for (Entry candidate : candidates) {
+                if (transferMarktId != null && candidate.transferMarktId != null
+                        && !transferMarktId.equals(candidate.transferMarktId)) {
+                    continue;
+                }
+
+                boolean sameFirstName = !normalizedFirstName.isEmpty()
+                        && normalizedFirstName.equals(candidate.firstName);
+
+                boolean sameTeam = teamId != null && candidate.teamIds.contains(teamId);
+
+                int score = (sameFirstName ? 2 : 0) + (sameTeam ? 1 : 0);
+
+                if (score > bestScore) {
+                    bestScore = score;
+                    bestEntry = candidate;
+                }
+            }
+
+            return bestEntry != null ? Optional.of(bestEntry.playerId) : Optional.empty();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public void put(Player player) {
+        if (player.getId() == null || !loaded) {
+            return;
+        }
+
+        Set<Long> teamIds = new HashSet<>();
+
+        for (Team team : player.getTeams()) {
+            if (team != null && team.getId() != null) {
+                teamIds.add(team.getId());
+            }
+        }
+
+        lock.writeLock().lock();
+
+        try {
+            remove(player.getId());
+
+            Entry entry = new Entry(player.getId(), player.getTransferMarktId(),
+                    normalize(player.getFirstName()), normalize(player.getLastName()));
+
+            entry.teamIds.addAll(teamIds);
+
+            add(entry);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public void evict(Long playerId) {
+        lock.writeLock().lock();
+
+        try {
+            remove(playerId);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    static String normalize(String name) {
+        if (name == null) {
+            return "";
+        }
+
+        String folded = DIACRITICS.matcher(Normalizer.normalize(name, Normalizer.Form.NFD)).replaceAll("");
+
+        StringBuilder builder = new StringBuilder(folded.length());
+
+        boolean separator = false;
+
+        for (int i = 0; i < folded.length(); i++) {
+            char c = Character.toLowerCase(folded.charAt(i));
+
+            if (Character.isLetterOrDigit(c)) {
+                if (separator && builder.length() > 0) {
+                    builder.append(' ');
+                }
+
+                separator = false;
+
+                fold(c, builder);
+            } else {
+                separator = true;
+            }
+        }
+
+        return builder.toString();
+    }
+
+    // Letters without a canonical decomposition
+    private static void fold(char c, StringBuilder builder) {
+        switch (c) {
+            case '\u0111': builder.append('d'); break;
+            case '\u00f8': builder.append('o'); break;
+            case '\u0142': builder.append('l'); break;
+            case '\u0131': builder.append('i'); break;
+            case '\u00df': builder.append("ss"); break;
+            case '\u00e6': builder.append("ae"); break;
+            case '\u0153': builder.append("oe"); break;
+            default: builder.append(c);
+        }
+    }
+
+    private void load() {
+        if (loaded) {
+            return;
+        }
+
+        lock.writeLock().lock();
+
+        try {
+            if (loaded) {
+                return;
+            }
+
+            long start = System.currentTimeMillis();
+
+            for (PlayerNameValue value : playerRepository.findPlayerNames()) {
+                Entry entry = entriesById.get(value.getPlayerId());
+
+                if (entry == null) {
+                    entry = new Entry(value.getPlayerId(), value.getTransferMarktId(),
+                            normalize(value.getFirstName()), normalize(value.getLastName()));
+
+                    add(entry);
+                }
+
+                if (value.getTeamId() != null) {
+                    entry.teamIds.add(value.getTeamId());
+                }
+            }
+
+            loaded = true;
+
+            logger.info("Player name index loaded, {} players in {} ms.",
+                    entriesById.size(), System.currentTimeMillis() - start);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void add(Entry entry) {
+        entriesById.put(entry.playerId, entry);
+
+        if (!entry.lastName.isEmpty()) {
+            entriesByLastName.computeIfAbsent(entry.lastName, key -> new ArrayList<>(1)).add(entry);
+        }
+    }
+
+    private void remove(Long playerId) {
+        Entry entry = entriesById.remove(playerId);
+
+        if (entry == null) {
+            return;
+        }
+
+        List<Entry> entries = entriesByLastName.get(entry.lastName);
+
+        if (entries != null) {
+            entries.remove(entry);
+
+            if (entries.isEmpty()) {
+                entriesByLastName.remove(entry.lastName);
+            }
+        }
+    }
+
+    private static class Entry {
+
+        private final Long playerId;
+
+        private final Long transferMarktId;
+
+        private final String firstName;
+
+        private final String lastName;
+
+        private final Set<Long> teamIds = new HashSet<>(2);
+
+        Entry(Long playerId, Long transferMarktId, String firstName, String lastName) {
+            this.playerId = playerId;
+            this.transferMarktId = transferMarktId;
+            this.firstName = firstName;
+            this.lastName = lastName;
+        }
+    }
+}
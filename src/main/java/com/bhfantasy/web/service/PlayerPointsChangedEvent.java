@@ -0,0 +1,68 @@
+package com.bhfantasy.web.service;
+
+import java.util.List;
+
+/**
+ * Published when scoring of a match adds, changes or removes player points. Only players whose points or match
+ * events differ from the stored ones are listed, a null value means the player had or has no points row.
+ */
+public class PlayerPointsChangedEvent {
+
+    private final Long matchId;
+
+    private final List<Change> changes;
+
+    private final boolean firstScoring;
+
+    public PlayerPointsChangedEvent(Long matchId, List<Change> changes, boolean firstScoring) {
+        this.matchId = matchId;
+        this.changes = changes;
+        this.firstScoring = firstScoring;
+    }
+
+    public Long getMatchId() {
+        return matchId;
+    }
+
+    public List<Change> getChanges() {
+        return changes;
+    }
+
+    /**
+     * True if the match was never scored before.
+     */
+    public boolean isFirstScoring() {
+        return firstScoring;
+    }
+
+    public static class Change {
+
+        private final Long playerId;
+
+        private final Integer previousPoints;
+
+        private final Integer points;
+
+        public Change(Long playerId, Integer previousPoints, Integer points) {
+            this.playerId = playerId;
+            this.previousPoints = previousPoints;
+            this.points = points;
+        }
+
+        public Long getPlayerId() {
+            return playerId;
+        }
+
+        public Integer getPreviousPoints() {
+            return previousPoints;
+        }
+
+        public Integer getPoints() {
+            return points;
+        }
+
+        public int getDelta() {
+            return (points != null ? points : 0) - (previousPoints != null ? previousPoints : 0);
+        }
+    }
+}
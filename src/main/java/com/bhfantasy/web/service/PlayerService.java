@@ -4,11 +4,11 @@ import com.bhfantasy.web.model.Team;
 import com.bhfantasy.web.model.players.Player;
 import com.bhfantasy.web.repository.PlayerRepository;
 import com.bhfantasy.web.repository.TeamRepository;
+import org.hibernate.Hibernate;
 import org.springframework.stereotype.Service;
 
 import javax.transaction.Transactional;
-import java.util.Iterator;
-import java.util.Optional;
+import java.util.*;
 import java.util.stream.Collectors;
 
 @Service
@@ -16,8 +16,15 @@ public class PlayerService {
 
     private final PlayerRepository playerRepository;
 
-    public PlayerService(PlayerRepository playerRepository, TeamRepository teamRepository) {
+    private final PlayerNameIndex playerNameIndex;
+
+    private final Optional<PostgresBulkWriter> bulkWriter;
+
+    public PlayerService(PlayerRepository playerRepository, TeamRepository teamRepository,
+                         PlayerNameIndex playerNameIndex, Optional<PostgresBulkWriter> bulkWriter) {
         this.playerRepository = playerRepository;
+        this.playerNameIndex = playerNameIndex;
+        this.bulkWriter = bulkWriter;
     }
 
     @Transactional
@@ -36,17 +43,15 @@ public class PlayerService {
         }
 
         if(!existingPlayerOptional.isPresent()) {
-            if (player.getFirstName() != null) {
-                Iterator<Player> iterable = playerRepository.findByFirstNameAndLastName(
-                        player.getFirstName(), player.getLastName()).iterator();
-
-                existingPlayer = iterable.hasNext() ? iterable.next() : null;
-            }
+            Optional<Long> candidateId = playerNameIndex.find(player.getFirstName(), player.getLastName(),
+                    team != null ? team.getId() : null, player.getTransferMarktId());
 
-            if (existingPlayer != null) {
-                Iterator<Player> iterable = playerRepository.findByLastName(player.getLastName()).iterator();
+            if (candidateId.isPresent()) {
+                existingPlayerOptional = playerRepository.findById(candidateId.get());
 
-                existingPlayer = iterable.hasNext() ? iterable.next() : null;
+                if (!existingPlayerOptional.isPresent()) {
+                    playerNameIndex.evict(candidateId.get());
+                }
             }
         }
 
@@ -112,16 +117,114 @@ public class PlayerService {
 
             if (updated) {
                 existingPlayer = playerRepository.save(existingPlayer);
+
+                playerNameIndex.put(existingPlayer);
             }
         } else {
             existingPlayer = playerRepository.save(player);
 
             existingPlayer.getTeams().add(team);
+
+            playerNameIndex.put(existingPlayer);
         }
 
         return existingPlayer;
     }
 
+    /**
+     * Same as calling processPlayer for each player, in one transaction. With the Postgres bulk writer,
+     * players with a transferMarktId are merged in one statement, only players that could match an existing
+     * player by name are processed one by one. Returns stored players in the order of the given players.
+     */
+    @Transactional
+    public List<Player> processPlayers(List<Player> players, Team team) {
+        if (!bulkWriter.isPresent()) {
+            return players.stream().map(player -> processPlayer(player, team)).collect(Collectors.toList());
+        }
+
+        Set<Long> transferMarktIds = players.stream()
+                .map(Player::getTransferMarktId)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+
+        Set<Long> existingTransferMarktIds = transferMarktIds.isEmpty() ? Collections.emptySet() :
+                playerRepository.findExistingTransferMarktIds(transferMarktIds);
+
+        List<Player> mergedPlayers = new ArrayList<>(players.size());
+
+        for (Player player : players) {
+            if (player.getTransferMarktId() != null && (existingTransferMarktIds.contains(player.getTransferMarktId())
+                    || !playerNameIndex.find(player.getFirstName(), player.getLastName(),
+                    team != null ? team.getId() : null, player.getTransferMarktId()).isPresent())) {
+                mergedPlayers.add(player);
+            }
+        }
+
+        Map<Long, Player> playersById = new HashMap<>();
+
+        List<Long> mergedIds = bulkWriter.get().upsertPlayers(mergedPlayers, team);
+
+        if (!mergedIds.isEmpty()) {
+            for (Player player : playerRepository.findPlayersWithTeamsByIds(mergedIds)) {
+                playersById.put(player.getId(), player);
+
+                playerNameIndex.put(player);
+            }
+        }
+
+        List<Player> result = new ArrayList<>(players.size());
+
+        int mergedIndex = 0;
+
+        for (Player player : players) {
+            if (mergedIndex < mergedPlayers.size() && mergedPlayers.get(mergedIndex) == player) {
+                result.add(playersById.get(mergedIds.get(mergedIndex++)));
+            } else {
+                result.add(processPlayer(player, team));
+            }
+        }
+
+        return result;
+    }
+
+    // Mirrors the checks of processPlayer, true means processPlayer wouldn't change existing player
+    public boolean isUpToDate(Player existingPlayer, Player player, Team team) {
+        if (player.getTransferMarktId() == null || !player.getTransferMarktId().equals(existingPlayer.getTransferMarktId())) {
+            return false;
+        }
+
+        if (player.getFirstName() != null && !player.getFirstName().equals(existingPlayer.getFirstName())) {
+            return false;
+        }
+
+        if (player.getLastName() != null && !player.getLastName().equals(existingPlayer.getLastName())) {
+            return false;
+        }
+
+        if (team != null && (!Hibernate.isInitialized(existingPlayer.getTeams()) ||
+                existingPlayer.getTeams().stream().noneMatch(t -> t.getId().equals(team.getId())))) {
+            return false;
+        }
+
+        if (player.getNumberoOnDress() != null && !player.getNumberoOnDress().equals(existingPlayer.getNumberoOnDress())) {
+            return false;
+        }
+
+        if (player.getBirthDate() != null && !player.getBirthDate().equals(existingPlayer.getBirthDate())) {
+            return false;
+        }
+
+        if (player.getMarketValueRaw() != null && !player.getMarketValueRaw().equals(existingPlayer.getMarketValueRaw())) {
+            return false;
+        }
+
+        if (player.getProfilePicture() != null && !player.getProfilePicture().equals(existingPlayer.getProfilePicture())) {
+            return false;
+        }
+
+        return !(player.getType() != null && player.getType().equals(existingPlayer.getType())
+                && player.getPosition() != null && !player.getPosition().equals(existingPlayer.getPosition()));
+    }
 
     public PlayerRepository getPlayerRepository() {
         return playerRepository;
@@ -0,0 +1,381 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.players.Defender;
+import com.bhfantasy.web.model.players.Goalkeaper;
+import com.bhfantasy.web.model.players.Middle;
+import com.bhfantasy.web.model.players.Player;
+import com.bhfantasy.web.model.players.Striker;
+
+import java.util.Arrays;
+
+/**
+ * Per-match points counters keyed by primitive player id.
+ *
+ * Players are stored densely in insertion order and found through an open-addressing table of entry indexes.
+ * Event counters of a player are packed into one long, minutes played, goals conceded and the lineup they
+ * belong to are kept next to them. Minutes and goals conceded add up over the intervals a player spends on
+ * the pitch. Once the arrays have grown to the size of a match, clearing and filling the accumulator doesn't
+ * allocate, so one instance is reused for every match a thread scores.
+ */
+public final class PointsAccumulator {
+
+    public static final int UNKNOWN = 0;
+
+    public static final int GOALKEEPER = 1;
+
+    public static final int DEFENDER = 2;
+
+    public static final int MIDDLE = 3;
+
+    public static final int STRIKER = 4;
+
+    // Counted events, each has an 8 bit field in the packed counters, nobody scores 256 goals in a match
+    public static final int GOAL = 0;
+
+    public static final int OWN_GOAL = 1;
+
+    public static final int ASSIST = 2;
+
+    public static final int SAVED_PENALTY = 3;
+
+    public static final int MISSED_PENALTY = 4;
+
+    public static final int COUNTED_EVENTS = 5;
+
+    public static final long YELLOW_CARD = 1L << 40;
+
+    public static final long RED_CARD = 1L << 41;
+
+    public static final long CLEAN_SHEET = 1L << 42;
+
+    // Minutes are counted up to full time, goals in stoppage time still count as conceded
+    public static final int FULL_TIME = 90;
+
+    private static final int COUNTER_MASK = 0xFF;
+
+    private long[] playerIds;
+
+    private byte[] types;
+
+    private long[] counters;
+
+    private int[] minutes;
+
+    private byte[] lineups;
+
+    // Minute + 1 the player came on, 0 while off the pitch
+    private int[] onPitchSince;
+
+    // Goals the lineup conceded before the player came on
+    private int[] concededBefore;
+
+    private int[] goalsConceded;
+
+    // Entry index + 1 per slot, 0 is an empty slot
+    private int[] table;
+
+    private int size;
+
+    // Sort keys of timeline events, scratch space of the calculator
+    private long[] timeline = new long[16];
+
+    private int timelineSize;
+
+    public PointsAccumulator() {
+        this(32);
+    }
+
+    public PointsAccumulator(int expectedPlayers) {
+        int capacity = Math.max(8, Integer.highestOneBit(Math.max(expectedPlayers, 1) - 1) << 1);
+
+        playerIds = new long[capacity];
+        types = new byte[capacity];
+        counters = new long[capacity];
+        minutes = new int[capacity];
+        lineups = new byte[capacity];
+        onPitchSince = new int[capacity];
+        concededBefore = new int[capacity];
+        goalsConceded = new int[capacity];
+        table = new int[capacity * 2];
+    }
+
+    public static int typeOf(Class<? extends Player> playerType) {
+        if (playerType == Goalkeaper.class) {
+            return GOALKEEPER;
+        } else if (playerType == Defender.class) {
+            return DEFENDER;
+        } else if (playerType == Middle.class) {
+            return MIDDLE;
+        } else if (playerType == Striker.class) {
+            return STRIKER;
+        }
+
+        return UNKNOWN;
+    }
+
+    public void clear() {
+        if (size > 0) {
+            Arrays.fill(table, 0);
+            Arrays.fill(counters, 0, size, 0L);
+            Arrays.fill(minutes, 0, size, 0);
+            Arrays.fill(lineups, 0, size, (byte) 0);
+            Arrays.fill(onPitchSince, 0, size, 0);
+            Arrays.fill(goalsConceded, 0, size, 0);
+
+            size = 0;
+        }
+
+        timelineSize = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns entry of the player, adding it if the player has no entry yet.
+     */
+    public int entry(long playerId, int type) {
+        int mask = table.length - 1;
+
+        int slot = hash(playerId) & mask;
+
+        while (true) {
+            int index = table[slot] - 1;
+
+            if (index < 0) {
+                break;
+            }
+
+            if (playerIds[index] == playerId) {
+                return index;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+
+        if (size == playerIds.length) {
+            grow();
+
+            return entry(playerId, type);
+        }
+
+        int index = size++;
+
+        playerIds[index] = playerId;
+        types[index] = (byte) type;
+        table[slot] = index + 1;
+
+        return index;
+    }
+
+    /**
+     * Returns entry of the player, or -1 if the player has no entry.
+     */
+    public int find(long playerId) {
+        int mask = table.length - 1;
+
+        int slot = hash(playerId) & mask;
+
+        while (true) {
+            int index = table[slot] - 1;
+
+            if (index < 0) {
+                return -1;
+            }
+
+            if (playerIds[index] == playerId) {
+                return index;
+            }
+
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public long getPlayerId(int entry) {
+        return playerIds[entry];
+    }
+
+    public int getType(int entry) {
+        return types[entry];
+    }
+
+    public void addGoal(int entry) {
+        counters[entry] += 1L << (GOAL * 8);
+    }
+
+    public void addOwnGoal(int entry) {
+        counters[entry] += 1L << (OWN_GOAL * 8);
+    }
+
+    public void addAssist(int entry) {
+        counters[entry] += 1L << (ASSIST * 8);
+    }
+
+    public void addSavedPenalty(int entry) {
+        counters[entry] += 1L << (SAVED_PENALTY * 8);
+    }
+
+    public void addMissedPenalty(int entry) {
+        counters[entry] += 1L << (MISSED_PENALTY * 8);
+    }
+
+    public void addYellowCard(int entry) {
+        counters[entry] |= YELLOW_CARD;
+    }
+
+    public void addRedCard(int entry) {
+        counters[entry] |= RED_CARD;
+    }
+
+    public void addCleanSheet(int entry) {
+        counters[entry] |= CLEAN_SHEET;
+    }
+
+    public int getGoals(int entry) {
+        return count(counters[entry], GOAL);
+    }
+
+    public int getOwnGoals(int entry) {
+        return count(counters[entry], OWN_GOAL);
+    }
+
+    public int getAssists(int entry) {
+        return count(counters[entry], ASSIST);
+    }
+
+    public int getSavedPenalties(int entry) {
+        return count(counters[entry], SAVED_PENALTY);
+    }
+
+    public int getMissedPenalties(int entry) {
+        return count(counters[entry], MISSED_PENALTY);
+    }
+
+    public boolean hasYellowCard(int entry) {
+        return (counters[entry] & YELLOW_CARD) != 0;
+    }
+
+    public boolean hasRedCard(int entry) {
+        return (counters[entry] & RED_CARD) != 0;
+    }
+
+    public boolean hasCleanSheet(int entry) {
+        return (counters[entry] & CLEAN_SHEET) != 0;
+    }
+
+    public void setLineup(int entry, int lineup) {
+        lineups[entry] = (byte) lineup;
+    }
+
+    public int getLineup(int entry) {
+        return lineups[entry];
+    }
+
+    /**
+     * Puts the player on the pitch at the minute, goals conceded is the count the lineup conceded so far.
+     */
+    public void comeOn(int entry, int minute, int goalsConceded) {
+        onPitchSince[entry] = minute + 1;
+        concededBefore[entry] = goalsConceded;
+    }
+
+    /**
+     * Takes the player off the pitch at the minute, adding minutes and goals conceded since the player came on.
+     * Returns false if the player is not on the pitch.
+     */
+    public boolean goOff(int entry, int minute, int goalsConceded) {
+        int since = onPitchSince[entry] - 1;
+
+        if (since < 0) {
+            return false;
+        }
+
+        minutes[entry] += Math.max(0, Math.min(minute, FULL_TIME) - Math.min(since, FULL_TIME));
+        this.goalsConceded[entry] += goalsConceded - concededBefore[entry];
+
+        onPitchSince[entry] = 0;
+
+        return true;
+    }
+
+    public boolean isOnPitch(int entry) {
+        return onPitchSince[entry] != 0;
+    }
+
+    public int getMinutes(int entry) {
+        return minutes[entry];
+    }
+
+    public int getGoalsConceded(int entry) {
+        return goalsConceded[entry];
+    }
+
+    public void clearTimeline() {
+        timelineSize = 0;
+    }
+
+    public void addToTimeline(long key) {
+        if (timelineSize == timeline.length) {
+            timeline = Arrays.copyOf(timeline, timelineSize * 2);
+        }
+
+        timeline[timelineSize++] = key;
+    }
+
+    public void sortTimeline() {
+        Arrays.sort(timeline, 0, timelineSize);
+    }
+
+    public int getTimelineSize() {
+        return timelineSize;
+    }
+
+    public long getTimelineKey(int index) {
+        return timeline[index];
+    }
+
+    /**
+     * Returns all counters and flags of the player packed into one long.
+     */
+    public long getCounters(int entry) {
+        return counters[entry];
+    }
+
+    /**
+     * Returns count of the event in packed counters.
+     */
+    public static int count(long counters, int event) {
+        return (int) (counters >>> (event * 8)) & COUNTER_MASK;
+    }
+
+    private void grow() {
+        int capacity = playerIds.length * 2;
+
+        playerIds = Arrays.copyOf(playerIds, capacity);
+        types = Arrays.copyOf(types, capacity);
+        counters = Arrays.copyOf(counters, capacity);
+        minutes = Arrays.copyOf(minutes, capacity);
+        lineups = Arrays.copyOf(lineups, capacity);
+        onPitchSince = Arrays.copyOf(onPitchSince, capacity);
+        concededBefore = Arrays.copyOf(concededBefore, capacity);
+        goalsConceded = Arrays.copyOf(goalsConceded, capacity);
+        table = new int[capacity * 2];
+
+        int mask = table.length - 1;
+
+        for (int index = 0; index < size; index++) {
+            int slot = hash(playerIds[index]) & mask;
+
+            while (table[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+
+            table[slot] = index + 1;
+        }
+    }
+
+    private static int hash(long playerId) {
+        return (int) ((playerId * 0x9E3779B97F4A7C15L) >>> 32);
+    }
+}
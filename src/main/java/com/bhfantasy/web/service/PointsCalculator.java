@@ -0,0 +1,329 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.Card;
+import com.bhfantasy.web.model.custom.MatchSnapshot;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.List;
+
+/**
+ * Calculates player points of a match from its snapshot. It has no state and doesn't touch the database,
+ * so matches can be calculated in parallel. Each thread reuses its own {@link PointsAccumulator}.
+ *
+ * Minutes and clean sheets come from a timeline of each lineup: substitutions and conceded goals sorted by
+ * minute and swept once, so every player is charged only the goals conceded while on the pitch.
+ */
+public final class PointsCalculator {
+
+    private static Logger logger = LoggerFactory.getLogger(PointsCalculator.class);
+
+    private static final ThreadLocal<PointsAccumulator> accumulators = ThreadLocal.withInitial(PointsAccumulator::new);
+
+    // Timeline keys are the minute, then goals before substitutions of the same minute, then the event index
+    private static final int MINUTE_SHIFT = 20;
+
+    private static final long SUBSTITUTION = 1L << 19;
+
+    private static final long INDEX_MASK = SUBSTITUTION - 1;
+
+    // Goals without minute are conceded by the players on the pitch at the end
+    private static final int NO_MINUTE = 999;
+
+    private static final int CLEAN_SHEET_MINUTES = 60;
+
+    private PointsCalculator() {
+    }
+
+    public static Result calculate(MatchSnapshot match) {
+        return calculate(match, accumulators.get());
+    }
+
+    public static Result calculate(MatchSnapshot match, PointsAccumulator points) {
+        return calculate(match, points, PointsAccumulator.FULL_TIME);
+    }
+
+    /**
+     * Calculates points of a match in progress, players still on the pitch are counted up to the given minute
+     * or the last recorded event, whichever is later.
+     */
+    public static Result calculateLive(MatchSnapshot match, int minute) {
+        return calculate(match, accumulators.get(), Math.min(Math.max(minute, 0), PointsAccumulator.FULL_TIME));
+    }
+
+    private static Result calculate(MatchSnapshot match, PointsAccumulator points, int endMinute) {
+        points.clear();
+
+        for(MatchSnapshot.GoalSnapshot goal : match.getGoals()) {
+            if(goal.getPlayer() != null) {
+                if (!goal.isOwnGoal()) {
+                    points.addGoal(entry(points, goal.getPlayer()));
+                } else {
+                    points.addOwnGoal(entry(points, goal.getPlayer()));
+                }
+            }
+
+            if(goal.getAssist() != null) {
+                points.addAssist(entry(points, goal.getAssist()));
+            }
+        }
+
+        for(MatchSnapshot.CardSnapshot card : match.getCards()) {
+            int entry = entry(points, card.getPlayer());
+
+            if(card.getCardType() == Card.CardType.RED) {
+                points.addRedCard(entry);
+            } else if(card.getCardType() == Card.CardType.YELLOW) {
+                points.addYellowCard(entry);
+            }
+        }
+
+        for(MatchSnapshot.MissedPenaltySnapshot missedPenalty : match.getMissedPenalties()) {
+            if(missedPenalty.getSavedBy() != null) {
+                points.addSavedPenalty(entry(points, missedPenalty.getSavedBy()));
+            }
+
+            if(missedPenalty.getPlayer() != null) {
+                points.addMissedPenalty(entry(points, missedPenalty.getPlayer()));
+            }
+        }
+
+        addLineup(points, match.getLineup1(), 1);
+        addLineup(points, match.getLineup2(), 2);
+
+        boolean reviewRequired = !addTimeline(points, match, match.getLineup1(), 1, endMinute);
+
+        reviewRequired |= !addTimeline(points, match, match.getLineup2(), 2, endMinute);
+
+        int size = points.size();
+
+        long[] playerIds = new long[size];
+
+        long[] counters = new long[size];
+
+        int[] minutes = new int[size];
+
+        int[] totalPoints = new int[size];
+
+        for(int entry = 0; entry < size; entry++) {
+            playerIds[entry] = points.getPlayerId(entry);
+            counters[entry] = points.getCounters(entry);
+            minutes[entry] = points.getMinutes(entry);
+            totalPoints[entry] = CompiledScoringRules.DEFAULT.evaluate(points, entry);
+        }
+
+        return new Result(match.getMatchId(), playerIds, counters, minutes, totalPoints, reviewRequired);
+    }
+
+    // Players who can appear in the lineup, known before the timeline so goals can be assigned to a side
+    private static void addLineup(PointsAccumulator points, MatchSnapshot.LineupSnapshot lineup, int lineupNumber) {
+        if(lineup == null) {
+            return;
+        }
+
+        for(MatchSnapshot.PlayerSnapshot player : lineup.getStartingPlayers()) {
+            points.setLineup(entry(points, player), lineupNumber);
+        }
+
+        for(MatchSnapshot.SubstitutionSnapshot substitution : lineup.getSubstitutions()) {
+            if(substitution.getPlayer() != null) {
+                points.setLineup(entry(points, substitution.getPlayer()), lineupNumber);
+            }
+        }
+    }
+
+    // Returns false if substitutions of the lineup don't match its players or a goal can't be assigned to a side
+    private static boolean addTimeline(PointsAccumulator points, MatchSnapshot match,
+                                       MatchSnapshot.LineupSnapshot lineup, int lineupNumber, int endMinute) {
+        if(lineup == null) {
+            return true;
+        }
+
+        boolean valid = true;
+
+        points.clearTimeline();
+
+        List<MatchSnapshot.GoalSnapshot> goals = match.getGoals();
+
+        for(int i = 0; i < goals.size(); i++) {
+            int concedingLineup = getConcedingLineup(points, goals.get(i));
+
+            // Goal of an unknown side is conceded by both, nobody gets a clean sheet they may not have kept
+            if(concedingLineup == lineupNumber || concedingLineup == 0) {
+                Integer minute = goals.get(i).getMinute();
+
+                points.addToTimeline(key(minute != null ? minute : NO_MINUTE, 0, i));
+
+                valid &= concedingLineup != 0;
+            }
+        }
+
+        List<MatchSnapshot.SubstitutionSnapshot> substitutions = lineup.getSubstitutions();
+
+        for(int i = 0; i < substitutions.size(); i++) {
+            if(substitutions.get(i).getMinute() == null) {
+                valid = false;
+
+                logger.error("Substitution of player {} has no minute.",
+                        substitutions.get(i).getSubstitutePlayer().getId());
+                continue;
+            }
+
+            points.addToTimeline(key(substitutions.get(i).getMinute(), SUBSTITUTION, i));
+        }
+
+        points.sortTimeline();
+
+        for(MatchSnapshot.PlayerSnapshot player : lineup.getStartingPlayers()) {
+            points.comeOn(entry(points, player), 0, 0);
+        }
+
+        int goalsConceded = 0;
+
+        int lastMinute = endMinute;
+
+        for(int i = 0; i < points.getTimelineSize(); i++) {
+            long key = points.getTimelineKey(i);
+
+            if((int) (key >>> MINUTE_SHIFT) != NO_MINUTE) {
+                lastMinute = Math.max(lastMinute, (int) (key >>> MINUTE_SHIFT));
+            }
+
+            if((key & SUBSTITUTION) == 0) {
+                goalsConceded++;
+                continue;
+            }
+
+            MatchSnapshot.SubstitutionSnapshot substitution = substitutions.get((int) (key & INDEX_MASK));
+
+            int minute = (int) (key >>> MINUTE_SHIFT);
+
+            int entry = points.find(substitution.getSubstitutePlayer().getId());
+
+            if(entry < 0 || points.getLineup(entry) != lineupNumber || !points.goOff(entry, minute, goalsConceded)) {
+                valid = false;
+
+                logger.error(
+                        "Error while processing minutes for player {}", substitution.getSubstitutePlayer().getId());
+            }
+
+            if(substitution.getPlayer() != null) {
+                points.comeOn(entry(points, substitution.getPlayer()), minute, goalsConceded);
+            }
+        }
+
+        Integer score = lineupNumber == 1 ? match.getScore2() : match.getScore1();
+
+        // Goals missing from the events could have been conceded by anyone who played
+        boolean goalsMissing = score != null && score > goalsConceded;
+
+        if(goalsMissing) {
+            valid = false;
+
+            logger.error("Match {} has {} goals conceded by lineup {} without events.",
+                    match.getMatchId(), score - goalsConceded, lineupNumber);
+        }
+
+        for(int entry = 0; entry < points.size(); entry++) {
+            if(points.getLineup(entry) != lineupNumber) {
+                continue;
+            }
+
+            points.goOff(entry, lastMinute, goalsConceded);
+
+            // Scoring rules decide which positions a clean sheet is worth points to
+            if(!goalsMissing && points.getMinutes(entry) >= CLEAN_SHEET_MINUTES
+                    && points.getGoalsConceded(entry) == 0) {
+                points.addCleanSheet(entry);
+            }
+        }
+
+        return valid;
+    }
+
+    // Lineup that conceded the goal, 0 if it's not known
+    private static int getConcedingLineup(PointsAccumulator points, MatchSnapshot.GoalSnapshot goal) {
+        if(goal.getTeam() != 0) {
+            return 3 - goal.getTeam();
+        }
+
+        int entry = goal.getPlayer() != null ? points.find(goal.getPlayer().getId()) : -1;
+
+        int lineup = entry >= 0 ? points.getLineup(entry) : 0;
+
+        if(lineup == 0) {
+            return 0;
+        }
+
+        return goal.isOwnGoal() ? lineup : 3 - lineup;
+    }
+
+    private static long key(int minute, long type, int index) {
+        return (long) Math.max(minute, 0) << MINUTE_SHIFT | type | index;
+    }
+
+    private static int entry(PointsAccumulator points, MatchSnapshot.PlayerSnapshot player) {
+        return points.entry(player.getId(), PointsAccumulator.typeOf(player.getType()));
+    }
+
+    public static class Result {
+
+        private final Long matchId;
+
+        private final long[] playerIds;
+
+        private final long[] counters;
+
+        private final int[] minutes;
+
+        private final int[] points;
+
+        private final boolean reviewRequired;
+
+        Result(Long matchId, long[] playerIds, long[] counters, int[] minutes, int[] points, boolean reviewRequired) {
+            this.matchId = matchId;
+            this.playerIds = playerIds;
+            this.counters = counters;
+            this.minutes = minutes;
+            this.points = points;
+            this.reviewRequired = reviewRequired;
+        }
+
+        public Long getMatchId() {
+            return matchId;
+        }
+
+        public int size() {
+            return playerIds.length;
+        }
+
+        public long getPlayerId(int index) {
+            return playerIds[index];
+        }
+
+        /**
+         * Packed event counters of the player, see {@link PointsAccumulator}.
+         */
+        public long getCounters(int index) {
+            return counters[index];
+        }
+
+        public int getMinutes(int index) {
+            return minutes[index];
+        }
+
+        /**
+         * Points by the default rules.
+         */
+        public int getPoints(int index) {
+            return points[index];
+        }
+
+        /**
+         * True if substitutions don't match the lineup, points of the match should be checked manually.
+         */
+        public boolean isReviewRequired() {
+            return reviewRequired;
+        }
+    }
+}
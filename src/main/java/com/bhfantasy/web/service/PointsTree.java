@@ -0,0 +1,138 @@
+package com.bhfantasy.web.service;
+
+/**
+ * Number of teams per points total, one bucket per total, in a Fenwick tree. The number of teams ranked above
+ * a total is a prefix sum, so ranks are found and updated in logarithmic time without ordering the teams.
+ * Buckets cover a range of totals that grows when a total falls outside of it.
+ */
+final class PointsTree {
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    // Totals of the first bucket, seasons start at zero and few teams go much below it
+    private int base;
+
+    private int[] counts;
+
+    // Fenwick tree over counts, node i is at index i - 1
+    private int[] tree;
+
+    private int size;
+
+    PointsTree() {
+        this.base = -INITIAL_CAPACITY / 8;
+        this.counts = new int[INITIAL_CAPACITY];
+        this.tree = new int[INITIAL_CAPACITY];
+    }
+
+    private PointsTree(PointsTree source) {
+        this.base = source.base;
+        this.counts = source.counts.clone();
+        this.tree = source.tree.clone();
+        this.size = source.size;
+    }
+
+    PointsTree copy() {
+        return new PointsTree(this);
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(int points) {
+        update(points, 1);
+    }
+
+    void remove(int points) {
+        update(points, -1);
+    }
+
+    int count(int points) {
+        return points >= base && points - base < counts.length ? counts[points - base] : 0;
+    }
+
+    int countAbove(int points) {
+        return size - countAtMost(points);
+    }
+
+    /**
+     * Orders teams by points descending and by index within equal points, with a counting sort over the
+     * buckets. Points must be the totals this tree counts.
+     */
+    int[] rankOrder(int[] points) {
+        int[] next = new int[counts.length];
+
+        int position = 0;
+
+        for (int bucket = counts.length - 1; bucket >= 0; bucket--) {
+            next[bucket] = position;
+            position += counts[bucket];
+        }
+
+        int[] order = new int[points.length];
+
+        for (int index = 0; index < points.length; index++) {
+            order[next[points[index] - base]++] = index;
+        }
+
+        return order;
+    }
+
+    private int countAtMost(int points) {
+        if (points < base) {
+            return 0;
+        }
+
+        int sum = 0;
+
+        for (int node = Math.min(points - base + 1, counts.length); node > 0; node -= node & -node) {
+            sum += tree[node - 1];
+        }
+
+        return sum;
+    }
+
+    private void update(int points, int delta) {
+        if (points < base || points - base >= counts.length) {
+            grow(points);
+        }
+
+        counts[points - base] += delta;
+        size += delta;
+
+        for (int node = points - base + 1; node <= tree.length; node += node & -node) {
+            tree[node - 1] += delta;
+        }
+    }
+
+    // Doubles the buckets until the total fits, the room is added on the side the total is on
+    private void grow(int points) {
+        int low = Math.min(base, points);
+        int high = Math.max(base + counts.length, points + 1);
+
+        int capacity = counts.length;
+
+        while (capacity < high - low) {
+            capacity *= 2;
+        }
+
+        int newBase = points < base ? high - capacity : low;
+
+        int[] newCounts = new int[capacity];
+
+        System.arraycopy(counts, 0, newCounts, base - newBase, counts.length);
+
+        base = newBase;
+        counts = newCounts;
+        tree = counts.clone();
+
+        for (int node = 1; node <= tree.length; node++) {
+            int parent = node + (node & -node);
+
+            if (parent <= tree.length) {
+                tree[parent - 1] += tree[node - 1];
+            }
+        }
+    }
+}
@@ -0,0 +1,328 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.*;
+import com.bhfantasy.web.model.players.Player;
+import org.postgresql.PGConnection;
+import org.postgresql.copy.CopyManager;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceUtils;
+import org.springframework.stereotype.Component;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.UncheckedIOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.*;
+
+/**
+ * Postgres write path for match details and players.
+ *
+ * Rows are streamed with COPY instead of one insert per entity. Players go through a staging table and are
+ * merged with INSERT ... ON CONFLICT (transfer_markt_id), applying the same field rules as
+ * {@link PlayerService#processPlayer}. Events and lineups are copied straight into their tables, their ids are
+ * taken from the entity sequences in blocks, the same way Hibernate's pooled-lo optimizer does.
+ *
+ * Writes join the surrounding transaction. Other databases keep using the JPA repositories.
+ */
+@Component
+@Profile("postgres")
+@ConditionalOnProperty(value = "bhfantasy.postgres.bulk-writes", matchIfMissing = true)
+public class PostgresBulkWriter {
+
+    private static Logger logger = LoggerFactory.getLogger(PostgresBulkWriter.class);
+
+    // Same as allocationSize of the entity sequences, each nextval reserves a block of ids
+    private static final int ALLOCATION_SIZE = 50;
+
+    private static final String CREATE_PLAYER_STAGING = "create temp table if not exists player_staging (" +
+            "ord integer, dtype varchar(31), first_name varchar(255), last_name varchar(255), " +
+            "numbero_on_dress integer, market_value_raw varchar(255), profile_picture varchar(255), " +
+            "birth_date date, transfer_markt_id bigint, position varchar(255)) on commit delete rows";
+
+    private static final String COPY_PLAYER_STAGING = "copy player_staging (ord, dtype, first_name, last_name, " +
+            "numbero_on_dress, market_value_raw, profile_picture, birth_date, transfer_markt_id, position) " +
+            "from stdin with (format csv)";
+
+    // Last row wins when a player is listed twice, a row can't be updated twice by one statement
+    private static final String MERGE_PLAYERS = "insert into player as p (dtype, first_name, last_name, " +
+            "numbero_on_dress, market_value_raw, profile_picture, birth_date, transfer_markt_id, position) " +
+            "select distinct on (transfer_markt_id) dtype, first_name, last_name, numbero_on_dress, " +
+            "market_value_raw, profile_picture, birth_date, transfer_markt_id, position " +
+            "from player_staging order by transfer_markt_id, ord desc " +
+            "on conflict (transfer_markt_id) do update set " +
+            "first_name = coalesce(excluded.first_name, p.first_name), " +
+            "last_name = coalesce(excluded.last_name, p.last_name), " +
+            "numbero_on_dress = coalesce(excluded.numbero_on_dress, p.numbero_on_dress), " +
+            "market_value_raw = coalesce(excluded.market_value_raw, p.market_value_raw), " +
+            "profile_picture = coalesce(excluded.profile_picture, p.profile_picture), " +
+            "birth_date = coalesce(excluded.birth_date, p.birth_date), " +
+            "position = case when excluded.dtype = p.dtype and excluded.position is not null " +
+            "then excluded.position else p.position end " +
+            "returning id, transfer_markt_id";
+
+    private static final String INSERT_PLAYER_TEAMS = "insert into player_teams (players_id, teams_id) " +
+            "select distinct p.id, ? from player p join player_staging s on s.transfer_markt_id = p.transfer_markt_id " +
+            "where not exists (select 1 from player_teams t where t.players_id = p.id and t.teams_id = ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    private final DataSource dataSource;
+
+    public PostgresBulkWriter(JdbcTemplate jdbcTemplate, DataSource dataSource) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.dataSource = dataSource;
+
+        logger.info("Match details and players are written with COPY.");
+    }
+
+    /**
+     * Inserts or updates players by transferMarktId and adds them to the team. Every player must have a
+     * transferMarktId. Returns the ids of the stored players, in the order of the given players.
+     */
+    public List<Long> upsertPlayers(List<Player> players, Team team) {
+        if (players.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        CopyBuffer buffer = new CopyBuffer();
+
+        for (int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
+
+            if (player.getTransferMarktId() == null) {
+                throw new IllegalArgumentException("Player without transferMarktId can't be merged.");
+            }
+
+            buffer.row(i, player.getType(), player.getFirstName(), player.getLastName(), player.getNumberoOnDress(),
+                    player.getMarketValueRaw(), player.getProfilePicture(), player.getBirthDate(),
+                    player.getTransferMarktId(), player.getPosition());
+        }
+
+        jdbcTemplate.execute(CREATE_PLAYER_STAGING);
+        jdbcTemplate.update("delete from player_staging");
+
+        copy(COPY_PLAYER_STAGING, buffer);
+
+        Map<Long, Long> idsByTransferMarktId = new HashMap<>();
+
+        jdbcTemplate.query(MERGE_PLAYERS,
+                rs -> { idsByTransferMarktId.put(rs.getLong("transfer_markt_id"), rs.getLong("id")); });
+
+        if (team != null) {
+            jdbcTemplate.update(INSERT_PLAYER_TEAMS, team.getId(), team.getId());
+        }
+
+        List<Long> ids = new ArrayList<>(players.size());
+
+        for (Player player : players) {
+            ids.add(idsByTransferMarktId.get(player.getTransferMarktId()));
+        }
+
+        return ids;
+    }
+
+    /**
+     * Inserts the lineups with their players, then the events of the match. Lineups get their ids assigned,
+     * so the match can reference them. Players, teams and the match must be stored already.
+     */
+    public void writeMatchDetails(Lineup lineup1, Lineup lineup2, List<Substitution> substitutions,
+                                  List<Card> cards, List<MissedPenalty> missedPenalties, List<Goal> goals) {
+        List<Lineup> lineups = new ArrayList<>(2);
+
+        if (lineup1 != null) {
+            lineups.add(lineup1);
+        }
+
+        if (lineup2 != null) {
+            lineups.add(lineup2);
+        }
+
+        writeLineups(lineups);
+
+        if (!substitutions.isEmpty()) {
+            CopyBuffer buffer = new CopyBuffer();
+
+            Iterator<Long> ids = allocateIds("substitution_sequence", substitutions.size());
+
+            for (Substitution substitution : substitutions) {
+                buffer.row(ids.next(), id(substitution.getLineup()), id(substitution.getPlayer()),
+                        id(substitution.getSubstitutePlayer()), substitution.getMinute());
+            }
+
+            copy("copy substitution (id, lineup_id, player_id, substitute_player_id, minute) " +
+                    "from stdin with (format csv)", buffer);
+        }
+
+        if (!cards.isEmpty()) {
+            CopyBuffer buffer = new CopyBuffer();
+
+            Iterator<Long> ids = allocateIds("card_sequence", cards.size());
+
+            for (Card card : cards) {
+                buffer.row(ids.next(), card.getCardType(), id(card.getMatch()), id(card.getPlayer()), card.getMinute());
+            }
+
+            copy("copy card (id, card_type, match_id, player_id, minute) from stdin with (format csv)", buffer);
+        }
+
+        if (!missedPenalties.isEmpty()) {
+            CopyBuffer buffer = new CopyBuffer();
+
+            Iterator<Long> ids = allocateIds("missed_penalty_sequence", missedPenalties.size());
+
+            for (MissedPenalty missedPenalty : missedPenalties) {
+                buffer.row(ids.next(), id(missedPenalty.getMatch()), id(missedPenalty.getPlayer()),
+                        id(missedPenalty.getSavedBy()), missedPenalty.getMinute());
+            }
+
+            copy("copy missed_penalty (id, match_id, player_id, saved_by_id, minute) " +
+                    "from stdin with (format csv)", buffer);
+        }
+
+        if (!goals.isEmpty()) {
+            CopyBuffer buffer = new CopyBuffer();
+
+            Iterator<Long> ids = allocateIds("goal_sequence", goals.size());
+
+            for (Goal goal : goals) {
+                buffer.row(ids.next(), id(goal.getMatch()), id(goal.getTeam()), id(goal.getPlayer()),
+                        id(goal.getAssist()), goal.getMinute(), goal.getPenalty(), goal.getOwnGoal(),
+                        goal.getOwnAssist(), goal.getScore1(), goal.getScore2());
+            }
+
+            copy("copy goal (id, match_id, team_id, player_id, assist_id, minute, penalty, own_goal, own_assist, " +
+                    "score1, score2) from stdin with (format csv)", buffer);
+        }
+    }
+
+    private void writeLineups(List<Lineup> lineups) {
+        if (lineups.isEmpty()) {
+            return;
+        }
+
+        CopyBuffer lineupBuffer = new CopyBuffer();
+
+        CopyBuffer startingBuffer = new CopyBuffer();
+
+        CopyBuffer substitutesBuffer = new CopyBuffer();
+
+        Iterator<Long> ids = allocateIds("lineup_sequence", lineups.size());
+
+        for (Lineup lineup : lineups) {
+            lineup.setId(ids.next());
+
+            lineupBuffer.row(lineup.getId(), id(lineup.getCapiten()), id(lineup.getViceCapiten()), lineup.getFormation());
+
+            for (Player player : lineup.getStartingPlayers()) {
+                startingBuffer.row(lineup.getId(), player.getId());
+            }
+
+            for (Player player : lineup.getAvailableSubstitutions()) {
+                substitutesBuffer.row(lineup.getId(), player.getId());
+            }
+        }
+
+        copy("copy lineup (id, capiten_id, vice_capiten_id, formation) from stdin with (format csv)", lineupBuffer);
+
+        if (!startingBuffer.isEmpty()) {
+            copy("copy lineup_starting_players (lineup_id, starting_players_id) from stdin with (format csv)",
+                    startingBuffer);
+        }
+
+        if (!substitutesBuffer.isEmpty()) {
+            copy("copy lineup_available_substitutions (lineup_id, available_substitutions_id) " +
+                    "from stdin with (format csv)", substitutesBuffer);
+        }
+    }
+
+    private Iterator<Long> allocateIds(String sequence, int count) {
+        int blocks = (count + ALLOCATION_SIZE - 1) / ALLOCATION_SIZE;
+
+        List<Long> blockStarts = jdbcTemplate.queryForList(
+                "select nextval(cast(? as regclass)) from generate_series(1, ?)", Long.class, sequence, blocks);
+
+        List<Long> ids = new ArrayList<>(count);
+
+        for (Long blockStart : blockStarts) {
+            for (int i = 0; i < ALLOCATION_SIZE && ids.size() < count; i++) {
+                ids.add(blockStart + i);
+            }
+        }
+
+        return ids.iterator();
+    }
+
+    private void copy(String sql, CopyBuffer buffer) {
+        // Connection of the current transaction, so copied rows commit or roll back with the JPA writes
+        Connection connection = DataSourceUtils.getConnection(dataSource);
+
+        try {
+            CopyManager copyManager = connection.unwrap(PGConnection.class).getCopyAPI();
+
+            copyManager.copyIn(sql, new StringReader(buffer.toString()));
+        } catch (SQLException e) {
+            throw new IllegalStateException("Error while copying rows: ".concat(sql), e);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        } finally {
+            DataSourceUtils.releaseConnection(connection, dataSource);
+        }
+    }
+
+    private static Long id(Object entity) {
+        if (entity instanceof Player) {
+            return ((Player) entity).getId();
+        } else if (entity instanceof Team) {
+            return ((Team) entity).getId();
+        } else if (entity instanceof Match) {
+            return ((Match) entity).getId();
+        } else if (entity instanceof Lineup) {
+            return ((Lineup) entity).getId();
+        }
+
+        return null;
+    }
+
+    /**
+     * Rows in COPY csv format, null values are written as unquoted empty fields.
+     */
+    private static class CopyBuffer {
+
+        private final StringBuilder builder = new StringBuilder();
+
+        void row(Object... values) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    builder.append(',');
+                }
+
+                Object value = values[i];
+
+                if (value instanceof Enum) {
+                    builder.append(((Enum<?>) value).name());
+                } else if (value instanceof String) {
+                    builder.append('"').append(((String) value).replace("\"", "\"\"")).append('"');
+                } else if (value != null) {
+                    builder.append(value);
+                }
+            }
+
+            builder.append('\n');
+        }
+
+        boolean isEmpty() {
+            return builder.length() == 0;
+        }
+
+        @Override
+        public String toString() {
+            return builder.toString();
+        }
+    }
+}
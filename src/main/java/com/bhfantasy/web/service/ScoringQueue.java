@@ -0,0 +1,178 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.ScoringTask;
+import com.bhfantasy.web.repository.ScoringTaskRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.annotation.PreDestroy;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Collectors;
+
+/**
+ * Persistent queue of matches waiting to be scored.
+ *
+ * Matches are queued in the transaction that stores their details, and the queue is drained on a single
+ * background thread once that transaction commits. Queued matches survive restarts, the queue is drained on
+ * startup and periodically, which also retries failed matches up to the configured number of attempts.
+ */
+@Component
+public class ScoringQueue {
+
+    private static Logger logger = LoggerFactory.getLogger(ScoringQueue.class);
+
+    private final ScoringTaskRepository scoringTaskRepository;
+
+    private final MatchScoringService matchScoringService;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final int maxAttempts;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(
+            runnable -> new Thread(runnable, "scoring"));
+
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+
+    public ScoringQueue(ScoringTaskRepository scoringTaskRepository, MatchScoringService matchScoringService,
+                        ApplicationEventPublisher eventPublisher,
+                        @Value("${bhfantasy.scoring.max-attempts:3}") int maxAttempts) {
+        this.scoringTaskRepository = scoringTaskRepository;
+        this.matchScoringService = matchScoringService;
+        this.eventPublisher = eventPublisher;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues the match for scoring, as part of the current transaction.
+     */
+    @Transactional
+    public void enqueue(Long matchId) {
+        ScoringTask task = scoringTaskRepository.findByMatchId(matchId).orElseGet(() -> new ScoringTask(matchId));
+
+        task.setAttempts(0);
+        task.setError(null);
+        task.setUpdatedAt(LocalDateTime.now());
+
+        scoringTaskRepository.save(task);
+
+        eventPublisher.publishEvent(new MatchFinalizedEvent(matchId));
+    }
+
+    public long getPendingCount() {
+        return scoringTaskRepository.countByAttemptsLessThan(maxAttempts);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onMatchFinalized(MatchFinalizedEvent event) {
+        scheduleDrain();
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void resume() {
+        scheduleDrain();
+    }
+
+    @Scheduled(fixedDelayString = "${bhfantasy.scoring.poll-millis:300000}")
+    public void poll() {
+        scheduleDrain();
+    }
+
+    // Events of one ingestion run are coalesced, a single drain picks up everything committed before it starts
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            executor.execute(() -> {
+                drainScheduled.set(false);
+
+                drain();
+            });
+        }
+    }
+
+    private void drain() {
+        int scored = 0;
+
+        while (true) {
+            List<ScoringTask> tasks = scoringTaskRepository.findTop100ByAttemptsLessThanOrderById(maxAttempts);
+
+            if (tasks.isEmpty()) {
+                break;
+            }
+
+            try {
+                matchScoringService.scoreMatches(tasks.stream().map(ScoringTask::getMatchId).collect(Collectors.toList()));
+
+                tasks.forEach(this::delete);
+
+                scored += tasks.size();
+            } catch (Exception e) {
+                logger.warn("Scoring a batch of {} matches failed, scoring them one by one.", tasks.size(), e);
+
+                boolean failed = false;
+
+                // One broken match must not block the others, failed ones are retried with the next drain
+                for (ScoringTask task : tasks) {
+                    if (drainSingle(task)) {
+                        scored++;
+                    } else {
+                        failed = true;
+                    }
+                }
+
+                if (failed) {
+                    break;
+                }
+            }
+        }
+
+        if (scored > 0) {
+            logger.info("{} queued matches scored.", scored);
+        }
+    }
+
+    private boolean drainSingle(ScoringTask task) {
+        try {
+            matchScoringService.scoreMatches(Collections.singletonList(task.getMatchId()));
+
+            delete(task);
+
+            return true;
+        } catch (Exception e) {
+            logger.error("Error while scoring match {}.", task.getMatchId(), e);
+
+            String error = e.getMessage() != null && e.getMessage().length() > ScoringTask.ERROR_LENGTH
+                    ? e.getMessage().substring(0, ScoringTask.ERROR_LENGTH) : e.getMessage();
+
+            try {
+                scoringTaskRepository.recordFailure(task.getId(), task.getUpdatedAt(), error, LocalDateTime.now());
+            } catch (Exception recordException) {
+                logger.error("Error while recording failed scoring of match {}.", task.getMatchId(), recordException);
+            }
+
+            return false;
+        }
+    }
+
+    // Match queued again while it was scored keeps its task, e.g. a corrected report committed meanwhile
+    private void delete(ScoringTask task) {
+        scoringTaskRepository.deleteByIdAndUpdatedAt(task.getId(), task.getUpdatedAt());
+    }
+}
@@ -0,0 +1,17 @@
+package com.bhfantasy.web.service;
+
+/**
+ * Published when scoring rules of a fantasy league are changed.
+ */
+public class ScoringRulesChangedEvent {
+
+    private final Long fantasyLeagueId;
+
+    public ScoringRulesChangedEvent(Long fantasyLeagueId) {
+        this.fantasyLeagueId = fantasyLeagueId;
+    }
+
+    public Long getFantasyLeagueId() {
+        return fantasyLeagueId;
+    }
+}
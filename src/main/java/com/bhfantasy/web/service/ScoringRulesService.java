@@ -0,0 +1,99 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.exception.InvalidLeagueIdException;
+import com.bhfantasy.web.exception.InvalidScoringRulesException;
+import com.bhfantasy.web.model.league.FantasyLeague;
+import com.bhfantasy.web.model.league.ScoringRules;
+import com.bhfantasy.web.repository.FantasyLeagueRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import javax.transaction.Transactional;
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+
+/**
+ * Scoring rules of fantasy leagues. Rules are compiled once per league and cached until they change.
+ */
+@Service
+public class ScoringRulesService {
+
+    private static Logger logger = LoggerFactory.getLogger(ScoringRulesService.class);
+
+    private final FantasyLeagueRepository fantasyLeagueRepository;
+
+    private final Validator validator;
+
+    private final ApplicationEventPublisher eventPublisher;
+
+    private final Map<Long, CompiledScoringRules> compiledRules = new ConcurrentHashMap<>();
+
+    public ScoringRulesService(FantasyLeagueRepository fantasyLeagueRepository, Validator validator,
+                               ApplicationEventPublisher eventPublisher) {
+        this.fantasyLeagueRepository = fantasyLeagueRepository;
+        this.validator = validator;
+        this.eventPublisher = eventPublisher;
+    }
+
+    public CompiledScoringRules getCompiledRules(Long fantasyLeagueId) {
+        return compiledRules.computeIfAbsent(fantasyLeagueId, id -> CompiledScoringRules.compile(
+                fantasyLeagueRepository.findById(id).orElseThrow(InvalidLeagueIdException::new).getScoringRules()));
+    }
+
+    public ScoringRules getRules(Long fantasyLeagueId) {
+        ScoringRules rules = fantasyLeagueRepository.findById(fantasyLeagueId)
+                .orElseThrow(InvalidLeagueIdException::new).getScoringRules();
+
+        return rules != null ? rules : new ScoringRules();
+    }
+
+    /**
+     * Replaces scoring rules of the league, values that are not set use the default rules.
+     */
+    @Transactional
+    public ScoringRules updateRules(Long fantasyLeagueId, ScoringRules rules) {
+        FantasyLeague fantasyLeague = fantasyLeagueRepository.findById(fantasyLeagueId)
+                .orElseThrow(InvalidLeagueIdException::new);
+
+        validate(rules);
+
+        fantasyLeague.setScoringRules(rules);
+
+        fantasyLeagueRepository.save(fantasyLeague);
+
+        // Listeners in this transaction see the new rules, evicted again on commit for other threads
+        compiledRules.remove(fantasyLeagueId);
+
+        eventPublisher.publishEvent(new ScoringRulesChangedEvent(fantasyLeagueId));
+
+        logger.info("Scoring rules of fantasy league {} are changed.", fantasyLeagueId);
+
+        return rules;
+    }
+
+    public void validate(ScoringRules rules) {
+        Set<ConstraintViolation<ScoringRules>> violations = validator.validate(rules);
+
+        if (!violations.isEmpty()) {
+            throw new InvalidScoringRulesException(violations.stream()
+                    .map(violation -> violation.getPropertyPath() + " " + violation.getMessage())
+                    .collect(Collectors.joining(", ")));
+        }
+    }
+
+    // Before listeners that score with the new rules
+    @Order(Ordered.HIGHEST_PRECEDENCE)
+    @TransactionalEventListener
+    public void onScoringRulesChanged(ScoringRulesChangedEvent event) {
+        compiledRules.remove(event.getFantasyLeagueId());
+    }
+}
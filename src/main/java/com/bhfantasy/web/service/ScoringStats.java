@@ -0,0 +1,57 @@
+package com.bhfantasy.web.service;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ScoringStats {
+
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicLong chunks = new AtomicLong();
+
+    private final AtomicLong matches = new AtomicLong();
+
+    private final AtomicLong playerPoints = new AtomicLong();
+
+    public void recordChunk(int matchCount, int playerPointsCount) {
+        chunks.incrementAndGet();
+        matches.addAndGet(matchCount);
+        playerPoints.addAndGet(playerPointsCount);
+    }
+
+    public long getChunks() {
+        return chunks.get();
+    }
+
+    public long getMatches() {
+        return matches.get();
+    }
+
+    public long getPlayerPoints() {
+        return playerPoints.get();
+    }
+
+    public long getElapsedMillis() {
+        return System.currentTimeMillis() - startedAt;
+    }
+
+    public double getMatchesPerSecond() {
+        return perSecond(matches.get());
+    }
+
+    public double getPlayerPointsPerSecond() {
+        return perSecond(playerPoints.get());
+    }
+
+    private double perSecond(long count) {
+        long elapsed = Math.max(getElapsedMillis(), 1);
+
+        return count * 1000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d chunks, %d matches (%.2f/s), %d player points written (%.2f/s) in %d ms",
+                getChunks(), getMatches(), getMatchesPerSecond(), getPlayerPoints(), getPlayerPointsPerSecond(),
+                getElapsedMillis());
+    }
+}
@@ -0,0 +1,29 @@
+package com.bhfantasy.web.service;
+
+import java.util.Map;
+
+/**
+ * Published when round scores of fantasy teams change, with the new season total of every changed team.
+ */
+public class TeamScoresChangedEvent {
+
+    private final Long leagueId;
+
+    private final Map<Long, Integer> totals;
+
+    public TeamScoresChangedEvent(Long leagueId, Map<Long, Integer> totals) {
+        this.leagueId = leagueId;
+        this.totals = totals;
+    }
+
+    public Long getLeagueId() {
+        return leagueId;
+    }
+
+    /**
+     * Season points by team id.
+     */
+    public Map<Long, Integer> getTotals() {
+        return totals;
+    }
+}
@@ -1,27 +1,25 @@
 package com.bhfantasy.web.utils;
 
+import java.time.DayOfWeek;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.ZoneId;
-import java.util.Calendar;
+import java.time.temporal.TemporalAdjusters;
 
 public class CommonUtils {
+
+    /**
+     * Monday of the ISO week of the given time. Match times are stored as local times of the competition,
+     * so weeks follow the competition calendar regardless of the server's zone and locale.
+     */
+    public static LocalDate getWeekStart(LocalDateTime localDateTime) {
+        return localDateTime.toLocalDate().with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+    }
+
     public static boolean checkIfSameWeek(LocalDateTime localDateTime1, LocalDateTime localDateTime2) {
         if(localDateTime1 == null || localDateTime2 == null) {
             return false;
         }
 
-        Calendar cal1 = Calendar.getInstance();
-        cal1.setTimeInMillis(localDateTime1.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
-
-        int week = cal1.get(Calendar.WEEK_OF_YEAR);
-        int year = cal1.get(Calendar.YEAR);
-
-        Calendar cal2 = Calendar.getInstance();
-
-        cal2.setTimeInMillis(localDateTime2.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli());
-        int targetWeek = cal2.get(Calendar.WEEK_OF_YEAR);
-        int targetYear = cal2.get(Calendar.YEAR);
-
-        return week == targetWeek && year == targetYear;
+        return getWeekStart(localDateTime1).equals(getWeekStart(localDateTime2));
     }
 }
@@ -0,0 +1,64 @@
+package com.bhfantasy.web.workers;
+
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Serves pages from a directory of saved Transfermarkt HTML, so a season can be ingested without network.
+ *
+ * The url path maps to a file below the root directory with an ".html" suffix, for example
+ * /premier-league/gesamtspielplan/wettbewerb/GB1/saison_id/2018 is read from
+ * premier-league/gesamtspielplan/wettbewerb/GB1/saison_id/2018.html. Form data of POST requests is appended
+ * as path segments, so the tooltip of player 8198 is read from spieler/_profilTooltip/spieler_id/8198.html.
+ */
+public class FileSystemPageSource implements PageSource {
+
+    private final Path rootDirectory;
+
+    public FileSystemPageSource(Path rootDirectory) {
+        this.rootDirectory = rootDirectory.toAbsolutePath().normalize();
+    }
+
+    @Override
+    public Document get(String url, PageType pageType) throws IOException {
+        return read(url, resolve(URI.create(url).getPath()));
+    }
+
+    @Override
+    public Document post(String url, Map<String, String> data, PageType pageType) throws IOException {
+        StringBuilder path = new StringBuilder(URI.create(url).getPath());
+
+        new TreeMap<>(data).forEach((key, value) -> path.append('/').append(key).append('/').append(value));
+
+        return read(url, resolve(path.toString()));
+    }
+
+    public Path resolve(String urlPath) {
+        String relativePath = urlPath.startsWith("/") ? urlPath.substring(1) : urlPath;
+
+        Path file = rootDirectory.resolve(relativePath.concat(".html")).normalize();
+
+        if (!file.startsWith(rootDirectory)) {
+            throw new IllegalArgumentException("Path is outside of replay directory: ".concat(urlPath));
+        }
+
+        return file;
+    }
+
+    private Document read(String url, Path file) throws IOException {
+        if (!Files.isRegularFile(file)) {
+            throw new FileNotFoundException(file.toString());
+        }
+
+        return Jsoup.parse(file.toFile(), "UTF-8", url);
+    }
+}
@@ -0,0 +1,108 @@
+package com.bhfantasy.web.workers;
+
+import org.jsoup.Connection;
+import org.jsoup.HttpStatusException;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+@Component
+public class HttpPageSource implements PageSource {
+
+    private static final int TIMEOUT = 10000;
+
+    private final PageCache pageCache;
+
+    private final RateLimitedFetcher fetcher;
+
+    public HttpPageSource(PageCache pageCache, RateLimitedFetcher fetcher) {
+        this.pageCache = pageCache;
+        this.fetcher = fetcher;
+    }
+
+    @Override
+    public Document get(String url, PageType pageType) throws IOException {
+        Optional<PageCache.CachedPage> cachedPage = pageCache.lookup(url);
+
+        if (cachedPage.isPresent() && pageCache.isFresh(cachedPage.get(), pageType)) {
+            pageCache.recordHit(cachedPage.get());
+
+            return Jsoup.parse(cachedPage.get().getBody(), url);
+        }
+
+        Connection connection = Jsoup.connect(url).timeout(TIMEOUT).ignoreHttpErrors(true);
+
+        cachedPage.ifPresent(page -> {
+            if (page.getEtag() != null) {
+                connection.header("If-None-Match", page.getEtag());
+            }
+
+            if (page.getLastModified() != null) {
+                connection.header("If-Modified-Since", page.getLastModified());
+            }
+        });
+
+        long start = System.currentTimeMillis();
+
+        Connection.Response response = fetcher.execute(url, connection::execute);
+
+        if (response.statusCode() == 304 && cachedPage.isPresent()) {
+            pageCache.touch(cachedPage.get());
+            pageCache.recordRevalidation(cachedPage.get());
+
+            return Jsoup.parse(cachedPage.get().getBody(), url);
+        }
+
+        if (response.statusCode() != 200) {
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+        }
+
+        String body = response.body();
+
+        pageCache.recordDownload(body.length(), System.currentTimeMillis() - start);
+        pageCache.store(url, body, response.header("ETag"), response.header("Last-Modified"));
+
+        return Jsoup.parse(body, url);
+    }
+
+    @Override
+    public Document post(String url, Map<String, String> data, PageType pageType) throws IOException {
+        // POST responses carry no validators, so they're cached by url and form data until ttl expires
+        String key = url.concat("?").concat(new TreeMap<>(data).toString());
+
+        Optional<PageCache.CachedPage> cachedPage = pageCache.lookup(key);
+
+        if (cachedPage.isPresent() && pageCache.isFresh(cachedPage.get(), pageType)) {
+            pageCache.recordHit(cachedPage.get());
+
+            return Jsoup.parse(cachedPage.get().getBody(), url);
+        }
+
+        long start = System.currentTimeMillis();
+
+        Connection connection = Jsoup.connect(url).data(data).timeout(TIMEOUT)
+                .method(Connection.Method.POST).ignoreHttpErrors(true);
+
+        Connection.Response response = fetcher.execute(url, connection::execute);
+
+        if (response.statusCode() != 200) {
+            throw new HttpStatusException("HTTP error fetching URL", response.statusCode(), url);
+        }
+
+        String body = response.body();
+
+        pageCache.recordDownload(body.length(), System.currentTimeMillis() - start);
+        pageCache.store(key, body, null, null);
+
+        return Jsoup.parse(body, url);
+    }
+
+    public Optional<Document> getStored(String url) {
+        return pageCache.lookup(url).map(page -> Jsoup.parse(page.getBody(), url));
+    }
+}
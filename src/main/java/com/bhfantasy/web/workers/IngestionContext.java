@@ -0,0 +1,60 @@
+package com.bhfantasy.web.workers;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * State of one TransferMarktWorker run, shared by the fixture walk and the pipeline stages.
+ */
+public class IngestionContext {
+
+    private final PageSource pageSource;
+
+    private final ResolutionCache resolutionCache;
+
+    private final IngestionStats stats;
+
+    private final Set<Long> correctionMatchIds;
+
+    private MatchDetailsPipeline pipeline;
+
+    public IngestionContext(PageSource pageSource, ResolutionCache resolutionCache) {
+        this(pageSource, resolutionCache, new IngestionStats());
+    }
+
+    public IngestionContext(PageSource pageSource, ResolutionCache resolutionCache, IngestionStats stats) {
+        this(pageSource, resolutionCache, stats, Collections.emptySet());
+    }
+
+    public IngestionContext(PageSource pageSource, ResolutionCache resolutionCache, IngestionStats stats,
+                            Set<Long> correctionMatchIds) {
+        this.pageSource = pageSource;
+        this.resolutionCache = resolutionCache;
+        this.stats = stats;
+        this.correctionMatchIds = correctionMatchIds;
+    }
+
+    public PageSource getPageSource() {
+        return pageSource;
+    }
+
+    public ResolutionCache getResolutionCache() {
+        return resolutionCache;
+    }
+
+    public IngestionStats getStats() {
+        return stats;
+    }
+
+    public Set<Long> getCorrectionMatchIds() {
+        return correctionMatchIds;
+    }
+
+    public MatchDetailsPipeline getPipeline() {
+        return pipeline;
+    }
+
+    public void setPipeline(MatchDetailsPipeline pipeline) {
+        this.pipeline = pipeline;
+    }
+}
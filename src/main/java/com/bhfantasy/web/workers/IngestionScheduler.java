@@ -0,0 +1,298 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.LeagueSetup;
+import com.bhfantasy.web.model.Match;
+import com.bhfantasy.web.model.custom.ScheduledMatchPollValue;
+import com.bhfantasy.web.model.league.RegularLeague;
+import com.bhfantasy.web.repository.LeagueSetupRepository;
+import com.bhfantasy.web.repository.MatchRepository;
+import com.bhfantasy.web.service.JobService;
+import com.bhfantasy.web.service.MultiLeagueService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.stream.Collectors;
+
+/**
+ * Schedules ingestion runs around kickoff times instead of sweeping leagues periodically.
+ *
+ * Every unfinished match gets a poll due shortly after its expected full time. When polls come due,
+ * their leagues are scraped once and each match is checked again: finished matches are dropped,
+ * others are polled again with exponential backoff until they're finalized or given up on.
+ * Leagues without due polls are never touched. Finished matches are scored by the scoring queue.
+ * With live polling enabled, matches are also polled from kickoff until full time at a fixed interval,
+ * so events of matches in progress are stored for live points. Finished matches are polled at a slower
+ * interval during the correction window, so corrected reports reach scoring.
+ */
+@Component
+public class IngestionScheduler {
+
+    private static Logger logger = LoggerFactory.getLogger(IngestionScheduler.class);
+
+    public enum State {
+        IDLE,
+        RUNNING
+    }
+
+    private final LeagueSetupRepository leagueSetupRepository;
+
+    private final MatchRepository matchRepository;
+
+    private final TransferMarktWorker transferMarktWorker;
+
+    private final MultiLeagueService multiLeagueService;
+
+    private final JobService jobService;
+
+    private final Duration fullTimeDelay;
+
+    private final Duration initialBackoff;
+
+    private final Duration maxBackoff;
+
+    private final Duration giveUpAfter;
+
+    private final Duration horizon;
+
+    private final Duration livePollInterval;
+
+    private final Duration correctionWindow;
+
+    private final Duration correctionPollInterval;
+
+    private final PriorityQueue<ScheduledMatchPollValue> polls =
+            new PriorityQueue<>(Comparator.comparing(ScheduledMatchPollValue::getDueAt));
+
+    private final Map<Long, ScheduledMatchPollValue> pollsByMatch = new HashMap<>();
+
+    private final AtomicReference<State> state = new AtomicReference<>(State.IDLE);
+
+    public IngestionScheduler(LeagueSetupRepository leagueSetupRepository, MatchRepository matchRepository,
+                              TransferMarktWorker transferMarktWorker,
+                              MultiLeagueService multiLeagueService, JobService jobService,
+                              @Value("${bhfantasy.workers.scheduler.full-time-delay-minutes:115}") long fullTimeDelay,
+                              @Value("${bhfantasy.workers.scheduler.initial-backoff-minutes:10}") long initialBackoff,
+                              @Value("${bhfantasy.workers.scheduler.max-backoff-minutes:120}") long maxBackoff,
+                              @Value("${bhfantasy.workers.scheduler.give-up-hours:48}") long giveUpAfter,
+                              @Value("${bhfantasy.workers.scheduler.horizon-days:7}") long horizon,
+                              @Value("${bhfantasy.workers.live.poll-minutes:0}") long livePollInterval,
+                              @Value("${bhfantasy.workers.correction-days:0}") long correctionWindow,
+                              @Value("${bhfantasy.workers.scheduler.correction-poll-hours:24}")
+                                      long correctionPollInterval) {
+        this.leagueSetupRepository = leagueSetupRepository;
+        this.matchRepository = matchRepository;
+        this.transferMarktWorker = transferMarktWorker;
+        this.multiLeagueService = multiLeagueService;
+        this.jobService = jobService;
+        this.fullTimeDelay = Duration.ofMinutes(fullTimeDelay);
+        this.initialBackoff = Duration.ofMinutes(initialBackoff);
+        this.maxBackoff = Duration.ofMinutes(maxBackoff);
+        this.giveUpAfter = Duration.ofHours(giveUpAfter);
+        this.horizon = Duration.ofDays(horizon);
+        this.livePollInterval = Duration.ofMinutes(livePollInterval);
+        this.correctionWindow = Duration.ofDays(correctionWindow);
+        this.correctionPollInterval = Duration.ofHours(correctionPollInterval);
+    }
+
+    public State getState() {
+        return state.get();
+    }
+
+    public synchronized List<ScheduledMatchPollValue> getScheduledPolls() {
+        List<ScheduledMatchPollValue> scheduledPolls = new ArrayList<>(polls);
+
+        scheduledPolls.sort(polls.comparator());
+
+        return scheduledPolls;
+    }
+
+    /**
+     * Picks up unfinished matches from the database, e.g. fixtures added by the last run or by an admin,
+     * and finished matches that may still be corrected, e.g. after a restart. It's two queries at most,
+     * no league is scraped here.
+     */
+    @Scheduled(fixedDelayString = "${bhfantasy.workers.scheduler.refresh-millis:3600000}")
+    public void refresh() {
+        LocalDateTime now = LocalDateTime.now();
+
+        List<ScheduledMatchPollValue> unfinishedMatches = leagueSetupRepository.findUnfinishedMatchesBetween(
+                now.minus(giveUpAfter), now.plus(horizon));
+
+        List<ScheduledMatchPollValue> finishedMatches = correctionWindow.isZero() ? Collections.emptyList()
+                : leagueSetupRepository.findFinishedMatchesBetween(now.minus(correctionWindow), now);
+
+        int added = 0;
+
+        synchronized (this) {
+            for (ScheduledMatchPollValue poll : unfinishedMatches) {
+                if (!pollsByMatch.containsKey(poll.getMatchId())) {
+                    poll.setDueAt(max(getFirstPoll(poll.getKickoff()), now));
+
+                    schedule(poll);
+
+                    added++;
+                }
+            }
+
+            for (ScheduledMatchPollValue poll : finishedMatches) {
+                LocalDateTime correctionPoll = now.plus(correctionPollInterval);
+
+                if (!pollsByMatch.containsKey(poll.getMatchId())
+                        && correctionPoll.isBefore(poll.getKickoff().plus(correctionWindow))) {
+                    poll.setDueAt(correctionPoll);
+
+                    schedule(poll);
+
+                    added++;
+                }
+            }
+        }
+
+        logger.info("Ingestion schedule refreshed, {} polls added, {} scheduled.", added, polls.size());
+    }
+
+    @Scheduled(fixedDelayString = "${bhfantasy.workers.scheduler.tick-millis:60000}")
+    public void tick() {
+        if (!state.compareAndSet(State.IDLE, State.RUNNING)) {
+            return;
+        }
+
+        try {
+            List<ScheduledMatchPollValue> duePolls = takeDuePolls(LocalDateTime.now());
+
+            if (duePolls.isEmpty()) {
+                return;
+            }
+
+            Map<Long, List<ScheduledMatchPollValue>> pollsBySetup = new LinkedHashMap<>();
+
+            duePolls.forEach(poll ->
+                    pollsBySetup.computeIfAbsent(poll.getLeagueSetupId(), id -> new ArrayList<>()).add(poll));
+
+            pollsBySetup.forEach(this::poll);
+        } finally {
+            state.set(State.IDLE);
+        }
+    }
+
+    private void poll(Long leagueSetupId, List<ScheduledMatchPollValue> duePolls) {
+        Optional<LeagueSetup> optionalLeagueSetup = leagueSetupRepository.findById(leagueSetupId);
+
+        if (!optionalLeagueSetup.isPresent() || optionalLeagueSetup.get().getTransfermarktUrl() == null) {
+            return;
+        }
+
+        LeagueSetup leagueSetup = optionalLeagueSetup.get();
+
+        if (jobService.isActive(leagueSetupId)) {
+            // Admin job is already processing this league, its results are checked on the next poll
+            logger.info("Skipping poll of {}, it's processed by an admin job.", leagueSetup.getName());
+        } else {
+            logger.info("Polling {} for {} matches.", leagueSetup.getName(), duePolls.size());
+
+            try {
+                // Finished matches among the due ones get their reports fetched again for corrections
+                Set<Long> correctionMatchIds = duePolls.stream()
+                        .map(ScheduledMatchPollValue::getMatchId)
+                        .collect(Collectors.toSet());
+
+                RegularLeague league = transferMarktWorker.process(
+                        leagueSetup.getTransfermarktUrl(), correctionMatchIds);
+
+                multiLeagueService.updateParentRounds(league.getId());
+            } catch (Exception e) {
+                logger.error("Error while polling {}.", leagueSetup.getName(), e);
+            }
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+
+        for (ScheduledMatchPollValue poll : duePolls) {
+            Optional<Match> optionalMatch = matchRepository.findById(poll.getMatchId());
+
+            if (!optionalMatch.isPresent()) {
+                continue;
+            }
+
+            Match match = optionalMatch.get();
+
+            if (match.getScore1() != null && match.getLineup1() != null) {
+                // Finished, the run re-fetches its report while it may still be corrected
+                LocalDateTime correctionPoll = now.plus(correctionPollInterval);
+
+                if (!correctionWindow.isZero() && match.getDateTime() != null
+                        && correctionPoll.isBefore(match.getDateTime().plus(correctionWindow))) {
+                    poll.setDueAt(correctionPoll);
+
+                    synchronized (this) {
+                        schedule(poll);
+                    }
+                }
+
+                continue;
+            }
+
+            if (match.getDateTime() == null || now.isAfter(match.getDateTime().plus(giveUpAfter))) {
+                logger.warn("Match {} is still not finalized, giving up.", match.getId());
+
+                continue;
+            }
+
+            // Kickoff could have been moved, e.g. for postponed matches
+            poll.setKickoff(match.getDateTime());
+
+            if (!livePollInterval.isZero() && now.isBefore(match.getDateTime().plus(fullTimeDelay))) {
+                // Match is in progress, attempts count only from full time
+                poll.setDueAt(max(match.getDateTime(), now.plus(livePollInterval)));
+            } else {
+                poll.setAttempt(poll.getAttempt() + 1);
+                poll.setDueAt(max(match.getDateTime().plus(fullTimeDelay), now.plus(backoff(poll.getAttempt()))));
+            }
+
+            synchronized (this) {
+                schedule(poll);
+            }
+        }
+    }
+
+    private synchronized List<ScheduledMatchPollValue> takeDuePolls(LocalDateTime now) {
+        List<ScheduledMatchPollValue> duePolls = new ArrayList<>();
+
+        while (!polls.isEmpty() && !polls.peek().getDueAt().isAfter(now)) {
+            ScheduledMatchPollValue poll = polls.poll();
+
+            pollsByMatch.remove(poll.getMatchId());
+
+            duePolls.add(poll);
+        }
+
+        return duePolls;
+    }
+
+    private void schedule(ScheduledMatchPollValue poll) {
+        pollsByMatch.put(poll.getMatchId(), poll);
+
+        polls.add(poll);
+    }
+
+    private LocalDateTime getFirstPoll(LocalDateTime kickoff) {
+        return livePollInterval.isZero() ? kickoff.plus(fullTimeDelay) : kickoff;
+    }
+
+    private Duration backoff(int attempt) {
+        Duration backoff = initialBackoff.multipliedBy(1L << Math.min(attempt - 1, 16));
+
+        return backoff.compareTo(maxBackoff) > 0 ? maxBackoff : backoff;
+    }
+
+    private static LocalDateTime max(LocalDateTime first, LocalDateTime second) {
+        return first.isAfter(second) ? first : second;
+    }
+}
@@ -0,0 +1,102 @@
+package com.bhfantasy.web.workers;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+public class IngestionStats {
+
+    private final long startedAt = System.currentTimeMillis();
+
+    private final AtomicLong rounds = new AtomicLong();
+
+    private final AtomicLong matches = new AtomicLong();
+
+    private final AtomicLong createdMatches = new AtomicLong();
+
+    private final AtomicLong updatedMatches = new AtomicLong();
+
+    private final AtomicLong skippedMatches = new AtomicLong();
+
+    private final AtomicLong matchReports = new AtomicLong();
+
+    private final AtomicLong players = new AtomicLong();
+
+    public void recordRound() {
+        rounds.incrementAndGet();
+    }
+
+    public void recordMatch() {
+        matches.incrementAndGet();
+    }
+
+    public void recordCreatedMatch() {
+        createdMatches.incrementAndGet();
+    }
+
+    public void recordUpdatedMatch() {
+        updatedMatches.incrementAndGet();
+    }
+
+    public void recordSkippedMatch() {
+        skippedMatches.incrementAndGet();
+    }
+
+    public void recordMatchReport(int playerCount) {
+        matchReports.incrementAndGet();
+        players.addAndGet(playerCount);
+    }
+
+    public long getRounds() {
+        return rounds.get();
+    }
+
+    public long getMatches() {
+        return matches.get();
+    }
+
+    public long getCreatedMatches() {
+        return createdMatches.get();
+    }
+
+    public long getUpdatedMatches() {
+        return updatedMatches.get();
+    }
+
+    public long getSkippedMatches() {
+        return skippedMatches.get();
+    }
+
+    public long getMatchReports() {
+        return matchReports.get();
+    }
+
+    public long getPlayers() {
+        return players.get();
+    }
+
+    public long getElapsedMillis() {
+        return System.currentTimeMillis() - startedAt;
+    }
+
+    public double getMatchesPerSecond() {
+        return perSecond(matches.get());
+    }
+
+    public double getPlayersPerSecond() {
+        return perSecond(players.get());
+    }
+
+    private double perSecond(long count) {
+        long elapsed = Math.max(getElapsedMillis(), 1);
+
+        return count * 1000.0 / elapsed;
+    }
+
+    @Override
+    public String toString() {
+        return String.format(
+                "%d rounds, %d matches (%.2f/s, %d created, %d updated, %d skipped), %d match reports, " +
+                        "%d players (%.2f/s) in %d ms",
+                getRounds(), getMatches(), getMatchesPerSecond(), getCreatedMatches(), getUpdatedMatches(), getSkippedMatches(),
+                getMatchReports(), getPlayers(), getPlayersPerSecond(), getElapsedMillis());
+    }
+}
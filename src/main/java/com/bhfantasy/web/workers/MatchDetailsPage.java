@@ -0,0 +1,43 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.Match;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Match report parsed by the fetch stage, together with the player tooltips
+ * needed to persist its lineups.
+ */
+public class MatchDetailsPage {
+
+    private final Match match;
+
+    private final String matchUrl;
+
+    private final MatchReport report;
+
+    private final Map<Long, PlayerTooltip> playerTooltips = new HashMap<>();
+
+    public MatchDetailsPage(Match match, String matchUrl, MatchReport report) {
+        this.match = match;
+        this.matchUrl = matchUrl;
+        this.report = report;
+    }
+
+    public Match getMatch() {
+        return match;
+    }
+
+    public String getMatchUrl() {
+        return matchUrl;
+    }
+
+    public MatchReport getReport() {
+        return report;
+    }
+
+    public Map<Long, PlayerTooltip> getPlayerTooltips() {
+        return playerTooltips;
+    }
+}
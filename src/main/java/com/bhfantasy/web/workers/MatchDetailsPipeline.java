@@ -0,0 +1,154 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.Match;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiFunction;
+import java.util.function.Consumer;
+
+/**
+ * Staged ingestion of match reports for one league run.
+ *
+ * The fixture walk (parse stage) submits matches, a pool of fetch threads downloads report pages
+ * and player tooltips, and a single persist thread writes them to the database. Stages are connected
+ * by bounded queues, so a slow database throttles the downloads and vice versa. Keeping one writer
+ * means two reports referencing the same new player can't race on the unique transferMarktId.
+ */
+public class MatchDetailsPipeline {
+
+    private static Logger logger = LoggerFactory.getLogger(MatchDetailsPipeline.class);
+
+    private static final MatchDetailsPage END_OF_STREAM = new MatchDetailsPage(null, null, null);
+
+    private final ThreadPoolExecutor fetchExecutor;
+
+    private final BlockingQueue<MatchDetailsPage> persistQueue;
+
+    private final Thread persistThread;
+
+    private final BiFunction<Match, String, MatchDetailsPage> fetcher;
+
+    private final Consumer<MatchDetailsPage> persister;
+
+    private final AtomicInteger fetchedCounter = new AtomicInteger();
+
+    private final AtomicInteger persistedCounter = new AtomicInteger();
+
+    private final AtomicInteger failedCounter = new AtomicInteger();
+
+    public MatchDetailsPipeline(int parallelism, int queueCapacity,
+                                BiFunction<Match, String, MatchDetailsPage> fetcher,
+                                Consumer<MatchDetailsPage> persister) {
+        this.fetcher = fetcher;
+        this.persister = persister;
+        this.persistQueue = new ArrayBlockingQueue<>(queueCapacity);
+
+        AtomicInteger threadCounter = new AtomicInteger();
+
+        this.fetchExecutor = new ThreadPoolExecutor(
+                parallelism, parallelism, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "transfermarkt-fetch-" + threadCounter.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                (runnable, executor) -> {
+                    // Block the fixture walk instead of dropping matches when fetchers are saturated
+                    if (executor.isShutdown()) {
+                        throw new RejectedExecutionException("Match details pipeline is closed.");
+                    }
+
+                    try {
+                        executor.getQueue().put(runnable);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+
+                        throw new RejectedExecutionException(e);
+                    }
+                });
+
+        this.persistThread = new Thread(this::persistLoop, "transfermarkt-persist");
+        this.persistThread.setDaemon(true);
+        this.persistThread.start();
+    }
+
+    public void submit(Match match, String matchUrl) {
+        fetchExecutor.execute(() -> {
+            MatchDetailsPage page;
+
+            try {
+                page = fetcher.apply(match, matchUrl);
+            } catch (Exception e) {
+                logger.error("Error while fetching match {}.", matchUrl, e);
+
+                failedCounter.incrementAndGet();
+
+                return;
+            }
+
+            if (page == null) {
+                return;
+            }
+
+            fetchedCounter.incrementAndGet();
+
+            try {
+                persistQueue.put(page);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+    }
+
+    public void awaitCompletion() {
+        fetchExecutor.shutdown();
+
+        try {
+            while (!fetchExecutor.awaitTermination(1, TimeUnit.MINUTES)) {
+                logger.info("Waiting for match details to download, {} fetched so far.", fetchedCounter.get());
+            }
+
+            persistQueue.put(END_OF_STREAM);
+
+            persistThread.join();
+        } catch (InterruptedException e) {
+            fetchExecutor.shutdownNow();
+            persistThread.interrupt();
+
+            Thread.currentThread().interrupt();
+        }
+
+        logger.info("Match details pipeline finished, {} fetched, {} persisted, {} failed.",
+                fetchedCounter.get(), persistedCounter.get(), failedCounter.get());
+    }
+
+    private void persistLoop() {
+        while (true) {
+            MatchDetailsPage page;
+
+            try {
+                page = persistQueue.take();
+            } catch (InterruptedException e) {
+                return;
+            }
+
+            if (page == END_OF_STREAM) {
+                return;
+            }
+
+            try {
+                persister.accept(page);
+
+                persistedCounter.incrementAndGet();
+            } catch (Exception e) {
+                logger.error("Error while persisting match {}.", page.getMatchUrl(), e);
+
+                failedCounter.incrementAndGet();
+            }
+        }
+    }
+}
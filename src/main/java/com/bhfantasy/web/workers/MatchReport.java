@@ -0,0 +1,293 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.Card;
+import com.bhfantasy.web.model.Lineup;
+
+import java.util.*;
+
+/**
+ * Events extracted from a match report page by {@link MatchReportParser}, before any player or team
+ * is resolved. Players are referenced by their Transfermarkt id and name only.
+ */
+public class MatchReport {
+
+    private String stadiumName;
+
+    private LineupReport homeLineup;
+
+    private LineupReport awayLineup;
+
+    private final List<GoalEvent> goals = new ArrayList<>();
+
+    private final List<CardEvent> cards = new ArrayList<>();
+
+    private final List<SubstitutionEvent> substitutions = new ArrayList<>();
+
+    private final List<MissedPenaltyEvent> missedPenalties = new ArrayList<>();
+
+    public String getStadiumName() {
+        return stadiumName;
+    }
+
+    public void setStadiumName(String stadiumName) {
+        this.stadiumName = stadiumName;
+    }
+
+    public LineupReport getHomeLineup() {
+        return homeLineup;
+    }
+
+    public void setHomeLineup(LineupReport homeLineup) {
+        this.homeLineup = homeLineup;
+    }
+
+    public LineupReport getAwayLineup() {
+        return awayLineup;
+    }
+
+    public void setAwayLineup(LineupReport awayLineup) {
+        this.awayLineup = awayLineup;
+    }
+
+    public List<GoalEvent> getGoals() {
+        return goals;
+    }
+
+    public List<CardEvent> getCards() {
+        return cards;
+    }
+
+    public List<SubstitutionEvent> getSubstitutions() {
+        return substitutions;
+    }
+
+    public List<MissedPenaltyEvent> getMissedPenalties() {
+        return missedPenalties;
+    }
+
+    /**
+     * Transfermarkt ids of all players in both lineups, in page order.
+     */
+    public Set<Long> getLineupPlayerIds() {
+        Set<Long> playerIds = new LinkedHashSet<>();
+
+        for (LineupReport lineup : Arrays.asList(homeLineup, awayLineup)) {
+            if (lineup == null) {
+                continue;
+            }
+
+            for (LineupPlayer player : lineup.getStartingPlayers()) {
+                if (player.getTransferMarktId() != null) {
+                    playerIds.add(player.getTransferMarktId());
+                }
+            }
+
+            for (LineupPlayer player : lineup.getSubstitutes()) {
+                if (player.getTransferMarktId() != null) {
+                    playerIds.add(player.getTransferMarktId());
+                }
+            }
+        }
+
+        return playerIds;
+    }
+
+    public static class PlayerReference {
+
+        private final Long transferMarktId;
+
+        private final String name;
+
+        public PlayerReference(Long transferMarktId, String name) {
+            this.transferMarktId = transferMarktId;
+            this.name = name;
+        }
+
+        public Long getTransferMarktId() {
+            return transferMarktId;
+        }
+
+        public String getName() {
+            return name;
+        }
+    }
+
+    public static class LineupPlayer extends PlayerReference {
+
+        private final Integer numberOnDress;
+
+        private final boolean captain;
+
+        public LineupPlayer(Long transferMarktId, String name, Integer numberOnDress, boolean captain) {
+            super(transferMarktId, name);
+            this.numberOnDress = numberOnDress;
+            this.captain = captain;
+        }
+
+        public Integer getNumberOnDress() {
+            return numberOnDress;
+        }
+
+        public boolean isCaptain() {
+            return captain;
+        }
+    }
+
+    public static class LineupReport {
+
+        private final Lineup.Formation formation;
+
+        private final List<LineupPlayer> startingPlayers = new ArrayList<>(11);
+
+        private final List<LineupPlayer> substitutes = new ArrayList<>(12);
+
+        public LineupReport(Lineup.Formation formation) {
+            this.formation = formation;
+        }
+
+        public Lineup.Formation getFormation() {
+            return formation;
+        }
+
+        public List<LineupPlayer> getStartingPlayers() {
+            return startingPlayers;
+        }
+
+        public List<LineupPlayer> getSubstitutes() {
+            return substitutes;
+        }
+    }
+
+    public abstract static class Event {
+
+        private final boolean away;
+
+        private final Integer minute;
+
+        Event(boolean away, Integer minute) {
+            this.away = away;
+            this.minute = minute;
+        }
+
+        public boolean isAway() {
+            return away;
+        }
+
+        public Integer getMinute() {
+            return minute;
+        }
+    }
+
+    public static class GoalEvent extends Event {
+
+        private final Long scorerId;
+
+        private final Long assistId;
+
+        private final Integer score1;
+
+        private final Integer score2;
+
+        private final boolean penalty;
+
+        private final boolean ownGoal;
+
+        public GoalEvent(boolean away, Integer minute, Long scorerId, Long assistId,
+                         Integer score1, Integer score2, boolean penalty, boolean ownGoal) {
+            super(away, minute);
+            this.scorerId = scorerId;
+            this.assistId = assistId;
+            this.score1 = score1;
+            this.score2 = score2;
+            this.penalty = penalty;
+            this.ownGoal = ownGoal;
+        }
+
+        public Long getScorerId() {
+            return scorerId;
+        }
+
+        public Long getAssistId() {
+            return assistId;
+        }
+
+        public Integer getScore1() {
+            return score1;
+        }
+
+        public Integer getScore2() {
+            return score2;
+        }
+
+        public boolean isPenalty() {
+            return penalty;
+        }
+
+        public boolean isOwnGoal() {
+            return ownGoal;
+        }
+    }
+
+    public static class CardEvent extends Event {
+
+        private final PlayerReference player;
+
+        private final Card.CardType cardType;
+
+        public CardEvent(boolean away, Integer minute, PlayerReference player, Card.CardType cardType) {
+            super(away, minute);
+            this.player = player;
+            this.cardType = cardType;
+        }
+
+        public PlayerReference getPlayer() {
+            return player;
+        }
+
+        public Card.CardType getCardType() {
+            return cardType;
+        }
+    }
+
+    public static class SubstitutionEvent extends Event {
+
+        private final PlayerReference playerIn;
+
+        private final PlayerReference playerOut;
+
+        public SubstitutionEvent(boolean away, Integer minute, PlayerReference playerIn, PlayerReference playerOut) {
+            super(away, minute);
+            this.playerIn = playerIn;
+            this.playerOut = playerOut;
+        }
+
+        public PlayerReference getPlayerIn() {
+            return playerIn;
+        }
+
+        public PlayerReference getPlayerOut() {
+            return playerOut;
+        }
+    }
+
+    public static class MissedPenaltyEvent extends Event {
+
+        private final PlayerReference player;
+
+        private final PlayerReference savedBy;
+
+        public MissedPenaltyEvent(boolean away, Integer minute, PlayerReference player, PlayerReference savedBy) {
+            super(away, minute);
+            this.player = player;
+            this.savedBy = savedBy;
+        }
+
+        public PlayerReference getPlayer() {
+            return player;
+        }
+
+        public PlayerReference getSavedBy() {
+            return savedBy;
+        }
+    }
+}
@@ -0,0 +1,402 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.Card;
+import com.bhfantasy.web.model.Lineup;
+import com.bhfantasy.web.model.players.Player;
+import org.jsoup.nodes.Document;
+import org.jsoup.nodes.Element;
+import org.jsoup.nodes.Node;
+import org.jsoup.select.Elements;
+import org.jsoup.select.Evaluator;
+import org.jsoup.select.QueryParser;
+import org.jsoup.select.Selector;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Extracts a {@link MatchReport} from a Transfermarkt match report page.
+ *
+ * Selectors and patterns are compiled once, single class lookups go through the element index instead
+ * of the selector engine, and minutes are read from the clock sprite offsets without a regex.
+ * The parser is stateless, so fetch threads share one instance.
+ */
+@Component
+public class MatchReportParser {
+
+    private static Logger logger = LoggerFactory.getLogger(MatchReportParser.class);
+
+    private static final Pattern FORMATION_PATTERN = Pattern.compile("(?:\\d-)+\\d");
+
+    private static final Pattern POSITION_PATTERN = Pattern.compile("(?:Position: (.*))");
+
+    private static final Pattern DATE_PATTERN = Pattern.compile("(\\d\\d.\\d\\d.\\d\\d\\d\\d)");
+
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("dd.MM.yyyy");
+
+    private static final Evaluator LINEUPS = QueryParser.parse("#main .box .large-6");
+
+    private static final Evaluator STADIUM = QueryParser.parse("#main .box .sb-zusatzinfos");
+
+    private static final Evaluator SUBSTITUTIONS = QueryParser.parse("#sb-wechsel ul li");
+
+    private static final Evaluator CARDS = QueryParser.parse("#sb-karten ul li");
+
+    private static final Evaluator MISSED_PENALTIES = QueryParser.parse("#sb-verschossene ul li");
+
+    private static final Evaluator GOALS = QueryParser.parse("#sb-tore ul li");
+
+    private static final Evaluator ACTION_LINKS = QueryParser.parse(".sb-aktion-aktion a");
+
+    private static final Evaluator ACTION_SPANS = QueryParser.parse(".sb-aktion-aktion span");
+
+    private static final Evaluator PLAYER_IN = QueryParser.parse(".sb-aktion-wechsel-ein a");
+
+    private static final Evaluator PLAYER_OUT = QueryParser.parse(".sb-aktion-wechsel-aus a");
+
+    private static final Evaluator BENCH_ROWS = QueryParser.parse(".aufstellung-ersatzbank-box tr");
+
+    private static final Evaluator TOOLTIP_NAME = QueryParser.parse(".spielername-kurzprofil a");
+
+    private static final String AWAY_CLASS = "sb-aktion-gast";
+
+    private static final String MINUTE_CLASS = "sb-sprite-uhr-klein";
+
+    private static final int SPRITE_SIZE = 36;
+
+    public MatchReport parse(Document document) {
+        MatchReport report = new MatchReport();
+
+        Elements lineupElements = Selector.select(LINEUPS, document);
+
+        if (lineupElements.size() == 2) {
+            report.setHomeLineup(parseLineup(lineupElements.first()));
+            report.setAwayLineup(parseLineup(lineupElements.last()));
+        }
+
+        report.setStadiumName(parseStadiumName(first(STADIUM, document)));
+
+        for (Element element : Selector.select(SUBSTITUTIONS, document)) {
+            MatchReport.SubstitutionEvent substitution = parseSubstitution(element);
+
+            if (substitution != null) {
+                report.getSubstitutions().add(substitution);
+            }
+        }
+
+        for (Element element : Selector.select(CARDS, document)) {
+            report.getCards().add(parseCard(element));
+        }
+
+        for (Element element : Selector.select(MISSED_PENALTIES, document)) {
+            report.getMissedPenalties().add(parseMissedPenalty(element));
+        }
+
+        for (Element element : Selector.select(GOALS, document)) {
+            report.getGoals().add(parseGoal(element));
+        }
+
+        return report;
+    }
+
+    /**
+     * Returns null when the tooltip doesn't contain a complete player profile.
+     */
+    public PlayerTooltip parsePlayerTooltip(Document document) {
+        try {
+            String name = Selector.select(TOOLTIP_NAME, document).text();
+
+            Player.Position position = parsePosition(document.getElementsByClass("kurzprofil-infos").first());
+
+            String marketValueRaw = document.getElementsByClass("kurzprofil-marktwert").first()
+                    .text().replace("Market Value: ", "");
+
+            LocalDate birthDate = parseDate(document.getElementsByClass("kurzprofil-infos-text").first()
+                    .getElementsByTag("br").first().previousSibling().toString());
+
+            String profilePicture = document.getElementsByClass("bilderrahmen").first().attr("src");
+
+            return new PlayerTooltip(name, position, marketValueRaw, birthDate, profilePicture);
+        } catch (Exception e) {
+            logger.error("Error while parsing player info.", e);
+
+            return null;
+        }
+    }
+
+    public static Long getTransferMarktId(String url) {
+        int end = url.length();
+
+        while (end > 0 && url.charAt(end - 1) == '/') {
+            end--;
+        }
+
+        int start = url.lastIndexOf('/', end - 1) + 1;
+
+        try {
+            return Long.parseLong(url.substring(start, end));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private MatchReport.LineupReport parseLineup(Element lineupElement) {
+        try {
+            Lineup.Formation formation = parseFormation(lineupElement);
+
+            MatchReport.LineupReport lineup = new MatchReport.LineupReport(formation);
+
+            if (formation != null) {
+                for (Element playerElement : lineupElement.getElementsByClass("aufstellung-spieler-container")) {
+                    Element link = playerElement.getElementsByTag("a").first();
+
+                    Integer numberOnDress = null;
+
+                    try {
+                        numberOnDress = Integer.parseInt(
+                                playerElement.getElementsByClass("aufstellung-rueckennummer-box").first().text());
+                    } catch (Exception e) {
+                        logger.error("Error while parsing number on dress: ", e);
+                    }
+
+                    boolean captain = !playerElement.getElementsByClass("kapitaenicon-formation").isEmpty();
+
+                    lineup.getStartingPlayers().add(new MatchReport.LineupPlayer(
+                            getTransferMarktId(link.attr("href")), link.text(), numberOnDress, captain));
+                }
+
+                for (Element row : Selector.select(BENCH_ROWS, lineupElement)) {
+                    if (row.getElementsByClass("spielprofil_tooltip").isEmpty()) {
+                        continue;
+                    }
+
+                    Integer numberOnDress = null;
+
+                    try {
+                        numberOnDress = Integer.parseInt(row.getElementsByTag("td").first().text());
+                    } catch (Exception e) {
+                        //
+                    }
+
+                    Element link = row.getElementsByTag("tr").last().getElementsByTag("a").first();
+
+                    lineup.getSubstitutes().add(new MatchReport.LineupPlayer(
+                            getTransferMarktId(link.attr("href")), link.text(), numberOnDress, false));
+                }
+            } else {
+                for (Element link : lineupElement.getElementsByClass("spielprofil_tooltip")) {
+                    lineup.getStartingPlayers().add(new MatchReport.LineupPlayer(
+                            getTransferMarktId(link.attr("href")), link.text(), null, false));
+                }
+            }
+
+            return lineup;
+        } catch (Exception e) {
+            logger.error("Error while processing lineup.", e);
+        }
+
+        return null;
+    }
+
+    private String parseStadiumName(Element stadiumElement) {
+        if (stadiumElement == null) {
+            return null;
+        }
+
+        String stadiumName = null;
+
+        for (Element element : stadiumElement.getElementsByTag("a")) {
+            if (element.attr("href").startsWith("/stadion")) {
+                stadiumName = element.text();
+            }
+        }
+
+        return stadiumName;
+    }
+
+    private MatchReport.SubstitutionEvent parseSubstitution(Element element) {
+        Integer minute = parseMinute(element.getElementsByClass(MINUTE_CLASS).first());
+
+        try {
+            Element playerInElement = first(PLAYER_IN, element);
+
+            MatchReport.PlayerReference playerIn = playerInElement != null ? playerReference(playerInElement) : null;
+
+            MatchReport.PlayerReference playerOut = playerReference(first(PLAYER_OUT, element));
+
+            return new MatchReport.SubstitutionEvent(element.hasClass(AWAY_CLASS), minute, playerIn, playerOut);
+        } catch (Exception e) {
+            logger.error("error", e);
+
+            return null;
+        }
+    }
+
+    private MatchReport.CardEvent parseCard(Element element) {
+        Card.CardType cardType = element.getElementsByClass("sb-rot").isEmpty() ?
+                Card.CardType.YELLOW : Card.CardType.RED;
+
+        return new MatchReport.CardEvent(
+                element.hasClass(AWAY_CLASS),
+                parseMinute(element.getElementsByClass(MINUTE_CLASS).first()),
+                playerReference(first(ACTION_LINKS, element)),
+                cardType);
+    }
+
+    private MatchReport.MissedPenaltyEvent parseMissedPenalty(Element element) {
+        MatchReport.PlayerReference player = null;
+        MatchReport.PlayerReference savedBy = null;
+
+        for (Element span : Selector.select(ACTION_SPANS, element)) {
+            Element link = span.getElementsByTag("a").first();
+
+            if (link == null) {
+                continue;
+            }
+
+            String spanText = span.text();
+
+            if (spanText.contains("Saved")) {
+                savedBy = playerReference(link);
+            } else if (!spanText.contains("Missed")) {
+                player = playerReference(link);
+            }
+        }
+
+        return new MatchReport.MissedPenaltyEvent(
+                element.hasClass(AWAY_CLASS), parseMinute(element.getElementsByClass(MINUTE_CLASS).first()),
+                player, savedBy);
+    }
+
+    private MatchReport.GoalEvent parseGoal(Element element) {
+        Elements playerElements = Selector.select(ACTION_LINKS, element);
+
+        Long scorerId = playerElements.size() > 0 ? Long.parseLong(playerElements.get(0).attr("id")) : null;
+        Long assistId = playerElements.size() > 1 ? Long.parseLong(playerElements.get(1).attr("id")) : null;
+
+        Integer score1 = null;
+        Integer score2 = null;
+
+        String score = element.getElementsByClass("sb-aktion-spielstand").first().text();
+
+        int separator = score.indexOf(':');
+
+        if (separator > 0 && separator < score.length() - 1 && score.indexOf(':', separator + 1) < 0) {
+            score1 = Integer.parseInt(score.substring(0, separator));
+            score2 = Integer.parseInt(score.substring(separator + 1));
+        }
+
+        String text = element.text();
+
+        return new MatchReport.GoalEvent(
+                element.hasClass(AWAY_CLASS), parseMinute(element.getElementsByClass(MINUTE_CLASS).first()),
+                scorerId, assistId, score1, score2, text.contains("Penalty"), text.contains("Own-goal"));
+    }
+
+    private static MatchReport.PlayerReference playerReference(Element link) {
+        return new MatchReport.PlayerReference(Long.parseLong(link.attr("id")), link.text());
+    }
+
+    /**
+     * Minute is encoded as the background offset of the clock sprite, e.g. "-72px -36px",
+     * plus the text of the element for stoppage time.
+     */
+    static Integer parseMinute(Element minuteElement) {
+        String style = minuteElement.attr("style");
+
+        int[] offsets = new int[2];
+
+        int found = 0;
+
+        int position = style.indexOf('-');
+
+        while (position >= 0 && found < 2) {
+            int end = position + 1;
+            int value = 0;
+
+            while (end < style.length() && Character.isDigit(style.charAt(end))) {
+                value = value * 10 + (style.charAt(end) - '0');
+
+                end++;
+            }
+
+            if (end > position + 1 && style.startsWith("px", end)) {
+                offsets[found++] = value;
+            }
+
+            position = style.indexOf('-', end);
+        }
+
+        if (found < 2) {
+            return null;
+        }
+
+        int minute = (1 + (offsets[0] / SPRITE_SIZE)) + 10 * (offsets[1] / SPRITE_SIZE);
+
+        try {
+            minute += Integer.parseInt(minuteElement.text());
+        } catch (NumberFormatException e) {
+            //
+        }
+
+        return minute;
+    }
+
+    private static Player.Position parsePosition(Element element) {
+        Node node = element.getElementsByTag("br").last().previousSibling();
+
+        Matcher matcher = POSITION_PATTERN.matcher(node.toString());
+
+        if (matcher.find()) {
+            return Player.Position.getPosition(matcher.group(1).trim());
+        } else {
+            return Player.Position.UNKNOWN;
+        }
+    }
+
+    private static LocalDate parseDate(String dateText) {
+        Matcher matcher = DATE_PATTERN.matcher(dateText);
+
+        if (matcher.find()) {
+            try {
+                return LocalDate.parse(matcher.group(0), DATE_FORMATTER);
+            } catch (DateTimeParseException e) {
+                return null;
+            }
+        } else {
+            return null;
+        }
+    }
+
+    private static Lineup.Formation parseFormation(Element lineupElement) {
+        Element row = lineupElement.getElementsByClass("row").first();
+
+        if (row == null) {
+            return null;
+        }
+
+        Element div = row.getElementsByTag("div").first();
+
+        if (div == null) {
+            return null;
+        }
+
+        Matcher matcher = FORMATION_PATTERN.matcher(div.text());
+
+        if (matcher.find()) {
+            return Lineup.Formation.valueOf("F_" + matcher.group(0).replace('-', '_'));
+        } else {
+            return null;
+        }
+    }
+
+    private static Element first(Evaluator evaluator, Element root) {
+        return Selector.select(evaluator, root).first();
+    }
+}
@@ -0,0 +1,486 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.custom.PageCacheStatsValue;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Disk cache for scraped pages.
+ *
+ * Every URL has a small index entry with its validators (ETag, Last-Modified), fetch time and the hash
+ * of its content. Page bodies are stored by content hash, so identical pages are kept only once and any
+ * stored page can be parsed again later without touching the network.
+ *
+ * A periodic sweep keeps the cache under its maximum size: least recently fetched entries are evicted first,
+ * and page bodies no entry refers to any more, e.g. earlier versions of a changed page, are deleted.
+ */
+@Component
+public class PageCache {
+
+    private static Logger logger = LoggerFactory.getLogger(PageCache.class);
+
+    private static final String CONTENT_SUFFIX = ".html";
+
+    // Page bodies written this recently may belong to an index entry that isn't written yet
+    private static final Duration SWEEP_GRACE = Duration.ofMinutes(10);
+
+    private final boolean enabled;
+
+    private final Path indexDirectory;
+
+    private final Path contentDirectory;
+
+    private final long maxSize;
+
+    private final Map<PageType, Duration> timeToLive = new EnumMap<>(PageType.class);
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    private final AtomicLong revalidations = new AtomicLong();
+
+    private final AtomicLong bytesSaved = new AtomicLong();
+
+    private final AtomicLong bytesDownloaded = new AtomicLong();
+
+    private final AtomicLong downloads = new AtomicLong();
+
+    private final AtomicLong downloadMillis = new AtomicLong();
+
+    private final AtomicLong evictions = new AtomicLong();
+
+    private final AtomicLong size = new AtomicLong();
+
+    public PageCache(@Value("${bhfantasy.workers.cache.enabled:true}") boolean enabled,
+                     @Value("${bhfantasy.workers.cache.directory:${user.home}/bh-fantasy-cache}") String directory,
+                     @Value("${bhfantasy.workers.cache.fixtures-ttl-minutes:5}") long fixturesTtl,
+                     @Value("${bhfantasy.workers.cache.match-report-ttl-minutes:43200}") long matchReportTtl,
+                     @Value("${bhfantasy.workers.cache.player-tooltip-ttl-minutes:1440}") long playerTooltipTtl,
+                     @Value("${bhfantasy.workers.cache.max-size-mb:2048}") long maxSize) {
+        this.enabled = enabled;
+        this.indexDirectory = Paths.get(directory, "index");
+        this.contentDirectory = Paths.get(directory, "content");
+        this.maxSize = maxSize * 1024 * 1024;
+
+        timeToLive.put(PageType.FIXTURES, Duration.ofMinutes(fixturesTtl));
+        timeToLive.put(PageType.MATCH_REPORT, Duration.ofMinutes(matchReportTtl));
+        timeToLive.put(PageType.CORRECTED_MATCH_REPORT, Duration.ZERO);
+        timeToLive.put(PageType.PLAYER_TOOLTIP, Duration.ofMinutes(playerTooltipTtl));
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public Optional<CachedPage> lookup(String key) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        Path indexFile = indexDirectory.resolve(sha256(key) + ".properties");
+
+        if (!Files.exists(indexFile)) {
+            return Optional.empty();
+        }
+
+        try {
+            Properties properties = new Properties();
+
+            try (InputStream inputStream = Files.newInputStream(indexFile)) {
+                properties.load(inputStream);
+            }
+
+            String contentHash = properties.getProperty("contentHash");
+
+            Path contentFile = contentFile(contentHash);
+
+            if (!Files.exists(contentFile)) {
+                return Optional.empty();
+            }
+
+            CachedPage page = new CachedPage(
+                    key,
+                    new String(Files.readAllBytes(contentFile), StandardCharsets.UTF_8),
+                    properties.getProperty("etag"),
+                    properties.getProperty("lastModified"),
+                    Long.parseLong(properties.getProperty("fetchedAt", "0")));
+
+            return Optional.of(page);
+        } catch (IOException | RuntimeException e) {
+            logger.warn("Error while reading cached page {}.", key, e);
+
+            return Optional.empty();
+        }
+    }
+
+    public boolean isFresh(CachedPage page, PageType pageType) {
+        long age = System.currentTimeMillis() - page.getFetchedAt();
+
+        return age < timeToLive.get(pageType).toMillis();
+    }
+
+    public void store(String key, String body, String etag, String lastModified) {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            byte[] content = body.getBytes(StandardCharsets.UTF_8);
+
+            String contentHash = sha256(content);
+
+            Path contentFile = contentFile(contentHash);
+
+            if (!Files.exists(contentFile)) {
+                writeAtomically(contentFile, content);
+            } else {
+                // Keeps a body the sweep found unreferenced from being deleted under the new entry
+                Files.setLastModifiedTime(contentFile, FileTime.fromMillis(System.currentTimeMillis()));
+            }
+
+            writeIndex(key, contentHash, etag, lastModified);
+        } catch (IOException e) {
+            logger.warn("Error while caching page {}.", key, e);
+        }
+    }
+
+    public void touch(CachedPage page) {
+        if (!enabled) {
+            return;
+        }
+
+        try {
+            writeIndex(page.getKey(), sha256(page.getBody().getBytes(StandardCharsets.UTF_8)),
+                    page.getEtag(), page.getLastModified());
+        } catch (IOException e) {
+            logger.warn("Error while refreshing cached page {}.", page.getKey(), e);
+        }
+    }
+
+    /**
+     * Evicts least recently fetched entries while the cache is over its maximum size, then deletes page
+     * bodies and temporary files no entry refers to.
+     */
+    @Scheduled(fixedDelayString = "${bhfantasy.workers.cache.sweep-millis:3600000}")
+    public synchronized void sweep() {
+        if (!enabled || !Files.isDirectory(contentDirectory)) {
+            return;
+        }
+
+        long startedAt = System.currentTimeMillis();
+
+        try {
+            List<IndexEntry> entries = readIndex();
+
+            Map<String, Integer> references = new HashMap<>();
+
+            entries.forEach(entry -> references.merge(entry.contentHash, 1, Integer::sum));
+
+            Map<String, Long> contentSizes = new HashMap<>();
+
+            long totalSize = 0;
+
+            for (String contentHash : references.keySet()) {
+                Path contentFile = contentFile(contentHash);
+
+                long contentSize = Files.exists(contentFile) ? Files.size(contentFile) : 0;
+
+                contentSizes.put(contentHash, contentSize);
+
+                totalSize += contentSize;
+            }
+
+            int evicted = 0;
+
+            if (maxSize > 0 && totalSize > maxSize) {
+                entries.sort(Comparator.comparingLong(entry -> entry.fetchedAt));
+
+                for (IndexEntry entry : entries) {
+                    if (totalSize <= maxSize) {
+                        break;
+                    }
+
+                    Files.deleteIfExists(entry.indexFile);
+
+                    evicted++;
+
+                    if (references.merge(entry.contentHash, -1, Integer::sum) == 0) {
+                        references.remove(entry.contentHash);
+
+                        totalSize -= contentSizes.get(entry.contentHash);
+                    }
+                }
+
+                evictions.addAndGet(evicted);
+            }
+
+            int orphans = deleteUnreferenced(references.keySet(), startedAt - SWEEP_GRACE.toMillis());
+
+            size.set(totalSize);
+
+            logger.info("Page cache swept in {} ms, {} entries evicted, {} orphaned files deleted, {} bytes used.",
+                    System.currentTimeMillis() - startedAt, evicted, orphans, totalSize);
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Error while sweeping page cache.", e);
+        }
+    }
+
+    /**
+     * Deletes all cached pages, e.g. when cached pages are known to be wrong.
+     */
+    public synchronized void clear() throws IOException {
+        for (Path directory : Arrays.asList(indexDirectory, contentDirectory)) {
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+
+            try (Stream<Path> files = Files.walk(directory)) {
+                for (Path file : files.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                    Files.deleteIfExists(file);
+                }
+            }
+        }
+
+        size.set(0);
+
+        logger.info("Page cache cleared.");
+    }
+
+    public void recordHit(CachedPage page) {
+        hits.incrementAndGet();
+        bytesSaved.addAndGet(page.getBody().length());
+    }
+
+    public void recordRevalidation(CachedPage page) {
+        revalidations.incrementAndGet();
+        bytesSaved.addAndGet(page.getBody().length());
+    }
+
+    public void recordDownload(long bytes, long millis) {
+        misses.incrementAndGet();
+        downloads.incrementAndGet();
+        bytesDownloaded.addAndGet(bytes);
+        downloadMillis.addAndGet(millis);
+    }
+
+    public PageCacheStatsValue getStats() {
+        PageCacheStatsValue value = new PageCacheStatsValue();
+        value.setEnabled(enabled);
+        value.setHits(hits.get());
+        value.setMisses(misses.get());
+        value.setRevalidations(revalidations.get());
+        value.setBytesSaved(bytesSaved.get());
+        value.setBytesDownloaded(bytesDownloaded.get());
+        value.setSizeBytes(size.get());
+        value.setEvictions(evictions.get());
+
+        long downloadCount = downloads.get();
+
+        long averageDownloadMillis = downloadCount > 0 ? downloadMillis.get() / downloadCount : 0;
+
+        value.setAverageDownloadMillis(averageDownloadMillis);
+        value.setEstimatedMillisSaved(averageDownloadMillis * hits.get());
+
+        return value;
+    }
+
+    private List<IndexEntry> readIndex() throws IOException {
+        List<IndexEntry> entries = new ArrayList<>();
+
+        if (!Files.isDirectory(indexDirectory)) {
+            return entries;
+        }
+
+        try (DirectoryStream<Path> indexFiles = Files.newDirectoryStream(indexDirectory, "*.properties")) {
+            for (Path indexFile : indexFiles) {
+                Properties properties = new Properties();
+
+                try (InputStream inputStream = Files.newInputStream(indexFile)) {
+                    properties.load(inputStream);
+                } catch (NoSuchFileException e) {
+                    continue;
+                }
+
+                String contentHash = properties.getProperty("contentHash");
+
+                if (contentHash == null) {
+                    Files.deleteIfExists(indexFile);
+
+                    continue;
+                }
+
+                entries.add(new IndexEntry(indexFile, contentHash,
+                        Long.parseLong(properties.getProperty("fetchedAt", "0"))));
+            }
+        }
+
+        return entries;
+    }
+
+    // Content and temporary files modified before the given time that no index entry refers to
+    private int deleteUnreferenced(Set<String> contentHashes, long modifiedBefore) throws IOException {
+        int deleted = 0;
+
+        for (Path directory : Arrays.asList(indexDirectory, contentDirectory)) {
+            if (!Files.isDirectory(directory)) {
+                continue;
+            }
+
+            List<Path> files;
+
+            try (Stream<Path> stream = Files.walk(directory)) {
+                files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+            }
+
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+
+                boolean unreferenced = name.endsWith(".tmp") || name.endsWith(CONTENT_SUFFIX)
+                        && !contentHashes.contains(name.substring(0, name.length() - CONTENT_SUFFIX.length()));
+
+                if (unreferenced && Files.getLastModifiedTime(file).toMillis() < modifiedBefore
+                        && Files.deleteIfExists(file)) {
+                    deleted++;
+                }
+            }
+        }
+
+        return deleted;
+    }
+
+    private void writeIndex(String key, String contentHash, String etag, String lastModified) throws IOException {
+        Properties properties = new Properties();
+        properties.setProperty("url", key);
+        properties.setProperty("contentHash", contentHash);
+        properties.setProperty("fetchedAt", String.valueOf(System.currentTimeMillis()));
+
+        if (etag != null) {
+            properties.setProperty("etag", etag);
+        }
+
+        if (lastModified != null) {
+            properties.setProperty("lastModified", lastModified);
+        }
+
+        Path indexFile = indexDirectory.resolve(sha256(key) + ".properties");
+
+        Files.createDirectories(indexDirectory);
+
+        Path temporaryFile = Files.createTempFile(indexDirectory, "index", ".tmp");
+
+        try (OutputStream outputStream = Files.newOutputStream(temporaryFile)) {
+            properties.store(outputStream, null);
+        }
+
+        Files.move(temporaryFile, indexFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void writeAtomically(Path file, byte[] content) throws IOException {
+        Files.createDirectories(file.getParent());
+
+        Path temporaryFile = Files.createTempFile(file.getParent(), "content", ".tmp");
+
+        Files.write(temporaryFile, content);
+
+        Files.move(temporaryFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private Path contentFile(String contentHash) {
+        return contentDirectory.resolve(contentHash.substring(0, 2)).resolve(contentHash + CONTENT_SUFFIX);
+    }
+
+    private static String sha256(String value) {
+        return sha256(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String sha256(byte[] value) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(value);
+
+            StringBuilder builder = new StringBuilder(digest.length * 2);
+
+            for (byte b : digest) {
+                builder.append(String.format("%02x", b));
+            }
+
+            return builder.toString();
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class IndexEntry {
+
+        private final Path indexFile;
+
+        private final String contentHash;
+
+        private final long fetchedAt;
+
+        IndexEntry(Path indexFile, String contentHash, long fetchedAt) {
+            this.indexFile = indexFile;
+            this.contentHash = contentHash;
+            this.fetchedAt = fetchedAt;
+        }
+    }
+
+    public static class CachedPage {
+
+        private final String key;
+
+        private final String body;
+
+        private final String etag;
+
+        private final String lastModified;
+
+        private final long fetchedAt;
+
+        CachedPage(String key, String body, String etag, String lastModified, long fetchedAt) {
+            this.key = key;
+            this.body = body;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.fetchedAt = fetchedAt;
+        }
+
+        public String getKey() {
+            return key;
+        }
+
+        public String getBody() {
+            return body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public String getLastModified() {
+            return lastModified;
+        }
+
+        public long getFetchedAt() {
+            return fetchedAt;
+        }
+    }
+}
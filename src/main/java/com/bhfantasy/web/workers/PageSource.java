@@ -0,0 +1,13 @@
+package com.bhfantasy.web.workers;
+
+import org.jsoup.nodes.Document;
+
+import java.io.IOException;
+import java.util.Map;
+
+public interface PageSource {
+
+    Document get(String url, PageType pageType) throws IOException;
+
+    Document post(String url, Map<String, String> data, PageType pageType) throws IOException;
+}
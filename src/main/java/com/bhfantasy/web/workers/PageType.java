@@ -0,0 +1,9 @@
+package com.bhfantasy.web.workers;
+
+public enum PageType {
+    FIXTURES,
+    MATCH_REPORT,
+    // Report of a match whose stored details may be outdated, cached copy is always revalidated
+    CORRECTED_MATCH_REPORT,
+    PLAYER_TOOLTIP
+}
@@ -0,0 +1,50 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.players.Player;
+
+import java.time.LocalDate;
+
+/**
+ * Player profile extracted from a Transfermarkt player tooltip by {@link MatchReportParser}.
+ */
+public class PlayerTooltip {
+
+    private final String name;
+
+    private final Player.Position position;
+
+    private final String marketValueRaw;
+
+    private final LocalDate birthDate;
+
+    private final String profilePicture;
+
+    public PlayerTooltip(String name, Player.Position position, String marketValueRaw,
+                         LocalDate birthDate, String profilePicture) {
+        this.name = name;
+        this.position = position;
+        this.marketValueRaw = marketValueRaw;
+        this.birthDate = birthDate;
+        this.profilePicture = profilePicture;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Player.Position getPosition() {
+        return position;
+    }
+
+    public String getMarketValueRaw() {
+        return marketValueRaw;
+    }
+
+    public LocalDate getBirthDate() {
+        return birthDate;
+    }
+
+    public String getProfilePicture() {
+        return profilePicture;
+    }
+}
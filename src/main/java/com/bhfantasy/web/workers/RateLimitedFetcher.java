@@ -0,0 +1,360 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.custom.FetcherStatsValue;
+import org.jsoup.Connection;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.URL;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Shared fetch layer for scraped hosts.
+ *
+ * Requests to a host are paced by a token bucket and limited by a concurrency window. The window grows
+ * slowly while responses are fast and healthy, and is halved on 429/5xx responses or slow responses.
+ * Failed requests are retried with exponential backoff, honoring Retry-After when the host sends it.
+ * Background crawls share the same limiters at a lower priority, see {@link #withShare(double)}.
+ */
+@Component
+public class RateLimitedFetcher {
+
+    private static Logger logger = LoggerFactory.getLogger(RateLimitedFetcher.class);
+
+    @FunctionalInterface
+    public interface Request {
+        Connection.Response execute() throws IOException;
+    }
+
+    private final double requestsPerSecond;
+
+    private final int burst;
+
+    private final int maxConcurrency;
+
+    private final int maxRetries;
+
+    private final long initialBackoffMillis;
+
+    private final long maxBackoffMillis;
+
+    private final long targetLatencyMillis;
+
+    private final ConcurrentMap<String, HostLimiter> hosts = new ConcurrentHashMap<>();
+
+    private final AtomicLong requests = new AtomicLong();
+
+    private final AtomicLong retries = new AtomicLong();
+
+    private final AtomicLong throttled = new AtomicLong();
+
+    private final AtomicLong serverErrors = new AtomicLong();
+
+    private final AtomicLong failures = new AtomicLong();
+
+    private final AtomicLong latencyMillis = new AtomicLong();
+
+    private final AtomicLong maxLatencyMillis = new AtomicLong();
+
+    private final AtomicLong waitMillis = new AtomicLong();
+
+    // Fetcher whose limiters and stats are used, a view of another fetcher takes part of its rate
+    private final RateLimitedFetcher owner;
+
+    private final double share;
+
+    public RateLimitedFetcher(@Value("${bhfantasy.workers.fetcher.requests-per-second:2}") double requestsPerSecond,
+                              @Value("${bhfantasy.workers.fetcher.burst:4}") int burst,
+                              @Value("${bhfantasy.workers.fetcher.max-concurrency:4}") int maxConcurrency,
+                              @Value("${bhfantasy.workers.fetcher.max-retries:4}") int maxRetries,
+                              @Value("${bhfantasy.workers.fetcher.initial-backoff-millis:1000}") long initialBackoffMillis,
+                              @Value("${bhfantasy.workers.fetcher.max-backoff-millis:30000}") long maxBackoffMillis,
+                              @Value("${bhfantasy.workers.fetcher.target-latency-millis:3000}") long targetLatencyMillis) {
+        this.requestsPerSecond = requestsPerSecond;
+        this.burst = burst;
+        this.maxConcurrency = maxConcurrency;
+        this.maxRetries = maxRetries;
+        this.initialBackoffMillis = initialBackoffMillis;
+        this.maxBackoffMillis = maxBackoffMillis;
+        this.targetLatencyMillis = targetLatencyMillis;
+        this.owner = this;
+        this.share = 1;
+    }
+
+    private RateLimitedFetcher(RateLimitedFetcher owner, double share) {
+        this.requestsPerSecond = owner.requestsPerSecond;
+        this.burst = owner.burst;
+        this.maxConcurrency = owner.maxConcurrency;
+        this.maxRetries = owner.maxRetries;
+        this.initialBackoffMillis = owner.initialBackoffMillis;
+        this.maxBackoffMillis = owner.maxBackoffMillis;
+        this.targetLatencyMillis = owner.targetLatencyMillis;
+        this.owner = owner;
+        this.share = share;
+    }
+
+    /**
+     * Returns a fetcher for background crawls that takes tokens from the same per-host buckets at a lower
+     * priority: it waits while other requests to the host are waiting and uses at most the given share of
+     * the host's request rate, so the per-host cap holds with both running.
+     */
+    public RateLimitedFetcher withShare(double share) {
+        return new RateLimitedFetcher(owner, Math.max(0.01, Math.min(share, 1)));
+    }
+
+    /**
+     * Executes the request, retrying on I/O errors, 429 and 5xx responses. Any other response, including
+     * 304 and 4xx, is returned as is. The request must not throw on HTTP error statuses.
+     */
+    public Connection.Response execute(String url, Request request) throws IOException {
+        return owner.execute(url, request, share);
+    }
+
+    private Connection.Response execute(String url, Request request, double share) throws IOException {
+        HostLimiter limiter = hosts.computeIfAbsent(new URL(url).getHost(), HostLimiter::new);
+
+        for (int attempt = 0; ; attempt++) {
+            long retryAfterMillis = 0;
+
+            Connection.Response response = null;
+
+            IOException error = null;
+
+            try {
+                long waited = share < 1 ? limiter.acquireBackground(share) : limiter.acquire();
+
+                waitMillis.addAndGet(waited);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new InterruptedIOException("Interrupted while waiting to fetch " + url);
+            }
+
+            long start = System.currentTimeMillis();
+
+            try {
+                requests.incrementAndGet();
+
+                response = request.execute();
+            } catch (IOException e) {
+                error = e;
+            } finally {
+                long latency = System.currentTimeMillis() - start;
+
+                latencyMillis.addAndGet(latency);
+                maxLatencyMillis.accumulateAndGet(latency, Math::max);
+
+                boolean overloaded = error != null || isRetryable(response);
+
+                limiter.release(overloaded, latency);
+            }
+
+            if (error == null && !isRetryable(response)) {
+                return response;
+            }
+
+            if (response != null) {
+                if (response.statusCode() == 429) {
+                    throttled.incrementAndGet();
+                } else {
+                    serverErrors.incrementAndGet();
+                }
+
+                retryAfterMillis = parseRetryAfter(response.header("Retry-After"));
+            }
+
+            if (attempt >= maxRetries || error instanceof InterruptedIOException) {
+                failures.incrementAndGet();
+
+                if (error != null) {
+                    throw error;
+                }
+
+                return response;
+            }
+
+            long backoff = Math.max(retryAfterMillis, backoff(attempt));
+
+            logger.warn("Fetching {} failed ({}), retrying in {} ms.", url,
+                    error != null ? error.getMessage() : response.statusCode(), backoff);
+
+            retries.incrementAndGet();
+
+            try {
+                Thread.sleep(backoff);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+
+                throw new InterruptedIOException("Interrupted while retrying " + url);
+            }
+        }
+    }
+
+    public FetcherStatsValue getStats() {
+        if (owner != this) {
+            return owner.getStats();
+        }
+
+        FetcherStatsValue value = new FetcherStatsValue();
+
+        long requestCount = requests.get();
+
+        value.setRequests(requestCount);
+        value.setRetries(retries.get());
+        value.setThrottled(throttled.get());
+        value.setServerErrors(serverErrors.get());
+        value.setFailures(failures.get());
+        value.setAverageLatencyMillis(requestCount > 0 ? latencyMillis.get() / requestCount : 0);
+        value.setMaxLatencyMillis(maxLatencyMillis.get());
+        value.setRateLimitWaitMillis(waitMillis.get());
+
+        List<FetcherStatsValue.Host> hostValues = hosts.values().stream()
+                .map(HostLimiter::toValue)
+                .collect(Collectors.toList());
+
+        value.setHosts(hostValues);
+
+        return value;
+    }
+
+    private static boolean isRetryable(Connection.Response response) {
+        return response != null && (response.statusCode() == 429 || response.statusCode() >= 500);
+    }
+
+    private long backoff(int attempt) {
+        long backoff = Math.min(maxBackoffMillis, initialBackoffMillis << Math.min(attempt, 16));
+
+        // Jitter keeps parallel fetchers from retrying in lockstep
+        return backoff / 2 + ThreadLocalRandom.current().nextLong(backoff / 2 + 1);
+    }
+
+    private long parseRetryAfter(String retryAfter) {
+        if (retryAfter == null) {
+            return 0;
+        }
+
+        try {
+            return Math.min(maxBackoffMillis, Long.parseLong(retryAfter.trim()) * 1000);
+        } catch (NumberFormatException e) {
+            return 0;
+        }
+    }
+
+    private class HostLimiter {
+
+        private final String host;
+
+        private double tokens = burst;
+
+        private long refilledAt = System.nanoTime();
+
+        private double concurrencyLimit = 1;
+
+        private int inFlight = 0;
+
+        private int waiting = 0;
+
+        // Background requests also need one of these, they refill at the background share of the rate
+        private double backgroundTokens = 1;
+
+        private long backgroundRefilledAt = System.nanoTime();
+
+        HostLimiter(String host) {
+            this.host = host;
+        }
+
+        synchronized long acquire() throws InterruptedException {
+            long start = System.currentTimeMillis();
+
+            waiting++;
+
+            try {
+                while (true) {
+                    refill();
+
+                    if (inFlight < (int) concurrencyLimit && tokens >= 1) {
+                        tokens -= 1;
+                        inFlight++;
+
+                        return System.currentTimeMillis() - start;
+                    }
+
+                    wait(waitMillis(tokens, requestsPerSecond));
+                }
+            } finally {
+                waiting--;
+
+                notifyAll();
+            }
+        }
+
+        // Takes a token only while no other request waits for one
+        synchronized long acquireBackground(double share) throws InterruptedException {
+            long start = System.currentTimeMillis();
+
+            while (true) {
+                refill();
+
+                long now = System.nanoTime();
+
+                backgroundTokens = Math.min(1,
+                        backgroundTokens + (now - backgroundRefilledAt) / 1e9 * requestsPerSecond * share);
+                backgroundRefilledAt = now;
+
+                if (waiting == 0 && inFlight < (int) concurrencyLimit && tokens >= 1 && backgroundTokens >= 1) {
+                    tokens -= 1;
+                    backgroundTokens -= 1;
+                    inFlight++;
+
+                    return System.currentTimeMillis() - start;
+                }
+
+                wait(Math.max(waitMillis(tokens, requestsPerSecond),
+                        waitMillis(backgroundTokens, requestsPerSecond * share)));
+            }
+        }
+
+        private long waitMillis(double available, double rate) {
+            long waitMillis = available >= 1 ? 100 : (long) Math.ceil((1 - available) * 1000 / rate);
+
+            return Math.max(waitMillis, 1);
+        }
+
+        synchronized void release(boolean overloaded, long latency) {
+            inFlight--;
+
+            if (overloaded || latency > targetLatencyMillis) {
+                concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+            } else {
+                concurrencyLimit = Math.min(maxConcurrency, concurrencyLimit + 1 / concurrencyLimit);
+            }
+
+            notifyAll();
+        }
+
+        private void refill() {
+            long now = System.nanoTime();
+
+            tokens = Math.min(burst, tokens + (now - refilledAt) / 1e9 * requestsPerSecond);
+            refilledAt = now;
+        }
+
+        synchronized FetcherStatsValue.Host toValue() {
+            FetcherStatsValue.Host value = new FetcherStatsValue.Host();
+            value.setHost(host);
+            value.setConcurrencyLimit((int) concurrencyLimit);
+            value.setInFlight(inFlight);
+
+            return value;
+        }
+    }
+}
@@ -0,0 +1,126 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.Match;
+import com.bhfantasy.web.model.Stadium;
+import com.bhfantasy.web.model.Team;
+import com.bhfantasy.web.model.players.Player;
+
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Identity map of matches, players, teams and stadiums resolved during one ingestion run.
+ *
+ * It's preloaded in bulk for the league when the run starts and shared by all pipeline stages.
+ * Lookups that found nothing are remembered as empty entries until the entity is created.
+ * Teams are keyed by code and league, an entry means the team is already linked with that league.
+ */
+public class ResolutionCache {
+
+    private final ConcurrentMap<Long, Optional<Match>> matches = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<Long, Optional<Player>> players = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Team> teams = new ConcurrentHashMap<>();
+
+    private final ConcurrentMap<String, Optional<Stadium>> stadiums = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+
+    private final AtomicLong misses = new AtomicLong();
+
+    public void preloadMatches(Iterable<Match> preloadedMatches) {
+        preloadedMatches.forEach(match -> {
+            if (match.getTransfermarktId() != null) {
+                matches.put(match.getTransfermarktId(), Optional.of(match));
+            }
+        });
+    }
+
+    public void preloadPlayers(Iterable<Player> preloadedPlayers) {
+        preloadedPlayers.forEach(this::putPlayer);
+    }
+
+    public void preloadTeams(Iterable<Team> preloadedTeams, Long leagueId) {
+        preloadedTeams.forEach(team -> putTeam(team, leagueId));
+    }
+
+    public void preloadStadiums(Iterable<Stadium> preloadedStadiums) {
+        preloadedStadiums.forEach(this::putStadium);
+    }
+
+    public Optional<Match> getMatch(Long transfermarktId, Function<Long, Optional<Match>> loader) {
+        return get(matches, transfermarktId, loader);
+    }
+
+    public Optional<Player> getPlayer(Long transferMarktId, Function<Long, Optional<Player>> loader) {
+        return get(players, transferMarktId, loader);
+    }
+
+    public void putPlayer(Player player) {
+        if (player != null && player.getTransferMarktId() != null) {
+            players.put(player.getTransferMarktId(), Optional.of(player));
+        }
+    }
+
+    public Team getTeam(String code, Long leagueId) {
+        Team team = teams.get(teamKey(code, leagueId));
+
+        if (team != null) {
+            hits.incrementAndGet();
+        } else {
+            misses.incrementAndGet();
+        }
+
+        return team;
+    }
+
+    public void putTeam(Team team, Long leagueId) {
+        if (team != null && team.getCode() != null) {
+            teams.put(teamKey(team.getCode(), leagueId), team);
+        }
+    }
+
+    public Optional<Stadium> getStadium(String key, Function<String, Optional<Stadium>> loader) {
+        return get(stadiums, key, loader);
+    }
+
+    public void putStadium(Stadium stadium) {
+        if (stadium != null && stadium.getKey() != null) {
+            stadiums.put(stadium.getKey(), Optional.of(stadium));
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private <K, V> Optional<V> get(ConcurrentMap<K, Optional<V>> map, K key, Function<K, Optional<V>> loader) {
+        Optional<V> value = map.get(key);
+
+        if (value != null) {
+            hits.incrementAndGet();
+
+            return value;
+        }
+
+        misses.incrementAndGet();
+
+        value = loader.apply(key);
+
+        Optional<V> existingValue = map.putIfAbsent(key, value);
+
+        return existingValue != null ? existingValue : value;
+    }
+
+    private static String teamKey(String code, Long leagueId) {
+        return code + "@" + leagueId;
+    }
+}
@@ -9,24 +9,24 @@ import com.bhfantasy.web.repository.*;
 import com.bhfantasy.web.utils.CommonUtils;
 import com.bhfantasy.web.model.*;
 import com.bhfantasy.web.service.*;
-import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
 import org.jsoup.nodes.Element;
 import org.jsoup.select.Elements;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.io.IOException;
-import java.net.URL;
 import java.sql.Date;
+import java.time.Duration;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.CancellationException;
 
 @Service
 public class TransferMarktWorker {
@@ -35,13 +35,9 @@ public class TransferMarktWorker {
 
     private static Logger logger = LoggerFactory.getLogger(TransferMarktWorker.class);
 
-    private static final String FORMATION_REGEX = "(?:\\d-)+\\d";
+    private static final DateTimeFormatter DATE_TIME_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd h:mm a");
 
-    private static final String POSITION_REGEX = "(?:Position: (.*))";
-
-    private static final String DATE_REGEX = "(\\d\\d.\\d\\d.\\d\\d\\d\\d)";
-
-    private static final String BACKGROUND_POSITIONS_REGEX = "(-\\d*)px";
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("yyyy-MM-dd");
 
     private final StadiumRepository stadiumRepository;
 
@@ -55,45 +51,75 @@ public class TransferMarktWorker {
 
     private final PlayerService playerService;
 
-    private final GoalRepository goalRepository;
+    private final PageSource pageSource;
 
-    private final LineupRepository lineupRepository;
+    private final MatchReportParser matchReportParser;
 
-    private final SubstitutionRepository substitutionRepository;
+    private final int fetchParallelism;
 
-    private final CardRepository cardRepository;
+    private final int queueCapacity;
 
-    private final MissedPenaltyRepository missedPenaltyRepository;
+    private final Duration liveWindow;
+
+    private final Duration correctionWindow;
 
     public TransferMarktWorker(StadiumRepository stadiumRepository,
-                               GoalRepository goalRepository,
                                MatchService matchService,
                                TeamService teamService,
                                RoundService roundService,
                                LeagueService leagueService,
                                PlayerService playerService,
-                               LineupRepository lineupRepository,
-                               SubstitutionRepository substitutionRepository,
-                               CardRepository cardRepository,
-                               MissedPenaltyRepository missedPenaltyRepository) {
+                               PageSource pageSource,
+                               MatchReportParser matchReportParser,
+                               @Value("${bhfantasy.workers.fetch-parallelism:4}") int fetchParallelism,
+                               @Value("${bhfantasy.workers.queue-capacity:32}") int queueCapacity,
+                               @Value("${bhfantasy.workers.live.window-minutes:0}") long liveWindow,
+                               @Value("${bhfantasy.workers.correction-days:0}") long correctionWindow) {
         this.leagueService = leagueService;
         this.roundService = roundService;
         this.teamService = teamService;
         this.matchService = matchService;
         this.playerService = playerService;
-        this.goalRepository = goalRepository;
         this.stadiumRepository = stadiumRepository;
-        this.lineupRepository = lineupRepository;
-        this.substitutionRepository = substitutionRepository;
-        this.cardRepository = cardRepository;
-        this.missedPenaltyRepository = missedPenaltyRepository;
+        this.pageSource = pageSource;
+        this.matchReportParser = matchReportParser;
+        this.fetchParallelism = fetchParallelism;
+        this.queueCapacity = queueCapacity;
+        this.liveWindow = Duration.ofMinutes(liveWindow);
+        this.correctionWindow = Duration.ofDays(correctionWindow);
     }
 
     public RegularLeague process(String transfermarktUrl) {
+        return process(transfermarktUrl, pageSource, new IngestionStats());
+    }
+
+    public RegularLeague process(String transfermarktUrl, IngestionStats stats) {
+        return process(transfermarktUrl, pageSource, stats);
+    }
+
+    public RegularLeague process(String transfermarktUrl, Set<Long> correctionMatchIds) {
+        return process(transfermarktUrl, pageSource, new IngestionStats(), correctionMatchIds);
+    }
+
+    public RegularLeague process(String transfermarktUrl, PageSource pageSource) {
+        return process(transfermarktUrl, pageSource, new IngestionStats());
+    }
+
+    public RegularLeague process(String transfermarktUrl, PageSource pageSource, IngestionStats stats) {
+        return process(transfermarktUrl, pageSource, stats, Collections.emptySet());
+    }
+
+    /**
+     * Processes the league, progress is reported to the given stats while it runs. Reports of finished matches
+     * are fetched again only for the given matches whose correction poll is due. Interrupting the calling
+     * thread cancels processing at the next match with a CancellationException.
+     */
+    public RegularLeague process(String transfermarktUrl, PageSource pageSource, IngestionStats stats,
+                                 Set<Long> correctionMatchIds) {
         RegularLeague league = null;
 
         try {
-            Document document = Jsoup.parse(new URL(BASE_URL.concat(transfermarktUrl)), 10000);
+            Document document = pageSource.get(BASE_URL.concat(transfermarktUrl), PageType.FIXTURES);
 
             Element leagueNameElement = document.selectFirst(".spielername-profil");
 
@@ -119,17 +145,33 @@ public class TransferMarktWorker {
 
             league = leagueService.processRegularLeague(leagueName, getSeasonId(transfermarktUrl));
 
-            if (multiLeague) {
-                Elements groups = document.select(".large-8 .row .large-6");
+            IngestionContext context = new IngestionContext(
+                    pageSource, loadResolutionCache(league), stats, correctionMatchIds);
 
-                processGroups(groups, league);
-            } else {
-                Elements matchDays = document.select(".row .large-6 .box");
+            MatchDetailsPipeline pipeline = new MatchDetailsPipeline(
+                    fetchParallelism, queueCapacity,
+                    (match, matchUrl) -> fetchMatchDetails(match, matchUrl, context),
+                    page -> context.getStats().recordMatchReport(persistMatchDetails(page, context)));
 
-                processRounds(matchDays, league);
+            context.setPipeline(pipeline);
+
+            try {
+                if (multiLeague) {
+                    Elements groups = document.select(".large-8 .row .large-6");
+
+                    processGroups(groups, league, context);
+                } else {
+                    Elements matchDays = document.select(".row .large-6 .box");
+
+                    processRounds(matchDays, league, context);
+                }
+            } finally {
+                pipeline.awaitCompletion();
             }
 
-            logger.info("League {} processed successfully.", leagueName);
+            logger.info("League {} processed successfully: {}, resolution cache hits: {}, misses: {}.",
+                    leagueName, context.getStats(),
+                    context.getResolutionCache().getHits(), context.getResolutionCache().getMisses());
         } catch (IOException e) {
             logger.error("Error while processing url: ".concat(transfermarktUrl));
         }
@@ -137,13 +179,24 @@ public class TransferMarktWorker {
         return league;
     }
 
+    private ResolutionCache loadResolutionCache(RegularLeague league) {
+        ResolutionCache resolutionCache = new ResolutionCache();
+
+        resolutionCache.preloadTeams(teamService.getTeamRepository().findByLeagues_Id(league.getId()), league.getId());
+        resolutionCache.preloadPlayers(playerService.getPlayerRepository().findPlayersWithTeams(league.getId()));
+        resolutionCache.preloadStadiums(stadiumRepository.findAll());
+        resolutionCache.preloadMatches(matchService.getMatchRepository().findLeagueMatches(league.getId()));
+
+        return resolutionCache;
+    }
+
     private String getSeasonId(String transfermarktUrl) {
         int position = transfermarktUrl.indexOf("/saison_id/");
 
         return transfermarktUrl.substring(position + 11);
     }
 
-    private void processGroups(Elements groupElements, RegularLeague league) {
+    private void processGroups(Elements groupElements, RegularLeague league, IngestionContext context) {
         RoundRepository roundRepository = roundService.getRoundRepository();
 
         for(Element groupElement : groupElements) {
@@ -168,6 +221,8 @@ public class TransferMarktWorker {
 
             Round groupRound = null;
 
+            List<Long> roundMatchIds = new ArrayList<>();
+
             int counter = 1;
 
             for(Element tr : trs) {
@@ -184,10 +239,12 @@ public class TransferMarktWorker {
                 if(dateTd != null) {
                     tds.add(0, dateTd);
 
-                    Match match = processMatch(tds, league, group);
+                    Match match = processMatch(tds, league, group, context);
 
                     if (groupRound == null || !CommonUtils.checkIfSameWeek(match.getDateTime(), startDate)) {
                        if (round != null) {
+                           addRound(roundMatchIds, round, groupRound);
+
                            round.setEndDate(endDate);
 
                            roundRepository.save(round);
@@ -213,11 +270,12 @@ public class TransferMarktWorker {
                        groupRound = roundService.getOrCreateRound(roundName, group);
                        groupRound.setStartDate(startDate);
 
+                       context.getStats().recordRound();
+
                        counter++;
                     }
 
-                    match = matchService.addRound(match.getId(), round);
-                    match = matchService.addRound(match.getId(), groupRound);
+                    roundMatchIds.add(match.getId());
 
                     LocalDateTime matchDate = match.getDateTime();
 
@@ -230,12 +288,28 @@ public class TransferMarktWorker {
                     }
                 }
             }
+
+            if(round != null) {
+                addRound(roundMatchIds, round, groupRound);
+
+                round.setEndDate(endDate);
+                groupRound.setEndDate(endDate);
+
+                roundRepository.saveAll(Arrays.asList(round, groupRound));
+            }
         }
 
         leagueService.getRegularLeagueRepository().save(league);
     }
 
-    private void processRounds(Elements matchDays, RegularLeague league) {
+    private void addRound(List<Long> matchIds, Round round, Round groupRound) {
+        matchService.addRound(matchIds, round);
+        matchService.addRound(matchIds, groupRound);
+
+        matchIds.clear();
+    }
+
+    private void processRounds(Elements matchDays, RegularLeague league, IngestionContext context) {
         RoundRepository roundRepository = roundService.getRoundRepository();
 
         for(Element matchDayElement : matchDays) {
@@ -260,19 +334,23 @@ public class TransferMarktWorker {
 
             Elements matchElements = matchDayElement.select("tr");
 
-            processMatches(matchElements, round, league);
+            processMatches(matchElements, round, league, context);
+
+            context.getStats().recordRound();
         }
     }
 
-    private void processMatches(Elements matchElements, Round round, League league) {
+    private void processMatches(Elements matchElements, Round round, League league, IngestionContext context) {
         LocalDateTime startDate = null;
         LocalDateTime endDate = null;
 
+        List<Long> roundMatchIds = new ArrayList<>();
+
         for(Element matchElement : matchElements) {
             Elements elements = matchElement.select("td");
 
             if (elements.size() == 7) {
-                Match match = processMatch(elements, league, null);
+                Match match = processMatch(elements, league, null, context);
 
                 LocalDateTime matchDate = match.getDateTime();
 
@@ -284,11 +362,13 @@ public class TransferMarktWorker {
                     endDate = matchDate;
                 }
 
-                matchService.addRound(match.getId(), round);
+                roundMatchIds.add(match.getId());
             }
         }
 
-        if(round.getStartDate() != startDate || round.getEndDate() != endDate) {
+        matchService.addRound(roundMatchIds, round);
+
+        if(!Objects.equals(round.getStartDate(), startDate) || !Objects.equals(round.getEndDate(), endDate)) {
             round.setStartDate(startDate);
             round.setEndDate(endDate);
 
@@ -296,12 +376,18 @@ public class TransferMarktWorker {
         }
     }
 
-    private Match processMatch(Elements elements, League league, League group) {
+    private Match processMatch(Elements elements, League league, League group, IngestionContext context) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new CancellationException("League processing is cancelled.");
+        }
+
         LocalDateTime matchDate = null;
 
+        context.getStats().recordMatch();
+
         Element matchDetailsElement = elements.get(4).selectFirst("a");
 
-        Long transferMarktId = getTransferMarktId(matchDetailsElement.attr("href"));
+        Long transferMarktId = MatchReportParser.getTransferMarktId(matchDetailsElement.attr("href"));
 
         Element dateElement = elements.get(0).selectFirst("a");
 
@@ -326,10 +412,10 @@ public class TransferMarktWorker {
                 dateTimeRaw = dateTimeRaw.concat(" ").concat(timeRaw);
 
                 matchDate = LocalDateTime.parse(
-                        dateTimeRaw, DateTimeFormatter.ofPattern("yyyy-MM-dd h:mm a"));
+                        dateTimeRaw, DATE_TIME_FORMATTER);
             } else {
                 matchDate = LocalDate.parse(
-                        dateTimeRaw, DateTimeFormatter.ofPattern("yyyy-MM-dd")).atStartOfDay();
+                        dateTimeRaw, DATE_FORMATTER).atStartOfDay();
             }
         } catch (DateTimeParseException e) {
             logger.error("Error while parsing datetime.", e);
@@ -347,13 +433,11 @@ public class TransferMarktWorker {
             // Match is not played
         }
 
-        Optional<Match> matchOptional = matchService.getMatch(transferMarktId);
-
-        Match match = null;
+        String fingerprint = String.join("|",
+                dateElement != null ? dateElement.attr("href") : "", timeRaw,
+                matchDetailsElement.text(), matchDetailsElement.attr("href"));
 
-        if(matchOptional.isPresent()) {
-            match = matchOptional.get();
-        }
+        Match match = context.getResolutionCache().getMatch(transferMarktId, matchService::getMatch).orElse(null);
 
         boolean created = false;
 
@@ -367,288 +451,287 @@ public class TransferMarktWorker {
             Map<String, String> teamMap1 = processTeamMap(elements.get(2).select("a").text(), profilePictureTeam1);
             Map<String, String> teamMap2 = processTeamMap(elements.get(6).select("a").text(), profilePictureTeam2);
 
-            Team team1 = processTeam(teamMap1, league);
-            Team team2 = processTeam(teamMap2, league);
+            Team team1 = processTeam(teamMap1, league, context);
+            Team team2 = processTeam(teamMap2, league, context);
 
             if(group != null) {
-                processTeam(teamMap1, group);
-                processTeam(teamMap2, group);
+                processTeam(teamMap1, group, context);
+                processTeam(teamMap2, group, context);
             }
 
-            match = matchService.createMatch(transferMarktId, team1, team2, matchDate, score1, score2, null);
+            try {
+                match = matchService.createMatch(
+                        transferMarktId, team1, team2, matchDate, score1, score2, null, fingerprint);
+
+                created = true;
+
+                context.getStats().recordCreatedMatch();
+            } catch (DataIntegrityViolationException e) {
+                // Match was created by another run in the meantime, continue with the stored one
+                match = matchService.getMatch(transferMarktId).orElseThrow(() -> e);
+            }
+        } else if(fingerprint.equals(match.getFixtureFingerprint())) {
+            context.getStats().recordSkippedMatch();
+
+            // Fixture row is unchanged, report is only fetched if previous attempt didn't store it or
+            // the report may still be corrected
+            if(match.getScore1() != null && match.getLineup1() == null || isLive(match)
+                    || isCorrectable(match, context)) {
+                context.getPipeline().submit(match, matchDetailsElement.attr("href"));
+            }
 
-            created = true;
-        } else if(match.getLineup1() != null) {
             return match;
         }
 
+        // Changed row of a finished match with stored details, e.g. corrected score, report is fetched again
+        boolean corrected = !created && match.getFixtureFingerprint() != null && match.getLineup1() != null;
+
         if(!created) {
-            match = matchService.updateMatch(match.getId(), matchDate, score1, score2);
+            match = matchService.updateMatch(match.getId(), matchDate, score1, score2, fingerprint);
+
+            context.getStats().recordUpdatedMatch();
         }
 
-        if(match.getScore1() != null) {
-            processMatchDetails(matchDetailsElement.attr("href"), match);
+        if(match.getScore1() != null && (match.getLineup1() == null || corrected) || isLive(match)
+                || isCorrectable(match, context)) {
+            context.getPipeline().submit(match, matchDetailsElement.attr("href"));
         }
 
         return match;
     }
 
-    private Team processTeam(Map<String, String> teamMap, League league) {
-        return teamService.processTeam(teamMap.get("code"), teamMap.get("name"), teamMap.get("picture"), league);
-    }
+    // Kicked off and not finished yet, events recorded so far are stored for live points
+    private boolean isLive(Match match) {
+        if(match.getScore1() != null || match.getDateTime() == null || liveWindow.isZero()) {
+            return false;
+        }
 
-    private String fixTeamProfileImage(String image) {
-        return image.replace("tiny", image.contains("flagge") ? "head" : "normal");
-    }
+        LocalDateTime now = LocalDateTime.now();
 
-    private void processMatchDetails(String matchUrl, Match match) {
-        try {
-            Document document = Jsoup.parse(new URL(BASE_URL.concat(matchUrl)), 10000);
-
-            Elements lineupDocuments = document.select("#main .box .large-6");
+        return !now.isBefore(match.getDateTime()) && now.isBefore(match.getDateTime().plus(liveWindow));
+    }
 
-            if(lineupDocuments.size() == 2) {
-                match.setLineup1(processLineup(lineupDocuments.first(), match.getTeam1()));
-                match.setLineup2(processLineup(lineupDocuments.last(), match.getTeam2()));
-            }
+    // Scorers, cards and substitution minutes are corrected in the report without changing the fixture row.
+    // Unchanged reports don't change the scoring fingerprint, so scoring them again is a no-op
+    private boolean isCorrectable(Match match, IngestionContext context) {
+        if(match.getScore1() == null || match.getLineup1() == null || match.getDateTime() == null
+                || correctionWindow.isZero() || !context.getCorrectionMatchIds().contains(match.getId())) {
+            return false;
+        }
 
-            match.setStadium(processStadium(document.selectFirst("#main .box .sb-zusatzinfos")));
+        return LocalDateTime.now().isBefore(match.getDateTime().plus(correctionWindow));
+    }
 
-            matchService.getMatchRepository().save(match);
+    private Team processTeam(Map<String, String> teamMap, League league, IngestionContext context) {
+        Team team = context.getResolutionCache().getTeam(teamMap.get("code"), league.getId());
 
-            Elements substitutionElements = document.select("#sb-wechsel ul li");
+        if(team != null && Objects.equals(team.getName(), teamMap.get("name"))
+                && Objects.equals(team.getProfilePicture(), teamMap.get("picture"))) {
+            return team;
+        }
 
-            processSubstitutions(substitutionElements, match);
+        team = teamService.processTeam(teamMap.get("code"), teamMap.get("name"), teamMap.get("picture"), league);
 
-            Elements cardElements = document.select("#sb-karten ul li");
+        context.getResolutionCache().putTeam(team, league.getId());
 
-            processCards(cardElements, match);
+        return team;
+    }
 
-            Elements missedPenaltyELements = document.select("#sb-verschossene ul li");
+    private String fixTeamProfileImage(String image) {
+        return image.replace("tiny", image.contains("flagge") ? "head" : "normal");
+    }
 
-            processMissedPenalties(missedPenaltyELements, match);
+    private MatchDetailsPage fetchMatchDetails(Match match, String matchUrl, IngestionContext context) {
+        Document document;
 
-            Elements goalElements = document.select("#sb-tore ul li");
+        try {
+            // Live report changes until the match is finished, so it's revalidated like a corrected one
+            PageType pageType = match.getLineup1() != null || match.getScore1() == null
+                    ? PageType.CORRECTED_MATCH_REPORT : PageType.MATCH_REPORT;
 
-            processGoals(goalElements, match);
+            document = context.getPageSource().get(BASE_URL.concat(matchUrl), pageType);
         } catch (IOException e) {
-            logger.error("Error while processing match {}.", matchUrl);
-        }
-    }
+            logger.error("Error while processing match {}.", matchUrl, e);
 
-    private Stadium processStadium(Element stadiumElement) {
-        if(stadiumElement == null) {
             return null;
         }
 
-        Elements elements = stadiumElement.select("a");
-
-        String stadionName = null;
+        MatchDetailsPage page = new MatchDetailsPage(match, matchUrl, matchReportParser.parse(document));
 
-        for(Element element : elements) {
-            if(element.attr("href") != null && element.attr("href").startsWith("/stadion")) {
-                stadionName = element.text();
+        for(Long transferMarktId : page.getReport().getLineupPlayerIds()) {
+            if(!isPlayerInfoRequired(transferMarktId, context)) {
+                continue;
             }
-        }
-
-        if(stadionName != null) {
-            Optional<Stadium> optionalStadium = stadiumRepository.findByKey(stadionName);
 
-            if(optionalStadium.isPresent()) {
-                return optionalStadium.get();
-            }
+            Document tooltipDocument = fetchPlayerTooltip(transferMarktId, context.getPageSource());
 
-            Stadium stadium = new Stadium();
-            stadium.setKey(stadionName);
-            stadium.setName(stadionName);
+            PlayerTooltip tooltip = tooltipDocument != null ? matchReportParser.parsePlayerTooltip(tooltipDocument) : null;
 
-            return stadiumRepository.save(stadium);
+            if(tooltip != null) {
+                page.getPlayerTooltips().put(transferMarktId, tooltip);
+            }
         }
 
-        return null;
+        return page;
     }
 
-    private void processMissedPenalties(Elements missedPenaltyElements, Match match) {
-        List<MissedPenalty> missedPenalties = new ArrayList<>();
+    private int persistMatchDetails(MatchDetailsPage page, IngestionContext context) {
+        MatchReport report = page.getReport();
 
-        for(Element misserPenaltyElement : missedPenaltyElements) {
-            MissedPenalty missedPenalty = new MissedPenalty();
+        Match match = page.getMatch();
 
-            missedPenalty.setMinute(calculateMinute(misserPenaltyElement.selectFirst(".sb-sprite-uhr-klein")));
+        boolean lineupsParsed = report.getHomeLineup() != null || report.getAwayLineup() != null;
 
-            Team team = match.getTeam1();
-            Team otherTeam = match.getTeam2();
+        if(lineupsParsed) {
+            match.setLineup1(processLineup(report.getHomeLineup(), match.getTeam1(), page.getPlayerTooltips(), context));
+            match.setLineup2(processLineup(report.getAwayLineup(), match.getTeam2(), page.getPlayerTooltips(), context));
+        }
 
-            if(misserPenaltyElement.hasClass("sb-aktion-gast")) {
-                team = match.getTeam2();
-                otherTeam = match.getTeam1();
-            }
+        match.setStadium(processStadium(report.getStadiumName(), context));
 
-            Elements playerElements = misserPenaltyElement.select(".sb-aktion-aktion span");
+        // Events are assembled in memory and written with the match in one flush. Stored lineups kept
+        // for a report without lineups keep their stored substitutions
+        List<Substitution> substitutions = lineupsParsed
+                ? processSubstitutions(report.getSubstitutions(), match, context) : Collections.emptyList();
 
-            for(Element playerElementSpan : playerElements) {
-                Element playerElement = playerElementSpan.selectFirst("a");
+        List<Card> cards = processCards(report.getCards(), match, context);
 
-                if(playerElement == null) {
-                    continue;
-                }
+        List<MissedPenalty> missedPenalties = processMissedPenalties(report.getMissedPenalties(), match, context);
 
-                Player player = new Unknown();
-                player.setTransferMarktId(Long.parseLong(playerElement.attr("id")));
+        List<Goal> goals = processGoals(report.getGoals(), match, context);
 
-                populateFirstAndLastName(playerElement.text(), player);
+        matchService.saveMatchDetails(match.getId(), match.getLineup1(), match.getLineup2(), match.getStadium(),
+                substitutions, cards, missedPenalties, goals);
 
-                if(playerElementSpan.text().contains("Saved")) {
-                    missedPenalty.setSavedBy(playerService.processPlayer(player, otherTeam));
-                } else if(!playerElementSpan.text().contains("Missed")){
-                    missedPenalty.setPlayer(playerService.processPlayer(player, team));
-                }
+        int playerCount = 0;
+
+        for(Lineup lineup : Arrays.asList(match.getLineup1(), match.getLineup2())) {
+            if(lineup != null) {
+                playerCount += lineup.getStartingPlayers().size() + lineup.getAvailableSubstitutions().size();
             }
+        }
 
-            missedPenalty.setMatch(match);
+        return playerCount;
+    }
 
-            missedPenalties.add(missedPenalty);
+    private Stadium processStadium(String stadiumName, IngestionContext context) {
+        if(stadiumName == null) {
+            return null;
         }
 
-        missedPenaltyRepository.saveAll(missedPenalties);
-    }
+        Optional<Stadium> optionalStadium = context.getResolutionCache().getStadium(
+                stadiumName, stadiumRepository::findByKey);
 
-    private void processCards(Elements cardElements, Match match) {
-        List<Card> cards = new ArrayList<>();
+        if(optionalStadium.isPresent()) {
+            return optionalStadium.get();
+        }
 
-        for(Element cardElement : cardElements) {
-            Card card = new Card();
+        Stadium stadium = new Stadium();
+        stadium.setKey(stadiumName);
+        stadium.setName(stadiumName);
 
-            card.setMinute(calculateMinute(cardElement.selectFirst(".sb-sprite-uhr-klein")));
+        stadium = stadiumRepository.save(stadium);
 
-            Team team = match.getTeam1();
+        context.getResolutionCache().putStadium(stadium);
 
-            if(cardElement.hasClass("sb-aktion-gast")) {
-                team = match.getTeam2();
-            }
+        return stadium;
+    }
 
-            Element playerElement = cardElement.selectFirst(".sb-aktion-aktion a");
+    private List<MissedPenalty> processMissedPenalties(
+            List<MatchReport.MissedPenaltyEvent> events, Match match, IngestionContext context) {
+        List<MissedPenalty> missedPenalties = new ArrayList<>(events.size());
 
-            Player player = new Unknown();
-            player.setTransferMarktId(Long.parseLong(playerElement.attr("id")));
+        for(MatchReport.MissedPenaltyEvent event : events) {
+            MissedPenalty missedPenalty = new MissedPenalty();
 
-            populateFirstAndLastName(playerElement.text(), player);
+            missedPenalty.setMinute(event.getMinute());
 
-            card.setPlayer(playerService.processPlayer(player, team));
+            Team team = event.isAway() ? match.getTeam2() : match.getTeam1();
+            Team otherTeam = event.isAway() ? match.getTeam1() : match.getTeam2();
 
-            Card.CardType cardType = Card.CardType.YELLOW;
+            if(event.getSavedBy() != null) {
+                missedPenalty.setSavedBy(persistPlayer(event.getSavedBy(), otherTeam, context));
+            }
 
-            if(cardElement.selectFirst(".sb-rot") != null) {
-                cardType = Card.CardType.RED;
+            if(event.getPlayer() != null) {
+                missedPenalty.setPlayer(persistPlayer(event.getPlayer(), team, context));
             }
 
-            card.setCardType(cardType);
-            card.setMatch(match);
+            missedPenalty.setMatch(match);
 
-            cards.add(card);
+            missedPenalties.add(missedPenalty);
         }
 
-        cardRepository.saveAll(cards);
+        return missedPenalties;
     }
 
-    private void processSubstitutions(Elements substitutionElements, Match match) {
-        List<Substitution> substitutions = new ArrayList<>();
+    private List<Card> processCards(List<MatchReport.CardEvent> events, Match match, IngestionContext context) {
+        List<Card> cards = new ArrayList<>(events.size());
 
-        for(Element substitutionElement : substitutionElements) {
-            Substitution substitution = new Substitution();
+        for(MatchReport.CardEvent event : events) {
+            Card card = new Card();
 
-            Team team = match.getTeam1();
+            card.setMinute(event.getMinute());
 
-            Lineup lineup = match.getLineup1();
+            Team team = event.isAway() ? match.getTeam2() : match.getTeam1();
 
-            if(substitutionElement.hasClass("sb-aktion-gast")) {
-                lineup = match.getLineup2();
+            card.setPlayer(persistPlayer(event.getPlayer(), team, context));
+            card.setCardType(event.getCardType());
+            card.setMatch(match);
 
-                team = match.getTeam2();
-            }
+            cards.add(card);
+        }
 
-            substitution.setLineup(lineup);
-            substitution.setMinute(calculateMinute(substitutionElement.selectFirst(".sb-sprite-uhr-klein")));
+        return cards;
+    }
 
-            Element playerInElement = substitutionElement.selectFirst(".sb-aktion-wechsel-ein a");
+    private List<Substitution> processSubstitutions(
+            List<MatchReport.SubstitutionEvent> events, Match match, IngestionContext context) {
+        List<Substitution> substitutions = new ArrayList<>(events.size());
 
-            try {
-                if(playerInElement != null) {
-                    Player playerIn = new Unknown();
-                    playerIn.setTransferMarktId(Long.parseLong(playerInElement.attr("id")));
+        for(MatchReport.SubstitutionEvent event : events) {
+            Substitution substitution = new Substitution();
 
-                    populateFirstAndLastName(playerInElement.text(), playerIn);
+            Team team = event.isAway() ? match.getTeam2() : match.getTeam1();
 
-                    substitution.setPlayer(playerService.processPlayer(playerIn, team));
-                }
+            Lineup lineup = event.isAway() ? match.getLineup2() : match.getLineup1();
 
-                Element playerOutElement = substitutionElement.selectFirst(".sb-aktion-wechsel-aus a");
-
-                Player playerOut = new Unknown();
-                playerOut.setTransferMarktId(Long.parseLong(playerOutElement.attr("id")));
+            substitution.setLineup(lineup);
+            substitution.setMinute(event.getMinute());
 
-                populateFirstAndLastName(playerOutElement.text(), playerOut);
+            if(event.getPlayerIn() != null) {
+                substitution.setPlayer(persistPlayer(event.getPlayerIn(), team, context));
+            }
 
-                substitution.setSubstitutePlayer(playerService.processPlayer(playerOut, team));
+            substitution.setSubstitutePlayer(persistPlayer(event.getPlayerOut(), team, context));
 
-                substitutions.add(substitution);
-            } catch (Exception e) {
-                logger.error("error", e);
-            }
+            substitutions.add(substitution);
         }
 
-        substitutionRepository.saveAll(substitutions);
+        return substitutions;
     }
 
-    private void processGoals(Elements goalElements, Match match) {
-        List<Goal> goals = new ArrayList<>();
+    private List<Goal> processGoals(List<MatchReport.GoalEvent> events, Match match, IngestionContext context) {
+        List<Goal> goals = new ArrayList<>(events.size());
 
-        for(Element goalElement : goalElements) {
+        for(MatchReport.GoalEvent event : events) {
             Goal goal = new Goal();
             goal.setMatch(match);
 
-            Team team = match.getTeam1();
-
-            if(goalElement.hasClass("sb-aktion-gast")) {
-                team = match.getTeam2();
+            if(event.getScorerId() != null) {
+                findPlayer(event.getScorerId(), context).ifPresent(goal::setPlayer);
             }
 
-            Elements playerElements = goalElement.select(".sb-aktion-aktion a");
-
-            if(playerElements.size() > 0) {
-                Element playerElement = playerElements.get(0);
-
-                Long transferMarktId = Long.parseLong(playerElement.attr("id"));
-
-                Optional<Player> optionalPlayer = playerService.getPlayer(transferMarktId);
-
-                optionalPlayer.ifPresent(goal::setPlayer);
+            if(event.getAssistId() != null) {
+                findPlayer(event.getAssistId(), context).ifPresent(goal::setAssist);
             }
 
-            if(playerElements.size() > 1) {
-                Element playerElement = playerElements.get(1);
-
-                Long transferMarktId = Long.parseLong(playerElement.attr("id"));
-
-                Optional<Player> optionalPlayer = playerService.getPlayer(transferMarktId);
-
-                if(optionalPlayer.isPresent()) {
-                    optionalPlayer.ifPresent(goal::setAssist);
-                }
-            }
-
-            goal.setMinute(calculateMinute(goalElement.selectFirst(".sb-sprite-uhr-klein")));
-
-            String[] scoreParts = goalElement.selectFirst(".sb-aktion-spielstand").text().split(":");
-
-            if(scoreParts.length == 2) {
-                goal.setScore1(Integer.parseInt(scoreParts[0]));
-                goal.setScore2(Integer.parseInt(scoreParts[1]));
-            }
-
-            goal.setPenalty(goalElement.text().contains("Penalty"));
-            goal.setOwnGoal(goalElement.text().contains("Own-goal"));
-            goal.setTeam(team);
+            goal.setMinute(event.getMinute());
+            goal.setScore1(event.getScore1());
+            goal.setScore2(event.getScore2());
+            goal.setPenalty(event.isPenalty());
+            goal.setOwnGoal(event.isOwnGoal());
+            goal.setTeam(event.isAway() ? match.getTeam2() : match.getTeam1());
 
             if(goal.getAssist() != null) {
                 goal.setOwnAssist(goal.getPenalty());
@@ -657,38 +740,7 @@ public class TransferMarktWorker {
             goals.add(goal);
         }
 
-        goalRepository.saveAll(goals);
-    }
-
-    private Integer calculateMinute(Element minuteElement) {
-        String minuteStyle = minuteElement.attr("style");
-
-        final Pattern pattern = Pattern.compile(BACKGROUND_POSITIONS_REGEX, Pattern.MULTILINE);
-        final Matcher matcher = pattern.matcher(minuteStyle);
-
-        int x, y;
-
-        if(matcher.find()) {
-            x = Integer.parseInt(matcher.group(1));
-        } else {
-            return null;
-        }
-
-        if(matcher.find()) {
-            y = Integer.parseInt(matcher.group(1));
-        } else {
-            return null;
-        }
-
-        int minute = (1 + (Math.abs(x) / 36)) + 10*((Math.abs(y) / 36));
-
-        try {
-            minute += Integer.parseInt(minuteElement.text());
-        } catch (NumberFormatException e) {
-            //
-        }
-
-        return minute;
+        return goals;
     }
 
     private void populateFirstAndLastName(String fullName, Player player) {
@@ -702,76 +754,40 @@ public class TransferMarktWorker {
         }
     }
 
-    private Lineup processLineup(Element lineupElement, Team team) {
-        try {
-            Lineup.Formation formation = parseFormation(lineupElement);
+    private Lineup processLineup(MatchReport.LineupReport lineupReport, Team team,
+                                 Map<Long, PlayerTooltip> playerTooltips, IngestionContext context) {
+        if(lineupReport == null) {
+            return null;
+        }
 
+        try {
             Lineup lineup = new Lineup();
-            lineup.setFormation(formation);
-
-            lineupRepository.save(lineup);
-
-            if(formation != null) {
-                Elements playerElements = lineupElement.select(".aufstellung-spieler-container");
-
-                for (Element playerElement : playerElements) {
-                    Element playerElementA = playerElement.selectFirst("a");
-
-                    Integer numberOnDress = null;
-
-                    try {
-                        numberOnDress = Integer.parseInt(
-                                playerElement.selectFirst(".aufstellung-rueckennummer-box").text());
-                    } catch (Exception e) {
-                        logger.error("Error while parsing number on dress: ", e);
-                    }
+            lineup.setFormation(lineupReport.getFormation());
 
-                    Player player = processPlayerUrl(
-                            playerElementA.text(), playerElementA.attr("href"), team, numberOnDress);
+            List<MatchReport.LineupPlayer> lineupPlayers = new ArrayList<>(lineupReport.getStartingPlayers());
+            lineupPlayers.addAll(lineupReport.getSubstitutes());
 
-                    lineup.getStartingPlayers().add(player);
+            List<Player> players = new ArrayList<>(lineupPlayers.size());
 
-                    if(playerElement.selectFirst(".kapitaenicon-formation") != null) {
-                        lineup.setCapiten(player);
-                    }
-                }
-
-                Elements substitutionElements = lineupElement.select(".aufstellung-ersatzbank-box tr");
+            for(MatchReport.LineupPlayer lineupPlayer : lineupPlayers) {
+                players.add(processLineupPlayer(lineupPlayer, playerTooltips));
+            }
 
-                for(Element substitutionElement : substitutionElements) {
-                    if(substitutionElement.selectFirst(".spielprofil_tooltip") == null)  {
-                        continue;
-                    }
+            // Whole lineup is stored at once, the bulk writer merges it in a single statement
+            players = persistPlayers(players, team, context);
 
-                    Integer numberOnDress = null;
+            for(int i = 0; i < players.size(); i++) {
+                if(i < lineupReport.getStartingPlayers().size()) {
+                    lineup.getStartingPlayers().add(players.get(i));
 
-                    try {
-                        numberOnDress = Integer.parseInt(
-                                substitutionElement.selectFirst("td").text());
-                    } catch (Exception e) {
-                        //
+                    if(lineupPlayers.get(i).isCaptain()) {
+                        lineup.setCapiten(players.get(i));
                     }
-
-                    Element playerElement = substitutionElement.select("tr").last().selectFirst("a");
-
-                    Player player = processPlayerUrl(
-                            playerElement.text(), playerElement.attr("href"), team, numberOnDress);
-
-                    lineup.getAvailableSubstitutions().add(player);
-                }
-            } else {
-                Elements playerElements = lineupElement.select(".spielprofil_tooltip");
-
-                for(Element playerElement : playerElements) {
-                    Player player = processPlayerUrl(
-                            playerElement.text(), playerElement.attr("href"), team, null);
-
-                    lineup.getStartingPlayers().add(player);
+                } else {
+                    lineup.getAvailableSubstitutions().add(players.get(i));
                 }
             }
 
-            lineupRepository.save(lineup);
-
             return lineup;
         } catch (Exception e) {
             logger.error("Error while processing lineup.", e);
@@ -780,48 +796,25 @@ public class TransferMarktWorker {
         return null;
     }
 
-    private Player processPlayerUrl(String playerName, String playerInfoUrl, Team team, Integer numberOnDress) {
-        Long transferMarktId = getTransferMarktId(playerInfoUrl);
+    private Player processLineupPlayer(MatchReport.LineupPlayer lineupPlayer, Map<Long, PlayerTooltip> playerTooltips) {
+        Long transferMarktId = lineupPlayer.getTransferMarktId();
 
-        Optional<Player> optionalPlayer = playerService.getPlayer(transferMarktId);
-
-        boolean fetchPlayerInfo = true;
-
-        if(optionalPlayer.isPresent()) {
-            Player player = optionalPlayer.get();
-
-            if(player.getPosition() != null && player.getTransferMarktId() != null) {
-                fetchPlayerInfo = false;
-            }
-        }
+        String playerName = lineupPlayer.getName();
 
         Player player = null;
 
-        if(transferMarktId != null && fetchPlayerInfo) {
-            try {
-                Document document = Jsoup.connect(BASE_URL.concat("/spieler/_profilTooltip"))
-                        .data("spieler_id", transferMarktId.toString()).timeout(10000).post();
-
-                playerName = document.select(".spielername-kurzprofil a").text();
+        if(transferMarktId != null) {
+            // Tooltips are downloaded by the fetch stage, a missing one means player info is up to date
+            PlayerTooltip tooltip = playerTooltips.get(transferMarktId);
 
-                Player.Position position = parsePosition(document.selectFirst(".kurzprofil-infos"));
+            if(tooltip != null) {
+                playerName = tooltip.getName();
 
-                player = Player.getInstance(position);
-                player.setPosition(position);
-
-                String marketValueRaw = document.selectFirst(".kurzprofil-marktwert")
-                        .text().replace("Market Value: ", "");
-
-                LocalDate dateBirth = parseDate(document.selectFirst(".kurzprofil-infos-text")
-                        .selectFirst("br").previousSibling().toString());
-
-                String profilePicture = document.selectFirst(".bilderrahmen").attr("src");
-
-                player.setProfilePicture(profilePicture);
-                player.setBirthDate(dateBirth != null ? Date.valueOf(dateBirth) : null);
-                player.setMarketValueRaw(marketValueRaw);
-            } catch (IOException e) {
-                logger.error("Error while loading player info.", e);
+                player = Player.getInstance(tooltip.getPosition());
+                player.setPosition(tooltip.getPosition());
+                player.setProfilePicture(tooltip.getProfilePicture());
+                player.setBirthDate(tooltip.getBirthDate() != null ? Date.valueOf(tooltip.getBirthDate()) : null);
+                player.setMarketValueRaw(tooltip.getMarketValueRaw());
             }
         }
 
@@ -829,77 +822,114 @@ public class TransferMarktWorker {
             player = new Unknown();
         }
 
-        player.setNumberoOnDress(numberOnDress);
+        player.setNumberoOnDress(lineupPlayer.getNumberOnDress());
         player.setTransferMarktId(transferMarktId);
 
         populateFirstAndLastName(playerName, player);
 
-        return playerService.processPlayer(player, team);
+        return player;
     }
 
-    private Long getTransferMarktId(String url) {
-        String[] parts = url.split("/");
+    private Player persistPlayer(MatchReport.PlayerReference reference, Team team, IngestionContext context) {
+        Player player = new Unknown();
+        player.setTransferMarktId(reference.getTransferMarktId());
+
+        populateFirstAndLastName(reference.getName(), player);
+
+        return persistPlayer(player, team, context);
+    }
 
+    private Optional<Player> findPlayer(Long transferMarktId, IngestionContext context) {
+        return context.getResolutionCache().getPlayer(transferMarktId, playerService::getPlayer);
+    }
+
+    private boolean isPlayerInfoRequired(Long transferMarktId, IngestionContext context) {
+        Optional<Player> optionalPlayer = findPlayer(transferMarktId, context);
+
+        return !optionalPlayer.isPresent() || optionalPlayer.get().getPosition() == null;
+    }
+
+    private Document fetchPlayerTooltip(Long transferMarktId, PageSource pageSource) {
         try {
-            return Long.parseLong(parts[parts.length - 1]);
-        } catch (NumberFormatException e) {
+            return pageSource.post(BASE_URL.concat("/spieler/_profilTooltip"),
+                    Collections.singletonMap("spieler_id", transferMarktId.toString()), PageType.PLAYER_TOOLTIP);
+        } catch (IOException e) {
+            logger.error("Error while loading player info.", e);
+
             return null;
         }
     }
 
-    private Player.Position parsePosition(Element element) {
-        String posititonText = element.select("br").last().previousSibling().toString();
+    private Player persistPlayer(Player player, Team team, IngestionContext context) {
+        if(player.getTransferMarktId() != null) {
+            Optional<Player> cachedPlayer = findPlayer(player.getTransferMarktId(), context);
 
-        final Pattern pattern = Pattern.compile(POSITION_REGEX, Pattern.MULTILINE);
-        final Matcher matcher = pattern.matcher(posititonText);
+            if(cachedPlayer.isPresent() && playerService.isUpToDate(cachedPlayer.get(), player, team)) {
+                return cachedPlayer.get();
+            }
+        }
 
-        if(matcher.find()) {
-            String position = matcher.group(1).trim();
+        Player persistedPlayer;
 
-            return Player.Position.getPosition(position);
-        } else {
-            return Player.Position.UNKNOWN;
+        try {
+            persistedPlayer = playerService.processPlayer(player, team);
+        } catch (DataIntegrityViolationException e) {
+            // Player was inserted by another run in the meantime, second attempt finds it by transferMarktId
+            persistedPlayer = playerService.processPlayer(player, team);
         }
+
+        context.getResolutionCache().putPlayer(persistedPlayer);
+
+        return persistedPlayer;
     }
 
-    private LocalDate parseDate(String dateText) {
-        final Pattern pattern = Pattern.compile(DATE_REGEX, Pattern.MULTILINE);
-        final Matcher matcher = pattern.matcher(dateText);
+    private List<Player> persistPlayers(List<Player> players, Team team, IngestionContext context) {
+        List<Player> persistedPlayers = new ArrayList<>(players);
 
-        if(matcher.find()) {
-            String date = matcher.group(0);
+        List<Player> pendingPlayers = new ArrayList<>();
 
-            return LocalDate.parse(date, DateTimeFormatter.ofPattern("dd.MM.yyyy"));
-        } else {
-            return null;
-        }
-    }
+        for(int i = 0; i < players.size(); i++) {
+            Player player = players.get(i);
 
-    private Lineup.Formation parseFormation(Element lineupElement) {
-        Element row = lineupElement.selectFirst(".row");
+            if(player.getTransferMarktId() != null) {
+                Optional<Player> cachedPlayer = findPlayer(player.getTransferMarktId(), context);
 
-        if(row == null) {
-            return null;
+                if(cachedPlayer.isPresent() && playerService.isUpToDate(cachedPlayer.get(), player, team)) {
+                    persistedPlayers.set(i, cachedPlayer.get());
+
+                    continue;
+                }
+            }
+
+            pendingPlayers.add(player);
         }
 
-        Element div = row.selectFirst("div");
+        if(pendingPlayers.isEmpty()) {
+            return persistedPlayers;
+        }
 
-        if(div == null) {
-            return null;
+        List<Player> processedPlayers;
+
+        try {
+            processedPlayers = playerService.processPlayers(pendingPlayers, team);
+        } catch (DataIntegrityViolationException e) {
+            // Some player was inserted by another run in the meantime, second attempt finds it by transferMarktId
+            processedPlayers = playerService.processPlayers(pendingPlayers, team);
         }
 
-        String text = div.text();
+        int processedIndex = 0;
 
-        final Pattern pattern = Pattern.compile(FORMATION_REGEX, Pattern.MULTILINE);
-        final Matcher matcher = pattern.matcher(text);
+        for(int i = 0; i < persistedPlayers.size(); i++) {
+            if(processedIndex < pendingPlayers.size() && persistedPlayers.get(i) == pendingPlayers.get(processedIndex)) {
+                Player persistedPlayer = processedPlayers.get(processedIndex++);
 
-        if(matcher.find()) {
-            String formation = matcher.group(0);
+                context.getResolutionCache().putPlayer(persistedPlayer);
 
-            return Lineup.Formation.valueOf("F_" + formation.replace("-", "_"));
-        } else {
-            return null;
+                persistedPlayers.set(i, persistedPlayer);
+            }
         }
+
+        return persistedPlayers;
     }
 
     private Map<String, String> processTeamMap(String teamName, String profilePicture) {
@@ -0,0 +1,121 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.league.ScoringRules;
+import org.junit.Test;
+
+import static com.bhfantasy.web.service.PointsAccumulator.*;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Compiled default rules have to give the points PointsValue calculated before scoring rules were configurable.
+ */
+public class CompiledScoringRulesTest {
+
+    private static final int[] TYPES = { UNKNOWN, GOALKEEPER, DEFENDER, MIDDLE, STRIKER };
+
+    // Points per type in the order of TYPES
+    private static final int[] GOAL_POINTS = { 6, 6, 6, 5, 4 };
+
+    private static final int[] CLEAN_SHEET_POINTS = { 0, 4, 4, 1, 0 };
+
+    @Test
+    public void defaultGoalPoints() {
+        for (int i = 0; i < TYPES.length; i++) {
+            assertEvent(TYPES[i], GOAL, GOAL_POINTS[i]);
+        }
+    }
+
+    @Test
+    public void defaultEventPoints() {
+        for (int type : TYPES) {
+            assertEvent(type, OWN_GOAL, -2);
+            assertEvent(type, ASSIST, 3);
+            assertEvent(type, SAVED_PENALTY, 5);
+            assertEvent(type, MISSED_PENALTY, -2);
+        }
+    }
+
+    @Test
+    public void defaultCardPoints() {
+        for (int type : TYPES) {
+            assertFlags(type, YELLOW_CARD, -1);
+            assertFlags(type, RED_CARD, -3);
+            // Red card replaces the yellow one
+            assertFlags(type, YELLOW_CARD | RED_CARD, -3);
+        }
+    }
+
+    @Test
+    public void defaultCleanSheetPoints() {
+        for (int i = 0; i < TYPES.length; i++) {
+            assertFlags(TYPES[i], CLEAN_SHEET, CLEAN_SHEET_POINTS[i]);
+        }
+    }
+
+    @Test
+    public void defaultAppearancePoints() {
+        for (int type : TYPES) {
+            assertEquals(0, CompiledScoringRules.DEFAULT.evaluate(type, 0, 0));
+            assertEquals(1, CompiledScoringRules.DEFAULT.evaluate(type, 0, 1));
+            assertEquals(1, CompiledScoringRules.DEFAULT.evaluate(type, 0, 59));
+            assertEquals(2, CompiledScoringRules.DEFAULT.evaluate(type, 0, 60));
+            assertEquals(2, CompiledScoringRules.DEFAULT.evaluate(type, 0, 90));
+        }
+    }
+
+    @Test
+    public void eventsAreCountedEachTime() {
+        PointsAccumulator points = new PointsAccumulator();
+
+        int entry = points.entry(1, STRIKER);
+
+        points.addGoal(entry);
+        points.addGoal(entry);
+        points.addAssist(entry);
+        points.addYellowCard(entry);
+
+        assertEquals(2 * 4 + 3 - 1 + 2, CompiledScoringRules.DEFAULT.evaluate(STRIKER, points.getCounters(entry), 90));
+    }
+
+    @Test
+    public void customRulesReplaceOnlySetValues() {
+        ScoringRules rules = new ScoringRules();
+        rules.setGoalStriker(5);
+        rules.setCleanSheetMiddle(2);
+
+        CompiledScoringRules compiled = CompiledScoringRules.compile(rules);
+
+        assertEquals(5, compiled.evaluate(STRIKER, counters(STRIKER, GOAL), 0));
+        assertEquals(5, compiled.evaluate(MIDDLE, counters(MIDDLE, GOAL), 0));
+        assertEquals(2, compiled.evaluate(MIDDLE, CLEAN_SHEET, 0));
+        assertEquals(4, compiled.evaluate(DEFENDER, CLEAN_SHEET, 0));
+        assertEquals(3, compiled.evaluate(STRIKER, counters(STRIKER, ASSIST), 0));
+    }
+
+    private static void assertEvent(int type, int event, int expected) {
+        assertEquals("type " + type + ", event " + event, expected,
+                CompiledScoringRules.DEFAULT.evaluate(type, counters(type, event), 0));
+    }
+
+    private static void assertFlags(int type, long flags, int expected) {
+        assertEquals("type " + type + ", flags " + Long.toHexString(flags), expected,
+                CompiledScoringRules.DEFAULT.evaluate(type, flags, 0));
+    }
+
+    private static long counters(int type, int event) {
+        PointsAccumulator points = new PointsAccumulator();
+
+        int entry = points.entry(1, type);
+
+        switch (event) {
+            case GOAL: points.addGoal(entry); break;
+            case OWN_GOAL: points.addOwnGoal(entry); break;
+            case ASSIST: points.addAssist(entry); break;
+            case SAVED_PENALTY: points.addSavedPenalty(entry); break;
+            case MISSED_PENALTY: points.addMissedPenalty(entry); break;
+            default: throw new IllegalArgumentException("Unknown event " + event);
+        }
+
+        return points.getCounters(entry);
+    }
+}
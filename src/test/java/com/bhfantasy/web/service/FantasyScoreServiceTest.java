@@ -0,0 +1,184 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.FantasyLineupScore;
+import com.bhfantasy.web.model.Lineup;
+import com.bhfantasy.web.model.PlayerPoints;
+import com.bhfantasy.web.model.players.*;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+public class FantasyScoreServiceTest {
+
+    private static final long GOAL = 1L << (PointsAccumulator.GOAL * 8);
+
+    private static final CompiledScoringRules RULES = CompiledScoringRules.DEFAULT;
+
+    private final Player goalkeeper = player(new Goalkeaper(), 1L);
+
+    private final Player defender1 = player(new Defender(), 2L);
+
+    private final Player defender2 = player(new Defender(), 3L);
+
+    private final Player middle = player(new Middle(), 4L);
+
+    private final Player striker = player(new Striker(), 5L);
+
+    private final Player substituteMiddle = player(new Middle(), 6L);
+
+    private final Player substituteDefender1 = player(new Defender(), 7L);
+
+    private final Player substituteDefender2 = player(new Defender(), 8L);
+
+    private Lineup lineup;
+
+    private Map<Long, List<PlayerPoints>> roundPoints;
+
+    @Before
+    public void setUp() {
+        lineup = new Lineup();
+        lineup.setStartingPlayers(new LinkedHashSet<>(Arrays.asList(goalkeeper, defender1, defender2, middle, striker)));
+        lineup.setAvailableSubstitutions(new LinkedHashSet<>(Arrays.asList(
+                substituteMiddle, substituteDefender1, substituteDefender2)));
+        lineup.setCapiten(striker);
+        lineup.setViceCapiten(middle);
+
+        roundPoints = new HashMap<>();
+
+        // The second defender has no points in the round
+        for (Player player : Arrays.asList(goalkeeper, defender1, middle, striker, substituteMiddle)) {
+            played(player, 90, 0L);
+        }
+    }
+
+    @Test
+    public void starterWhoDidNotPlayIsReplacedBySubstituteOfSamePosition() {
+        // The first defender on the bench sat there the whole match, the second came on and scored
+        played(defender2, 0, 0L);
+        played(substituteDefender1, 0, 0L);
+        played(substituteDefender2, 30, GOAL);
+
+        FantasyLineupScore score = calculate(true);
+
+        assertEquals(1, (int) score.getAutoSubstitutions());
+        assertEquals(startersPoints() + points(substituteDefender2, 30, GOAL) + points(striker, 90, 0L),
+                (int) score.getPoints());
+        assertFalse(score.getProvisional());
+    }
+
+    @Test
+    public void nothingIsReplacedBeforeRoundIsCompleted() {
+        played(substituteDefender2, 30, GOAL);
+
+        FantasyLineupScore score = calculate(false);
+
+        assertEquals(0, (int) score.getAutoSubstitutions());
+        assertEquals(startersPoints() + points(striker, 90, 0L), (int) score.getPoints());
+        assertTrue(score.getProvisional());
+    }
+
+    @Test
+    public void substituteOfOtherPositionOrWithoutMinutesIsNotUsed() {
+        // Only the midfielder on the bench played
+        FantasyLineupScore score = calculate(true);
+
+        assertEquals(0, (int) score.getAutoSubstitutions());
+        assertEquals(startersPoints() + points(striker, 90, 0L), (int) score.getPoints());
+    }
+
+    @Test
+    public void substituteReplacesOnlyOneStarter() {
+        roundPoints.remove(defender1.getId());
+        played(substituteDefender1, 90, 0L);
+
+        FantasyLineupScore score = calculate(true);
+
+        assertEquals(1, (int) score.getAutoSubstitutions());
+        assertEquals(startersPoints() + points(substituteDefender1, 90, 0L) + points(striker, 90, 0L),
+                (int) score.getPoints());
+    }
+
+    @Test
+    public void viceCaptainTakesOverOnceRoundIsCompleted() {
+        roundPoints.remove(striker.getId());
+        roundPoints.remove(middle.getId());
+        played(middle, 90, GOAL);
+
+        FantasyLineupScore score = calculate(true);
+
+        assertEquals(middle.getId(), score.getCaptainId());
+        assertEquals(points(middle, 90, GOAL), (int) score.getCaptainPoints());
+        assertEquals(startersPoints() + points(middle, 90, GOAL), (int) score.getPoints());
+
+        // The captain may still play in a later match of the round
+        score = calculate(false);
+
+        assertNull(score.getCaptainId());
+        assertEquals(0, (int) score.getCaptainPoints());
+        assertEquals(startersPoints(), (int) score.getPoints());
+    }
+
+    @Test
+    public void storedPointsWithoutCountersCountAsPlayed() {
+        roundPoints.remove(striker.getId());
+
+        PlayerPoints legacy = new PlayerPoints();
+        legacy.setPlayer(striker);
+        legacy.setPoints(7);
+        roundPoints.put(striker.getId(), Collections.singletonList(legacy));
+
+        FantasyLineupScore score = calculate(true);
+
+        assertEquals(striker.getId(), score.getCaptainId());
+        assertEquals(7, (int) score.getCaptainPoints());
+        assertEquals(0, (int) score.getAutoSubstitutions());
+    }
+
+    private FantasyLineupScore calculate(boolean completed) {
+        FantasyLineupScore score = new FantasyLineupScore();
+
+        FantasyScoreService.calculate(score, lineup, roundPoints, RULES, completed);
+
+        return score;
+    }
+
+    // Points of the starting players who played, without the captain's bonus
+    private int startersPoints() {
+        int points = 0;
+
+        for (Player player : lineup.getStartingPlayers()) {
+            for (PlayerPoints playerPoints : roundPoints.getOrDefault(player.getId(), Collections.emptyList())) {
+                points += playerPoints.getCounters() != null
+                        ? points(player, playerPoints.getMinutesPlayed(), playerPoints.getCounters())
+                        : playerPoints.getPoints();
+            }
+        }
+
+        return points;
+    }
+
+    private void played(Player player, int minutes, long counters) {
+        PlayerPoints playerPoints = new PlayerPoints();
+        playerPoints.setPlayer(player);
+        playerPoints.setMinutesPlayed(minutes);
+        playerPoints.setCounters(counters);
+
+        roundPoints.computeIfAbsent(player.getId(), id -> new ArrayList<>()).add(playerPoints);
+    }
+
+    private static int points(Player player, int minutes, long counters) {
+        return RULES.evaluate(PointsAccumulator.typeOf(player.getClass()), counters, minutes);
+    }
+
+    private static Player player(Player player, Long id) {
+        player.setId(id);
+
+        return player;
+    }
+}
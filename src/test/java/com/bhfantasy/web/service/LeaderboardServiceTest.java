@@ -0,0 +1,132 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.custom.LeaderboardEntryValue;
+import com.bhfantasy.web.model.custom.TeamTotalValue;
+import com.bhfantasy.web.repository.FantasyLineupScoreRepository;
+import com.bhfantasy.web.repository.LeaderboardCheckpointRepository;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class LeaderboardServiceTest {
+
+    private static final Long LEAGUE_ID = 1L;
+
+    private FantasyLineupScoreRepository fantasyLineupScoreRepository;
+
+    private LeaderboardService leaderboardService;
+
+    @Before
+    public void setUp() {
+        fantasyLineupScoreRepository = mock(FantasyLineupScoreRepository.class);
+
+        leaderboardService = new LeaderboardService(fantasyLineupScoreRepository,
+                mock(LeaderboardCheckpointRepository.class));
+
+        // Teams 3 and 4 share the second place, team 5 is ranked fourth
+        when(fantasyLineupScoreRepository.findTeamTotals(anyLong())).thenReturn(Arrays.asList(
+                total(5, 10), total(4, 30), total(1, 50), total(3, 30), total(2, -5)));
+    }
+
+    @After
+    public void tearDown() {
+        leaderboardService.shutdown();
+    }
+
+    @Test
+    public void teamsWithEqualPointsShareRank() {
+        Leaderboard leaderboard = leaderboardService.rebuild(LEAGUE_ID);
+
+        assertEquals(1, rank(leaderboard, 1));
+        assertEquals(2, rank(leaderboard, 3));
+        assertEquals(2, rank(leaderboard, 4));
+        assertEquals(4, rank(leaderboard, 5));
+        assertEquals(5, rank(leaderboard, 2));
+        assertNull(leaderboard.getEntry(6));
+    }
+
+    @Test
+    public void topOrdersEqualPointsByTeamId() {
+        Leaderboard leaderboard = leaderboardService.rebuild(LEAGUE_ID);
+
+        assertEquals(Arrays.asList(1L, 3L, 4L), teamIds(leaderboard.getTop(3)));
+        assertEquals(Arrays.asList(1L, 3L, 4L, 5L, 2L), teamIds(leaderboard.getTop(10)));
+        assertEquals(Arrays.asList(1, 2, 2, 4, 5), leaderboard.getTop(10).stream()
+                .map(LeaderboardEntryValue::getRank).collect(Collectors.toList()));
+        assertTrue(leaderboard.getTop(0).isEmpty());
+    }
+
+    @Test
+    public void aroundIsCutAtBothEnds() {
+        Leaderboard leaderboard = leaderboardService.rebuild(LEAGUE_ID);
+
+        assertEquals(Arrays.asList(1L, 3L), teamIds(leaderboard.getAround(1, 1)));
+        assertEquals(Arrays.asList(1L, 3L, 4L), teamIds(leaderboard.getAround(3, 1)));
+        assertEquals(Arrays.asList(3L, 4L, 5L), teamIds(leaderboard.getAround(4, 1)));
+        assertEquals(Arrays.asList(5L, 2L), teamIds(leaderboard.getAround(2, 1)));
+        assertEquals(Arrays.asList(1L, 3L, 4L, 5L, 2L), teamIds(leaderboard.getAround(4, 10)));
+        assertTrue(leaderboard.getAround(6, 1).isEmpty());
+    }
+
+    @Test
+    public void changedTotalsArePublished() throws InterruptedException {
+        Leaderboard previous = leaderboardService.rebuild(LEAGUE_ID);
+
+        Map<Long, Integer> totals = new HashMap<>();
+        totals.put(2L, 40);
+        totals.put(6L, 30);
+        totals.put(7L, -1000);
+
+        leaderboardService.onTeamScoresChanged(new TeamScoresChangedEvent(LEAGUE_ID, totals));
+
+        Leaderboard leaderboard = awaitChange(previous);
+
+        assertEquals(Arrays.asList(1L, 2L, 3L, 4L, 6L, 5L, 7L), teamIds(leaderboard.getTop(10)));
+        assertEquals(3, rank(leaderboard, 6));
+        assertEquals(7, rank(leaderboard, 7));
+
+        // Published leaderboards don't change with later totals
+        assertEquals(5, rank(previous, 2));
+        assertEquals(5, previous.size());
+        assertNull(previous.getEntry(6));
+    }
+
+    private Leaderboard awaitChange(Leaderboard previous) throws InterruptedException {
+        for (int attempt = 0; attempt < 100; attempt++) {
+            Leaderboard leaderboard = leaderboardService.getLeaderboard(LEAGUE_ID);
+
+            if (leaderboard.getVersion() != previous.getVersion()) {
+                return leaderboard;
+            }
+
+            Thread.sleep(50);
+        }
+
+        throw new AssertionError("Leaderboard was not published.");
+    }
+
+    private static int rank(Leaderboard leaderboard, long teamId) {
+        return leaderboard.getEntry(teamId).getRank();
+    }
+
+    private static List<Long> teamIds(List<LeaderboardEntryValue> entries) {
+        return entries.stream().map(LeaderboardEntryValue::getTeamId).collect(Collectors.toList());
+    }
+
+    private static TeamTotalValue total(long teamId, long points) {
+        return new TeamTotalValue(teamId, points);
+    }
+}
@@ -0,0 +1,79 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.custom.PlayerNameValue;
+import com.bhfantasy.web.repository.PlayerRepository;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Optional;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class PlayerNameIndexTest {
+
+    private PlayerNameIndex playerNameIndex;
+
+    @Before
+    public void setUp() {
+        PlayerRepository playerRepository = mock(PlayerRepository.class);
+
+        when(playerRepository.findPlayerNames()).thenReturn(Arrays.asList(
+                new PlayerNameValue(1L, 101L, "Edin", "D\u017eeko", 10L),
+                new PlayerNameValue(2L, 102L, "Amer", "D\u017eeko", 20L),
+                new PlayerNameValue(3L, 103L, "Miralem", "Pjani\u0107", 10L),
+                new PlayerNameValue(3L, 103L, "Miralem", "Pjani\u0107", 30L),
+                new PlayerNameValue(4L, null, "Asmir", "Begovi\u0107", 40L),
+                new PlayerNameValue(5L, 105L, "Martin", "\u00d8degaard", 50L)));
+
+        playerNameIndex = new PlayerNameIndex(playerRepository);
+    }
+
+    @Test
+    public void normalizeFoldsAccentsAndCase() {
+        assertEquals("dzeko", PlayerNameIndex.normalize("D\u017eeko"));
+        assertEquals("pjanic", PlayerNameIndex.normalize("PJANI\u0106"));
+        assertEquals("odegaard", PlayerNameIndex.normalize("\u00d8degaard"));
+        assertEquals("dordevic", PlayerNameIndex.normalize("\u0110or\u0111evi\u0107"));
+        assertEquals("strasser", PlayerNameIndex.normalize("Stra\u00dfer"));
+    }
+
+    @Test
+    public void normalizeCollapsesPunctuationAndSpaces() {
+        assertEquals("jean pierre", PlayerNameIndex.normalize("  Jean-Pierre. "));
+        assertEquals("o neil", PlayerNameIndex.normalize("O'Neil"));
+        assertEquals("", PlayerNameIndex.normalize(null));
+        assertEquals("", PlayerNameIndex.normalize(" - "));
+    }
+
+    @Test
+    public void plainSpellingFindsAccentedName() {
+        assertEquals(Optional.of(3L), playerNameIndex.find("Miralem", "Pjanic", null, null));
+        assertEquals(Optional.of(5L), playerNameIndex.find("martin", "ODEGAARD", null, null));
+    }
+
+    @Test
+    public void sameFirstNameRanksAboveSameTeam() {
+        // Amer plays for team 20, but the first name is Edin's
+        assertEquals(Optional.of(1L), playerNameIndex.find("Edin", "Dzeko", 20L, null));
+        assertEquals(Optional.of(2L), playerNameIndex.find("Amer", "Dzeko", 10L, null));
+    }
+
+    @Test
+    public void lastNameAloneMatchesOnlyWithinTeam() {
+        assertEquals(Optional.of(2L), playerNameIndex.find(null, "Dzeko", 20L, null));
+        assertEquals(Optional.of(3L), playerNameIndex.find("M.", "Pjanic", 30L, null));
+        assertEquals(Optional.empty(), playerNameIndex.find(null, "Dzeko", 99L, null));
+        assertEquals(Optional.empty(), playerNameIndex.find("Edin", "Unknown", 10L, null));
+    }
+
+    @Test
+    public void differentTransferMarktIdIsNeverMatched() {
+        assertEquals(Optional.empty(), playerNameIndex.find("Edin", "Dzeko", 10L, 999L));
+        assertEquals(Optional.of(1L), playerNameIndex.find("Edin", "Dzeko", 10L, 101L));
+        // Players without transferMarktId can still be matched by name
+        assertEquals(Optional.of(4L), playerNameIndex.find("Asmir", "Begovic", null, 104L));
+    }
+}
@@ -0,0 +1,194 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.model.custom.MatchSnapshot;
+import com.bhfantasy.web.model.players.Defender;
+import com.bhfantasy.web.model.players.Goalkeaper;
+import com.bhfantasy.web.model.players.Middle;
+import com.bhfantasy.web.model.players.Player;
+import com.bhfantasy.web.model.players.Striker;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class PointsCalculatorTest {
+
+    private static final MatchSnapshot.PlayerSnapshot GOALKEEPER_1 = player(1, Goalkeaper.class);
+
+    private static final MatchSnapshot.PlayerSnapshot DEFENDER_1 = player(2, Defender.class);
+
+    private static final MatchSnapshot.PlayerSnapshot MIDDLE_1 = player(3, Middle.class);
+
+    private static final MatchSnapshot.PlayerSnapshot STRIKER_1 = player(4, Striker.class);
+
+    private static final MatchSnapshot.PlayerSnapshot SUBSTITUTE_1 = player(5, Defender.class);
+
+    private static final MatchSnapshot.PlayerSnapshot SUBSTITUTE_2 = player(6, Defender.class);
+
+    private static final MatchSnapshot.PlayerSnapshot GOALKEEPER_2 = player(11, Goalkeaper.class);
+
+    private static final MatchSnapshot.PlayerSnapshot STRIKER_2 = player(14, Striker.class);
+
+    @Test
+    public void substitutionChain() {
+        MatchSnapshot.LineupSnapshot lineup1 = lineup(Arrays.asList(GOALKEEPER_1, DEFENDER_1),
+                substitution(SUBSTITUTE_1, DEFENDER_1, 30), substitution(SUBSTITUTE_2, SUBSTITUTE_1, 70));
+
+        PointsCalculator.Result result = PointsCalculator.calculate(match(0, 0, lineup1, Collections.emptyList()));
+
+        assertFalse(result.isReviewRequired());
+        assertEquals(90, minutes(result, GOALKEEPER_1));
+        assertEquals(30, minutes(result, DEFENDER_1));
+        assertEquals(40, minutes(result, SUBSTITUTE_1));
+        assertEquals(20, minutes(result, SUBSTITUTE_2));
+        assertTrue(hasCleanSheet(result, GOALKEEPER_1));
+        assertFalse(hasCleanSheet(result, SUBSTITUTE_1));
+        assertEquals(1, points(result, SUBSTITUTE_2));
+    }
+
+    @Test
+    public void goalConcededBeforeSubstitution() {
+        MatchSnapshot.LineupSnapshot lineup1 = lineup(Arrays.asList(GOALKEEPER_1, DEFENDER_1),
+                substitution(SUBSTITUTE_1, DEFENDER_1, 65));
+
+        PointsCalculator.Result result = PointsCalculator.calculate(match(0, 1, lineup1,
+                Collections.singletonList(goal(STRIKER_2, 30, false, 2))));
+
+        assertFalse(result.isReviewRequired());
+        assertEquals(65, minutes(result, DEFENDER_1));
+        assertFalse(hasCleanSheet(result, DEFENDER_1));
+        assertFalse(hasCleanSheet(result, GOALKEEPER_1));
+    }
+
+    @Test
+    public void goalConcededAfterSubstitution() {
+        MatchSnapshot.LineupSnapshot lineup1 = lineup(Arrays.asList(GOALKEEPER_1, DEFENDER_1),
+                substitution(SUBSTITUTE_1, DEFENDER_1, 65));
+
+        PointsCalculator.Result result = PointsCalculator.calculate(match(0, 1, lineup1,
+                Collections.singletonList(goal(STRIKER_2, 80, false, 2))));
+
+        assertFalse(result.isReviewRequired());
+        assertTrue(hasCleanSheet(result, DEFENDER_1));
+        assertEquals(2 + 4, points(result, DEFENDER_1));
+        assertFalse(hasCleanSheet(result, GOALKEEPER_1));
+        assertFalse(hasCleanSheet(result, SUBSTITUTE_1));
+    }
+
+    @Test
+    public void goalWithoutMinuteIsConcededAtTheEnd() {
+        MatchSnapshot.LineupSnapshot lineup1 = lineup(Arrays.asList(GOALKEEPER_1, DEFENDER_1),
+                substitution(SUBSTITUTE_1, DEFENDER_1, 65));
+
+        PointsCalculator.Result result = PointsCalculator.calculate(match(0, 1, lineup1,
+                Collections.singletonList(goal(STRIKER_2, null, false, 2))));
+
+        assertFalse(result.isReviewRequired());
+        assertEquals(90, minutes(result, GOALKEEPER_1));
+        assertTrue(hasCleanSheet(result, DEFENDER_1));
+        assertFalse(hasCleanSheet(result, GOALKEEPER_1));
+        assertEquals(1, PointsAccumulator.count(counters(result, STRIKER_2), PointsAccumulator.GOAL));
+    }
+
+    @Test
+    public void ownGoal() {
+        MatchSnapshot.LineupSnapshot lineup1 = lineup(Arrays.asList(GOALKEEPER_1, DEFENDER_1));
+
+        // Side of the goal isn't recorded, it's conceded by the lineup of the player who scored it
+        PointsCalculator.Result result = PointsCalculator.calculate(match(0, 1, lineup1,
+                Collections.singletonList(goal(DEFENDER_1, 50, true, 0))));
+
+        assertFalse(result.isReviewRequired());
+        assertEquals(1, PointsAccumulator.count(counters(result, DEFENDER_1), PointsAccumulator.OWN_GOAL));
+        assertEquals(0, PointsAccumulator.count(counters(result, DEFENDER_1), PointsAccumulator.GOAL));
+        assertFalse(hasCleanSheet(result, GOALKEEPER_1));
+        assertFalse(hasCleanSheet(result, DEFENDER_1));
+        assertTrue(hasCleanSheet(result, GOALKEEPER_2));
+        assertEquals(2 - 2, points(result, DEFENDER_1));
+    }
+
+    @Test
+    public void missingConcededGoalRequiresReview() {
+        MatchSnapshot.LineupSnapshot lineup1 = lineup(Arrays.asList(GOALKEEPER_1, DEFENDER_1));
+
+        PointsCalculator.Result result = PointsCalculator.calculate(match(0, 1, lineup1, Collections.emptyList()));
+
+        assertTrue(result.isReviewRequired());
+        assertFalse(hasCleanSheet(result, GOALKEEPER_1));
+        assertFalse(hasCleanSheet(result, DEFENDER_1));
+        assertTrue(hasCleanSheet(result, GOALKEEPER_2));
+    }
+
+    @Test
+    public void cleanSheetOfStrikerAndMiddle() {
+        MatchSnapshot.LineupSnapshot lineup1 = lineup(Arrays.asList(GOALKEEPER_1, MIDDLE_1, STRIKER_1));
+
+        PointsCalculator.Result result = PointsCalculator.calculate(match(0, 0, lineup1, Collections.emptyList()));
+
+        assertTrue(hasCleanSheet(result, MIDDLE_1));
+        assertTrue(hasCleanSheet(result, STRIKER_1));
+        assertEquals(2 + 1, points(result, MIDDLE_1));
+        assertEquals(2, points(result, STRIKER_1));
+        assertEquals(2 + 4, points(result, GOALKEEPER_1));
+    }
+
+    private static MatchSnapshot match(int score1, int score2, MatchSnapshot.LineupSnapshot lineup1,
+                                       List<MatchSnapshot.GoalSnapshot> goals) {
+        MatchSnapshot.LineupSnapshot lineup2 = lineup(Arrays.asList(GOALKEEPER_2, STRIKER_2));
+
+        return new MatchSnapshot(1L, score1, score2, lineup1, lineup2, goals, Collections.emptyList(),
+                Collections.emptyList());
+    }
+
+    private static MatchSnapshot.LineupSnapshot lineup(List<MatchSnapshot.PlayerSnapshot> startingPlayers,
+                                                       MatchSnapshot.SubstitutionSnapshot... substitutions) {
+        return new MatchSnapshot.LineupSnapshot(startingPlayers, new ArrayList<>(Arrays.asList(substitutions)));
+    }
+
+    private static MatchSnapshot.SubstitutionSnapshot substitution(MatchSnapshot.PlayerSnapshot player,
+                                                                   MatchSnapshot.PlayerSnapshot substitutePlayer,
+                                                                   Integer minute) {
+        return new MatchSnapshot.SubstitutionSnapshot(player, substitutePlayer, minute);
+    }
+
+    private static MatchSnapshot.GoalSnapshot goal(MatchSnapshot.PlayerSnapshot player, Integer minute,
+                                                   boolean ownGoal, int team) {
+        return new MatchSnapshot.GoalSnapshot(player, null, minute, ownGoal, team);
+    }
+
+    private static MatchSnapshot.PlayerSnapshot player(long id, Class<? extends Player> type) {
+        return new MatchSnapshot.PlayerSnapshot(id, type);
+    }
+
+    private static int index(PointsCalculator.Result result, MatchSnapshot.PlayerSnapshot player) {
+        for(int i = 0; i < result.size(); i++) {
+            if(result.getPlayerId(i) == player.getId()) {
+                return i;
+            }
+        }
+
+        throw new AssertionError("Player " + player.getId() + " has no points");
+    }
+
+    private static int minutes(PointsCalculator.Result result, MatchSnapshot.PlayerSnapshot player) {
+        return result.getMinutes(index(result, player));
+    }
+
+    private static long counters(PointsCalculator.Result result, MatchSnapshot.PlayerSnapshot player) {
+        return result.getCounters(index(result, player));
+    }
+
+    private static int points(PointsCalculator.Result result, MatchSnapshot.PlayerSnapshot player) {
+        return result.getPoints(index(result, player));
+    }
+
+    private static boolean hasCleanSheet(PointsCalculator.Result result, MatchSnapshot.PlayerSnapshot player) {
+        return (counters(result, player) & PointsAccumulator.CLEAN_SHEET) != 0;
+    }
+}
@@ -0,0 +1,49 @@
+package com.bhfantasy.web.service;
+
+import com.bhfantasy.web.exception.InvalidScoringRulesException;
+import com.bhfantasy.web.model.league.ScoringRules;
+import org.junit.Before;
+import org.junit.Test;
+
+import javax.validation.Validation;
+
+public class ScoringRulesServiceTest {
+
+    private ScoringRulesService scoringRulesService;
+
+    @Before
+    public void setUp() {
+        scoringRulesService = new ScoringRulesService(null,
+                Validation.buildDefaultValidatorFactory().getValidator(), null);
+    }
+
+    @Test
+    public void acceptsRulesWithoutValues() {
+        scoringRulesService.validate(new ScoringRules());
+    }
+
+    @Test
+    public void acceptsBoundaryValues() {
+        ScoringRules rules = new ScoringRules();
+        rules.setGoalStriker(ScoringRules.MAX_POINTS);
+        rules.setRedCard(ScoringRules.MIN_POINTS);
+
+        scoringRulesService.validate(rules);
+    }
+
+    @Test(expected = InvalidScoringRulesException.class)
+    public void rejectsValueAboveMaximum() {
+        ScoringRules rules = new ScoringRules();
+        rules.setAssist(ScoringRules.MAX_POINTS + 1);
+
+        scoringRulesService.validate(rules);
+    }
+
+    @Test(expected = InvalidScoringRulesException.class)
+    public void rejectsValueBelowMinimum() {
+        ScoringRules rules = new ScoringRules();
+        rules.setCleanSheetGoalkeeper(ScoringRules.MIN_POINTS - 1);
+
+        scoringRulesService.validate(rules);
+    }
+}
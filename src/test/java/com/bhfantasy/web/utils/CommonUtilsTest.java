@@ -0,0 +1,48 @@
+package com.bhfantasy.web.utils;
+
+import org.junit.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class CommonUtilsTest {
+
+    @Test
+    public void weekStartsOnMonday() {
+        // Monday 2019-08-12 to Sunday 2019-08-18
+        LocalDate monday = LocalDate.of(2019, 8, 12);
+
+        assertEquals(monday, CommonUtils.getWeekStart(LocalDateTime.of(2019, 8, 12, 0, 0)));
+        assertEquals(monday, CommonUtils.getWeekStart(LocalDateTime.of(2019, 8, 14, 20, 45)));
+        assertEquals(monday, CommonUtils.getWeekStart(LocalDateTime.of(2019, 8, 18, 23, 59)));
+    }
+
+    @Test
+    public void sundayAndMondayAreInDifferentWeeks() {
+        LocalDateTime sunday = LocalDateTime.of(2019, 8, 18, 21, 0);
+        LocalDateTime monday = LocalDateTime.of(2019, 8, 19, 18, 30);
+
+        assertEquals(LocalDate.of(2019, 8, 12), CommonUtils.getWeekStart(sunday));
+        assertEquals(LocalDate.of(2019, 8, 19), CommonUtils.getWeekStart(monday));
+        assertFalse(CommonUtils.checkIfSameWeek(sunday, monday));
+        assertTrue(CommonUtils.checkIfSameWeek(monday, LocalDateTime.of(2019, 8, 25, 16, 0)));
+    }
+
+    @Test
+    public void weekSpansYearEnd() {
+        // ISO week 1 of 2020 starts on Monday 2019-12-30
+        assertEquals(LocalDate.of(2019, 12, 30), CommonUtils.getWeekStart(LocalDateTime.of(2020, 1, 1, 15, 0)));
+        assertTrue(CommonUtils.checkIfSameWeek(
+                LocalDateTime.of(2019, 12, 30, 20, 0), LocalDateTime.of(2020, 1, 5, 14, 0)));
+    }
+
+    @Test
+    public void missingTimeIsNeverSameWeek() {
+        assertFalse(CommonUtils.checkIfSameWeek(null, LocalDateTime.of(2019, 8, 12, 0, 0)));
+        assertFalse(CommonUtils.checkIfSameWeek(LocalDateTime.of(2019, 8, 12, 0, 0), null));
+    }
+}
@@ -0,0 +1,128 @@
+package com.bhfantasy.web.workers;
+
+import com.bhfantasy.web.model.Card;
+import com.bhfantasy.web.model.Lineup;
+import org.jsoup.Jsoup;
+import org.jsoup.nodes.Document;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Parses a saved match report page, trimmed down to the parts the parser reads.
+ */
+public class MatchReportParserTest {
+
+    private MatchReport report;
+
+    @Before
+    public void setUp() throws IOException {
+        try (InputStream page = getClass().getResourceAsStream("/pages/match-report.html")) {
+            Document document = Jsoup.parse(page, "UTF-8", "https://www.transfermarkt.com");
+
+            report = new MatchReportParser().parse(document);
+        }
+    }
+
+    @Test
+    public void lineups() {
+        MatchReport.LineupReport home = report.getHomeLineup();
+
+        assertEquals(Lineup.Formation.F_4_4_2, home.getFormation());
+        assertEquals(Arrays.asList(11L, 12L, 13L), ids(home.getStartingPlayers()));
+        assertEquals(Arrays.asList(14L), ids(home.getSubstitutes()));
+        assertEquals("Home Defender", home.getStartingPlayers().get(1).getName());
+        assertEquals(Integer.valueOf(5), home.getStartingPlayers().get(1).getNumberOnDress());
+        assertTrue(home.getStartingPlayers().get(1).isCaptain());
+        assertFalse(home.getStartingPlayers().get(0).isCaptain());
+        assertEquals(Integer.valueOf(12), home.getSubstitutes().get(0).getNumberOnDress());
+
+        MatchReport.LineupReport away = report.getAwayLineup();
+
+        assertEquals(Lineup.Formation.F_4_3_3, away.getFormation());
+        assertEquals(Arrays.asList(21L, 22L), ids(away.getStartingPlayers()));
+        assertEquals(Arrays.asList(23L), ids(away.getSubstitutes()));
+        assertNull(away.getSubstitutes().get(0).getNumberOnDress());
+
+        assertEquals("Asim Ferhatovic Hase", report.getStadiumName());
+    }
+
+    @Test
+    public void goals() {
+        List<MatchReport.GoalEvent> goals = report.getGoals();
+
+        assertEquals(3, goals.size());
+
+        assertFalse(goals.get(0).isAway());
+        assertEquals(Integer.valueOf(13), goals.get(0).getMinute());
+        assertEquals(Long.valueOf(13), goals.get(0).getScorerId());
+        assertNull(goals.get(0).getAssistId());
+        assertEquals(Integer.valueOf(1), goals.get(0).getScore1());
+        assertEquals(Integer.valueOf(0), goals.get(0).getScore2());
+        assertTrue(goals.get(0).isPenalty());
+
+        assertTrue(goals.get(1).isAway());
+        assertEquals(Integer.valueOf(41), goals.get(1).getMinute());
+        assertEquals(Long.valueOf(22), goals.get(1).getScorerId());
+        assertEquals(Long.valueOf(23), goals.get(1).getAssistId());
+        assertFalse(goals.get(1).isPenalty());
+        assertFalse(goals.get(1).isOwnGoal());
+
+        // Stoppage time is added to the minute of the sprite
+        assertEquals(Integer.valueOf(93), goals.get(2).getMinute());
+        assertTrue(goals.get(2).isOwnGoal());
+        assertEquals(Integer.valueOf(2), goals.get(2).getScore1());
+    }
+
+    @Test
+    public void substitutions() {
+        List<MatchReport.SubstitutionEvent> substitutions = report.getSubstitutions();
+
+        assertEquals(2, substitutions.size());
+
+        assertFalse(substitutions.get(0).isAway());
+        assertEquals(Integer.valueOf(69), substitutions.get(0).getMinute());
+        assertEquals(Long.valueOf(14), substitutions.get(0).getPlayerIn().getTransferMarktId());
+        assertEquals(Long.valueOf(13), substitutions.get(0).getPlayerOut().getTransferMarktId());
+
+        // Player going off without replacement
+        assertTrue(substitutions.get(1).isAway());
+        assertEquals(Integer.valueOf(85), substitutions.get(1).getMinute());
+        assertNull(substitutions.get(1).getPlayerIn());
+        assertEquals(Long.valueOf(21), substitutions.get(1).getPlayerOut().getTransferMarktId());
+    }
+
+    @Test
+    public void cardsAndMissedPenalties() {
+        List<MatchReport.CardEvent> cards = report.getCards();
+
+        assertEquals(2, cards.size());
+        assertEquals(Card.CardType.YELLOW, cards.get(0).getCardType());
+        assertEquals(Integer.valueOf(32), cards.get(0).getMinute());
+        assertEquals(Long.valueOf(12), cards.get(0).getPlayer().getTransferMarktId());
+        assertEquals(Card.CardType.RED, cards.get(1).getCardType());
+        assertEquals(Integer.valueOf(76), cards.get(1).getMinute());
+        assertTrue(cards.get(1).isAway());
+
+        List<MatchReport.MissedPenaltyEvent> missedPenalties = report.getMissedPenalties();
+
+        assertEquals(1, missedPenalties.size());
+        assertEquals(Integer.valueOf(58), missedPenalties.get(0).getMinute());
+        assertEquals(Long.valueOf(23), missedPenalties.get(0).getPlayer().getTransferMarktId());
+        assertEquals(Long.valueOf(11), missedPenalties.get(0).getSavedBy().getTransferMarktId());
+    }
+
+    private static List<Long> ids(List<MatchReport.LineupPlayer> players) {
+        return players.stream().map(MatchReport.PlayerReference::getTransferMarktId).collect(Collectors.toList());
+    }
+}